@@ -1,4 +1,7 @@
 -- 1. 电池类型（可随时扩展）
+DROP TABLE IF EXISTS signal_dead_letter;
+DROP TABLE IF EXISTS signal_outbox;
+DROP TABLE IF EXISTS signal_journal_offset;
 DROP TABLE IF EXISTS warning;
 DROP TABLE IF EXISTS `signal`;
 DROP TABLE IF EXISTS vehicle;
@@ -110,9 +113,13 @@ CREATE TABLE IF NOT EXISTS `signal` (
     battery_type_id  INT          NOT NULL,
     signal_data      TEXT         NOT NULL,
     processed        TINYINT(1)   NOT NULL DEFAULT 0,
+    dispatched_at    TIMESTAMP    NULL,                       -- 扫描投递租约，见 UnprocessedSignalScanner
+    dead_lettered    TINYINT(1)   NOT NULL DEFAULT 0,         -- 已转入死信，扫描不再投递，重放时清除
     is_delete        TINYINT(1)   NOT NULL DEFAULT 0,
     created_at       TIMESTAMP    DEFAULT CURRENT_TIMESTAMP,
-    updated_at       TIMESTAMP    DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at       TIMESTAMP    DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    KEY idx_signal_unprocessed (processed, is_delete, id),
+    KEY idx_signal_dispatched (processed, is_delete, dispatched_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 6. 预警记录
@@ -124,7 +131,40 @@ CREATE TABLE IF NOT EXISTS warning (
     rule_name        VARCHAR(64)  NOT NULL,
     warn_level       INT          NOT NULL,
     signal_data      TEXT         NOT NULL,
+    occurrences      INT          NOT NULL DEFAULT 1,           -- 抑制窗口内合并的重复次数
+    last_seen_at     TIMESTAMP    NULL,
     is_delete        TINYINT(1)   NOT NULL DEFAULT 0,
     created_at       TIMESTAMP    DEFAULT CURRENT_TIMESTAMP,
     updated_at       TIMESTAMP    DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 7. 信号预写日志加载检查点（与信号写入同一事务提交）
+CREATE TABLE IF NOT EXISTS signal_journal_offset (
+    journal_id       VARCHAR(64)  PRIMARY KEY,
+    last_seq         BIGINT       NOT NULL DEFAULT 0,
+    updated_at       TIMESTAMP    DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 8. 信号事件发件箱（与信号写入同一事务提交，由 SignalOutboxRelay 按 id 顺序投递后删除）
+CREATE TABLE IF NOT EXISTS signal_outbox (
+    id               BIGINT       AUTO_INCREMENT PRIMARY KEY,
+    signal_id        BIGINT       NOT NULL,
+    car_id           INT          NOT NULL,
+    payload          VARBINARY(255) NOT NULL,
+    created_at       TIMESTAMP    DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 9. 信号消息死信（消费重试耗尽或无法解码的消息，可通过 /api/admin/dead-letters 查看与重放）
+CREATE TABLE IF NOT EXISTS signal_dead_letter (
+    id               BIGINT       AUTO_INCREMENT PRIMARY KEY,
+    msg_id           VARCHAR(64)  NOT NULL,
+    queue            VARCHAR(128) NOT NULL,
+    signal_id        BIGINT       NULL,                         -- 消息体无法解码时为空
+    car_id           INT          NULL,
+    payload          BLOB         NOT NULL,
+    attempts         INT          NOT NULL,
+    error            VARCHAR(1024) NOT NULL,
+    created_at       TIMESTAMP    DEFAULT CURRENT_TIMESTAMP,
+    replayed_at      TIMESTAMP    NULL,
+    KEY idx_dead_letter_pending (replayed_at, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
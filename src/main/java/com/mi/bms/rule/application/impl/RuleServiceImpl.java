@@ -1,9 +1,11 @@
 package com.mi.bms.rule.application.impl;
 
 import com.mi.bms.rule.application.RuleService;
+import com.mi.bms.rule.domain.expression.RuleExpression;
 import com.mi.bms.rule.domain.model.WarnRule;
 import com.mi.bms.rule.domain.model.WarnRule.RuleCondition;
 import com.mi.bms.rule.domain.repository.WarnRuleRepository;
+import com.mi.bms.rule.domain.service.RuleEngine;
 import com.mi.bms.rule.interfaces.rest.dto.RuleItemRequest;
 import com.mi.bms.rule.interfaces.rest.dto.RuleItemResponse;
 import com.mi.bms.rule.interfaces.rest.dto.RuleRequest;
@@ -25,8 +27,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class RuleServiceImpl implements RuleService {
 
+        // 与 warn_rule.expr 列宽一致
+        private static final int MAX_EXPR_LENGTH = 32;
+
         private final WarnRuleRepository ruleRepository;
         private final BatteryTypeRepository batteryTypeRepository;
+        private final RuleEngine ruleEngine;
 
         @Override
         @Transactional
@@ -35,6 +41,7 @@ public class RuleServiceImpl implements RuleService {
                 if (ruleRepository.existsByRuleNo(request.getRuleNo())) {
                         throw new BusinessException("ALREADY_EXISTS", "规则编号已存在");
                 }
+                validateExpression(request.getExpr());
 
                 // Get battery type
                 BatteryType batteryType = batteryTypeRepository.findById(request.getBatteryTypeId())
@@ -59,6 +66,7 @@ public class RuleServiceImpl implements RuleService {
 
                 // Save rule
                 rule = ruleRepository.save(rule);
+                ruleEngine.reloadAfterCommit();
 
                 // Build response
                 return buildRuleResponse(rule);
@@ -76,6 +84,7 @@ public class RuleServiceImpl implements RuleService {
                                 ruleRepository.existsByRuleNo(request.getRuleNo())) {
                         throw new BusinessException("ALREADY_EXISTS", "规则编号已存在");
                 }
+                validateExpression(request.getExpr());
 
                 // Get battery type
                 BatteryType batteryType = batteryTypeRepository.findById(request.getBatteryTypeId())
@@ -97,6 +106,7 @@ public class RuleServiceImpl implements RuleService {
 
                 // Save rule
                 rule = ruleRepository.save(rule);
+                ruleEngine.reloadAfterCommit();
 
                 // Build response
                 return buildRuleResponse(rule);
@@ -109,6 +119,7 @@ public class RuleServiceImpl implements RuleService {
                                 .orElseThrow(() -> new ResourceNotFoundException("WarnRule", "id", ruleId));
                 rule.markAsDeleted();
                 ruleRepository.save(rule);
+                ruleEngine.reloadAfterCommit();
         }
 
         @Override
@@ -143,6 +154,18 @@ public class RuleServiceImpl implements RuleService {
                                 .collect(Collectors.toList());
         }
 
+        private void validateExpression(String expr) {
+                if (expr != null && expr.length() > MAX_EXPR_LENGTH) {
+                        throw new BusinessException("INVALID_EXPR",
+                                        "规则表达式长度不能超过" + MAX_EXPR_LENGTH + "个字符");
+                }
+                try {
+                        RuleExpression.compile(expr);
+                } catch (IllegalArgumentException e) {
+                        throw new BusinessException("INVALID_EXPR", "规则表达式无效: " + e.getMessage());
+                }
+        }
+
         private RuleResponse buildRuleResponse(WarnRule rule) {
                 RuleResponse response = new RuleResponse();
                 response.setId(rule.getId());
@@ -0,0 +1,317 @@
+package com.mi.bms.rule.domain.expression;
+
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+
+import java.util.Locale;
+
+/**
+ * 规则表达式解析器（递归下降），产出语法树。
+ * <p>
+ * 语法（优先级由低到高）：
+ * <pre>
+ * or      := and (("OR" | "||") and)*
+ * and     := cmp (("AND" | "&amp;&amp;") cmp)*
+ * cmp     := sum (("&lt;" | "&lt;=" | "&gt;" | "&gt;=" | "==" | "!=") sum)?
+ * sum     := term (("+" | "-") term)*
+ * term    := unary (("*" | "/") unary)*
+ * unary   := "-" unary | primary
+ * primary := NUMBER | CHANNEL | CHANNEL "_" CHANNEL | FUNC "(" or ("," or)* ")" | "(" or ")"
+ * </pre>
+ * 通道名为 Mx/Mi/Ix/Ii（不区分大小写），函数为 abs/min/max，关键字不区分大小写。
+ * {@code MX_MI} 这类写法是历史规则的简写，等价于 {@code Mx - Mi}。
+ */
+final class ExpressionParser {
+
+    private final String source;
+    private int pos;
+
+    private ExpressionParser(String source) {
+        this.source = source;
+    }
+
+    static Node parse(String source) {
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("Expression is empty");
+        }
+        ExpressionParser parser = new ExpressionParser(source);
+        Node node = parser.parseOr();
+        parser.skipWhitespace();
+        if (parser.pos < source.length()) {
+            throw parser.error("Unexpected '" + source.charAt(parser.pos) + "'");
+        }
+        return node;
+    }
+
+    private Node parseOr() {
+        Node left = parseAnd();
+        while (acceptKeyword("OR") || accept("||")) {
+            left = Node.binary(Op.OR, left, parseAnd());
+        }
+        return left;
+    }
+
+    private Node parseAnd() {
+        Node left = parseComparison();
+        while (acceptKeyword("AND") || accept("&&")) {
+            left = Node.binary(Op.AND, left, parseComparison());
+        }
+        return left;
+    }
+
+    private Node parseComparison() {
+        Node left = parseSum();
+        Op op = accept("<=") ? Op.LE
+                : accept(">=") ? Op.GE
+                : accept("==") ? Op.EQ
+                : accept("!=") ? Op.NE
+                : accept("<") ? Op.LT
+                : accept(">") ? Op.GT
+                : null;
+        return op == null ? left : Node.binary(op, left, parseSum());
+    }
+
+    private Node parseSum() {
+        Node left = parseTerm();
+        while (true) {
+            if (accept("+")) {
+                left = Node.binary(Op.ADD, left, parseTerm());
+            } else if (accept("-")) {
+                left = Node.binary(Op.SUB, left, parseTerm());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Node parseTerm() {
+        Node left = parseUnary();
+        while (true) {
+            if (accept("*")) {
+                left = Node.binary(Op.MUL, left, parseUnary());
+            } else if (accept("/")) {
+                left = Node.binary(Op.DIV, left, parseUnary());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Node parseUnary() {
+        if (accept("-")) {
+            return Node.unary(Op.NEG, parseUnary());
+        }
+        return parsePrimary();
+    }
+
+    private Node parsePrimary() {
+        skipWhitespace();
+        if (pos >= source.length()) {
+            throw error("Unexpected end of expression");
+        }
+        char c = source.charAt(pos);
+        if (accept("(")) {
+            Node inner = parseOr();
+            expect(")");
+            return inner;
+        }
+        if (Character.isDigit(c) || c == '.') {
+            return parseNumber();
+        }
+        if (Character.isLetter(c)) {
+            return parseIdentifier();
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private Node parseNumber() {
+        int start = pos;
+        while (pos < source.length() && (Character.isDigit(source.charAt(pos)) || source.charAt(pos) == '.')) {
+            pos++;
+        }
+        try {
+            return Node.constant(Double.parseDouble(source.substring(start, pos)));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + source.substring(start, pos) + "'");
+        }
+    }
+
+    private Node parseIdentifier() {
+        int start = pos;
+        while (pos < source.length() && (Character.isLetterOrDigit(source.charAt(pos)) || source.charAt(pos) == '_')) {
+            pos++;
+        }
+        String name = source.substring(start, pos).toUpperCase(Locale.ROOT);
+
+        int underscore = name.indexOf('_');
+        if (underscore > 0) {
+            int minuend = channel(name.substring(0, underscore));
+            int subtrahend = channel(name.substring(underscore + 1));
+            if (minuend < 0 || subtrahend < 0) {
+                throw error("Unknown identifier '" + source.substring(start, pos) + "'");
+            }
+            return Node.binary(Op.SUB, Node.channel(minuend), Node.channel(subtrahend));
+        }
+
+        int channel = channel(name);
+        if (channel >= 0) {
+            return Node.channel(channel);
+        }
+
+        Op function = switch (name) {
+            case "ABS" -> Op.ABS;
+            case "MIN" -> Op.MIN;
+            case "MAX" -> Op.MAX;
+            default -> throw error("Unknown identifier '" + source.substring(start, pos) + "'");
+        };
+        expect("(");
+        Node first = parseOr();
+        if (function == Op.ABS) {
+            expect(")");
+            return Node.unary(Op.ABS, first);
+        }
+        Node result = first;
+        int arguments = 1;
+        while (accept(",")) {
+            result = Node.binary(function, result, parseOr());
+            arguments++;
+        }
+        expect(")");
+        if (arguments < 2) {
+            throw error(name.toLowerCase(Locale.ROOT) + "() requires at least two arguments");
+        }
+        return result;
+    }
+
+    private static int channel(String name) {
+        return switch (name) {
+            case "MX" -> SignalValues.MX;
+            case "MI" -> SignalValues.MI;
+            case "IX" -> SignalValues.IX;
+            case "II" -> SignalValues.II;
+            default -> -1;
+        };
+    }
+
+    private boolean accept(String token) {
+        skipWhitespace();
+        if (source.startsWith(token, pos)) {
+            pos += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        skipWhitespace();
+        int end = pos + keyword.length();
+        if (end <= source.length() && source.regionMatches(true, pos, keyword, 0, keyword.length())
+                && (end == source.length() || !Character.isLetterOrDigit(source.charAt(end)))) {
+            pos = end;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("Expected '" + token + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos + " in '" + source + "'");
+    }
+
+    enum Op {
+        CONST, CHANNEL, NEG, ABS, ADD, SUB, MUL, DIV, MIN, MAX, LT, LE, GT, GE, EQ, NE, AND, OR
+    }
+
+    /**
+     * 语法树节点；解释执行即为 {@link #interpret}，编译见 {@link RuleExpression}
+     */
+    static final class Node {
+        final Op op;
+        final double constant;
+        final int channel;
+        final Node left;
+        final Node right;
+
+        private Node(Op op, double constant, int channel, Node left, Node right) {
+            this.op = op;
+            this.constant = constant;
+            this.channel = channel;
+            this.left = left;
+            this.right = right;
+        }
+
+        static Node constant(double value) {
+            return new Node(Op.CONST, value, -1, null, null);
+        }
+
+        static Node channel(int channel) {
+            return new Node(Op.CHANNEL, 0, channel, null, null);
+        }
+
+        static Node unary(Op op, Node operand) {
+            return new Node(op, 0, -1, operand, null);
+        }
+
+        static Node binary(Op op, Node left, Node right) {
+            return new Node(op, 0, -1, left, right);
+        }
+
+        /**
+         * 引用到的通道位掩码
+         */
+        int inputMask() {
+            if (op == Op.CHANNEL) {
+                return 1 << channel;
+            }
+            return (left == null ? 0 : left.inputMask()) | (right == null ? 0 : right.inputMask());
+        }
+
+        boolean isChannelDifference() {
+            return op == Op.SUB && left.op == Op.CHANNEL && right.op == Op.CHANNEL;
+        }
+
+        double interpret(SignalValues values) {
+            if (isChannelDifference()) {
+                return values.difference(left.channel, right.channel);
+            }
+            return switch (op) {
+                case CONST -> constant;
+                case CHANNEL -> values.value(channel);
+                case NEG -> -left.interpret(values);
+                case ABS -> Math.abs(left.interpret(values));
+                case ADD -> left.interpret(values) + right.interpret(values);
+                case SUB -> left.interpret(values) - right.interpret(values);
+                case MUL -> left.interpret(values) * right.interpret(values);
+                case DIV -> left.interpret(values) / right.interpret(values);
+                case MIN -> Math.min(left.interpret(values), right.interpret(values));
+                case MAX -> Math.max(left.interpret(values), right.interpret(values));
+                case LT -> bool(left.interpret(values) < right.interpret(values));
+                case LE -> bool(left.interpret(values) <= right.interpret(values));
+                case GT -> bool(left.interpret(values) > right.interpret(values));
+                case GE -> bool(left.interpret(values) >= right.interpret(values));
+                case EQ -> bool(left.interpret(values) == right.interpret(values));
+                case NE -> bool(left.interpret(values) != right.interpret(values));
+                case AND -> bool(truthy(left.interpret(values)) && truthy(right.interpret(values)));
+                case OR -> bool(truthy(left.interpret(values)) || truthy(right.interpret(values)));
+            };
+        }
+
+        static double bool(boolean value) {
+            return value ? 1 : 0;
+        }
+
+        static boolean truthy(double value) {
+            return value != 0 && !Double.isNaN(value);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.mi.bms.rule.domain.expression;
+
+import com.mi.bms.rule.domain.expression.ExpressionParser.Node;
+import com.mi.bms.rule.domain.expression.ExpressionParser.Op;
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * 编译后的规则表达式（WarnRule.expr）。
+ * <p>
+ * 表达式在规则快照重建时解析一次，语法树被编译为嵌套的 lambda，常量子树预先折叠；
+ * 求值只做 double 运算，不分配对象。两通道相减（包括历史写法 MX_MI / IX_II）按十进制精确相减，
+ * 结果与原先 BigDecimal 相减一致，区间边界上的判定不受二进制浮点误差影响。
+ * 比较与 AND/OR 的结果为 1 或 0，可以直接与规则区间配合使用。
+ * <p>
+ * 批量求值（{@link #evaluate(double[][], int, double[])}）按列逐个运算符执行，每个运算符是一个
+ * 对 double 数组的简单循环，便于 JIT 自动向量化。列式输入已是 double，两通道之差按 1e-9 取整还原十进制结果，
+ * 对不超过 9 位小数的信号值与逐条求值完全一致。
+ */
+public final class RuleExpression {
+
+    private static final double DIFFERENCE_SCALE = 1e9;
+
+    @FunctionalInterface
+    private interface Evaluator {
+        double evaluate(SignalValues values);
+    }
+
+    @Getter
+    private final String source;
+    @Getter
+    private final int inputMask;
+    private final Evaluator evaluator;
+    private final Node tree;
+
+    private RuleExpression(String source, Node tree) {
+        this.source = source;
+        this.tree = tree;
+        this.inputMask = tree.inputMask();
+        this.evaluator = compile(tree);
+    }
+
+    /**
+     * 解析并编译表达式，语法错误时抛出 IllegalArgumentException
+     */
+    public static RuleExpression compile(String source) {
+        return new RuleExpression(source, ExpressionParser.parse(source));
+    }
+
+    /**
+     * 信号是否包含表达式引用的全部通道
+     */
+    public boolean appliesTo(SignalValues values) {
+        return values.hasAll(inputMask);
+    }
+
+    /**
+     * 求值；引用的通道缺失时结果为 NaN
+     */
+    public double evaluate(SignalValues values) {
+        return evaluator.evaluate(values);
+    }
+
+    /**
+     * 列式批量求值：channels[c][i] 为第 i 条信号的通道 c（缺失为 NaN），结果写入 out[0..size)；
+     * 引用的通道缺失的信号结果为 NaN
+     */
+    public void evaluate(double[][] channels, int size, double[] out) {
+        evaluateColumns(tree, channels, size, out);
+        for (int channel = 0; channel < channels.length; channel++) {
+            if ((inputMask & (1 << channel)) != 0) {
+                double[] input = channels[channel];
+                for (int i = 0; i < size; i++) {
+                    if (Double.isNaN(input[i])) {
+                        out[i] = Double.NaN;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 解释执行语法树，仅作为基准对照
+     */
+    double interpret(SignalValues values) {
+        return tree.interpret(values);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private static void evaluateColumns(Node node, double[][] channels, int size, double[] out) {
+        if (node.isChannelDifference()) {
+            double[] a = channels[node.left.channel];
+            double[] b = channels[node.right.channel];
+            for (int i = 0; i < size; i++) {
+                out[i] = Math.rint((a[i] - b[i]) * DIFFERENCE_SCALE) / DIFFERENCE_SCALE;
+            }
+            return;
+        }
+
+        switch (node.op) {
+            case CONST:
+                Arrays.fill(out, 0, size, node.constant);
+                return;
+            case CHANNEL:
+                System.arraycopy(channels[node.channel], 0, out, 0, size);
+                return;
+            case NEG:
+                evaluateColumns(node.left, channels, size, out);
+                for (int i = 0; i < size; i++) {
+                    out[i] = -out[i];
+                }
+                return;
+            case ABS:
+                evaluateColumns(node.left, channels, size, out);
+                for (int i = 0; i < size; i++) {
+                    out[i] = Math.abs(out[i]);
+                }
+                return;
+            default:
+                break;
+        }
+
+        evaluateColumns(node.left, channels, size, out);
+        double[] b = new double[size];
+        evaluateColumns(node.right, channels, size, b);
+        switch (node.op) {
+            case ADD:
+                for (int i = 0; i < size; i++) {
+                    out[i] += b[i];
+                }
+                return;
+            case SUB:
+                for (int i = 0; i < size; i++) {
+                    out[i] -= b[i];
+                }
+                return;
+            case MUL:
+                for (int i = 0; i < size; i++) {
+                    out[i] *= b[i];
+                }
+                return;
+            case DIV:
+                for (int i = 0; i < size; i++) {
+                    out[i] /= b[i];
+                }
+                return;
+            case MIN:
+                for (int i = 0; i < size; i++) {
+                    out[i] = Math.min(out[i], b[i]);
+                }
+                return;
+            case MAX:
+                for (int i = 0; i < size; i++) {
+                    out[i] = Math.max(out[i], b[i]);
+                }
+                return;
+            case LT:
+                for (int i = 0; i < size; i++) {
+                    out[i] = out[i] < b[i] ? 1 : 0;
+                }
+                return;
+            case LE:
+                for (int i = 0; i < size; i++) {
+                    out[i] = out[i] <= b[i] ? 1 : 0;
+                }
+                return;
+            case GT:
+                for (int i = 0; i < size; i++) {
+                    out[i] = out[i] > b[i] ? 1 : 0;
+                }
+                return;
+            case GE:
+                for (int i = 0; i < size; i++) {
+                    out[i] = out[i] >= b[i] ? 1 : 0;
+                }
+                return;
+            case EQ:
+                for (int i = 0; i < size; i++) {
+                    out[i] = out[i] == b[i] ? 1 : 0;
+                }
+                return;
+            case NE:
+                for (int i = 0; i < size; i++) {
+                    out[i] = out[i] != b[i] ? 1 : 0;
+                }
+                return;
+            case AND:
+                for (int i = 0; i < size; i++) {
+                    out[i] = Node.truthy(out[i]) && Node.truthy(b[i]) ? 1 : 0;
+                }
+                return;
+            case OR:
+                for (int i = 0; i < size; i++) {
+                    out[i] = Node.truthy(out[i]) || Node.truthy(b[i]) ? 1 : 0;
+                }
+                return;
+            default:
+                throw new IllegalStateException("Unsupported operator: " + node.op);
+        }
+    }
+
+    private static Evaluator compile(Node node) {
+        if (node.op != Op.CONST && node.inputMask() == 0) {
+            double folded = node.interpret(null);
+            return values -> folded;
+        }
+        if (node.isChannelDifference()) {
+            int minuend = node.left.channel;
+            int subtrahend = node.right.channel;
+            return values -> values.difference(minuend, subtrahend);
+        }
+
+        switch (node.op) {
+            case CONST: {
+                double constant = node.constant;
+                return values -> constant;
+            }
+            case CHANNEL: {
+                int channel = node.channel;
+                return values -> values.value(channel);
+            }
+            case NEG: {
+                Evaluator operand = compile(node.left);
+                return values -> -operand.evaluate(values);
+            }
+            case ABS: {
+                Evaluator operand = compile(node.left);
+                return values -> Math.abs(operand.evaluate(values));
+            }
+            default:
+                break;
+        }
+
+        Evaluator a = compile(node.left);
+        Evaluator b = compile(node.right);
+        switch (node.op) {
+            case ADD:
+                return values -> a.evaluate(values) + b.evaluate(values);
+            case SUB:
+                return values -> a.evaluate(values) - b.evaluate(values);
+            case MUL:
+                return values -> a.evaluate(values) * b.evaluate(values);
+            case DIV:
+                return values -> a.evaluate(values) / b.evaluate(values);
+            case MIN:
+                return values -> Math.min(a.evaluate(values), b.evaluate(values));
+            case MAX:
+                return values -> Math.max(a.evaluate(values), b.evaluate(values));
+            case LT:
+                return values -> Node.bool(a.evaluate(values) < b.evaluate(values));
+            case LE:
+                return values -> Node.bool(a.evaluate(values) <= b.evaluate(values));
+            case GT:
+                return values -> Node.bool(a.evaluate(values) > b.evaluate(values));
+            case GE:
+                return values -> Node.bool(a.evaluate(values) >= b.evaluate(values));
+            case EQ:
+                return values -> Node.bool(a.evaluate(values) == b.evaluate(values));
+            case NE:
+                return values -> Node.bool(a.evaluate(values) != b.evaluate(values));
+            case AND:
+                return values -> Node.bool(Node.truthy(a.evaluate(values)) && Node.truthy(b.evaluate(values)));
+            case OR:
+                return values -> Node.bool(Node.truthy(a.evaluate(values)) || Node.truthy(b.evaluate(values)));
+            default:
+                throw new IllegalStateException("Unsupported operator: " + node.op);
+        }
+    }
+}
@@ -28,4 +28,7 @@ public interface WarnRuleRepository extends JpaRepository<WarnRule, Long> {
 
     @Query("SELECT r FROM WarnRule r LEFT JOIN FETCH r.conditions WHERE r.ruleNo = ?1 AND r.batteryTypeId = ?2")
     List<WarnRule> findByRuleNoAndBatteryTypeIdWithItems(Integer ruleNo, Integer batteryTypeId);
-}
\ No newline at end of file
+
+    @Query("SELECT DISTINCT r FROM WarnRule r LEFT JOIN FETCH r.conditions WHERE r.isDelete = false")
+    List<WarnRule> findAllWithItems();
+}
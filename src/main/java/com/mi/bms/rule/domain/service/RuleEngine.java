@@ -4,16 +4,27 @@ import com.mi.bms.rule.domain.model.WarnRule;
 import com.mi.bms.rule.domain.model.WarnRule.RuleCondition;
 import com.mi.bms.rule.domain.repository.WarnRuleRepository;
 import com.mi.bms.shared.exceptions.ResourceNotFoundException;
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 规则引擎，用于评估信号是否触发预警
+ * <p>
+ * 评估基于内存中的 {@link RuleIndex} 快照，不访问数据库。快照在启动时加载，
+ * 规则增删改提交后由 RuleServiceImpl 触发重建并整体替换，同时定期全量刷新以感知其他节点的变更。
  */
 @Slf4j
 @Service
@@ -22,36 +33,108 @@ public class RuleEngine {
 
     private final WarnRuleRepository ruleRepository;
 
+    private final AtomicReference<RuleIndex> index = new AtomicReference<>();
+
     public Optional<RuleCondition> evaluateSignal(Integer ruleNo, Integer batteryTypeId, BigDecimal value) {
         log.debug("Evaluating signal for ruleNo: {}, batteryTypeId: {}, value: {}", ruleNo, batteryTypeId, value);
 
-        // Get rules for the given rule number and battery type
-        List<WarnRule> rules = ruleRepository.findByRuleNoAndBatteryTypeId(ruleNo, batteryTypeId);
-        if (rules.isEmpty()) {
+        RuleIndex.CompiledRule rule = getIndex().find(batteryTypeId, ruleNo);
+        if (rule == null) {
             log.warn("No rules found for ruleNo: {}, batteryTypeId: {}", ruleNo, batteryTypeId);
             return Optional.empty();
-    }
+        }
+        if (value == null) {
+            return Optional.empty();
+        }
 
-        // Evaluate each rule's conditions
-        for (WarnRule rule : rules) {
-            for (RuleCondition condition : rule.getConditions()) {
-                if (condition.isInRange(value)) {
-                    log.debug("Found matching condition: {}", condition);
-                    return Optional.of(condition);
-                }
-            }
+        RuleCondition condition = rule.match(value.doubleValue());
+        if (condition == null) {
+            log.debug("No matching conditions found for value: {}", value);
+            return Optional.empty();
         }
+        log.debug("Found matching condition: {}", condition);
+        return Optional.of(condition);
+    }
+
+    /**
+     * 按各规则自身的表达式（expr）评估信号，返回命中的规则及预警级别；输入通道缺失的规则被跳过
+     */
+    public List<RuleMatch> evaluate(Integer batteryTypeId, SignalValues values) {
+        List<RuleMatch> matches = getIndex().evaluate(batteryTypeId, values);
+        log.debug("Evaluated signal for batteryTypeId: {}, matches: {}", batteryTypeId, matches);
+        return matches;
+    }
+
+    /**
+     * 只评估指定规则编号（SignalRequest.warnId）对应的规则
+     */
+    public Optional<RuleMatch> evaluate(Integer batteryTypeId, Integer ruleNo, SignalValues values) {
+        return Optional.ofNullable(getIndex().evaluate(batteryTypeId, ruleNo, values));
+    }
 
-        log.debug("No matching conditions found for value: {}", value);
-        return Optional.empty();
+    /**
+     * 列式批量评估单条规则：levels[i] 为第 i 条信号的预警级别（-1 表示未命中），用于历史信号回放与回填。
+     * 规则不存在时全部填 -1
+     */
+    public void evaluateBatch(SignalColumns columns, int ruleNo, int[] levels) {
+        if (levels.length < columns.getSize()) {
+            throw new IllegalArgumentException("Output array is smaller than the batch: " + levels.length);
+        }
+        RuleIndex.CompiledRule rule = getIndex().find(columns.getBatteryTypeId(), ruleNo);
+        if (rule == null) {
+            Arrays.fill(levels, 0, columns.getSize(), -1);
+            return;
+        }
+        rule.evaluate(columns, levels);
     }
 
     public List<WarnRule> getRulesForBatteryType(Integer batteryTypeId) {
-        return ruleRepository.findByBatteryTypeId(batteryTypeId);
+        return getIndex().getRulesForBatteryType(batteryTypeId);
     }
 
     public WarnRule getRuleById(Long ruleId) {
         return ruleRepository.findById(ruleId)
                 .orElseThrow(() -> new ResourceNotFoundException("WarnRule", "id", ruleId));
     }
-}
\ No newline at end of file
+
+    /**
+     * 当前规则快照，首次访问时同步加载
+     */
+    public RuleIndex getIndex() {
+        RuleIndex current = index.get();
+        return current != null ? current : rebuild();
+    }
+
+    /**
+     * 从数据库重建规则快照并原子替换；串行执行，保证后发起的重建不会被先发起的覆盖
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${rule.index.refresh-interval-ms:300000}",
+            fixedDelayString = "${rule.index.refresh-interval-ms:300000}")
+    public void reload() {
+        rebuild();
+    }
+
+    private synchronized RuleIndex rebuild() {
+        RuleIndex rebuilt = RuleIndex.compile(ruleRepository.findAllWithItems());
+        index.set(rebuilt);
+        log.info("Rule index rebuilt: {} rules", rebuilt.size());
+        return rebuilt;
+    }
+
+    /**
+     * 规则变更后调用，在事务提交后重建快照
+     */
+    public void reloadAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+}
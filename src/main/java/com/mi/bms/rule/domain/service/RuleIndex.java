@@ -0,0 +1,303 @@
+package com.mi.bms.rule.domain.service;
+
+import com.mi.bms.rule.domain.expression.RuleExpression;
+import com.mi.bms.rule.domain.model.WarnRule;
+import com.mi.bms.rule.domain.model.WarnRule.RuleCondition;
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 规则索引：全部有效规则编译后的不可变快照，按 (batteryTypeId, ruleNo) 定位。
+ * <p>
+ * 每条规则的区间按下界排序为 double 数组，命中判断为一次二分查找，不访问数据库也不做 BigDecimal 比较。
+ * 同一 key 下的区间存在重叠时（例如无界区间）退化为按原顺序线性扫描，与逐条 isInRange 的语义一致。
+ * 规则表达式（expr）随快照一起编译，无法编译的规则保留在索引中但不参与 {@link #evaluate} 评估。
+ */
+@Slf4j
+public final class RuleIndex {
+
+    private static final CompiledRule[] NO_RULES = new CompiledRule[0];
+
+    private final Map<Long, CompiledRule> rules;
+    private final Map<Integer, List<WarnRule>> rulesByBatteryType;
+    private final Map<Integer, CompiledRule[]> compiledByBatteryType;
+
+    private RuleIndex(Map<Long, CompiledRule> rules, Map<Integer, List<WarnRule>> rulesByBatteryType,
+            Map<Integer, CompiledRule[]> compiledByBatteryType) {
+        this.rules = rules;
+        this.rulesByBatteryType = rulesByBatteryType;
+        this.compiledByBatteryType = compiledByBatteryType;
+    }
+
+    /**
+     * 由已加载区间项的规则编译索引，已删除的规则被忽略
+     */
+    public static RuleIndex compile(List<WarnRule> warnRules) {
+        Map<Long, List<WarnRule>> grouped = new LinkedHashMap<>();
+        Map<Integer, List<WarnRule>> byBatteryType = new HashMap<>();
+        for (WarnRule rule : warnRules) {
+            if (rule.isDeleted()) {
+                continue;
+            }
+            grouped.computeIfAbsent(key(rule.getBatteryTypeId(), rule.getRuleNo()), k -> new ArrayList<>()).add(rule);
+            byBatteryType.computeIfAbsent(rule.getBatteryTypeId(), k -> new ArrayList<>()).add(rule);
+        }
+
+        Map<Long, CompiledRule> compiled = new HashMap<>();
+        Map<Integer, List<CompiledRule>> compiledByBatteryType = new HashMap<>();
+        grouped.forEach((key, group) -> {
+            CompiledRule rule = CompiledRule.compile(group);
+            compiled.put(key, rule);
+            compiledByBatteryType.computeIfAbsent(rule.getBatteryTypeId(), k -> new ArrayList<>()).add(rule);
+        });
+        byBatteryType.replaceAll((batteryTypeId, list) -> Collections.unmodifiableList(list));
+
+        Map<Integer, CompiledRule[]> arrays = new HashMap<>();
+        compiledByBatteryType.forEach((batteryTypeId, list) -> arrays.put(batteryTypeId, list.toArray(NO_RULES)));
+        return new RuleIndex(compiled, byBatteryType, arrays);
+    }
+
+    /**
+     * 按电池类型和规则编号查找编译后的规则，不存在时返回 null
+     */
+    public CompiledRule find(int batteryTypeId, int ruleNo) {
+        return rules.get(key(batteryTypeId, ruleNo));
+    }
+
+    public List<WarnRule> getRulesForBatteryType(Integer batteryTypeId) {
+        return rulesByBatteryType.getOrDefault(batteryTypeId, Collections.emptyList());
+    }
+
+    /**
+     * 某电池类型下全部编译后的规则，调用方不得修改返回的数组
+     */
+    public CompiledRule[] getCompiledRules(Integer batteryTypeId) {
+        return compiledByBatteryType.getOrDefault(batteryTypeId, NO_RULES);
+    }
+
+    /**
+     * 只评估指定规则；规则不存在、输入通道缺失或未命中时返回 null
+     */
+    public RuleMatch evaluate(Integer batteryTypeId, Integer ruleNo, SignalValues values) {
+        CompiledRule rule = find(batteryTypeId, ruleNo);
+        if (rule == null) {
+            return null;
+        }
+        int level = rule.evaluate(values);
+        return level < 0 ? null : new RuleMatch(rule.getRuleNo(), rule.getName(), level);
+    }
+
+    /**
+     * 按各规则自身的表达式评估信号；表达式引用的通道在信号中缺失时跳过该规则
+     */
+    public List<RuleMatch> evaluate(Integer batteryTypeId, SignalValues values) {
+        List<RuleMatch> matches = null;
+        for (CompiledRule rule : getCompiledRules(batteryTypeId)) {
+            int level = rule.evaluate(values);
+            if (level >= 0) {
+                if (matches == null) {
+                    matches = new ArrayList<>(2);
+                }
+                matches.add(new RuleMatch(rule.getRuleNo(), rule.getName(), level));
+            }
+        }
+        return matches == null ? Collections.emptyList() : matches;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    private static long key(int batteryTypeId, int ruleNo) {
+        return ((long) batteryTypeId << 32) | (ruleNo & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 单个 (batteryTypeId, ruleNo) 的全部区间，[lower[i], upper[i]) 对应 conditions[i]
+     */
+    public static final class CompiledRule {
+
+        @Getter
+        private final int ruleNo;
+        @Getter
+        private final int batteryTypeId;
+        @Getter
+        private final String name;
+        @Getter
+        private final RuleExpression expression; // 表达式无法编译时为 null
+        private final double[] lower;
+        private final double[] upper;
+        private final RuleCondition[] conditions;
+        private final int[] levels;
+        private final boolean sorted;
+
+        private CompiledRule(int ruleNo, int batteryTypeId, String name, RuleExpression expression,
+                double[] lower, double[] upper, RuleCondition[] conditions, boolean sorted) {
+            this.ruleNo = ruleNo;
+            this.batteryTypeId = batteryTypeId;
+            this.name = name;
+            this.expression = expression;
+            this.lower = lower;
+            this.upper = upper;
+            this.conditions = conditions;
+            this.levels = new int[conditions.length];
+            for (int i = 0; i < conditions.length; i++) {
+                levels[i] = conditions[i].getWarnLevel();
+            }
+            this.sorted = sorted;
+        }
+
+        static CompiledRule compile(List<WarnRule> group) {
+            List<RuleCondition> ordered = new ArrayList<>();
+            for (WarnRule rule : group) {
+                ordered.addAll(rule.getConditions());
+            }
+
+            List<RuleCondition> byLower = new ArrayList<>(ordered);
+            byLower.sort(Comparator.comparingDouble(CompiledRule::lowerOf).thenComparingDouble(CompiledRule::upperOf));
+            boolean disjoint = true;
+            for (int i = 1; i < byLower.size(); i++) {
+                if (lowerOf(byLower.get(i)) < upperOf(byLower.get(i - 1))) {
+                    disjoint = false;
+                    break;
+                }
+            }
+
+            // 有重叠时保留原顺序，由 match 线性扫描取第一个命中的区间
+            List<RuleCondition> source = disjoint ? byLower : ordered;
+            int n = source.size();
+            double[] lower = new double[n];
+            double[] upper = new double[n];
+            RuleCondition[] conditions = new RuleCondition[n];
+            for (int i = 0; i < n; i++) {
+                RuleCondition condition = source.get(i);
+                lower[i] = lowerOf(condition);
+                upper[i] = upperOf(condition);
+                conditions[i] = condition;
+            }
+            WarnRule first = group.get(0);
+            return new CompiledRule(first.getRuleNo(), first.getBatteryTypeId(), first.getName(),
+                    compileExpression(group), lower, upper, conditions, disjoint);
+        }
+
+        private static RuleExpression compileExpression(List<WarnRule> group) {
+            WarnRule first = group.get(0);
+            for (WarnRule rule : group) {
+                if (!first.getExpr().equals(rule.getExpr())) {
+                    log.warn("Rules {} and {} share ruleNo {} for battery type {} but differ in expr, using '{}'",
+                            first.getId(), rule.getId(), first.getRuleNo(), first.getBatteryTypeId(), first.getExpr());
+                    break;
+                }
+            }
+            try {
+                return RuleExpression.compile(first.getExpr());
+            } catch (IllegalArgumentException e) {
+                log.error("Rule {} (ruleNo {}) has an invalid expr and will not be evaluated: {}",
+                        first.getId(), first.getRuleNo(), e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * 按规则表达式求值并匹配区间，返回预警级别；无命中、表达式无效或输入通道缺失时返回 -1
+         */
+        public int evaluate(SignalValues values) {
+            if (expression == null || !expression.appliesTo(values)) {
+                return -1;
+            }
+            return matchLevel(expression.evaluate(values));
+        }
+
+        /**
+         * 列式批量评估：levels[i] 为第 i 条信号的预警级别，无命中、表达式无效或输入通道缺失时为 -1
+         */
+        public void evaluate(SignalColumns columns, int[] levels) {
+            int size = columns.getSize();
+            if (expression == null) {
+                Arrays.fill(levels, 0, size, -1);
+                return;
+            }
+            double[] values = new double[size];
+            expression.evaluate(columns.channels(), size, values);
+            matchLevels(values, size, levels);
+        }
+
+        /**
+         * 批量区间匹配，out[i] 为 values[i] 所在区间的预警级别，无命中为 -1。
+         * <p>
+         * 外层按区间、内层按信号循环，内层无分支依赖便于向量化；区间倒序写入，
+         * 使重叠时排在前面的区间最终生效，与 {@link #match} 的语义一致。NaN 不满足任何比较，保持 -1。
+         */
+        public void matchLevels(double[] values, int size, int[] out) {
+            Arrays.fill(out, 0, size, -1);
+            for (int j = lower.length - 1; j >= 0; j--) {
+                double lo = lower[j];
+                double hi = upper[j];
+                int level = levels[j];
+                for (int i = 0; i < size; i++) {
+                    double value = values[i];
+                    out[i] = value >= lo && value < hi ? level : out[i];
+                }
+            }
+        }
+
+        /**
+         * 返回包含 value 的区间项，无命中时返回 null
+         */
+        public RuleCondition match(double value) {
+            int i = indexOf(value);
+            return i < 0 ? null : conditions[i];
+        }
+
+        /**
+         * 返回包含 value 的区间的预警级别，无命中时返回 -1
+         */
+        public int matchLevel(double value) {
+            int i = indexOf(value);
+            return i < 0 ? -1 : levels[i];
+        }
+
+        private int indexOf(double value) {
+            if (Double.isNaN(value)) {
+                return -1;
+            }
+            if (!sorted) {
+                for (int i = 0; i < lower.length; i++) {
+                    if (value >= lower[i] && value < upper[i]) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+            // 最后一个 lower <= value 的区间
+            int i = Arrays.binarySearch(lower, value);
+            if (i < 0) {
+                i = -i - 2;
+            } else {
+                // 下界相同时只有排在最后的区间可能非空
+                while (i + 1 < lower.length && lower[i + 1] == value) {
+                    i++;
+                }
+            }
+            return i >= 0 && value < upper[i] ? i : -1;
+        }
+
+        private static double lowerOf(RuleCondition condition) {
+            return condition.getMinVal() == null ? Double.NEGATIVE_INFINITY : condition.getMinVal().doubleValue();
+        }
+
+        private static double upperOf(RuleCondition condition) {
+            return condition.getMaxVal() == null ? Double.POSITIVE_INFINITY : condition.getMaxVal().doubleValue();
+        }
+    }
+}
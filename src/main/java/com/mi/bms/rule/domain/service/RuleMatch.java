@@ -0,0 +1,17 @@
+package com.mi.bms.rule.domain.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 规则评估命中结果
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class RuleMatch {
+    private final Integer ruleNo;
+    private final String ruleName;
+    private final Integer warnLevel;
+}
@@ -0,0 +1,56 @@
+package com.mi.bms.rule.domain.service;
+
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 列式信号批：每个通道一个 double 数组（下标为 SignalValues.MX..II），缺失值为 NaN。
+ * <p>
+ * 同一批次内的信号属于同一电池类型；回放/回填时按电池类型分组后逐批评估。
+ */
+public class SignalColumns {
+
+    private static final int CHANNELS = 4;
+
+    @Getter
+    private final int batteryTypeId;
+    @Getter
+    private final int size;
+    private final double[][] channels;
+
+    public SignalColumns(int batteryTypeId, int size, double[] mx, double[] mi, double[] ix, double[] ii) {
+        this.batteryTypeId = batteryTypeId;
+        this.size = size;
+        this.channels = new double[][] { mx, mi, ix, ii };
+        for (double[] channel : channels) {
+            if (channel == null || channel.length < size) {
+                throw new IllegalArgumentException("Every channel must hold at least " + size + " values");
+            }
+        }
+    }
+
+    /**
+     * 由逐条信号值构造列式批次
+     */
+    public static SignalColumns of(int batteryTypeId, List<SignalValues> values) {
+        int size = values.size();
+        double[][] columns = new double[CHANNELS][size];
+        for (int i = 0; i < size; i++) {
+            SignalValues signalValues = values.get(i);
+            for (int channel = 0; channel < CHANNELS; channel++) {
+                columns[channel][i] = signalValues.value(channel);
+            }
+        }
+        return new SignalColumns(batteryTypeId, size, columns[0], columns[1], columns[2], columns[3]);
+    }
+
+    public double[] channel(int channel) {
+        return channels[channel];
+    }
+
+    double[][] channels() {
+        return channels;
+    }
+}
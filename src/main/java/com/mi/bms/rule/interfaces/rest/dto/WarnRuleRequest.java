@@ -9,6 +9,7 @@ import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import java.util.List;
 
 @Data
@@ -26,6 +27,7 @@ public class WarnRuleRequest {
     private String name;
 
     @NotBlank(message = "表达式不能为空")
+    @Size(max = 32, message = "表达式长度不能超过32个字符")
     private String expr;
 
     @NotBlank(message = "电池类型编码不能为空")
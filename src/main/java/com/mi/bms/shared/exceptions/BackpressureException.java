@@ -0,0 +1,17 @@
+package com.mi.bms.shared.exceptions;
+
+import lombok.Getter;
+
+/**
+ * 系统繁忙（队列已满或正在停机），客户端应在 retryAfterSeconds 秒后重试
+ */
+@Getter
+public class BackpressureException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public BackpressureException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
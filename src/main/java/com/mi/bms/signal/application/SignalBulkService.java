@@ -0,0 +1,13 @@
+package com.mi.bms.signal.application;
+
+import com.mi.bms.signal.interfaces.rest.dto.BulkUploadResponse;
+
+import java.io.Reader;
+
+public interface SignalBulkService {
+
+    /**
+     * 流式批量上报：逐行读取 NDJSON，按固定块大小解析、校验并落库
+     */
+    BulkUploadResponse upload(Reader reader);
+}
@@ -0,0 +1,19 @@
+package com.mi.bms.signal.application;
+
+import com.mi.bms.signal.interfaces.rest.dto.IngestTicketResponse;
+import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
+
+import java.util.List;
+
+public interface SignalIngestService {
+
+    /**
+     * 异步上报电池信号，入队后立即返回凭据；队列已满时抛出 BackpressureException
+     */
+    IngestTicketResponse submit(List<SignalRequest> requests);
+
+    /**
+     * 查询异步上报凭据的处理状态
+     */
+    IngestTicketResponse getTicket(String ticketId);
+}
@@ -1,5 +1,6 @@
 package com.mi.bms.signal.application;
 
+import com.mi.bms.signal.domain.model.Signal;
 import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
 import com.mi.bms.signal.interfaces.rest.dto.SignalResponse;
 
@@ -14,6 +15,11 @@ public interface SignalService {
      */
     List<SignalResponse> reportSignals(@Valid List<SignalRequest> requests);
 
+    /**
+     * 上报电池信号；evaluate 为 true 时按上报值同步评估规则（指定 warnId 时只评估该规则），随响应返回预警级别
+     */
+    List<SignalResponse> reportSignals(@Valid List<SignalRequest> requests, boolean evaluate);
+
     /**
      * 查询指定车辆的信号
      */
@@ -23,4 +29,9 @@ public interface SignalService {
      * 查询所有信号
      */
     List<SignalResponse> getAllSignals(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * 内部方法，已落库信号的后续处理（MQ 事件由发件箱随信号写入，这里只做直接处理）
+     */
+    void dispatch(List<Signal> signals);
 } 
\ No newline at end of file
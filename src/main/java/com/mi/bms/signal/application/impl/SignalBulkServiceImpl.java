@@ -0,0 +1,233 @@
+package com.mi.bms.signal.application.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.mi.bms.signal.application.SignalBulkService;
+import com.mi.bms.signal.application.SignalService;
+import com.mi.bms.signal.interfaces.rest.dto.BulkUploadResponse;
+import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
+import com.mi.bms.signal.interfaces.rest.dto.SignalResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NDJSON 流式批量上报：每行一个 SignalRequest，攒满一块（signal.batch.size）即交给 SignalService 落库。
+ * <p>
+ * 任意时刻只持有一块请求和一行读缓冲，内存占用与上传大小无关；超长行直接跳过并记为失败。
+ */
+@Slf4j
+@Service
+public class SignalBulkServiceImpl implements SignalBulkService {
+
+    private final SignalService signalService;
+    private final ObjectReader requestReader;
+
+    @Value("${signal.batch.size:500}")
+    private int batchSize;
+
+    @Value("${signal.bulk.max-line-length:65536}")
+    private int maxLineLength;
+
+    @Value("${signal.bulk.max-reported-failures:100}")
+    private int maxReportedFailures;
+
+    public SignalBulkServiceImpl(SignalService signalService, ObjectMapper objectMapper) {
+        this.signalService = signalService;
+        this.requestReader = objectMapper.readerFor(SignalRequest.class);
+    }
+
+    @Override
+    public BulkUploadResponse upload(Reader reader) {
+        Summary summary = new Summary();
+        LineReader lines = new LineReader(reader, maxLineLength);
+        List<SignalRequest> chunk = new ArrayList<>(batchSize);
+        List<Long> chunkLines = new ArrayList<>(batchSize);
+
+        try {
+            while (lines.next()) {
+                long lineNo = lines.lineNo();
+                if (lines.tooLong()) {
+                    summary.total++;
+                    summary.reject(lineNo, "Line exceeds " + maxLineLength + " characters");
+                    continue;
+                }
+                if (lines.isBlank()) {
+                    continue;
+                }
+                summary.total++;
+
+                SignalRequest request;
+                try {
+                    request = requestReader.readValue(lines.text());
+                } catch (IOException e) {
+                    summary.reject(lineNo, "Invalid JSON");
+                    continue;
+                }
+                String invalid = validate(request);
+                if (invalid != null) {
+                    summary.reject(lineNo, invalid);
+                    continue;
+                }
+
+                chunk.add(request);
+                chunkLines.add(lineNo);
+                if (chunk.size() >= batchSize) {
+                    flush(chunk, chunkLines, summary);
+                }
+            }
+        } catch (IOException e) {
+            // 流中断（连接断开、gzip损坏等）：已读完整的块仍然落库，并在汇总中说明
+            log.warn("Bulk upload stream broken after line {}: {}", lines.lineNo(), e.getMessage());
+            summary.error = "Upload stream broken after line " + lines.lineNo() + ": " + e.getMessage();
+        }
+        if (!chunk.isEmpty()) {
+            flush(chunk, chunkLines, summary);
+        }
+
+        log.info("Bulk upload finished: total={}, accepted={}, rejected={}",
+                summary.total, summary.accepted, summary.rejected);
+        return BulkUploadResponse.builder()
+                .total(summary.total)
+                .accepted(summary.accepted)
+                .rejected(summary.rejected)
+                .failures(summary.failures)
+                .failuresTruncated(summary.rejected > summary.failures.size())
+                .error(summary.error)
+                .build();
+    }
+
+    private void flush(List<SignalRequest> chunk, List<Long> chunkLines, Summary summary) {
+        try {
+            List<SignalResponse> responses = signalService.reportSignals(chunk);
+            for (int i = 0; i < responses.size(); i++) {
+                SignalResponse response = responses.get(i);
+                if (response.isSuccess()) {
+                    summary.accepted++;
+                } else {
+                    summary.reject(chunkLines.get(i), response.getErrorMsg());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to process bulk chunk of {} signals", chunk.size(), e);
+            for (Long lineNo : chunkLines) {
+                summary.reject(lineNo, "Failed to process signal");
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private String validate(SignalRequest request) {
+        if (request == null) {
+            return "Empty signal";
+        }
+        if (request.getCarId() == null) {
+            return "carId must not be null";
+        }
+        if (request.getSignal() == null) {
+            return "signal must not be null";
+        }
+        return null;
+    }
+
+    private class Summary {
+        private long total;
+        private long accepted;
+        private long rejected;
+        private String error;
+        private final List<BulkUploadResponse.Failure> failures = new ArrayList<>();
+
+        void reject(long lineNo, String errorMsg) {
+            rejected++;
+            if (failures.size() < maxReportedFailures) {
+                failures.add(new BulkUploadResponse.Failure(lineNo, errorMsg));
+            }
+        }
+    }
+
+    /**
+     * 定长缓冲的逐行读取器，复用同一个 StringBuilder；超过上限的行只计数不保留内容
+     */
+    static class LineReader {
+        private final Reader reader;
+        private final int maxLength;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int pos;
+        private int limit;
+        private long lineNo;
+        private boolean tooLong;
+        private boolean eof;
+
+        LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        boolean next() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (pos == limit) {
+                    if (eof || (limit = reader.read(buffer)) < 0) {
+                        eof = true;
+                        limit = 0;
+                        pos = 0;
+                        if (read) {
+                            lineNo++;
+                        }
+                        return read;
+                    }
+                    pos = 0;
+                }
+                char c = buffer[pos++];
+                read = true;
+                if (c == '\n') {
+                    lineNo++;
+                    int last = line.length() - 1;
+                    if (last >= 0 && line.charAt(last) == '\r') {
+                        line.setLength(last);
+                    }
+                    return true;
+                }
+                if (tooLong) {
+                    continue;
+                }
+                if (line.length() >= maxLength) {
+                    tooLong = true;
+                    line.setLength(0);
+                    continue;
+                }
+                line.append(c);
+            }
+        }
+
+        long lineNo() {
+            return lineNo;
+        }
+
+        boolean tooLong() {
+            return tooLong;
+        }
+
+        boolean isBlank() {
+            for (int i = 0; i < line.length(); i++) {
+                if (!Character.isWhitespace(line.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String text() {
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.mi.bms.signal.application.impl;
+
+import com.mi.bms.shared.exceptions.BackpressureException;
+import com.mi.bms.shared.exceptions.BusinessException;
+import com.mi.bms.shared.exceptions.ResourceNotFoundException;
+import com.mi.bms.signal.application.SignalIngestService;
+import com.mi.bms.signal.application.SignalService;
+import com.mi.bms.signal.domain.model.IngestTicket;
+import com.mi.bms.signal.interfaces.rest.dto.IngestTicketResponse;
+import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
+import com.mi.bms.signal.interfaces.rest.dto.SignalResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 异步上报：请求线程只负责入队（有界环形缓冲区），由写入线程池批量出队后调用 SignalService 落库与投递。
+ * <p>
+ * 容量以信号条数计：入队前一次性预占整批许可，预占失败即返回 429，保证一个请求要么整批入队，要么整批拒绝。
+ * 停机时先停止接收，再等待写入线程把缓冲区排空：入队与停止接收由读写锁互斥，停止接收之后不会再有信号进入缓冲区；
+ * 排空超时时，缓冲区中剩余信号的凭据记为失败，不会一直停留在 QUEUED。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SignalIngestServiceImpl implements SignalIngestService {
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final SignalService signalService;
+
+    @Value("${signal.ingest.capacity:10000}")
+    private int capacity;
+
+    @Value("${signal.ingest.workers:2}")
+    private int workers;
+
+    @Value("${signal.ingest.drain-batch-size:500}")
+    private int drainBatchSize;
+
+    @Value("${signal.ingest.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Value("${signal.ingest.ticket-ttl-ms:600000}")
+    private long ticketTtlMs;
+
+    @Value("${signal.ingest.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private final Map<String, IngestTicket> tickets = new ConcurrentHashMap<>();
+    // 读锁：入队；写锁：停止接收
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+
+    private BlockingQueue<IngestItem> buffer;
+    private Semaphore permits;
+    private ExecutorService writers;
+    private volatile boolean accepting;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        buffer = new ArrayBlockingQueue<>(capacity);
+        permits = new Semaphore(capacity);
+        AtomicInteger threadNo = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(workers,
+                runnable -> new Thread(runnable, "signal-ingest-" + threadNo.incrementAndGet()));
+        running = true;
+        accepting = true;
+        for (int i = 0; i < workers; i++) {
+            writers.submit(this::drainLoop);
+        }
+        log.info("Signal ingest started: capacity={}, workers={}, drainBatchSize={}",
+                capacity, workers, drainBatchSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        acceptLock.writeLock().lock();
+        try {
+            accepting = false;
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        writers.shutdown();
+        try {
+            if (!writers.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                writers.shutdownNow();
+                log.error("Signal ingest drain timed out, {} queued signals dropped", failRemaining());
+                return;
+            }
+        } catch (InterruptedException e) {
+            writers.shutdownNow();
+            Thread.currentThread().interrupt();
+            log.error("Signal ingest drain interrupted, {} queued signals dropped", failRemaining());
+            return;
+        }
+        log.info("Signal ingest stopped, buffer drained");
+    }
+
+    @Override
+    public IngestTicketResponse submit(List<SignalRequest> requests) {
+        if (requests.isEmpty()) {
+            throw new BusinessException("EMPTY_REQUEST", "Signal list must not be empty");
+        }
+        if (requests.size() > capacity) {
+            throw new BusinessException("BATCH_TOO_LARGE",
+                    "Signal list exceeds ingest capacity: " + requests.size() + " > " + capacity);
+        }
+        IngestTicket ticket;
+        acceptLock.readLock().lock();
+        try {
+            if (!accepting) {
+                throw new BackpressureException("Signal ingest is shutting down", retryAfterSeconds);
+            }
+            if (!permits.tryAcquire(requests.size())) {
+                throw new BackpressureException("Signal ingest queue is full", retryAfterSeconds);
+            }
+
+            ticket = IngestTicket.create(requests.size());
+            tickets.put(ticket.getTicketId(), ticket);
+            for (int i = 0; i < requests.size(); i++) {
+                // 已预占许可，缓冲区必有空位
+                buffer.offer(new IngestItem(ticket, i, requests.get(i)));
+            }
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        log.debug("Accepted ingest ticket {} with {} signals", ticket.getTicketId(), requests.size());
+        return toResponse(ticket);
+    }
+
+    @Override
+    public IngestTicketResponse getTicket(String ticketId) {
+        IngestTicket ticket = tickets.get(ticketId);
+        if (ticket == null) {
+            throw new ResourceNotFoundException("IngestTicket", "ticketId", ticketId);
+        }
+        return toResponse(ticket);
+    }
+
+    /**
+     * 清理已完成且超过保留时间的凭据
+     */
+    @Scheduled(fixedDelayString = "${signal.ingest.ticket-cleanup-interval-ms:60000}")
+    public void evictExpiredTickets() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusNanos(ticketTtlMs * 1_000_000);
+        tickets.values().removeIf(ticket -> ticket.isCompleted()
+                && ticket.getCompletedAt().isBefore(expireBefore));
+    }
+
+    private void drainLoop() {
+        List<IngestItem> batch = new ArrayList<>(drainBatchSize);
+        // 停止接收后继续排空缓冲区再退出
+        while (running || !buffer.isEmpty()) {
+            IngestItem first;
+            try {
+                first = buffer.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.clear();
+            batch.add(first);
+            buffer.drainTo(batch, drainBatchSize - 1);
+            permits.release(batch.size());
+            process(batch);
+        }
+    }
+
+    /**
+     * 写入线程已退出后，把缓冲区中剩余信号记为失败并返回条数
+     */
+    private int failRemaining() {
+        List<IngestItem> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        for (IngestItem item : remaining) {
+            item.ticket.recordFailure(item.index, "Signal ingest stopped before processing");
+        }
+        return remaining.size();
+    }
+
+    private void process(List<IngestItem> batch) {
+        for (IngestItem item : batch) {
+            item.ticket.markAsProcessing();
+        }
+        List<SignalRequest> requests = batch.stream()
+                .map(item -> item.request)
+                .collect(Collectors.toList());
+        try {
+            List<SignalResponse> responses = signalService.reportSignals(requests);
+            for (int i = 0; i < batch.size(); i++) {
+                IngestItem item = batch.get(i);
+                SignalResponse response = responses.get(i);
+                if (response.isSuccess()) {
+                    item.ticket.recordSuccess();
+                } else {
+                    item.ticket.recordFailure(item.index, response.getErrorMsg());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to process ingest batch of {} signals", batch.size(), e);
+            for (IngestItem item : batch) {
+                item.ticket.recordFailure(item.index, "Failed to process signal");
+            }
+        }
+    }
+
+    private IngestTicketResponse toResponse(IngestTicket ticket) {
+        return IngestTicketResponse.builder()
+                .ticketId(ticket.getTicketId())
+                .status(ticket.getStatus().name())
+                .total(ticket.getTotal())
+                .succeeded(ticket.getSucceeded())
+                .failed(ticket.getFailed())
+                .errors(ticket.getErrors())
+                .acceptedAt(ticket.getAcceptedAt())
+                .completedAt(ticket.getCompletedAt())
+                .build();
+    }
+
+    @RequiredArgsConstructor
+    private static class IngestItem {
+        private final IngestTicket ticket;
+        private final int index;
+        private final SignalRequest request;
+    }
+}
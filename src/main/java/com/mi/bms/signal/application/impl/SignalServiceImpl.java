@@ -1,34 +1,40 @@
 package com.mi.bms.signal.application.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mi.bms.rule.domain.service.RuleEngine;
+import com.mi.bms.rule.domain.service.RuleMatch;
 import com.mi.bms.signal.application.SignalService;
 import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
 import com.mi.bms.signal.domain.repository.SignalRepository;
-import com.mi.bms.signal.infrastructure.mq.SignalProducer;
+import com.mi.bms.signal.infrastructure.cache.SignalHistoryCache;
+import com.mi.bms.signal.infrastructure.dedup.SignalDeduplicator;
+import com.mi.bms.signal.infrastructure.journal.SignalJournal;
+import com.mi.bms.signal.infrastructure.outbox.SignalOutbox;
+import com.mi.bms.signal.infrastructure.persistence.SignalBatchWriter;
 import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
 import com.mi.bms.signal.interfaces.rest.dto.SignalResponse;
+import com.mi.bms.signal.interfaces.rest.dto.WarnResult;
 import com.mi.bms.vehicle.domain.model.BatteryType;
-import com.mi.bms.vehicle.domain.repository.BatteryTypeRepository;
-import com.mi.bms.vehicle.domain.service.VehicleDomainService;
+import com.mi.bms.vehicle.infrastructure.cache.VehicleRegistry;
 import com.mi.bms.warning.application.WarningService;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
-import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.validation.Valid;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -37,11 +43,14 @@ import java.util.stream.Collectors;
 public class SignalServiceImpl implements SignalService {
 
     private final SignalRepository signalRepository;
-    private final VehicleDomainService vehicleDomainService;
-    private final BatteryTypeRepository batteryTypeRepository;
-    private final SignalProducer signalProducer;
-    private final ObjectMapper objectMapper;
+    private final SignalOutbox signalOutbox;
     private final PlatformTransactionManager transactionManager;
+    private final SignalBatchWriter signalBatchWriter;
+    private final VehicleRegistry vehicleRegistry;
+    private final SignalDeduplicator signalDeduplicator;
+    private final SignalJournal signalJournal;
+    private final RuleEngine ruleEngine;
+    private final SignalHistoryCache signalHistoryCache;
 
     // 可选: 直接注入WarningService以支持同步处理
     private final WarningService warningService;
@@ -52,123 +61,203 @@ public class SignalServiceImpl implements SignalService {
     @Value("${direct.signal.processing:true}")
     private boolean directProcessingEnabled;
 
+    @Value("${signal.batch.size:500}")
+    private int batchSize;
+
     @Override
     public List<SignalResponse> reportSignals(@Valid List<SignalRequest> requests) {
-        log.info("==== SIGNAL REPORTING START ==== Received {} signal requests", requests.size());
-        List<SignalResponse> responses = new ArrayList<>();
+        return reportSignals(requests, false);
+    }
 
+    @Override
+    public List<SignalResponse> reportSignals(@Valid List<SignalRequest> requests, boolean evaluate) {
+        log.info("==== SIGNAL REPORTING START ==== Received {} signal requests, evaluate: {}", requests.size(), evaluate);
+        SignalResponse[] responses = new SignalResponse[requests.size()];
         TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
 
-        for (SignalRequest request : requests) {
+        // 一次性解析整批涉及的车辆，未知车辆由注册表负缓存拦截
+        Map<Integer, VehicleRegistry.Entry> vehicles = vehicleRegistry.findAll(
+                requests.stream()
+                        .map(SignalRequest::getCarId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()));
+
+        // 重复提交直接确认，不落库、不投递
+        boolean[] fresh = signalDeduplicator.acquire(requests);
+
+        List<PendingSignal> chunk = new ArrayList<>(Math.min(requests.size(), batchSize));
+        for (int i = 0; i < requests.size(); i++) {
+            SignalRequest request = requests.get(i);
+            if (!fresh[i]) {
+                responses[i] = buildDuplicateResponse(i, request);
+                continue;
+            }
+            VehicleRegistry.Entry vehicle = vehicles.get(request.getCarId());
+            if (vehicle == null) {
+                responses[i] = buildFailedResponse(i, request, "Vehicle not found with carId: " + request.getCarId());
+                continue;
+            }
+            BatteryType batteryType = vehicleRegistry.getBatteryType(vehicle.getBatteryTypeId());
+            if (batteryType == null) {
+                responses[i] = buildFailedResponse(i, request, "Battery type not found");
+                continue;
+            }
+
             try {
-                log.info("Processing signal for carId: {}, signal data: {}", request.getCarId(), request.getSignal());
-
-                // Process each signal in its own transaction
-                SignalResponse response = transactionTemplate.execute(status -> {
-                    try {
-                        // 获取车辆信息
-                        var vehicle = vehicleDomainService.getVehicleByCarId(request.getCarId());
-                        log.info("Found vehicle with VID: {}, batteryTypeId: {}", vehicle.getVid(),
-                                vehicle.getBatteryTypeId());
-
-                        var batteryType = batteryTypeRepository.findById(vehicle.getBatteryTypeId())
-                                .orElseThrow(() -> new IllegalArgumentException("Battery type not found"));
-                        log.info("Found battery type: {}, name: {}", batteryType.getCode(), batteryType.getName());
-
-                        // 解析信号数据
-                        Map<String, Object> rawValues;
-                        try {
-                            rawValues = objectMapper.readValue(
-                                    request.getSignal(),
-                                    Map.class);
-                            log.info("Parsed signal raw values: {}", rawValues);
-                        } catch (JsonProcessingException e) {
-                            log.error("Failed to parse signal data: {}", request.getSignal(), e);
-                            throw new IllegalArgumentException("Invalid signal data format");
-                        }
-
-                        // Convert Double values to BigDecimal
-                        Map<String, BigDecimal> signalValues = new HashMap<>();
-                        for (Map.Entry<String, Object> entry : rawValues.entrySet()) {
-                            if (entry.getValue() != null) {
-                                if (entry.getValue() instanceof Number) {
-                                    signalValues.put(entry.getKey(), new BigDecimal(entry.getValue().toString()));
-                                } else {
-                                    log.warn("Ignoring non-numeric value for key {}: {}", entry.getKey(),
-                                            entry.getValue());
-                                }
-                            }
-                        }
-
-                        log.info("Converted to BigDecimal values: {}", signalValues);
-
-                        // 创建信号
-                        Signal signal = Signal.create(
-                                request.getCarId(),
-                                batteryType.getId(),
-                                signalValues);
-                        log.info("Created signal object: {}", signal);
-
-                        // 保存信号
-                        signal = signalRepository.save(signal);
-                        log.info("Signal saved to database with ID: {}", signal.getId());
-
-                        // Build response within transaction
-                        return buildSignalResponse(signal, batteryType);
-                    } catch (Exception e) {
-                        log.error("Transaction error processing signal for carId: {}", request.getCarId(), e);
-                        // Mark for rollback explicitly
-                        status.setRollbackOnly();
-                        throw e;
-                    }
-                });
-
-                // If we get here, the transaction completed successfully
-                if (response != null) {
-                    responses.add(response);
-                    log.info("Added signal response: {}", response);
-
-                    // These operations are now outside the transaction
-                    try {
-                        // Get the signal ID from the response
-                        Long signalId = response.getSignalId();
-
-                        // 发送到 MQ (outside transaction)
-                        Signal signal = signalRepository.findById(signalId)
-                                .orElseThrow(() -> new IllegalStateException("Signal not found after saving"));
-                        signalProducer.sendSignal(signal);
-
-                        // 直接处理（用于测试，当MQ不可用时）
-                        if (directProcessingEnabled && !mqEnabled) {
-                            try {
-                                log.info("MQ is disabled, processing signal directly: {}", signalId);
-                                warningService.generateWarning(signalId);
-                                log.info("Direct signal processing completed for ID: {}", signalId);
-                            } catch (Exception e) {
-                                log.error("Error during direct signal processing: {}", e.getMessage(), e);
-                                // Non-critical error, don't rethrow
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.error("Error in post-transaction processing for carId: {}", request.getCarId(), e);
-                        // Don't rethrow as it's outside the main transaction
+                chunk.add(resolveSignal(i, request, batteryType, evaluate));
+            } catch (Exception e) {
+                log.warn("Rejected signal #{} for carId: {}, reason: {}", i, request.getCarId(), e.getMessage());
+                responses[i] = buildFailedResponse(i, request, e.getMessage());
+                continue;
+            }
+
+            if (chunk.size() >= batchSize) {
+                persistChunk(transactionTemplate, chunk, responses);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            persistChunk(transactionTemplate, chunk, responses);
+        }
+        releaseUnpersisted(requests, fresh, responses);
+
+        log.info("==== SIGNAL REPORTING COMPLETE ==== Processed {} signals", requests.size());
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * 首次出现但未落库的请求撤销去重登记，允许客户端重试
+     */
+    private void releaseUnpersisted(List<SignalRequest> requests, boolean[] fresh, SignalResponse[] responses) {
+        List<SignalRequest> unpersisted = new ArrayList<>();
+        for (int i = 0; i < responses.length; i++) {
+            if (fresh[i] && !responses[i].isSuccess()) {
+                unpersisted.add(requests.get(i));
+            }
+        }
+        if (!unpersisted.isEmpty()) {
+            signalDeduplicator.release(unpersisted);
+        }
+    }
+
+    private PendingSignal resolveSignal(int index, SignalRequest request, BatteryType batteryType, boolean evaluate) {
+        // 单遍解析并校验信号数据，直接得到 SignalValues
+        Signal.SignalValues values = SignalDataCodec.parse(request.getSignal());
+        Signal signal = Signal.create(request.getCarId(), batteryType.getId(), values);
+        if (!evaluate) {
+            return new PendingSignal(index, request, signal, batteryType, null);
+        }
+
+        // 同步评估：直接使用上报值，指定 warnId 时只评估该规则；预警随信号一起落库，信号不再投递下游
+        List<RuleMatch> matches = request.getWarnId() != null
+                ? ruleEngine.evaluate(batteryType.getId(), request.getWarnId(), values).map(List::of).orElse(List.of())
+                : ruleEngine.evaluate(batteryType.getId(), values);
+        signal.markAsProcessed();
+        return new PendingSignal(index, request, signal, batteryType, matches);
+    }
+
+    /**
+     * 在单个事务中批量写入一块信号及其发件箱事件，提交后再做直接处理；同步评估的信号与其预警在同一事务中写入
+     */
+    private void persistChunk(TransactionTemplate transactionTemplate, List<PendingSignal> chunk,
+            SignalResponse[] responses) {
+        List<Signal> signals = chunk.stream()
+                .map(PendingSignal::getSignal)
+                .collect(Collectors.toList());
+        boolean evaluated = chunk.get(0).getMatches() != null;
+        if (signalJournal.isEnabled() && !evaluated) {
+            journalChunk(chunk, signals, responses);
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                signalBatchWriter.insertAll(signals);
+                signalHistoryCache.append(signals);
+                if (evaluated) {
+                    Map<Signal, List<RuleMatch>> matchesBySignal = new LinkedHashMap<>();
+                    for (PendingSignal pending : chunk) {
+                        matchesBySignal.put(pending.getSignal(), pending.getMatches());
                     }
+                    warningService.recordWarnings(matchesBySignal);
+                } else {
+                    signalOutbox.appendAll(signals);
                 }
-            } catch (Exception e) {
-                log.error("Unexpected error processing signal for carId: {}", request.getCarId(), e);
-                // Continue processing other requests instead of failing the entire batch
+            });
+            log.info("Persisted chunk of {} signals", signals.size());
+        } catch (Exception e) {
+            log.error("Failed to persist chunk of {} signals", signals.size(), e);
+            for (PendingSignal pending : chunk) {
+                responses[pending.getIndex()] = buildFailedResponse(
+                        pending.getIndex(), pending.getRequest(), "Failed to persist signal");
             }
+            return;
         }
 
-        log.info("==== SIGNAL REPORTING COMPLETE ==== Processed {} signals", responses.size());
-        return responses;
+        for (PendingSignal pending : chunk) {
+            SignalResponse response = buildSignalResponse(pending.getSignal(), pending.getBatteryType());
+            response.setIndex(pending.getIndex());
+            if (evaluated) {
+                response.setWarnings(buildWarnResults(pending.getMatches()));
+            }
+            responses[pending.getIndex()] = response;
+        }
+
+        if (!evaluated) {
+            dispatch(signals);
+        }
+    }
+
+    /**
+     * 预写日志模式：刷盘即确认，由 SignalJournalLoader 异步落库并投递
+     */
+    private void journalChunk(List<PendingSignal> chunk, List<Signal> signals, SignalResponse[] responses) {
+        long firstSeq;
+        try {
+            firstSeq = signalJournal.appendAndAwait(signals);
+        } catch (Exception e) {
+            log.error("Failed to journal chunk of {} signals", signals.size(), e);
+            for (PendingSignal pending : chunk) {
+                responses[pending.getIndex()] = buildFailedResponse(
+                        pending.getIndex(), pending.getRequest(), "Failed to journal signal");
+            }
+            return;
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            PendingSignal pending = chunk.get(i);
+            SignalResponse response = buildSignalResponse(pending.getSignal(), pending.getBatteryType());
+            response.setIndex(pending.getIndex());
+            response.setJournalSeq(firstSeq + i);
+            responses[pending.getIndex()] = response;
+        }
+    }
+
+    /**
+     * 已提交信号的后续处理（事务外），直接使用内存中的实体，无需回查；
+     * MQ 事件已随信号写入发件箱，由 SignalOutboxRelay 异步投递，请求线程不访问 MQ
+     */
+    @Override
+    public void dispatch(List<Signal> signals) {
+        // 直接处理（用于测试，当MQ不可用时），整批在一个事务内生成预警
+        if (directProcessingEnabled && !mqEnabled) {
+            try {
+                warningService.generateWarningsForSignals(signals);
+            } catch (Exception e) {
+                log.error("Error during direct signal processing: {}", e.getMessage(), e);
+                // Non-critical error, don't rethrow
+            }
+        }
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<SignalResponse> getSignalsByCarId(Integer carId, LocalDateTime from, LocalDateTime to) {
         log.info("Querying signals for carId: {}, from: {}, to: {}", carId, from, to);
-        List<Signal> signals = signalRepository.findByCarIdAndTimeRange(carId, from, to);
+        // 按小时桶从缓存拼接，缺失的桶从数据库加载后回填
+        List<Signal> signals = signalHistoryCache.getByCarId(carId, from, to, (start, end) -> {
+            log.info("Cache miss. Querying database for carId: {}, from: {}, to: {}", carId, start, end);
+            return signalRepository.findByCarIdAndTimeRange(carId, start, end);
+        });
         log.info("Found {} signals for carId: {}", signals.size(), carId);
         return buildSignalResponses(signals);
     }
@@ -183,21 +272,38 @@ public class SignalServiceImpl implements SignalService {
     }
 
     private List<SignalResponse> buildSignalResponses(List<Signal> signals) {
-        // 获取所有涉及的电池类型
-        Map<Integer, BatteryType> batteryTypes = batteryTypeRepository.findAllById(
-                signals.stream()
-                        .map(Signal::getBatteryTypeId)
-                        .distinct()
-                        .collect(Collectors.toList()))
-                .stream().collect(Collectors.toMap(BatteryType::getId, bt -> bt));
+        // 电池类型取自注册表的内存缓存，查询不访问数据库
+        Map<Integer, BatteryType> batteryTypes = new HashMap<>();
+        for (Signal signal : signals) {
+            batteryTypes.computeIfAbsent(signal.getBatteryTypeId(), vehicleRegistry::getBatteryType);
+        }
 
         return signals.stream()
                 .map(signal -> buildSignalResponse(signal, batteryTypes.get(signal.getBatteryTypeId())))
                 .collect(Collectors.toList());
     }
 
+    private SignalResponse buildFailedResponse(int index, SignalRequest request, String errorMsg) {
+        return SignalResponse.builder()
+                .index(index)
+                .carId(request.getCarId())
+                .success(false)
+                .errorMsg(errorMsg)
+                .build();
+    }
+
+    private SignalResponse buildDuplicateResponse(int index, SignalRequest request) {
+        return SignalResponse.builder()
+                .index(index)
+                .carId(request.getCarId())
+                .success(true)
+                .duplicate(true)
+                .build();
+    }
+
     private SignalResponse buildSignalResponse(Signal signal, BatteryType batteryType) {
         return SignalResponse.builder()
+                .success(true)
                 .signalId(signal.getId())
                 .carId(signal.getCarId())
                 .batteryTypeId(batteryType.getId())
@@ -208,4 +314,24 @@ public class SignalServiceImpl implements SignalService {
                 .createdAt(signal.getCreatedAt())
                 .build();
     }
+
+    private List<WarnResult> buildWarnResults(List<RuleMatch> matches) {
+        return matches.stream()
+                .map(match -> WarnResult.builder()
+                        .warnId(match.getRuleNo())
+                        .warnName(match.getRuleName())
+                        .warnLevel(match.getWarnLevel())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class PendingSignal {
+        private final int index;
+        private final SignalRequest request;
+        private final Signal signal;
+        private final BatteryType batteryType;
+        private final List<RuleMatch> matches; // 同步评估结果，未开启评估时为 null
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.mi.bms.signal.domain.model;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步上报凭据：记录一次异步上报请求在写入队列中的处理进度
+ */
+@Getter
+public class IngestTicket {
+
+    /** 失败明细最多保留条数，避免大批量全部失败时撑爆内存 */
+    static final int MAX_ERRORS = 100;
+
+    public enum Status {
+        QUEUED, PROCESSING, COMPLETED
+    }
+
+    private final String ticketId;
+    private final int total;
+    private final LocalDateTime acceptedAt;
+    private volatile Status status;
+    private volatile LocalDateTime completedAt;
+
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final Map<Integer, String> errors = new ConcurrentSkipListMap<>();
+
+    private IngestTicket(int total) {
+        this.ticketId = UUID.randomUUID().toString();
+        this.total = total;
+        this.acceptedAt = LocalDateTime.now();
+        this.status = Status.QUEUED;
+    }
+
+    public static IngestTicket create(int total) {
+        return new IngestTicket(total);
+    }
+
+    public void markAsProcessing() {
+        if (status == Status.QUEUED) {
+            status = Status.PROCESSING;
+        }
+    }
+
+    public void recordSuccess() {
+        succeeded.incrementAndGet();
+        completeIfDone();
+    }
+
+    public void recordFailure(int index, String errorMsg) {
+        if (errors.size() < MAX_ERRORS) {
+            errors.put(index, errorMsg);
+        }
+        failed.incrementAndGet();
+        completeIfDone();
+    }
+
+    public int getSucceeded() {
+        return succeeded.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public Map<Integer, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    public boolean isCompleted() {
+        return status == Status.COMPLETED;
+    }
+
+    private void completeIfDone() {
+        if (succeeded.get() + failed.get() >= total) {
+            completedAt = LocalDateTime.now();
+            status = Status.COMPLETED;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.mi.bms.signal.domain.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.mi.bms.shared.domain.ValueObject;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -9,7 +10,6 @@ import org.hibernate.annotations.Where;
 import javax.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.Map;
 
 @Entity
@@ -46,6 +46,7 @@ public class Signal {
 
     // Use the embedded values for calculation, but don't persist them
     @Transient
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private SignalValues values;
 
     @PrePersist
@@ -62,14 +63,54 @@ public class Signal {
     }
 
     public static Signal create(Integer carId, Integer batteryTypeId, Map<String, BigDecimal> signalValues) {
+        return create(carId, batteryTypeId, SignalValues.create(signalValues));
+    }
+
+    public static Signal create(Integer carId, Integer batteryTypeId, SignalValues signalValues) {
+        Signal signal = new Signal();
+        signal.carId = carId;
+        signal.batteryTypeId = batteryTypeId;
+        signal.values = signalValues;
+        signal.signalData = signalValues.toJson();
+        return signal;
+    }
+
+    /**
+     * 还原一条已持久化的信号（如从缓存读取），信号值按 signalData 惰性解析
+     */
+    public static Signal restore(Long id, Integer carId, Integer batteryTypeId, String signalData,
+            boolean processed, LocalDateTime createdAt) {
         Signal signal = new Signal();
+        signal.id = id;
         signal.carId = carId;
         signal.batteryTypeId = batteryTypeId;
-        signal.values = SignalValues.create(signalValues);
-        signal.signalData = signal.values.toJson();
+        signal.signalData = signalData;
+        signal.processed = processed;
+        signal.createdAt = createdAt;
+        signal.updatedAt = createdAt;
         return signal;
     }
 
+    /**
+     * 信号值；从数据库或消息反序列化得到的实体按 signalData 惰性解析
+     */
+    public SignalValues getValues() {
+        if (values == null && signalData != null) {
+            values = SignalDataCodec.parse(signalData);
+        }
+        return values;
+    }
+
+    /**
+     * 批量写入后回填数据库生成的主键与时间戳
+     */
+    public void markAsPersisted(Long id, LocalDateTime createdAt) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+        this.isDelete = false;
+    }
+
     public void markAsProcessed() {
         this.processed = true;
         this.updatedAt = LocalDateTime.now();
@@ -80,53 +121,148 @@ public class Signal {
         this.updatedAt = LocalDateTime.now();
     }
 
-    @Embeddable
-    @Getter
-    @NoArgsConstructor(access = AccessLevel.PROTECTED)
+    /**
+     * 信号值。数值以“无标度整数 + 标度”保存，既能无损还原 BigDecimal，
+     * 也能为热点路径提供不分配对象的 double 访问。
+     */
+    @NoArgsConstructor(access = AccessLevel.PACKAGE)
     public static class SignalValues implements ValueObject {
-        private BigDecimal maxVoltage; // Mx
-        private BigDecimal minVoltage; // Mi
-        private BigDecimal maxCurrent; // Ix
-        private BigDecimal minCurrent; // Ii
+        public static final int MX = 0; // 最高电压
+        public static final int MI = 1; // 最低电压
+        public static final int IX = 2; // 最高电流
+        public static final int II = 3; // 最低电流
+        static final int CHANNELS = 4;
+        static final String[] KEYS = { "Mx", "Mi", "Ix", "Ii" };
+
+        private static final double[] POW10 = new double[19];
+
+        static {
+            POW10[0] = 1;
+            for (int i = 1; i < POW10.length; i++) {
+                POW10[i] = POW10[i - 1] * 10;
+            }
+        }
+
+        private final long[] unscaled = new long[CHANNELS];
+        private final int[] scales = new int[CHANNELS];
+        private int present; // 位掩码，bit i 表示通道 i 有值
 
         public static SignalValues create(Map<String, BigDecimal> values) {
             SignalValues signalValues = new SignalValues();
-            signalValues.maxVoltage = values.get("Mx");
-            signalValues.minVoltage = values.get("Mi");
-            signalValues.maxCurrent = values.get("Ix");
-            signalValues.minCurrent = values.get("Ii");
+            for (int channel = 0; channel < CHANNELS; channel++) {
+                BigDecimal value = values.get(KEYS[channel]);
+                if (value != null) {
+                    signalValues.set(channel, value);
+                }
+            }
             return signalValues;
         }
 
         public String toJson() {
-            Map<String, BigDecimal> map = new HashMap<>();
-            if (maxVoltage != null)
-                map.put("Mx", maxVoltage);
-            if (minVoltage != null)
-                map.put("Mi", minVoltage);
-            if (maxCurrent != null)
-                map.put("Ix", maxCurrent);
-            if (minCurrent != null)
-                map.put("Ii", minCurrent);
-            try {
-                return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(map);
-            } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-                throw new RuntimeException("Failed to serialize signal values", e);
-            }
+            return SignalDataCodec.toJson(this);
+        }
+
+        public BigDecimal getMaxVoltage() {
+            return decimal(MX);
+        }
+
+        public BigDecimal getMinVoltage() {
+            return decimal(MI);
+        }
+
+        public BigDecimal getMaxCurrent() {
+            return decimal(IX);
+        }
+
+        public BigDecimal getMinCurrent() {
+            return decimal(II);
         }
 
         public BigDecimal getVoltageDiff() {
-            if (maxVoltage == null || minVoltage == null) {
+            if (!has(MX) || !has(MI)) {
                 return null;
             }
-            return maxVoltage.subtract(minVoltage);
+            return decimal(MX).subtract(decimal(MI));
         }
 
         public BigDecimal getCurrentDiff() {
-            if (maxCurrent == null || minCurrent == null) {
+            if (!has(IX) || !has(II)) {
+                return null;
+            }
+            return decimal(IX).subtract(decimal(II));
+        }
+
+        public boolean has(int channel) {
+            return (present & (1 << channel)) != 0;
+        }
+
+        /**
+         * 是否包含掩码中的全部通道（bit i 对应通道 i）
+         */
+        public boolean hasAll(int channelMask) {
+            return (present & channelMask) == channelMask;
+        }
+
+        /**
+         * 通道值（double），通道缺失时返回 NaN
+         */
+        public double value(int channel) {
+            if (!has(channel)) {
+                return Double.NaN;
+            }
+            return unscaled[channel] / POW10[scales[channel]];
+        }
+
+        /**
+         * 两通道之差（double），先按十进制精确相减再转换，结果与 BigDecimal 相减后取 doubleValue 一致
+         */
+        public double difference(int minuend, int subtrahend) {
+            if (!has(minuend) || !has(subtrahend)) {
+                return Double.NaN;
+            }
+            int scale = Math.max(scales[minuend], scales[subtrahend]);
+            try {
+                long a = Math.multiplyExact(unscaled[minuend], (long) POW10[scale - scales[minuend]]);
+                long b = Math.multiplyExact(unscaled[subtrahend], (long) POW10[scale - scales[subtrahend]]);
+                long diff = Math.subtractExact(a, b);
+                if (Math.abs(diff) < (1L << 53)) {
+                    return diff / POW10[scale];
+                }
+            } catch (ArithmeticException e) {
+                // fall through to BigDecimal
+            }
+            return decimal(minuend).subtract(decimal(subtrahend)).doubleValue();
+        }
+
+        long unscaled(int channel) {
+            return unscaled[channel];
+        }
+
+        int scale(int channel) {
+            return scales[channel];
+        }
+
+        void set(int channel, long unscaledValue, int scale) {
+            unscaled[channel] = unscaledValue;
+            scales[channel] = scale;
+            present |= 1 << channel;
+        }
+
+        private void set(int channel, BigDecimal value) {
+            if (value.scale() < 0) {
+                value = value.setScale(0);
+            }
+            if (value.precision() > 18 || value.scale() > 18) {
+                throw new IllegalArgumentException("Signal value out of range: " + value);
+            }
+            set(channel, value.unscaledValue().longValue(), value.scale());
+        }
+
+        private BigDecimal decimal(int channel) {
+            if (!has(channel)) {
                 return null;
             }
-            return maxCurrent.subtract(minCurrent);
+            return BigDecimal.valueOf(unscaled[channel], scales[channel]);
         }
     }
 }
\ No newline at end of file
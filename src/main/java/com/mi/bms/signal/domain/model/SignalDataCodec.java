@@ -0,0 +1,187 @@
+package com.mi.bms.signal.domain.model;
+
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+
+/**
+ * 信号数据编解码：单遍扫描解析 {"Mx":..,"Mi":..,"Ix":..,"Ii":..}，直接填充 SignalValues。
+ * <p>
+ * 解析过程不经过 Map、装箱数值、BigDecimal 或 ObjectMapper；数值按“无标度整数 + 标度”保存，
+ * 与原先 BigDecimal 语义一致。写出使用线程内复用的 StringBuilder。
+ * <p>
+ * 校验规则：只允许 Mx/Mi/Ix/Ii 四个键且不得重复；Mx 与 Mi、Ix 与 Ii 必须成对出现；
+ * 数值为非负十进制数（不支持指数形式），有效数字不超过 18 位。
+ */
+public final class SignalDataCodec {
+
+    static final String INVALID_FORMAT = "Invalid signal data format";
+
+    private static final int MAX_DIGITS = 18;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
+    private SignalDataCodec() {
+    }
+
+    public static SignalValues parse(CharSequence json) {
+        if (json == null) {
+            throw new IllegalArgumentException(INVALID_FORMAT);
+        }
+        SignalValues values = new SignalValues();
+        int length = json.length();
+        int pos = skipWhitespace(json, 0);
+        pos = expect(json, pos, '{');
+        pos = skipWhitespace(json, pos);
+
+        if (pos < length && json.charAt(pos) == '}') {
+            pos++;
+        } else {
+            while (true) {
+                // Key
+                pos = expect(json, pos, '"');
+                int channel = channelOf(json, pos);
+                pos = expect(json, pos + 2, '"');
+                if (values.has(channel)) {
+                    throw new IllegalArgumentException(INVALID_FORMAT);
+                }
+                pos = skipWhitespace(json, pos);
+                pos = expect(json, pos, ':');
+                pos = skipWhitespace(json, pos);
+
+                // Value: digits with at most one decimal point
+                long unscaled = 0;
+                int digits = 0;
+                int scale = -1;
+                int start = pos;
+                while (pos < length) {
+                    char c = json.charAt(pos);
+                    if (c >= '0' && c <= '9') {
+                        if (digits > 0 || c != '0') {
+                            digits++;
+                        }
+                        unscaled = unscaled * 10 + (c - '0');
+                        if (scale >= 0) {
+                            scale++;
+                        }
+                    } else if (c == '.' && scale < 0) {
+                        scale = 0;
+                    } else {
+                        break;
+                    }
+                    pos++;
+                }
+                if (pos == start || json.charAt(pos - 1) == '.' || json.charAt(start) == '.'
+                        || digits > MAX_DIGITS || scale > MAX_DIGITS) {
+                    throw new IllegalArgumentException(INVALID_FORMAT);
+                }
+                values.set(channel, unscaled, Math.max(scale, 0));
+
+                pos = skipWhitespace(json, pos);
+                if (pos < length && json.charAt(pos) == ',') {
+                    pos = skipWhitespace(json, pos + 1);
+                    continue;
+                }
+                pos = expect(json, pos, '}');
+                break;
+            }
+        }
+
+        if (skipWhitespace(json, pos) != length || !isComplete(values)) {
+            throw new IllegalArgumentException(INVALID_FORMAT);
+        }
+        return values;
+    }
+
+    public static String toJson(SignalValues values) {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        write(values, sb);
+        return sb.toString();
+    }
+
+    public static void write(SignalValues values, StringBuilder sb) {
+        sb.append('{');
+        boolean first = true;
+        for (int channel = 0; channel < SignalValues.CHANNELS; channel++) {
+            if (!values.has(channel)) {
+                continue;
+            }
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append('"').append(SignalValues.KEYS[channel]).append("\":");
+            appendDecimal(sb, values.unscaled(channel), values.scale(channel));
+        }
+        sb.append('}');
+    }
+
+    static void appendDecimal(StringBuilder sb, long unscaled, int scale) {
+        if (unscaled < 0) {
+            sb.append('-');
+            unscaled = -unscaled;
+        }
+        int start = sb.length();
+        sb.append(unscaled);
+        if (scale == 0) {
+            return;
+        }
+        int digits = sb.length() - start;
+        if (digits <= scale) {
+            for (int i = digits; i < scale; i++) {
+                sb.insert(start, '0');
+            }
+            sb.insert(start, "0.");
+        } else {
+            sb.insert(sb.length() - scale, '.');
+        }
+    }
+
+    private static boolean isComplete(SignalValues values) {
+        boolean voltage = values.has(SignalValues.MX);
+        boolean current = values.has(SignalValues.IX);
+        return voltage == values.has(SignalValues.MI)
+                && current == values.has(SignalValues.II)
+                && (voltage || current);
+    }
+
+    private static int channelOf(CharSequence json, int pos) {
+        if (pos + 1 < json.length()) {
+            char first = json.charAt(pos);
+            char second = json.charAt(pos + 1);
+            if (first == 'M') {
+                if (second == 'x') {
+                    return SignalValues.MX;
+                }
+                if (second == 'i') {
+                    return SignalValues.MI;
+                }
+            } else if (first == 'I') {
+                if (second == 'x') {
+                    return SignalValues.IX;
+                }
+                if (second == 'i') {
+                    return SignalValues.II;
+                }
+            }
+        }
+        throw new IllegalArgumentException(INVALID_FORMAT);
+    }
+
+    private static int expect(CharSequence json, int pos, char expected) {
+        if (pos >= json.length() || json.charAt(pos) != expected) {
+            throw new IllegalArgumentException(INVALID_FORMAT);
+        }
+        return pos + 1;
+    }
+
+    private static int skipWhitespace(CharSequence json, int pos) {
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,171 @@
+package com.mi.bms.signal.domain.model;
+
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+
+import java.util.Arrays;
+
+/**
+ * 信号消息的紧凑二进制编码，用于 MQ 投递：
+ * <pre>
+ * version:u8 | id:i64 | carId:i32 | batteryTypeId:i32 | present:u8 | (scale:u8 unscaled:zigzag-varint) * bitCount(present)
+ * </pre>
+ * 多字节整数为大端序，通道值按“无标度整数 + 标度”原样写入，解码结果与原信号值完全一致。
+ * 四通道信号约 26 字节，整个实体序列化为 JSON 时约 250 字节。
+ * 首字节为版本号，与 JSON 消息体的 '{' 不冲突，消费端可据此兼容旧格式。
+ */
+public final class SignalMessageCodec {
+
+    public static final byte VERSION = 1;
+    static final int HEADER_BYTES = 1 + 8 + 4 + 4 + 1;
+    static final int MAX_BYTES = HEADER_BYTES + SignalValues.CHANNELS * (1 + 10);
+
+    private SignalMessageCodec() {
+    }
+
+    /**
+     * 编码已持久化（已有 ID）的信号
+     */
+    public static byte[] encode(Signal signal) {
+        if (signal.getId() == null) {
+            throw new IllegalArgumentException("Signal has not been persisted");
+        }
+        SignalValues values = signal.getValues();
+        byte[] buffer = new byte[MAX_BYTES];
+        buffer[0] = VERSION;
+        int pos = writeLong(buffer, 1, signal.getId());
+        pos = writeInt(buffer, pos, signal.getCarId());
+        pos = writeInt(buffer, pos, signal.getBatteryTypeId());
+        int maskPos = pos++;
+        int present = 0;
+        for (int channel = 0; channel < SignalValues.CHANNELS; channel++) {
+            if (values != null && values.has(channel)) {
+                present |= 1 << channel;
+                buffer[pos++] = (byte) values.scale(channel);
+                pos = writeVarLong(buffer, pos, values.unscaled(channel));
+            }
+        }
+        buffer[maskPos] = (byte) present;
+        return Arrays.copyOf(buffer, pos);
+    }
+
+    /**
+     * 解码为已持久化状态的信号（不含时间戳），格式错误时抛出 IllegalArgumentException
+     */
+    public static Signal decode(byte[] bytes) {
+        if (!isBinary(bytes) || bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Not a binary signal message");
+        }
+        Reader reader = new Reader(bytes, 1);
+        long id = reader.readLong();
+        int carId = reader.readInt();
+        int batteryTypeId = reader.readInt();
+        int present = reader.readByte();
+        if ((present & ~((1 << SignalValues.CHANNELS) - 1)) != 0) {
+            throw new IllegalArgumentException("Unknown channels in signal message: " + present);
+        }
+
+        SignalValues values = new SignalValues();
+        for (int channel = 0; channel < SignalValues.CHANNELS; channel++) {
+            if ((present & (1 << channel)) != 0) {
+                int scale = reader.readByte();
+                if (scale > 18) {
+                    throw new IllegalArgumentException("Signal value scale out of range: " + scale);
+                }
+                values.set(channel, reader.readVarLong(), scale);
+            }
+        }
+        if (reader.pos != bytes.length) {
+            throw new IllegalArgumentException("Trailing bytes in signal message");
+        }
+
+        Signal signal = Signal.create(carId, batteryTypeId, values);
+        signal.markAsPersisted(id, null);
+        return signal;
+    }
+
+    /**
+     * 不解码整条消息，直接读取车辆 ID，用于按车辆选择消息队列
+     */
+    public static int carIdOf(byte[] bytes) {
+        if (!isBinary(bytes) || bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Not a binary signal message");
+        }
+        return new Reader(bytes, 1 + 8).readInt();
+    }
+
+    /**
+     * 消息体是否为本编码格式（否则为旧的 JSON 格式）
+     */
+    public static boolean isBinary(byte[] bytes) {
+        return bytes != null && bytes.length > 0 && bytes[0] == VERSION;
+    }
+
+    private static int writeLong(byte[] buffer, int pos, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[pos++] = (byte) (value >>> shift);
+        }
+        return pos;
+    }
+
+    private static int writeInt(byte[] buffer, int pos, int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[pos++] = (byte) (value >>> shift);
+        }
+        return pos;
+    }
+
+    private static int writeVarLong(byte[] buffer, int pos, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer[pos++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        buffer[pos++] = (byte) zigzag;
+        return pos;
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int pos;
+
+        Reader(byte[] bytes, int pos) {
+            this.bytes = bytes;
+            this.pos = pos;
+        }
+
+        int readByte() {
+            if (pos >= bytes.length) {
+                throw new IllegalArgumentException("Truncated signal message");
+            }
+            return bytes[pos++] & 0xFF;
+        }
+
+        int readInt() {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        long readVarLong() {
+            long zigzag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in signal message");
+        }
+    }
+}
@@ -2,11 +2,14 @@ package com.mi.bms.signal.domain.repository;
 
 import com.mi.bms.signal.domain.model.Signal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,8 +18,9 @@ public interface SignalRepository extends JpaRepository<Signal, Long> {
     @Query("SELECT s FROM Signal s WHERE s.carId = :carId AND s.processed = false AND s.isDelete = false")
     List<Signal> findUnprocessedSignalsByCarId(@Param("carId") Integer carId);
 
-    @Query("SELECT s FROM Signal s WHERE s.processed = false AND s.isDelete = false")
-    List<Signal> findAllUnprocessedSignals();
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Signal s WHERE s.id IN :ids AND s.processed = false AND s.isDelete = false")
+    List<Signal> lockUnprocessedByIdIn(@Param("ids") Collection<Long> ids);
 
     @Query("SELECT s FROM Signal s WHERE s.carId = :carId AND s.createdAt BETWEEN :from AND :to AND s.isDelete = false")
     List<Signal> findByCarIdAndTimeRange(
@@ -0,0 +1,415 @@
+package com.mi.bms.signal.infrastructure.cache;
+
+import com.mi.bms.signal.domain.model.Signal;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * 车辆信号历史查询缓存，按 (车辆, 小时桶) 把桶内信号保存在 Redis hash signal:hist:{carId}:{yyyyMMddHH} 中，
+ * field 为信号 id。
+ * <p>
+ * 写入走 write-through：信号落库的事务提交后直接 HSET 追加到所在的桶（总是当前小时），桶不失效；回滚的信号不会写入。
+ * 查询拆成覆盖范围的若干小时桶，一次流水线 HGETALL 取回，缺失的桶用一次数据库查询补齐并写回，首尾两个桶按 createdAt 裁剪。
+ * <p>
+ * 一致性保证：
+ * <ul>
+ *     <li>只有带完整标记 field 的桶才算命中。追加不要求桶已存在，可能先建出没有标记的部分桶；
+ *     加载用 HSET 合并而不是覆盖，加载快照之前提交的信号由快照带入、之后提交的由追加带入，带标记的桶不会缺少信号。</li>
+ *     <li>信号落库后只有 processed 会变化，且只会由 false 变为 true。标记时按信号的 createdAt 记入所在桶的已处理集合
+ *     signal:hist:{carId}:{yyyyMMddHH}:processed，读取时与桶中的值取并，加载与标记谁先写入都不影响结果。</li>
+ *     <li>已处理集合与桶一一对应、过期时长相同：桶的每次写入都一并刷新其已处理集合的 TTL，集合不会早于对应的桶过期，
+ *     也随桶一起过期，占用的内存与桶的数量成正比。</li>
+ *     <li>追加或标记写入 Redis 失败时只记录日志、不影响落库，该桶可能缺少信号或显示为未处理，直到桶过期（ttl-hours）。</li>
+ * </ul>
+ * 读取已处理集合使用 SMISMEMBER，需要 Redis 6.2+。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SignalHistoryCache {
+
+    private static final String KEY_PREFIX = "signal:hist:";
+    private static final String PROCESSED_SUFFIX = ":processed";
+    // 完整标记；其余 field 均为数字 id，不会冲突
+    static final String COMPLETE_FIELD = "~";
+    private static final char SEPARATOR = '|';
+    private static final DateTimeFormatter BUCKET_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHH");
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Value("${signal.cache.ttl-hours:26}")
+    private long ttlHours;
+
+    @Value("${signal.cache.max-buckets:168}")
+    private int maxBuckets;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+
+    /**
+     * 把已落库（已回填 id 和 createdAt）的信号追加到各自的桶；处于事务中时在提交后追加
+     */
+    public void append(List<Signal> signals) {
+        if (signals.isEmpty()) {
+            return;
+        }
+        Pending pending = pending();
+        if (pending != null) {
+            pending.appends.addAll(signals);
+        } else {
+            writeAppends(signals);
+        }
+    }
+
+    /**
+     * 记录这些信号已处理；处于事务中时在提交后记录
+     */
+    public void markProcessed(Collection<Signal> signals) {
+        if (signals.isEmpty()) {
+            return;
+        }
+        Pending pending = pending();
+        if (pending != null) {
+            pending.processed.addAll(signals);
+        } else {
+            writeProcessed(signals);
+        }
+    }
+
+    /**
+     * 查询车辆在 [from, to] 内的信号（按 id 升序）：缺失的桶交给 loader 一次加载（参数为连续缺失区间的起止时间，含两端）
+     * 并写回。覆盖的桶数超过 max-buckets 时直接调用 loader
+     */
+    public List<Signal> getByCarId(Integer carId, LocalDateTime from, LocalDateTime to,
+                                   BiFunction<LocalDateTime, LocalDateTime, List<Signal>> loader) {
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+        LocalDateTime first = bucketOf(from);
+        int count = (int) Math.min(Integer.MAX_VALUE, ChronoUnit.HOURS.between(first, bucketOf(to)) + 1);
+        if (count > maxBuckets) {
+            bypassed.incrementAndGet();
+            return loader.apply(from, to);
+        }
+
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(bucketKey(carId, first.plusHours(i)));
+        }
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.hashCommands().hGetAll(bytes(key));
+            }
+            return null;
+        });
+
+        List<List<Signal>> buckets = new ArrayList<>(count);
+        List<Signal> unconfirmed = new ArrayList<>();
+        int lo = -1;
+        int hi = -1;
+        for (int i = 0; i < count; i++) {
+            List<Signal> cached = decodeBucket(carId, keys.get(i), i < results.size() ? results.get(i) : null);
+            buckets.add(cached);
+            if (cached == null) {
+                misses.incrementAndGet();
+                lo = lo < 0 ? i : lo;
+                hi = i;
+                continue;
+            }
+            hits.incrementAndGet();
+            for (Signal signal : cached) {
+                if (!signal.isProcessed()) {
+                    unconfirmed.add(signal);
+                }
+            }
+        }
+        applyProcessed(carId, unconfirmed);
+
+        if (lo >= 0) {
+            // 连续缺失区间用一次查询加载，按 createdAt 拆回各桶；区间内已命中的桶保留缓存值
+            List<Signal> loaded = loader.apply(first.plusHours(lo), first.plusHours(hi + 1).minusNanos(1));
+            Map<LocalDateTime, List<Signal>> byBucket = new HashMap<>();
+            for (Signal signal : loaded) {
+                byBucket.computeIfAbsent(bucketOf(signal.getCreatedAt()), b -> new ArrayList<>()).add(signal);
+            }
+            Map<String, List<Signal>> writes = new LinkedHashMap<>();
+            for (int i = lo; i <= hi; i++) {
+                if (buckets.get(i) == null) {
+                    List<Signal> signals = byBucket.getOrDefault(first.plusHours(i), List.of());
+                    buckets.set(i, signals);
+                    writes.put(keys.get(i), signals);
+                }
+            }
+            writeBuckets(carId, writes);
+        }
+        return trim(buckets, from, to);
+    }
+
+    public Stats stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        return Stats.builder()
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRatio(total == 0 ? 0.0 : (double) hitCount / total)
+                .bypassed(bypassed.get())
+                .build();
+    }
+
+    private void writeAppends(List<Signal> signals) {
+        Map<String, Map<byte[], byte[]>> byKey = new LinkedHashMap<>();
+        for (Signal signal : signals) {
+            byKey.computeIfAbsent(bucketKey(signal.getCarId(), bucketOf(signal.getCreatedAt())), k -> new HashMap<>())
+                    .put(bytes(String.valueOf(signal.getId())), bytes(encode(signal)));
+        }
+        long ttlSeconds = TimeUnit.HOURS.toSeconds(ttlHours);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byKey.forEach((key, fields) -> {
+                    connection.hashCommands().hMSet(bytes(key), fields);
+                    connection.keyCommands().expire(bytes(key), ttlSeconds);
+                    connection.keyCommands().expire(bytes(processedKey(key)), ttlSeconds);
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Failed to append {} signals to history cache: {}", signals.size(), e.getMessage());
+        }
+    }
+
+    private void writeProcessed(Collection<Signal> signals) {
+        Map<String, List<byte[]>> byKey = new LinkedHashMap<>();
+        for (Signal signal : signals) {
+            // 没有 createdAt 的信号无法定位所在的桶，桶中保持未处理直到过期
+            if (signal.getCreatedAt() != null) {
+                byKey.computeIfAbsent(processedKey(bucketKey(signal.getCarId(), bucketOf(signal.getCreatedAt()))),
+                        k -> new ArrayList<>()).add(bytes(String.valueOf(signal.getId())));
+            }
+        }
+        if (byKey.isEmpty()) {
+            return;
+        }
+        long ttlSeconds = TimeUnit.HOURS.toSeconds(ttlHours);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byKey.forEach((key, ids) -> {
+                    connection.setCommands().sAdd(bytes(key), ids.toArray(new byte[0][]));
+                    connection.keyCommands().expire(bytes(key), ttlSeconds);
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Failed to record {} processed signals in history cache: {}", signals.size(), e.getMessage());
+        }
+    }
+
+    private void writeBuckets(Integer carId, Map<String, List<Signal>> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        long ttlSeconds = TimeUnit.HOURS.toSeconds(ttlHours);
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                writes.forEach((key, signals) -> {
+                    Map<byte[], byte[]> fields = new HashMap<>(signals.size() * 2 + 2);
+                    for (Signal signal : signals) {
+                        fields.put(bytes(String.valueOf(signal.getId())), bytes(encode(signal)));
+                    }
+                    fields.put(bytes(COMPLETE_FIELD), new byte[0]);
+                    connection.hashCommands().hMSet(bytes(key), fields);
+                    connection.keyCommands().expire(bytes(key), ttlSeconds);
+                    connection.keyCommands().expire(bytes(processedKey(key)), ttlSeconds);
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Failed to write {} signal buckets of car {} to cache: {}", writes.size(), carId, e.getMessage());
+        }
+    }
+
+    /**
+     * 桶中标记为未处理的信号按所在桶的已处理集合修正，各桶的查询在一次流水线中完成
+     */
+    private void applyProcessed(Integer carId, List<Signal> unconfirmed) {
+        if (unconfirmed.isEmpty()) {
+            return;
+        }
+        Map<String, List<Signal>> byKey = new LinkedHashMap<>();
+        for (Signal signal : unconfirmed) {
+            byKey.computeIfAbsent(processedKey(bucketKey(carId, bucketOf(signal.getCreatedAt()))),
+                    k -> new ArrayList<>()).add(signal);
+        }
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            byKey.forEach((key, signals) -> connection.setCommands().sMIsMember(bytes(key),
+                    signals.stream().map(signal -> bytes(String.valueOf(signal.getId()))).toArray(byte[][]::new)));
+            return null;
+        });
+        int index = 0;
+        for (List<Signal> signals : byKey.values()) {
+            Object result = index < results.size() ? results.get(index) : null;
+            index++;
+            if (!(result instanceof List)) {
+                continue;
+            }
+            List<?> processed = (List<?>) result;
+            for (int i = 0; i < signals.size() && i < processed.size(); i++) {
+                if (Boolean.TRUE.equals(processed.get(i))) {
+                    signals.get(i).markAsProcessed();
+                }
+            }
+        }
+    }
+
+    /**
+     * 带完整标记的桶解码为信号列表，否则返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private List<Signal> decodeBucket(Integer carId, String key, Object result) {
+        if (!(result instanceof Map)) {
+            return null;
+        }
+        Map<String, String> fields = (Map<String, String>) result;
+        if (!fields.containsKey(COMPLETE_FIELD)) {
+            return null;
+        }
+        List<Signal> signals = new ArrayList<>(fields.size());
+        try {
+            fields.forEach((field, value) -> {
+                if (!COMPLETE_FIELD.equals(field)) {
+                    signals.add(decode(Long.valueOf(field), carId, value));
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to decode signal bucket from cache: {}", key, e);
+            return null;
+        }
+        signals.sort(Comparator.comparing(Signal::getId));
+        return signals;
+    }
+
+    /**
+     * 拼接各桶的信号，首尾两个桶只保留 [from, to] 内的
+     */
+    private static List<Signal> trim(List<List<Signal>> buckets, LocalDateTime from, LocalDateTime to) {
+        List<Signal> result = new ArrayList<>();
+        int last = buckets.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            for (Signal signal : buckets.get(i)) {
+                if ((i == 0 || i == last)
+                        && (signal.getCreatedAt().isBefore(from) || signal.getCreatedAt().isAfter(to))) {
+                    continue;
+                }
+                result.add(signal);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 事务内暂存的追加与已处理标记，提交后统一写入；不在事务中时返回 null
+     */
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        Pending created = new Pending();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SignalHistoryCache.this);
+                if (status == STATUS_COMMITTED) {
+                    if (!created.appends.isEmpty()) {
+                        writeAppends(created.appends);
+                    }
+                    if (!created.processed.isEmpty()) {
+                        writeProcessed(created.processed);
+                    }
+                }
+            }
+        });
+        return created;
+    }
+
+    /**
+     * batteryTypeId|processed|createdAt|signalData；carId 与 id 分别由 key 和 field 给出
+     */
+    static String encode(Signal signal) {
+        return signal.getBatteryTypeId() + String.valueOf(SEPARATOR) + (signal.isProcessed() ? '1' : '0')
+                + SEPARATOR + signal.getCreatedAt() + SEPARATOR + signal.getSignalData();
+    }
+
+    static Signal decode(Long id, Integer carId, String value) {
+        int first = value.indexOf(SEPARATOR);
+        int second = value.indexOf(SEPARATOR, first + 1);
+        int third = value.indexOf(SEPARATOR, second + 1);
+        if (first < 0 || second < 0 || third < 0) {
+            throw new IllegalArgumentException("Malformed cached signal " + id);
+        }
+        return Signal.restore(id, carId,
+                Integer.valueOf(value.substring(0, first)),
+                value.substring(third + 1),
+                value.charAt(first + 1) == '1',
+                LocalDateTime.parse(value.substring(second + 1, third)));
+    }
+
+    private static LocalDateTime bucketOf(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static String bucketKey(Integer carId, LocalDateTime bucket) {
+        return KEY_PREFIX + carId + ":" + bucket.format(BUCKET_FORMATTER);
+    }
+
+    private static String processedKey(String bucketKey) {
+        return bucketKey + PROCESSED_SUFFIX;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class Pending {
+        final List<Signal> appends = new ArrayList<>();
+        final List<Signal> processed = new ArrayList<>();
+    }
+
+    @Getter
+    @Builder
+    public static class Stats {
+        // 按小时桶计数
+        private final long hits;
+        private final long misses;
+        private final double hitRatio;
+        private final long bypassed; // 覆盖的桶数超过上限、直接查询数据库的次数
+    }
+}
@@ -0,0 +1,106 @@
+package com.mi.bms.signal.infrastructure.dedup;
+
+import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单节点去重：
+ * <ul>
+ * <li>seq：每辆车一个高水位 + 64 位滑动窗口位图（类似 IPsec 防重放窗口），比高水位落后 64 以上的序号视为重复</li>
+ * <li>msgId：有界 LRU，超出容量后淘汰最久未出现的 ID</li>
+ * </ul>
+ */
+@Component
+@ConditionalOnProperty(name = "signal.dedup.store", havingValue = "local", matchIfMissing = true)
+public class LocalSignalDeduplicator implements SignalDeduplicator {
+
+    static final int WINDOW_SIZE = 64;
+
+    private final Map<Integer, SeqWindow> windows = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> recentMsgIds;
+
+    public LocalSignalDeduplicator(@Value("${signal.dedup.msg-id-capacity:100000}") int msgIdCapacity) {
+        this.recentMsgIds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > msgIdCapacity;
+            }
+        };
+    }
+
+    @Override
+    public boolean[] acquire(List<SignalRequest> requests) {
+        boolean[] fresh = new boolean[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            SignalRequest request = requests.get(i);
+            if (request.getCarId() != null && request.getSeq() != null) {
+                fresh[i] = windows.computeIfAbsent(request.getCarId(), carId -> new SeqWindow())
+                        .acquire(request.getSeq());
+            } else if (request.getMsgId() != null) {
+                synchronized (recentMsgIds) {
+                    fresh[i] = recentMsgIds.putIfAbsent(request.getMsgId(), Boolean.TRUE) == null;
+                }
+            } else {
+                fresh[i] = true;
+            }
+        }
+        return fresh;
+    }
+
+    @Override
+    public void release(List<SignalRequest> requests) {
+        for (SignalRequest request : requests) {
+            if (request.getCarId() != null && request.getSeq() != null) {
+                SeqWindow window = windows.get(request.getCarId());
+                if (window != null) {
+                    window.release(request.getSeq());
+                }
+            } else if (request.getMsgId() != null) {
+                synchronized (recentMsgIds) {
+                    recentMsgIds.remove(request.getMsgId());
+                }
+            }
+        }
+    }
+
+    /**
+     * 单车序号窗口：bit i 表示序号 highWater - i 已出现
+     */
+    static class SeqWindow {
+        private long highWater = -1;
+        private long bitmap;
+
+        synchronized boolean acquire(long seq) {
+            if (seq > highWater) {
+                long shift = seq - highWater;
+                bitmap = shift >= WINDOW_SIZE ? 1L : (bitmap << shift) | 1L;
+                highWater = seq;
+                return true;
+            }
+            long offset = highWater - seq;
+            if (offset >= WINDOW_SIZE) {
+                return false; // 过旧，按重复处理
+            }
+            long bit = 1L << offset;
+            if ((bitmap & bit) != 0) {
+                return false;
+            }
+            bitmap |= bit;
+            return true;
+        }
+
+        synchronized void release(long seq) {
+            long offset = highWater - seq;
+            if (offset >= 0 && offset < WINDOW_SIZE) {
+                bitmap &= ~(1L << offset);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.mi.bms.signal.infrastructure.dedup;
+
+import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多节点去重，语义与 {@link LocalSignalDeduplicator} 一致：
+ * <ul>
+ * <li>seq：每辆车一个小 hash signal:dedup:seq:{carId}，字段 hw 为高水位，字段 0..63 为滑动窗口的槽位，
+ * 槽位 seq % 64 保存最近落在该槽的序号；比高水位落后 64 以上的序号视为重复。
+ * 整批在一次 Lua 脚本中判定，每辆车最多 65 个字段，空闲 ttl-seconds 后整体过期，内存与车辆数成正比</li>
+ * <li>msgId：每条请求一个 SET NX EX 键，整批在一次 pipeline 中完成</li>
+ * </ul>
+ * 一次脚本调用涉及多辆车的 key，需要单实例（或主从）Redis。
+ * Redis 不可用时降级为全部放行（宁可重复落库，也不丢信号）。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "signal.dedup.store", havingValue = "redis")
+@RequiredArgsConstructor
+public class RedisSignalDeduplicator implements SignalDeduplicator {
+
+    static final String SEQ_KEY_PREFIX = "signal:dedup:seq:";
+    static final String MSG_KEY_PREFIX = "signal:dedup:msg:";
+    private static final byte[] MARKER = { '1' };
+
+    // KEYS[i] 为第 i 条请求所属车辆的 hash，ARGV[1] 为 TTL 秒数，ARGV[i + 1] 为其序号；返回每条请求是否首次出现
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local window = " + LocalSignalDeduplicator.WINDOW_SIZE + " "
+                    + "local result = {} "
+                    + "for i, key in ipairs(KEYS) do "
+                    + "  local seq = ARGV[i + 1] "
+                    + "  local n = tonumber(seq) "
+                    + "  local slot = tostring(n % window) "
+                    + "  local hw = tonumber(redis.call('HGET', key, 'hw')) "
+                    + "  local fresh = 0 "
+                    + "  if hw == nil or n > hw then "
+                    + "    redis.call('HSET', key, 'hw', seq, slot, seq) "
+                    + "    fresh = 1 "
+                    + "  elseif hw - n < window and redis.call('HGET', key, slot) ~= seq then "
+                    + "    redis.call('HSET', key, slot, seq) "
+                    + "    fresh = 1 "
+                    + "  end "
+                    + "  redis.call('EXPIRE', key, ARGV[1]) "
+                    + "  result[i] = fresh "
+                    + "end "
+                    + "return result", List.class);
+
+    // 只清除仍由该序号占用的槽位，高水位保持不变
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "local window = " + LocalSignalDeduplicator.WINDOW_SIZE + " "
+                    + "for i, key in ipairs(KEYS) do "
+                    + "  local slot = tostring(tonumber(ARGV[i]) % window) "
+                    + "  if redis.call('HGET', key, slot) == ARGV[i] then redis.call('HDEL', key, slot) end "
+                    + "end "
+                    + "return 0", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Value("${signal.dedup.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Override
+    public boolean[] acquire(List<SignalRequest> requests) {
+        boolean[] fresh = new boolean[requests.size()];
+        List<Integer> seqPositions = new ArrayList<>();
+        List<String> seqKeys = new ArrayList<>();
+        List<String> seqArgs = new ArrayList<>();
+        seqArgs.add(String.valueOf(ttlSeconds));
+        List<Integer> msgPositions = new ArrayList<>();
+        List<byte[]> msgKeys = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            SignalRequest request = requests.get(i);
+            if (request.getCarId() != null && request.getSeq() != null) {
+                seqPositions.add(i);
+                seqKeys.add(SEQ_KEY_PREFIX + request.getCarId());
+                seqArgs.add(String.valueOf(request.getSeq()));
+            } else if (request.getMsgId() != null) {
+                msgPositions.add(i);
+                msgKeys.add((MSG_KEY_PREFIX + request.getMsgId()).getBytes(StandardCharsets.UTF_8));
+            } else {
+                fresh[i] = true;
+            }
+        }
+        if (!seqKeys.isEmpty()) {
+            acquireSeqs(seqPositions, seqKeys, seqArgs, fresh);
+        }
+        if (!msgKeys.isEmpty()) {
+            acquireMsgIds(msgPositions, msgKeys, fresh);
+        }
+        return fresh;
+    }
+
+    @Override
+    public void release(List<SignalRequest> requests) {
+        List<String> seqKeys = new ArrayList<>();
+        List<String> seqArgs = new ArrayList<>();
+        List<String> msgKeys = new ArrayList<>();
+        for (SignalRequest request : requests) {
+            if (request.getCarId() != null && request.getSeq() != null) {
+                seqKeys.add(SEQ_KEY_PREFIX + request.getCarId());
+                seqArgs.add(String.valueOf(request.getSeq()));
+            } else if (request.getMsgId() != null) {
+                msgKeys.add(MSG_KEY_PREFIX + request.getMsgId());
+            }
+        }
+        try {
+            if (!seqKeys.isEmpty()) {
+                redisTemplate.execute(RELEASE_SCRIPT, seqKeys, seqArgs.toArray());
+            }
+            if (!msgKeys.isEmpty()) {
+                redisTemplate.delete(msgKeys);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to release {} dedup entries: {}", seqKeys.size() + msgKeys.size(), e.getMessage());
+        }
+    }
+
+    private void acquireSeqs(List<Integer> positions, List<String> keys, List<String> args, boolean[] fresh) {
+        try {
+            List<?> results = redisTemplate.execute(ACQUIRE_SCRIPT, keys, args.toArray());
+            for (int i = 0; i < positions.size(); i++) {
+                Object result = results == null || i >= results.size() ? null : results.get(i);
+                fresh[positions.get(i)] = result instanceof Number && ((Number) result).longValue() == 1L;
+            }
+        } catch (Exception e) {
+            log.warn("Signal dedup unavailable, accepting {} sequenced signals: {}", keys.size(), e.getMessage());
+            for (Integer position : positions) {
+                fresh[position] = true;
+            }
+        }
+    }
+
+    private void acquireMsgIds(List<Integer> positions, List<byte[]> keys, boolean[] fresh) {
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (byte[] key : keys) {
+                    connection.stringCommands().set(key, MARKER, Expiration.seconds(ttlSeconds),
+                            RedisStringCommands.SetOption.SET_IF_ABSENT);
+                }
+                return null;
+            });
+            for (int i = 0; i < positions.size(); i++) {
+                fresh[positions.get(i)] = Boolean.TRUE.equals(results.get(i));
+            }
+        } catch (Exception e) {
+            log.warn("Signal dedup unavailable, accepting {} msgId signals: {}", keys.size(), e.getMessage());
+            for (Integer position : positions) {
+                fresh[position] = true;
+            }
+        }
+    }
+}
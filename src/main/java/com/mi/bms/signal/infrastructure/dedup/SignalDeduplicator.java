@@ -0,0 +1,21 @@
+package com.mi.bms.signal.infrastructure.dedup;
+
+import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
+
+import java.util.List;
+
+/**
+ * 信号重复提交检测。按 seq（车辆级递增序号）去重，未提供 seq 时按 msgId 去重；两者都没有的请求不参与去重。
+ */
+public interface SignalDeduplicator {
+
+    /**
+     * 批量登记，返回每条请求是否为首次出现（false 表示重复提交）
+     */
+    boolean[] acquire(List<SignalRequest> requests);
+
+    /**
+     * 撤销登记：首次出现但最终未落库的请求需要释放，以便客户端重试
+     */
+    void release(List<SignalRequest> requests);
+}
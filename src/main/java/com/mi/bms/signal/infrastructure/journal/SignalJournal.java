@@ -0,0 +1,613 @@
+package com.mi.bms.signal.infrastructure.journal;
+
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 信号预写日志（WAL）：内存映射的分段追加文件 + 组提交刷盘。
+ * <p>
+ * 记录格式：{@code [int payloadLength][long seq][int crc32][payload]}，payload 为
+ * {@code [int carId][int batteryTypeId][signalData UTF-8]}。写入线程只做内存拷贝，
+ * 由单独的刷盘线程把一段时间内的所有追加合并为一次 force()，再统一完成等待中的 future。
+ * <p>
+ * 启动时逐段校验 CRC 恢复写入位置，遇到未写完的尾部记录（进程崩溃导致）直接截断。
+ * 已被加载器落库的封闭段会被删除。
+ * <p>
+ * 刷盘失败时段保留在待刷盘列表中，退避后重试，durableSeq 只在本轮涉及的段全部刷盘成功后推进。
+ * 等待刷盘失败或超时的一批记录会被隔离（carId 改写为 {@link #FENCED_CAR_ID}），加载器跳过它们，
+ * 客户端收到失败后重试不会产生重复信号；隔离标记本身未能刷盘而进程又恰好崩溃时，该批记录仍可能被加载。
+ */
+@Slf4j
+@Component
+public class SignalJournal {
+
+    static final int HEADER_BYTES = 16;
+    // 被隔离记录的 carId，车辆 id 均为正数
+    static final int FENCED_CAR_ID = -1;
+    private static final long FLUSH_RETRY_INITIAL_MS = 10;
+    private static final long FLUSH_RETRY_MAX_MS = 1000;
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    @Value("${signal.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${signal.journal.dir:./data/signal-journal}")
+    private String dir;
+
+    @Value("${signal.journal.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${signal.journal.group-commit-ms:2}")
+    private long groupCommitMs;
+
+    @Value("${signal.journal.ack-timeout-ms:5000}")
+    private long ackTimeoutMs;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final List<Segment> dirty = new ArrayList<>();
+    private Segment active;
+    private long nextSeq = 1;
+    private volatile long appendedSeq;
+    private volatile long durableSeq;
+    private volatile long loadedSeq;
+    private volatile boolean running;
+    private Thread flusher;
+
+    // 加载器读取游标，避免每次从段首扫描
+    private long cursorSeq = -1;
+    private long cursorSegment;
+    private int cursorPos;
+
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path directory = Paths.get(dir);
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(directory)) {
+                files = stream.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                Segment segment = Segment.open(file, segmentBytes);
+                segment.recover();
+                segments.put(segment.baseSeq, segment);
+                // 段名即首条记录的序号：即使段内记录尚未刷盘就断电，序号也不会回退到已加载的范围内
+                nextSeq = Math.max(nextSeq, Math.max(segment.baseSeq, segment.lastSeq + 1));
+            }
+            // 只有最后一段继续写入，之前的段都已封闭
+            segments.headMap(segments.isEmpty() ? 0L : segments.lastKey()).values().forEach(Segment::seal);
+            active = segments.isEmpty() ? newSegment(nextSeq) : segments.lastEntry().getValue();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open signal journal at " + dir, e);
+        }
+        appendedSeq = nextSeq - 1;
+        durableSeq = appendedSeq;
+        running = true;
+        flusher = new Thread(this::flushLoop, "signal-journal-flusher");
+        flusher.start();
+        log.info("Signal journal opened at {}: {} segments, last seq {}", dir, segments.size(), appendedSeq);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        synchronized (this) {
+            notifyAll();
+        }
+        try {
+            flusher.join(ackTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segments.values().forEach(Segment::close);
+        segments.clear();
+        log.info("Signal journal closed at seq {}", durableSeq);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 追加一批信号并等待组提交刷盘，返回第一条记录的序号（其余依次递增）。
+     * 抛出异常时这批记录已被隔离，不会被加载
+     */
+    public long appendAndAwait(List<Signal> signals) throws IOException {
+        CompletableFuture<Long> durable;
+        long firstSeq;
+        long lastSeq;
+        synchronized (this) {
+            if (!running) {
+                throw new IOException("Signal journal is not open");
+            }
+            firstSeq = nextSeq;
+            try {
+                for (Signal signal : signals) {
+                    byte[] data = signal.getSignalData().getBytes(StandardCharsets.UTF_8);
+                    int payloadLength = 8 + data.length;
+                    if (!active.hasRoom(payloadLength)) {
+                        active.seal();
+                        active = newSegment(nextSeq);
+                    }
+                    active.append(nextSeq++, signal.getCarId(), signal.getBatteryTypeId(), data);
+                    if (!dirty.contains(active)) {
+                        dirty.add(active);
+                    }
+                }
+            } catch (RuntimeException e) {
+                // 中途失败（信号过大、新建段失败）：已写入的记录同样隔离，调用方按整批失败处理，重试不会产生重复
+                if (nextSeq > firstSeq) {
+                    appendedSeq = nextSeq - 1;
+                    fence(firstSeq, nextSeq - 1);
+                    log.warn("Fenced journal records [{}, {}] after failed append", firstSeq, nextSeq - 1);
+                }
+                throw e;
+            }
+            appendedSeq = nextSeq - 1;
+            lastSeq = appendedSeq;
+            durable = new CompletableFuture<>();
+            waiters.addLast(new Waiter(appendedSeq, durable));
+            notifyAll();
+        }
+
+        try {
+            durable.get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fenceOrConfirm(firstSeq, lastSeq, new IOException("Interrupted while waiting for journal flush", e));
+        } catch (ExecutionException | TimeoutException e) {
+            fenceOrConfirm(firstSeq, lastSeq, new IOException("Journal flush failed", e));
+        }
+        return firstSeq;
+    }
+
+    /**
+     * 等待失败后调用：记录已在此期间刷盘（加载器可能已读到）时视为成功返回，否则隔离这批记录并抛出 failure。
+     * 持有锁期间 durableSeq 不会推进，加载器也只读取已刷盘的记录，因此两种结果不会交错
+     */
+    private synchronized void fenceOrConfirm(long firstSeq, long lastSeq, IOException failure) throws IOException {
+        if (durableSeq >= lastSeq) {
+            log.warn("Journal records [{}, {}] became durable after the wait failed", firstSeq, lastSeq);
+            return;
+        }
+        fence(firstSeq, lastSeq);
+        log.warn("Fenced journal records [{}, {}] after failed flush", firstSeq, lastSeq);
+        throw failure;
+    }
+
+    private void fence(long firstSeq, long lastSeq) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(firstSeq);
+        while (entry != null && entry.getKey() <= lastSeq) {
+            entry.getValue().fence(firstSeq, lastSeq);
+            entry = segments.higherEntry(entry.getKey());
+        }
+    }
+
+    /**
+     * 加载器启动时以已持久化的检查点校验序号：日志为空（目录丢失或被清空）时从检查点之后继续编号，
+     * 否则日志末尾落后于检查点说明日志与数据库不匹配，拒绝启动
+     */
+    public synchronized void resumeAfter(long checkpoint) {
+        if (!running || checkpoint <= appendedSeq) {
+            return;
+        }
+        boolean hasRecords = segments.values().stream().anyMatch(segment -> segment.lastSeq > 0);
+        if (hasRecords) {
+            throw new IllegalStateException("Signal journal at " + dir + " ends at seq " + appendedSeq
+                    + " but its checkpoint is already at seq " + checkpoint);
+        }
+        log.error("Signal journal at {} is empty but its checkpoint is at seq {}, "
+                + "records journaled after the checkpoint may have been lost; continuing from seq {}",
+                dir, checkpoint, checkpoint + 1);
+        segments.values().forEach(Segment::delete);
+        segments.clear();
+        dirty.clear();
+        cursorSeq = -1;
+        nextSeq = checkpoint + 1;
+        active = newSegment(nextSeq);
+        appendedSeq = checkpoint;
+        durableSeq = checkpoint;
+    }
+
+    /**
+     * 读取 afterSeq 之后已刷盘的记录，最多 max 条
+     */
+    public synchronized List<JournalRecord> read(long afterSeq, int max) {
+        List<JournalRecord> records = new ArrayList<>(Math.min(max, 1024));
+        long limit = durableSeq;
+        if (afterSeq >= limit) {
+            return records;
+        }
+
+        Map.Entry<Long, Segment> entry;
+        int pos;
+        if (afterSeq == cursorSeq && segments.containsKey(cursorSegment)) {
+            entry = segments.floorEntry(cursorSegment);
+            pos = cursorPos;
+        } else {
+            entry = segments.floorEntry(afterSeq + 1);
+            if (entry == null) {
+                entry = segments.firstEntry();
+            }
+            pos = 0;
+        }
+
+        while (entry != null && records.size() < max) {
+            Segment segment = entry.getValue();
+            while (records.size() < max && pos < segment.writePos) {
+                JournalRecord record = segment.readAt(pos);
+                pos += HEADER_BYTES + record.payloadLength;
+                if (record.seq > limit) {
+                    return records;
+                }
+                if (record.seq > afterSeq) {
+                    records.add(record);
+                    cursorSeq = record.seq;
+                    cursorSegment = segment.baseSeq;
+                    cursorPos = pos;
+                }
+            }
+            if (records.size() >= max) {
+                break;
+            }
+            entry = segments.higherEntry(segment.baseSeq);
+            pos = 0;
+        }
+        return records;
+    }
+
+    /**
+     * 加载器提交检查点后调用：删除已完全落库的封闭段
+     */
+    public synchronized void markLoaded(long seq) {
+        loadedSeq = Math.max(loadedSeq, seq);
+        while (segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest == active || !oldest.sealed || oldest.lastSeq > loadedSeq) {
+                break;
+            }
+            segments.remove(oldest.baseSeq);
+            dirty.remove(oldest);
+            oldest.delete();
+            log.info("Deleted loaded journal segment {}", oldest.file.getFileName());
+        }
+    }
+
+    public Stats stats() {
+        long usedBytes = 0;
+        for (Segment segment : segments.values()) {
+            usedBytes += segment.writePos;
+        }
+        return Stats.builder()
+                .enabled(enabled)
+                .appendedSeq(appendedSeq)
+                .durableSeq(durableSeq)
+                .loadedSeq(loadedSeq)
+                .lag(durableSeq - loadedSeq)
+                .segmentCount(segments.size())
+                .segmentBytes(segmentBytes)
+                .usedBytes(usedBytes)
+                .activeSegmentUsedBytes(active == null ? 0 : active.writePos)
+                .build();
+    }
+
+    private void flushLoop() {
+        long retryDelay = FLUSH_RETRY_INITIAL_MS;
+        while (true) {
+            long target;
+            List<Segment> toForce;
+            List<Segment> sealed;
+            synchronized (this) {
+                while (running && appendedSeq == durableSeq) {
+                    try {
+                        wait(groupCommitMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running && appendedSeq == durableSeq) {
+                    return;
+                }
+                target = appendedSeq;
+                toForce = new ArrayList<>(dirty);
+                // 此刻已封闭的段不会再写入，刷盘成功后才能移出待刷盘列表
+                sealed = toForce.stream().filter(segment -> segment.sealed).collect(Collectors.toList());
+            }
+
+            Throwable failure = null;
+            try {
+                for (Segment segment : toForce) {
+                    segment.force();
+                }
+            } catch (Throwable e) {
+                log.error("Failed to flush signal journal", e);
+                failure = e;
+            }
+
+            List<Waiter> done = new ArrayList<>();
+            synchronized (this) {
+                if (failure == null) {
+                    durableSeq = target;
+                    dirty.removeAll(sealed);
+                }
+                while (!waiters.isEmpty() && waiters.peekFirst().seq <= target) {
+                    done.add(waiters.pollFirst());
+                }
+            }
+            for (Waiter waiter : done) {
+                if (failure == null) {
+                    waiter.future.complete(waiter.seq);
+                } else {
+                    waiter.future.completeExceptionally(failure);
+                }
+            }
+
+            if (failure == null) {
+                retryDelay = FLUSH_RETRY_INITIAL_MS;
+                continue;
+            }
+            // 刷盘失败：段仍在待刷盘列表中，退避后重试，避免空转
+            synchronized (this) {
+                if (!running) {
+                    return;
+                }
+                try {
+                    wait(retryDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            retryDelay = Math.min(FLUSH_RETRY_MAX_MS, retryDelay * 2);
+        }
+    }
+
+    private Segment newSegment(long baseSeq) {
+        try {
+            Path file = Paths.get(dir, String.format("%020d%s", baseSeq, SEGMENT_SUFFIX));
+            Segment segment = Segment.open(file, segmentBytes);
+            segments.put(baseSeq, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create journal segment", e);
+        }
+    }
+
+    @Getter
+    @Builder
+    public static class Stats {
+        private final boolean enabled;
+        private final long appendedSeq;
+        private final long durableSeq;
+        private final long loadedSeq;
+        private final long lag; // 已刷盘但尚未落库的记录数
+        private final int segmentCount;
+        private final int segmentBytes;
+        private final long usedBytes;
+        private final int activeSegmentUsedBytes;
+    }
+
+    @Getter
+    public static class JournalRecord {
+        private final long seq;
+        private final int carId;
+        private final int batteryTypeId;
+        private final String signalData;
+        private final int payloadLength;
+
+        JournalRecord(long seq, int carId, int batteryTypeId, String signalData, int payloadLength) {
+            this.seq = seq;
+            this.carId = carId;
+            this.batteryTypeId = batteryTypeId;
+            this.signalData = signalData;
+            this.payloadLength = payloadLength;
+        }
+
+        public boolean isFenced() {
+            return carId == FENCED_CAR_ID;
+        }
+
+        public Signal toSignal() {
+            return Signal.create(carId, batteryTypeId, SignalDataCodec.parse(signalData));
+        }
+    }
+
+    private static class Waiter {
+        private final long seq;
+        private final CompletableFuture<Long> future;
+
+        Waiter(long seq, CompletableFuture<Long> future) {
+            this.seq = seq;
+            this.future = future;
+        }
+    }
+
+    /**
+     * 单个日志段。写入与读取都使用绝对位置，不改变 MappedByteBuffer 的 position
+     */
+    static class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final long baseSeq;
+        private final CRC32 crc = new CRC32();
+        private int writePos;
+        private long lastSeq;
+        private boolean sealed;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer, long baseSeq) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.baseSeq = baseSeq;
+        }
+
+        static Segment open(Path file, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int length = (int) Math.max(size, channel.size());
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            String name = file.getFileName().toString();
+            long baseSeq = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            return new Segment(file, channel, buffer, baseSeq);
+        }
+
+        /**
+         * 扫描恢复写入位置；CRC 不符或长度越界的尾部视为崩溃时未写完，清零截断
+         */
+        void recover() {
+            int pos = 0;
+            while (pos + HEADER_BYTES <= buffer.capacity()) {
+                int payloadLength = buffer.getInt(pos);
+                if (payloadLength <= 0 || pos + HEADER_BYTES + payloadLength > buffer.capacity()
+                        || crcOf(pos + HEADER_BYTES, payloadLength) != buffer.getInt(pos + 12)) {
+                    break;
+                }
+                lastSeq = buffer.getLong(pos + 4);
+                pos += HEADER_BYTES + payloadLength;
+            }
+            writePos = pos;
+            if (pos + HEADER_BYTES <= buffer.capacity() && buffer.getInt(pos) != 0) {
+                log.warn("Truncating torn journal record in {} at offset {}", file.getFileName(), pos);
+                for (int i = pos; i < Math.min(buffer.capacity(), pos + HEADER_BYTES); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+            }
+        }
+
+        boolean hasRoom(int payloadLength) {
+            if (HEADER_BYTES + payloadLength > buffer.capacity()) {
+                throw new IllegalArgumentException("Signal too large for journal segment: " + payloadLength);
+            }
+            return writePos + HEADER_BYTES + payloadLength <= buffer.capacity();
+        }
+
+        void append(long seq, int carId, int batteryTypeId, byte[] data) {
+            int payloadLength = 8 + data.length;
+            int payloadPos = writePos + HEADER_BYTES;
+            buffer.putInt(payloadPos, carId);
+            buffer.putInt(payloadPos + 4, batteryTypeId);
+            for (int i = 0; i < data.length; i++) {
+                buffer.put(payloadPos + 8 + i, data[i]);
+            }
+            buffer.putLong(writePos + 4, seq);
+            buffer.putInt(writePos + 12, crcOf(payloadPos, payloadLength));
+            // 长度最后写入，恢复时长度为 0 即视为末尾
+            buffer.putInt(writePos, payloadLength);
+            writePos += HEADER_BYTES + payloadLength;
+            lastSeq = seq;
+        }
+
+        JournalRecord readAt(int pos) {
+            int payloadLength = buffer.getInt(pos);
+            long seq = buffer.getLong(pos + 4);
+            int payloadPos = pos + HEADER_BYTES;
+            byte[] data = new byte[payloadLength - 8];
+            ByteBuffer view = buffer.duplicate();
+            view.position(payloadPos + 8);
+            view.get(data);
+            return new JournalRecord(seq, buffer.getInt(payloadPos), buffer.getInt(payloadPos + 4),
+                    new String(data, StandardCharsets.UTF_8), payloadLength);
+        }
+
+        /**
+         * 把 [fromSeq, toSeq] 内的记录改写为隔离记录并重算 CRC，长度与序号不变
+         */
+        void fence(long fromSeq, long toSeq) {
+            int pos = 0;
+            while (pos < writePos) {
+                int payloadLength = buffer.getInt(pos);
+                long seq = buffer.getLong(pos + 4);
+                if (seq > toSeq) {
+                    break;
+                }
+                if (seq >= fromSeq) {
+                    buffer.putInt(pos + HEADER_BYTES, FENCED_CAR_ID);
+                    buffer.putInt(pos + 12, crcOf(pos + HEADER_BYTES, payloadLength));
+                }
+                pos += HEADER_BYTES + payloadLength;
+            }
+            try {
+                buffer.force();
+            } catch (Exception e) {
+                log.warn("Failed to flush fenced records in {}", file.getFileName(), e);
+            }
+        }
+
+        void seal() {
+            sealed = true;
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close journal segment {}", file.getFileName(), e);
+            }
+        }
+
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete journal segment {}", file.getFileName(), e);
+            }
+        }
+
+        private int crcOf(int pos, int length) {
+            crc.reset();
+            ByteBuffer view = buffer.duplicate();
+            view.position(pos);
+            view.limit(pos + length);
+            crc.update(view);
+            return (int) crc.getValue();
+        }
+    }
+}
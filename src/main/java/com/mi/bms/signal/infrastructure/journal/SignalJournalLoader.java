@@ -0,0 +1,129 @@
+package com.mi.bms.signal.infrastructure.journal;
+
+import com.mi.bms.signal.application.SignalService;
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.infrastructure.cache.SignalHistoryCache;
+import com.mi.bms.signal.infrastructure.outbox.SignalOutbox;
+import com.mi.bms.signal.infrastructure.persistence.SignalBatchWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 预写日志加载器：定时把已刷盘的日志记录批量写入 signal 表。
+ * <p>
+ * 信号、发件箱事件与检查点（signal_journal_offset.last_seq）在同一事务中提交，
+ * 因此重启后从检查点之后重放，既不会丢也不会重复落库。被隔离的记录（上报时刷盘失败、客户端已收到失败）只推进检查点，不落库。
+ * <p>
+ * 每轮最多加载 max-batches-per-run 批，积压时分多轮追赶，不长期占用调度线程。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SignalJournalLoader {
+
+    private static final String SELECT_OFFSET_SQL =
+            "SELECT last_seq FROM signal_journal_offset WHERE journal_id = ?";
+    private static final String INSERT_OFFSET_SQL =
+            "INSERT IGNORE INTO signal_journal_offset (journal_id, last_seq) VALUES (?, 0)";
+    private static final String UPDATE_OFFSET_SQL =
+            "UPDATE signal_journal_offset SET last_seq = ? WHERE journal_id = ? AND last_seq = ?";
+
+    private final SignalJournal signalJournal;
+    private final SignalBatchWriter signalBatchWriter;
+    private final SignalOutbox signalOutbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final SignalService signalService;
+    private final SignalHistoryCache signalHistoryCache;
+
+    @Value("${signal.journal.id:default}")
+    private String journalId;
+
+    @Value("${signal.journal.load-batch-size:2000}")
+    private int loadBatchSize;
+
+    @Value("${signal.journal.max-batches-per-run:10}")
+    private int maxBatchesPerRun;
+
+    private long checkpoint = -1;
+
+    /**
+     * 启动时读取检查点并交给日志校验序号，须在接收上报之前完成
+     */
+    @PostConstruct
+    public void init() {
+        if (!signalJournal.isEnabled()) {
+            return;
+        }
+        checkpoint = readCheckpoint();
+        signalJournal.resumeAfter(checkpoint);
+        signalJournal.markLoaded(checkpoint);
+    }
+
+    @Scheduled(fixedDelayString = "${signal.journal.load-interval-ms:200}")
+    public void load() {
+        if (!signalJournal.isEnabled()) {
+            return;
+        }
+        if (checkpoint < 0) {
+            checkpoint = readCheckpoint();
+            signalJournal.markLoaded(checkpoint);
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<SignalJournal.JournalRecord> records = signalJournal.read(checkpoint, loadBatchSize);
+            if (records.isEmpty()) {
+                return;
+            }
+            List<Signal> signals = records.stream()
+                    .filter(record -> !record.isFenced())
+                    .map(SignalJournal.JournalRecord::toSignal)
+                    .collect(Collectors.toList());
+            long from = checkpoint;
+            long to = records.get(records.size() - 1).getSeq();
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!signals.isEmpty()) {
+                        signalBatchWriter.insertAll(signals);
+                        signalHistoryCache.append(signals);
+                        signalOutbox.appendAll(signals);
+                    }
+                    int updated = jdbcTemplate.update(UPDATE_OFFSET_SQL, to, journalId, from);
+                    if (updated != 1) {
+                        throw new IllegalStateException("Journal checkpoint moved concurrently for " + journalId);
+                    }
+                });
+            } catch (Exception e) {
+                // 事务已回滚，检查点未推进，下次调度从同一位置重试
+                log.error("Failed to load journal records ({}, {}], will retry", from, to, e);
+                return;
+            }
+            checkpoint = to;
+            signalJournal.markLoaded(to);
+            log.debug("Loaded journal records ({}, {}] into signal table", from, to);
+
+            if (!signals.isEmpty()) {
+                signalService.dispatch(signals);
+            }
+        }
+    }
+
+    private long readCheckpoint() {
+        jdbcTemplate.update(INSERT_OFFSET_SQL, journalId);
+        Long lastSeq = jdbcTemplate.queryForObject(SELECT_OFFSET_SQL, Long.class, journalId);
+        log.info("Signal journal {} resumes after seq {}", journalId, lastSeq);
+        return lastSeq == null ? 0 : lastSeq;
+    }
+}
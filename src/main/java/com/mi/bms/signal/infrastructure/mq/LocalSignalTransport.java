@@ -0,0 +1,257 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内信号传输，无需外部 broker 即可运行完整的异步链路（本地压测、单机部署）。
+ * <p>
+ * 按 carId 的哈希选择分区，每个分区一个 {@link MpscRing} 和一个消费线程：任意线程无锁入队，
+ * 消费线程每次取出最多 batch-size 条，整批交给 {@link SignalMessageHandler}，
+ * 与 RocketMQ 顺序消费共用同一套批量评估、退避重试和死信逻辑，同一车辆的信号按发送顺序处理。
+ * <p>
+ * 环形队列不落盘，因此发送返回的 future 在消息被处理完成（或转入死信）后才完成，
+ * 发件箱据此删除事件，进程崩溃时未处理的事件仍保留在发件箱中重新投递，语义与 RocketMQ 链路一致，为至少一次。
+ * 分区队列已满时发送线程等待，超过 offer-timeout-ms 仍无空位则发送失败，由调用方退避重试。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "signal.transport", havingValue = "local")
+public class LocalSignalTransport implements SignalTransport {
+
+    static final String BROKER_NAME = "local";
+    // 处理逻辑抛出未预期异常时整批重新投递前的等待
+    private static final long ERROR_BACKOFF_MS = 1000;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final SignalMessageHandler handler;
+
+    @Value("${signal.transport.local.partitions:4}")
+    private int partitionCount;
+
+    @Value("${signal.transport.local.capacity:65536}")
+    private int capacity;
+
+    @Value("${signal.consumer.batch-size:32}")
+    private int batchSize;
+
+    @Value("${signal.transport.local.offer-timeout-ms:3000}")
+    private long offerTimeoutMs;
+
+    private Partition[] partitions;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        partitions = new Partition[partitionCount];
+        running = true;
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i);
+            partitions[i].thread.start();
+        }
+        log.info("Local signal transport started with {} partitions of {} slots", partitionCount, partitions[0].ring.capacity());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Partition partition : partitions) {
+            LockSupport.unpark(partition.thread);
+        }
+        IllegalStateException stopped = new IllegalStateException("Local signal transport stopped");
+        for (Partition partition : partitions) {
+            try {
+                partition.thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // 未处理的消息仍在发件箱中，失败后由中继重新投递
+            List<Entry> remaining = new ArrayList<>();
+            partition.ring.drain(remaining, Integer.MAX_VALUE);
+            for (Entry entry : remaining) {
+                entry.ack.fail(stopped);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> payloads) {
+        if (payloads.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Ack ack = new Ack(payloads.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        for (byte[] payload : payloads) {
+            Partition partition = partitions[Math.floorMod(Integer.hashCode(SignalMessageCodec.carIdOf(payload)), partitions.length)];
+            if (!partition.offer(new Entry(payload, ack), deadline)) {
+                ack.fail(new IllegalStateException(running
+                        ? "Local signal partition " + partition.partition.getId() + " is full"
+                        : "Local signal transport stopped"));
+                break;
+            }
+        }
+        return ack.future;
+    }
+
+    /**
+     * 消费线程持续取数，没有攒批中的消息
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * 各分区当前排队的消息数
+     */
+    int[] backlog() {
+        int[] backlog = new int[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            backlog[i] = partitions[i].ring.size();
+        }
+        return backlog;
+    }
+
+    private final class Partition implements Runnable {
+        final SignalPartition partition;
+        final MpscRing<Entry> ring = new MpscRing<>(capacity);
+        final Thread thread;
+        volatile boolean idle;
+        long offset;
+
+        Partition(int index) {
+            this.partition = new SignalPartition(BROKER_NAME, index);
+            this.thread = new Thread(this, "signal-local-consumer-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * 入队，队列满时短暂等待消费者腾出空位，超过 deadline 或传输已停止时返回 false
+         */
+        boolean offer(Entry entry, long deadline) {
+            while (running && !ring.offer(entry)) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+            if (!running) {
+                return false;
+            }
+            if (idle) {
+                LockSupport.unpark(thread);
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            List<Entry> batch = new ArrayList<>(batchSize);
+            List<SignalMessage> messages = new ArrayList<>(batchSize);
+            while (running) {
+                if (ring.drain(batch, batchSize) == 0) {
+                    idle = true;
+                    if (ring.isEmpty() && running) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                    continue;
+                }
+                for (Entry entry : batch) {
+                    messages.add(toMessage(entry.payload));
+                }
+                if (deliver(messages)) {
+                    for (Entry entry : batch) {
+                        entry.ack.done();
+                    }
+                } else {
+                    IllegalStateException stopped = new IllegalStateException("Local signal transport stopped");
+                    for (Entry entry : batch) {
+                        entry.ack.fail(stopped);
+                    }
+                }
+                batch.clear();
+                messages.clear();
+            }
+        }
+
+        /**
+         * 整批交给处理逻辑，需要重试时等待后整批重新投递，直到处理完成；传输停止时返回 false
+         */
+        private boolean deliver(List<SignalMessage> messages) {
+            while (true) {
+                long retryDelay;
+                try {
+                    retryDelay = handler.consume(messages, partition);
+                } catch (Exception e) {
+                    log.error("Signal handler failed on {}, redelivering {} messages", partition, messages.size(), e);
+                    retryDelay = ERROR_BACKOFF_MS;
+                }
+                if (retryDelay <= 0) {
+                    return true;
+                }
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelay);
+                long remaining;
+                while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remaining);
+                }
+                if (!running) {
+                    return false;
+                }
+                for (SignalMessage message : messages) {
+                    message.redelivered();
+                }
+            }
+        }
+
+        private SignalMessage toMessage(byte[] payload) {
+            return new SignalMessage(BROKER_NAME + "-" + partition.getId() + "-" + offset++, payload, 0);
+        }
+    }
+
+    private static final class Entry {
+        final byte[] payload;
+        final Ack ack;
+
+        Entry(byte[] payload, Ack ack) {
+            this.payload = payload;
+            this.ack = ack;
+        }
+    }
+
+    /**
+     * 一次发送的确认：其中每条消息处理完成后计数减一，全部完成时 future 完成
+     */
+    private static final class Ack {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final AtomicInteger remaining;
+
+        Ack(int count) {
+            this.remaining = new AtomicInteger(count);
+        }
+
+        void done() {
+            if (remaining.decrementAndGet() == 0) {
+                future.complete(null);
+            }
+        }
+
+        void fail(Throwable cause) {
+            future.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列，多生产者、单消费者。
+ * <p>
+ * 生产者以 CAS 推进 tail 认领槽位后写入元素，槽位非空即表示已发布；消费者独占 head，
+ * 取走元素后清空槽位再推进 head，生产者读到新的 head 才会复用这些槽位。
+ * 认领与写入之间存在短暂窗口，消费者遇到已认领未写入的槽位时停止本次取数，保证按认领顺序出队。
+ */
+final class MpscRing<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    MpscRing(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 入队，队列已满时返回 false
+     */
+    boolean offer(E element) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head >= slots.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        slots.set((int) claimed & mask, element);
+        return true;
+    }
+
+    /**
+     * 按入队顺序取出最多 max 个元素追加到 out，返回取出个数；只能由消费者线程调用
+     */
+    int drain(List<E> out, int max) {
+        long current = head;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) current & mask;
+            E element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            out.add(element);
+            current++;
+            drained++;
+        }
+        if (drained > 0) {
+            head = current;
+        }
+        return drained;
+    }
+
+    /**
+     * 队首槽位是否尚未发布元素；只能由消费者线程调用
+     */
+    boolean isEmpty() {
+        return slots.get((int) head & mask) == null;
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    int size() {
+        return (int) (tail.get() - head);
+    }
+}
@@ -0,0 +1,367 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Redis Streams 信号传输，已部署 Redis 的小规模环境可以不再单独维护 RocketMQ 集群。
+ * <p>
+ * 按 carId 的哈希选择分区，每个分区一个 stream（signal:stream:{n}）。发送端把整批消息按分区以 XADD 在一次 pipeline 中写入，
+ * 一次往返完成整批发送，写入成功即确认（持久性取决于 Redis 的 AOF 配置）。
+ * <p>
+ * 消费端使用消费组，每个节点为每个分区起一个线程，但同一分区同一时刻只由持有租约（signal:stream:{n}:owner）的节点消费，
+ * 与 RocketMQ 顺序消费一样按车辆保序。线程以 XREADGROUP 批量读取，整批交给 {@link SignalMessageHandler}，
+ * 处理完成（或转入死信）后 XACK；需要重试时不确认，等待后整批重新投递。
+ * 取得租约后先把该分区的全部待确认消息（PEL，含前一持有节点已读未确认的）XCLAIM 到本节点并优先处理，节点宕机不会丢消息。
+ * <p>
+ * stream 按已确认的位置裁剪：分区由单个节点顺序消费，已确认的最大 id 之前的消息都已处理，
+ * 定期以 XTRIM MINID 删除，stream 长度只取决于消费积压。只支持单个消费组；XTRIM MINID 需要 Redis 6.2 及以上。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "signal.transport", havingValue = "redis")
+public class RedisSignalTransport implements SignalTransport {
+
+    static final String BROKER_NAME = "redis";
+    static final String STREAM_KEY_PREFIX = "signal:stream:";
+    static final String GROUP = "warning-consumer-group";
+    private static final byte[] PAYLOAD_FIELD = { 'p' };
+    // 处理逻辑抛出未预期异常或 Redis 不可用时的等待
+    private static final long ERROR_BACKOFF_MS = 1000;
+    private static final int RECLAIM_PAGE = 1000;
+
+    // 租约：空闲或已由自己持有时（续）设置过期时间
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local owner = redis.call('GET', KEYS[1]) "
+                    + "if owner == false or owner == ARGV[1] then "
+                    + "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) return 1 end "
+                    + "return 0", Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final SignalMessageHandler handler;
+
+    @Value("${signal.transport.redis.partitions:4}")
+    private int partitionCount;
+
+    @Value("${signal.consumer.batch-size:32}")
+    private int batchSize;
+
+    @Value("${signal.transport.redis.block-ms:1000}")
+    private long blockMs;
+
+    @Value("${signal.transport.redis.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${signal.transport.redis.trim-interval-ms:5000}")
+    private long trimIntervalMs;
+
+    @Value("${signal.transport.redis.consumer-name:}")
+    private String consumerName;
+
+    private Partition[] partitions;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (consumerName == null || consumerName.isEmpty()) {
+            consumerName = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        partitions = new Partition[partitionCount];
+        running = true;
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i);
+            partitions[i].thread.start();
+        }
+        log.info("Redis signal transport started with {} partitions as consumer {}", partitionCount, consumerName);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Partition partition : partitions) {
+            LockSupport.unpark(partition.thread);
+        }
+        for (Partition partition : partitions) {
+            try {
+                partition.thread.join(blockMs + TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            partition.release();
+        }
+    }
+
+    /**
+     * 整批消息按分区以一次 pipeline XADD 写入，写入成功即完成
+     */
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> payloads) {
+        if (payloads.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (byte[] payload : payloads) {
+                    int partition = Math.floorMod(Integer.hashCode(SignalMessageCodec.carIdOf(payload)), partitionCount);
+                    Map<byte[], byte[]> fields = new HashMap<>(2);
+                    fields.put(PAYLOAD_FIELD, payload);
+                    connection.streamCommands().xAdd(StreamRecords.rawBytes(fields).withStreamKey(streamKey(partition)));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        log.debug("Appended {} signals to Redis streams", payloads.size());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * XADD 同步完成，没有攒批中的消息
+     */
+    @Override
+    public void flush() {
+    }
+
+    static byte[] streamKey(int partition) {
+        return (STREAM_KEY_PREFIX + partition).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private final class Partition implements Runnable {
+        final SignalPartition partition;
+        final byte[] key;
+        final String ownerKey;
+        final Thread thread;
+        boolean owned;
+        boolean backlog; // 先处理本节点 PEL 中的消息，再读新消息
+        RecordId lastAcked;
+        long trimmedAt;
+
+        Partition(int index) {
+            this.partition = new SignalPartition(BROKER_NAME, index);
+            this.key = streamKey(index);
+            this.ownerKey = STREAM_KEY_PREFIX + index + ":owner";
+            this.thread = new Thread(this, "signal-redis-consumer-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            createGroup();
+            while (running) {
+                try {
+                    if (!renewLease()) {
+                        owned = false;
+                        pause(leaseMs / 3);
+                        continue;
+                    }
+                    if (!owned) {
+                        owned = true;
+                        reclaim();
+                        backlog = true;
+                        log.info("Consuming Redis signal stream {} as {}", partition.getId(), consumerName);
+                    }
+                    List<ByteRecord> records = read();
+                    if (records.isEmpty()) {
+                        backlog = false;
+                        continue;
+                    }
+                    if (deliver(records)) {
+                        acknowledge(records);
+                    } else {
+                        backlog = true;
+                    }
+                } catch (Exception e) {
+                    // 未确认的消息留在 PEL 中，恢复后先重新处理它们，保证顺序且不会被裁剪
+                    backlog = true;
+                    log.warn("Redis signal stream {} failed, retrying in {} ms: {}",
+                            partition.getId(), ERROR_BACKOFF_MS, e.getMessage());
+                    pause(ERROR_BACKOFF_MS);
+                }
+            }
+        }
+
+        private void createGroup() {
+            try {
+                redisTemplate.execute((RedisCallback<String>) connection ->
+                        connection.streamCommands().xGroupCreate(key, GROUP, ReadOffset.from("0"), true));
+            } catch (Exception e) {
+                log.debug("Consumer group of Redis signal stream {} already exists: {}", partition.getId(), e.getMessage());
+            }
+        }
+
+        private boolean renewLease() {
+            Long acquired = redisTemplate.execute(ACQUIRE_SCRIPT, List.of(ownerKey), consumerName, String.valueOf(leaseMs));
+            return acquired != null && acquired == 1L;
+        }
+
+        /**
+         * 把分区内全部待确认消息转到本节点名下；租约保证前一持有节点已不再消费
+         */
+        private void reclaim() {
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                Range<String> range = Range.unbounded();
+                int reclaimed = 0;
+                while (true) {
+                    PendingMessages pending = connection.streamCommands().xPending(key, GROUP, range, (long) RECLAIM_PAGE);
+                    if (pending == null || pending.isEmpty()) {
+                        break;
+                    }
+                    List<RecordId> foreign = new ArrayList<>();
+                    for (PendingMessage message : pending) {
+                        if (!consumerName.equals(message.getConsumerName())) {
+                            foreign.add(message.getId());
+                        }
+                    }
+                    if (!foreign.isEmpty()) {
+                        connection.streamCommands().xClaim(key, GROUP, consumerName,
+                                XClaimOptions.minIdle(Duration.ZERO).ids(foreign.toArray(new RecordId[0])));
+                        reclaimed += foreign.size();
+                    }
+                    if (pending.size() < RECLAIM_PAGE) {
+                        break;
+                    }
+                    RecordId last = pending.get(pending.size() - 1).getId();
+                    range = Range.rightUnbounded(Range.Bound.inclusive(
+                            RecordId.of(last.getTimestamp(), last.getSequence() + 1).getValue()));
+                }
+                if (reclaimed > 0) {
+                    log.info("Reclaimed {} pending signals of Redis stream {}", reclaimed, partition.getId());
+                }
+                return null;
+            });
+        }
+
+        private List<ByteRecord> read() {
+            StreamReadOptions options = StreamReadOptions.empty().count(batchSize);
+            ReadOffset offset = backlog ? ReadOffset.from("0") : ReadOffset.lastConsumed();
+            if (!backlog) {
+                options = options.block(Duration.ofMillis(blockMs));
+            }
+            StreamReadOptions readOptions = options;
+            List<ByteRecord> records = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                    connection.streamCommands().xReadGroup(Consumer.from(GROUP, consumerName), readOptions,
+                            StreamOffset.create(key, offset)));
+            return records == null ? List.of() : records;
+        }
+
+        /**
+         * 整批交给处理逻辑，需要重试时等待后整批重新投递；等待期间续租，失去租约或传输停止时返回 false，消息留在 PEL 中
+         */
+        private boolean deliver(List<ByteRecord> records) {
+            List<SignalMessage> messages = new ArrayList<>(records.size());
+            for (ByteRecord record : records) {
+                messages.add(toMessage(record));
+            }
+            while (true) {
+                long retryDelay;
+                try {
+                    retryDelay = handler.consume(messages, partition);
+                } catch (Exception e) {
+                    log.error("Signal handler failed on {}, redelivering {} messages", partition, messages.size(), e);
+                    retryDelay = ERROR_BACKOFF_MS;
+                }
+                if (retryDelay <= 0) {
+                    return true;
+                }
+                long deadline = System.currentTimeMillis() + retryDelay;
+                long remaining;
+                while (running && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    if (!renewLease()) {
+                        owned = false;
+                        return false;
+                    }
+                    pause(Math.min(remaining, leaseMs / 3));
+                }
+                if (!running) {
+                    return false;
+                }
+                for (SignalMessage message : messages) {
+                    message.redelivered();
+                }
+            }
+        }
+
+        private void acknowledge(List<ByteRecord> records) {
+            RecordId[] ids = new RecordId[records.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = records.get(i).getId();
+            }
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.streamCommands().xAck(key, GROUP, ids));
+            lastAcked = ids[ids.length - 1];
+            if (!backlog && System.currentTimeMillis() - trimmedAt >= trimIntervalMs) {
+                trim();
+            }
+        }
+
+        /**
+         * 删除已确认位置之前的消息；近似裁剪，Redis 按整个宏节点删除
+         */
+        private void trim() {
+            byte[] minId = lastAcked.getValue().getBytes(StandardCharsets.UTF_8);
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.execute("XTRIM", key,
+                    "MINID".getBytes(StandardCharsets.UTF_8), "~".getBytes(StandardCharsets.UTF_8), minId));
+            trimmedAt = System.currentTimeMillis();
+        }
+
+        private SignalMessage toMessage(ByteRecord record) {
+            byte[] body = null;
+            for (Map.Entry<byte[], byte[]> field : record.getValue().entrySet()) {
+                body = field.getValue();
+            }
+            return new SignalMessage(partition.getId() + "-" + record.getId().getValue(), body, 0);
+        }
+
+        private void release() {
+            try {
+                redisTemplate.execute(RELEASE_SCRIPT, List.of(ownerKey), consumerName);
+            } catch (Exception e) {
+                log.debug("Failed to release Redis signal stream lease {}: {}", ownerKey, e.getMessage());
+            }
+        }
+
+        private void pause(long millis) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            long remaining;
+            while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RocketMQ 信号传输。
+ * <p>
+ * 按 carId 的哈希选择消息队列，同一车辆的信号始终进入同一队列，配合顺序消费即可按车辆保序。
+ * 队列列表按 broker 和队列号排序后取模，各节点的映射一致；队列数变化时映射随之变化，
+ * 扩容期间少量车辆的信号可能跨队列乱序。
+ * <p>
+ * 每个队列各自累积批次，批次达到条数或字节上限、或最早一条消息等待超过 linger 时间后封批，以 RocketMQ 批量消息异步发送。
+ * 同一队列同一时刻只有一个批次在途，前一批确认后才发送下一批；某批失败时该队列已封批未发送的批次和正在累积的批次一并失败，
+ * 由调用方从失败处重发，不会出现后发先至。全部队列合计的在途批次数受许可数限制，许可耗尽时发送线程阻塞等待；
+ * 确认回调运行在 RocketMQ 客户端的回调线程上，其后的下一批交给单独的发送线程，回调线程不会因等待许可而阻塞。
+ * 不同调用方的消息可能合并进同一批次，每次调用返回的 future 在其消息所在的全部批次确认后完成。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "signal.transport", havingValue = "rocketmq", matchIfMissing = true)
+public class RocketMQSignalTransport implements SignalTransport {
+
+    // 批量消息中每条消息除消息体外的开销估算（长度、标志位、属性等）
+    static final int MESSAGE_OVERHEAD_BYTES = 64;
+    private static final Comparator<MessageQueue> QUEUE_ORDER =
+            Comparator.comparing(MessageQueue::getBrokerName).thenComparingInt(MessageQueue::getQueueId);
+
+    private final RocketMQTemplate rocketMQTemplate;
+
+    @Value("${signal.mq.batch-max-messages:1000}")
+    private int batchMaxMessages;
+
+    @Value("${signal.mq.batch-max-bytes:262144}")
+    private int batchMaxBytes;
+
+    @Value("${signal.mq.linger-ms:5}")
+    private long lingerMs;
+
+    @Value("${signal.mq.max-in-flight-batches:8}")
+    private int maxInFlightBatches;
+
+    @Value("${signal.mq.send-timeout-ms:3000}")
+    private long sendTimeoutMs;
+
+    @Value("${signal.mq.queue-refresh-ms:30000}")
+    private long queueRefreshMs;
+
+    private final Object lock = new Object();
+    private final Map<MessageQueue, Lane> lanes = new HashMap<>();
+    private Semaphore inFlight;
+    private ScheduledExecutorService lingerTimer;
+    private ExecutorService sender;
+    private volatile List<MessageQueue> queues;
+    private volatile long queuesLoadedAt;
+
+    @PostConstruct
+    public void start() {
+        inFlight = new Semaphore(maxInFlightBatches);
+        lingerTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "signal-producer-linger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "signal-producer-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+        lingerTimer.shutdown();
+        try {
+            if (!inFlight.tryAcquire(maxInFlightBatches, sendTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Signal producer stopped with batches still in flight");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sender.shutdown();
+    }
+
+    /**
+     * 将消息体按车辆加入各队列的发送批次，返回在这些消息全部被 broker 确认后完成的 future
+     */
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> payloads) {
+        if (payloads.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<MessageQueue> queues;
+        try {
+            queues = queues();
+        } catch (MQClientException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        Set<CompletableFuture<Void>> futures = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<PendingBatch> opened = new ArrayList<>();
+        List<Lane> ready = new ArrayList<>();
+        synchronized (lock) {
+            for (byte[] payload : payloads) {
+                MessageQueue queue = queues.get(Math.floorMod(Integer.hashCode(SignalMessageCodec.carIdOf(payload)), queues.size()));
+                Lane lane = lanes.computeIfAbsent(queue, Lane::new);
+                Message message = new Message(TOPIC, payload);
+
+                int size = payload.length + MESSAGE_OVERHEAD_BYTES;
+                if (lane.open != null && !lane.open.fits(size)) {
+                    lane.seal();
+                    ready.add(lane);
+                }
+                if (lane.open == null) {
+                    lane.open = new PendingBatch(lane);
+                    opened.add(lane.open);
+                }
+                futures.add(lane.open.future);
+                lane.open.add(message, size);
+                if (lane.open.messages.size() >= batchMaxMessages) {
+                    lane.seal();
+                    ready.add(lane);
+                }
+            }
+        }
+
+        for (PendingBatch batch : opened) {
+            lingerTimer.schedule(() -> flush(batch), lingerMs, TimeUnit.MILLISECONDS);
+        }
+        for (Lane lane : ready) {
+            sendNext(lane);
+        }
+        return futures.size() == 1 ? futures.iterator().next()
+                : CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 立即封批并发送各队列的当前批次
+     */
+    @Override
+    public void flush() {
+        List<Lane> ready = new ArrayList<>();
+        synchronized (lock) {
+            for (Lane lane : lanes.values()) {
+                if (lane.open != null) {
+                    lane.seal();
+                    ready.add(lane);
+                }
+            }
+        }
+        for (Lane lane : ready) {
+            sendNext(lane);
+        }
+    }
+
+    /**
+     * 主题的可写队列，按 broker 和队列号排序；定期刷新以感知扩容
+     */
+    private List<MessageQueue> queues() throws MQClientException {
+        List<MessageQueue> cached = queues;
+        if (cached != null && System.currentTimeMillis() - queuesLoadedAt < queueRefreshMs) {
+            return cached;
+        }
+        List<MessageQueue> loaded = new ArrayList<>(rocketMQTemplate.getProducer().fetchPublishMessageQueues(TOPIC));
+        if (loaded.isEmpty()) {
+            throw new MQClientException("No message queue available for topic " + TOPIC, null);
+        }
+        loaded.sort(QUEUE_ORDER);
+        if (cached != null && cached.size() != loaded.size()) {
+            log.warn("Queue count of {} changed from {} to {}, vehicles will be remapped", TOPIC, cached.size(), loaded.size());
+        }
+        queues = loaded;
+        queuesLoadedAt = System.currentTimeMillis();
+        return loaded;
+    }
+
+    private void flush(PendingBatch batch) {
+        synchronized (lock) {
+            if (batch.sealed) {
+                return; // 已因条数或字节上限封批
+            }
+            batch.lane.seal();
+        }
+        sendNext(batch.lane);
+    }
+
+    /**
+     * 队列空闲时发送其最早封批的批次
+     */
+    private void sendNext(Lane lane) {
+        PendingBatch batch;
+        synchronized (lock) {
+            if (lane.sending || lane.sealed.isEmpty()) {
+                return;
+            }
+            batch = lane.sealed.poll();
+            lane.sending = true;
+        }
+
+        try {
+            if (!inFlight.tryAcquire(sendTimeoutMs, TimeUnit.MILLISECONDS)) {
+                fail(batch, new IllegalStateException(
+                        "Timed out waiting for an in-flight permit, " + maxInFlightBatches + " batches pending"));
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(batch, e);
+            return;
+        }
+
+        try {
+            rocketMQTemplate.getProducer().send(batch.messages, lane.queue, new SendCallback() {
+                @Override
+                public void onSuccess(SendResult sendResult) {
+                    inFlight.release();
+                    batch.future.complete(null);
+                    synchronized (lock) {
+                        lane.sending = false;
+                    }
+                    sendNextLater(lane);
+                }
+
+                @Override
+                public void onException(Throwable e) {
+                    inFlight.release();
+                    log.warn("Failed to send batch of {} signals to {}: {}", batch.messages.size(), lane.queue, e.getMessage());
+                    fail(batch, e);
+                }
+            }, sendTimeoutMs);
+        } catch (Exception e) {
+            inFlight.release();
+            fail(batch, e);
+        }
+    }
+
+    /**
+     * 在发送线程上发送队列的下一批，sendNext 可能等待许可，不能在确认回调中直接调用；已停止时在当前线程发送
+     */
+    private void sendNextLater(Lane lane) {
+        try {
+            sender.execute(() -> sendNext(lane));
+        } catch (RejectedExecutionException e) {
+            sendNext(lane);
+        }
+    }
+
+    /**
+     * 批次失败时该队列其后已封批的批次和正在累积的批次一并失败，避免越过失败批次发送
+     */
+    private void fail(PendingBatch batch, Throwable cause) {
+        List<PendingBatch> failed = new ArrayList<>();
+        failed.add(batch);
+        synchronized (lock) {
+            if (batch.lane.open != null) {
+                // 封批后 linger 到期时不会再发送它
+                batch.lane.seal();
+            }
+            failed.addAll(batch.lane.sealed);
+            batch.lane.sealed.clear();
+            batch.lane.sending = false;
+        }
+        for (PendingBatch pending : failed) {
+            pending.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 单个消息队列的发送通道，字段均由 lock 保护
+     */
+    private final class Lane {
+        final MessageQueue queue;
+        final Deque<PendingBatch> sealed = new ArrayDeque<>();
+        PendingBatch open;
+        boolean sending;
+
+        Lane(MessageQueue queue) {
+            this.queue = queue;
+        }
+
+        void seal() {
+            open.sealed = true;
+            sealed.add(open);
+            open = null;
+        }
+    }
+
+    private final class PendingBatch {
+        final Lane lane;
+        final List<Message> messages = new ArrayList<>();
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        int bytes;
+        boolean sealed;
+
+        PendingBatch(Lane lane) {
+            this.lane = lane;
+        }
+
+        boolean fits(int size) {
+            return messages.size() < batchMaxMessages && bytes + size <= batchMaxBytes;
+        }
+
+        void add(Message message, int size) {
+            messages.add(message);
+            bytes += size;
+        }
+    }
+}
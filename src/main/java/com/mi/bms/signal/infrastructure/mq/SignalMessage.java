@@ -0,0 +1,29 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import lombok.Getter;
+
+/**
+ * 交给 {@link SignalMessageHandler} 的信号消息，与传输实现无关。
+ * <p>
+ * msgId 在所在分区内唯一，用于死信记录和跳过已转入死信的消息；reconsumeTimes 为此前已投递失败的次数，决定退避时间与是否转入死信。
+ */
+@Getter
+public class SignalMessage {
+
+    private final String msgId;
+    private final byte[] body;
+    private int reconsumeTimes;
+
+    public SignalMessage(String msgId, byte[] body, int reconsumeTimes) {
+        this.msgId = msgId;
+        this.body = body;
+        this.reconsumeTimes = reconsumeTimes;
+    }
+
+    /**
+     * 处理逻辑要求重试、整批重新投递前由传输调用
+     */
+    public void redelivered() {
+        reconsumeTimes++;
+    }
+}
@@ -0,0 +1,14 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import java.util.List;
+
+/**
+ * 信号消息的消费端处理逻辑，与传输实现无关；同一分区的批次由同一线程按顺序调用
+ */
+public interface SignalMessageHandler {
+
+    /**
+     * 消费一批消息，全部完成（或已转入死信）时返回 0，否则返回整批重新投递前的等待毫秒数
+     */
+    long consume(List<SignalMessage> messages, SignalPartition partition);
+}
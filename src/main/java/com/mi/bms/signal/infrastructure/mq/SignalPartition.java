@@ -0,0 +1,43 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import lombok.Getter;
+
+import java.util.Objects;
+
+/**
+ * 信号消息所在的分区，同一分区的消息由同一线程按顺序交给 {@link SignalMessageHandler}。
+ * source 为 RocketMQ 的 broker 名，或 local、redis 等传输名；id 为 source 内的队列（分区）号。
+ */
+@Getter
+public final class SignalPartition {
+
+    private final String source;
+    private final int id;
+
+    public SignalPartition(String source, int id) {
+        this.source = source;
+        this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SignalPartition)) {
+            return false;
+        }
+        SignalPartition other = (SignalPartition) o;
+        return id == other.id && source.equals(other.source);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(source, id);
+    }
+
+    @Override
+    public String toString() {
+        return source + ":" + id;
+    }
+}
@@ -1,45 +1,92 @@
 package com.mi.bms.signal.infrastructure.mq;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.rocketmq.client.exception.MQClientException;
-import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 信号消息生产者。
+ * <p>
+ * 消息体为 {@link SignalMessageCodec} 的紧凑二进制编码，经 {@link SignalTransport} 发送：
+ * 默认走 RocketMQ；signal.transport=redis 时使用 Redis Streams，local 时在进程内投递，无需外部 broker 即可运行完整的异步链路。
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class SignalProducer {
 
-    private final RocketMQTemplate rocketMQTemplate;
-    private final ObjectMapper objectMapper;
-    private static final String TOPIC = "signal-topic";
+    private final SignalTransport transport;
 
     @Value("${mq.signal.enabled:false}")
     private boolean mqEnabled;
 
-    public void sendSignal(Signal signal) {
-        if (!mqEnabled) {
-            log.warn("MQ sending is disabled. Signal {} not sent to queue.", signal.getId());
-            return;
+    @Value("${signal.mq.await-timeout-ms:30000}")
+    private long awaitTimeoutMs;
+
+    /**
+     * 批量发送信号并等待确认，失败时抛出异常，由调用方决定是否重试
+     */
+    public void sendBatch(List<Signal> signals) {
+        List<byte[]> payloads = new ArrayList<>(signals.size());
+        for (Signal signal : signals) {
+            payloads.add(toPayload(signal));
         }
+        sendPayloads(payloads);
+    }
 
+    /**
+     * 发送已编码的消息体并等待全部确认，失败或超时时抛出异常
+     */
+    public void sendPayloads(List<byte[]> payloads) {
+        CompletableFuture<Void> future = sendAsync(payloads);
         try {
-            String message = objectMapper.writeValueAsString(signal);
-            try {
-                rocketMQTemplate.convertAndSend(TOPIC, message);
-                log.info("Signal sent to MQ: {}", signal.getId());
-            } catch (Exception e) {
-                log.warn("Failed to send signal to MQ (continuing anyway): {}, reason: {}",
-                        signal.getId(), e.getMessage());
-                log.debug("Detailed MQ error", e);
-            }
-        } catch (Exception e) {
-            log.error("Failed to serialize signal: {}", signal.getId(), e);
-            // Don't throw exception to allow the process to continue
+            future.get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to send " + payloads.size() + " signals to MQ", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out sending " + payloads.size() + " signals to MQ", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending signals to MQ", e);
         }
+        log.debug("Sent {} signals to MQ", payloads.size());
+    }
+
+    /**
+     * 异步发送已编码的消息体，返回在这些消息全部确认后完成的 future；MQ 未开启时直接完成
+     */
+    public CompletableFuture<Void> sendAsync(List<byte[]> payloads) {
+        if (!mqEnabled) {
+            log.warn("MQ sending is disabled. {} signals not sent to queue.", payloads.size());
+            return CompletableFuture.completedFuture(null);
+        }
+        if (payloads.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return transport.sendAsync(payloads);
+    }
+
+    /**
+     * 立即发出尚在攒批的消息
+     */
+    public void flush() {
+        transport.flush();
+    }
+
+    /**
+     * 信号消息体
+     */
+    public byte[] toPayload(Signal signal) {
+        return SignalMessageCodec.encode(signal);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 信号消息传输。由 signal.transport 选择实现：rocketmq（默认）经 broker 投递，redis 经 Redis Streams 投递，
+ * local 在进程内投递；后两者在本节点消费并交给 {@link SignalMessageHandler}。
+ * <p>
+ * 三种实现都保证同一车辆的消息进入同一分区并按发送顺序消费，失败时由调用方重发，投递为至少一次；
+ * 返回的 future 成功时的保证各不相同：
+ * <ul>
+ * <li>rocketmq：broker 已确认写入，持久性取决于 broker 的刷盘与复制配置</li>
+ * <li>redis：XADD 已执行，持久性取决于 Redis 的 AOF 配置（未开启 AOF 或 appendfsync 非 always 时，宕机可能丢失最近写入的消息）</li>
+ * <li>local：消息已处理完成（或转入死信），不依赖任何落盘</li>
+ * </ul>
+ * 调用方（发件箱）在 future 成功后删除事件，需要端到端不丢失时应按上述配置部署。
+ */
+public interface SignalTransport {
+
+    String TOPIC = "signal-topic";
+
+    /**
+     * 发送已编码的消息体，返回在这些消息全部被确认后完成的 future
+     */
+    CompletableFuture<Void> sendAsync(List<byte[]> payloads);
+
+    /**
+     * 立即发出尚在攒批的消息
+     */
+    void flush();
+}
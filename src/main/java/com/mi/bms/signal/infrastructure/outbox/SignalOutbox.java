@@ -0,0 +1,50 @@
+package com.mi.bms.signal.infrastructure.outbox;
+
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.infrastructure.mq.SignalProducer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 信号事件发件箱：与信号在同一事务中写入 signal_outbox，提交即保证事件不丢，
+ * 由 {@link SignalOutboxRelay} 异步投递到 MQ。MQ 未开启时不写入。事务边界由调用方负责。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SignalOutbox {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO signal_outbox (signal_id, car_id, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SignalProducer signalProducer;
+
+    @Value("${mq.signal.enabled:false}")
+    private boolean mqEnabled;
+
+    /**
+     * 为已写入（已回填 ID）的信号追加事件，须与信号写入处于同一事务
+     */
+    public void appendAll(List<Signal> signals) {
+        if (!mqEnabled || signals.isEmpty()) {
+            return;
+        }
+
+        Timestamp timestamp = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(signals.size());
+        for (Signal signal : signals) {
+            rows.add(new Object[] { signal.getId(), signal.getCarId(), signalProducer.toPayload(signal), timestamp });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        log.debug("Appended {} signal events to outbox", signals.size());
+    }
+}
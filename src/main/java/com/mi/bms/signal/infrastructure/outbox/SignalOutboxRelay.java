@@ -0,0 +1,108 @@
+package com.mi.bms.signal.infrastructure.outbox;
+
+import com.mi.bms.signal.infrastructure.mq.SignalProducer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 发件箱中继：定时按 id 顺序从 signal_outbox 取出一批事件，交给 {@link SignalProducer} 批量发送并等待确认，成功后在同一事务中删除。
+ * <p>
+ * 读取使用 FOR UPDATE NOWAIT 锁住队首，多节点部署时同一时刻只有一个中继在发送，其余节点本轮直接跳过，
+ * 持有锁的节点宕机后事务回滚，由其他节点接替，因此事件按写入顺序投递。
+ * 发送失败时事务回滚、事件保留，本节点按指数退避暂停后从队首重试，不会越过失败的事件继续发送。
+ * 投递语义为至少一次，消费端按 processed 幂等。NOWAIT 需要 MySQL 8.0 及以上。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SignalOutboxRelay {
+
+    private static final String SELECT_SQL =
+            "SELECT id, payload FROM signal_outbox ORDER BY id LIMIT ? FOR UPDATE NOWAIT";
+    private static final String DELETE_SQL = "DELETE FROM signal_outbox WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final SignalProducer signalProducer;
+
+    @Value("${mq.signal.enabled:false}")
+    private boolean mqEnabled;
+
+    @Value("${signal.outbox.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${signal.outbox.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${signal.outbox.retry-initial-ms:500}")
+    private long retryInitialMs;
+
+    @Value("${signal.outbox.retry-max-ms:30000}")
+    private long retryMaxMs;
+
+    private int consecutiveFailures;
+    private long retryAt;
+
+    @Scheduled(fixedDelayString = "${signal.outbox.relay-interval-ms:100}")
+    public void relay() {
+        if (!mqEnabled || System.currentTimeMillis() < retryAt) {
+            return;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer sent;
+            try {
+                sent = transactionTemplate.execute(status -> relayBatch());
+            } catch (PessimisticLockingFailureException e) {
+                log.debug("Signal outbox is being relayed by another node");
+                return;
+            } catch (Exception e) {
+                backOff(e);
+                return;
+            }
+            consecutiveFailures = 0;
+            if (sent == null || sent < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private int relayBatch() {
+        List<Long> ids = new ArrayList<>();
+        List<byte[]> payloads = new ArrayList<>();
+        jdbcTemplate.query(SELECT_SQL, (RowCallbackHandler) rs -> {
+            ids.add(rs.getLong("id"));
+            payloads.add(rs.getBytes("payload"));
+        }, batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        signalProducer.sendPayloads(payloads);
+        jdbcTemplate.update(String.format(DELETE_SQL, String.join(", ", Collections.nCopies(ids.size(), "?"))),
+                ids.toArray());
+        log.info("Relayed {} signal events from outbox up to id {}", ids.size(), ids.get(ids.size() - 1));
+        return ids.size();
+    }
+
+    private void backOff(Exception e) {
+        consecutiveFailures++;
+        long delay = Math.min(retryMaxMs, retryInitialMs << Math.min(consecutiveFailures - 1, 20));
+        retryAt = System.currentTimeMillis() + delay;
+        log.warn("Failed to relay signal outbox (attempt {}), retrying in {} ms: {}",
+                consecutiveFailures, delay, e.getMessage());
+    }
+}
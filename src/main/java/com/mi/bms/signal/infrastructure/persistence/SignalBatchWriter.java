@@ -0,0 +1,152 @@
+package com.mi.bms.signal.infrastructure.persistence;
+
+import com.mi.bms.signal.domain.model.Signal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 信号批量写入，使用 JDBC batch 一次往返插入整块信号。
+ * <p>
+ * Signal 使用 IDENTITY 主键，Hibernate 无法对其做批量插入，因此这里直接走 JDBC，
+ * 并通过 generated keys 回填 ID，调用方无需再回查数据库。事务边界由调用方负责。
+ * <p>
+ * 预警生成完成后的 processed 标记同样按集合一条 UPDATE 完成，而不是逐条保存实体；
+ * 消费端直接按消息内容评估时，用 {@link #claimUnprocessed} 锁定并标记尚未处理的信号，只回查 id 与 createdAt，不回查信号内容。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SignalBatchWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO `signal` "
+            + "(car_id, battery_type_id, signal_data, processed, is_delete, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String CLAIM_UNPROCESSED_SQL = "SELECT id, created_at FROM `signal` "
+            + "WHERE id IN (%s) AND processed = 0 AND is_delete = 0 FOR UPDATE";
+    private static final String MARK_PROCESSED_SQL = "UPDATE `signal` SET processed = 1, updated_at = ? WHERE id IN (%s)";
+    private static final String MARK_DEAD_LETTERED_SQL =
+            "UPDATE `signal` SET dead_lettered = ?, updated_at = ? WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<Signal> signals) {
+        if (signals.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Signal signal : signals) {
+                    ps.setInt(1, signal.getCarId());
+                    ps.setInt(2, signal.getBatteryTypeId());
+                    ps.setString(3, signal.getSignalData());
+                    ps.setBoolean(4, signal.isProcessed());
+                    ps.setBoolean(5, false);
+                    ps.setTimestamp(6, timestamp);
+                    ps.setTimestamp(7, timestamp);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                // Generated keys come back in insertion order
+                int index = 0;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next() && index < signals.size()) {
+                        signals.get(index++).markAsPersisted(keys.getLong(1), now);
+                    }
+                }
+                if (index != signals.size()) {
+                    throw new IllegalStateException("Expected " + signals.size()
+                            + " generated keys but got " + index);
+                }
+            }
+            return null;
+        });
+        log.debug("Batch inserted {} signals", signals.size());
+    }
+
+    /**
+     * 把其中尚未处理的信号标记为已处理，返回这些信号的 ID 与 createdAt（消息体不带 createdAt，供调用方回填），须在事务内调用。
+     * 先用 SELECT ... FOR UPDATE 锁定并读出尚未处理的行，再一条 UPDATE 标记，不依赖驱动返回的 batch 更新行数
+     * （开启 rewriteBatchedStatements 时为 SUCCESS_NO_INFO，无法区分是否已处理）；
+     * 行锁持有到事务结束，并发认领同一信号时由行锁串行化，事务回滚时标记一并撤销
+     */
+    public Map<Long, LocalDateTime> claimUnprocessed(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, LocalDateTime> claimed = new LinkedHashMap<>();
+        jdbcTemplate.query(String.format(CLAIM_UNPROCESSED_SQL, placeholders(ids.size())),
+                rs -> {
+                    claimed.put(rs.getLong("id"), rs.getTimestamp("created_at").toLocalDateTime());
+                }, ids.toArray());
+        markProcessed(claimed.keySet());
+        return claimed;
+    }
+
+    /**
+     * 一条 UPDATE 把整批信号标记为已处理，返回更新行数
+     */
+    public int markProcessed(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Object[] args = new Object[ids.size() + 1];
+        args[0] = Timestamp.valueOf(LocalDateTime.now());
+        int i = 1;
+        for (Long id : ids) {
+            args[i++] = id;
+        }
+        return jdbcTemplate.update(String.format(MARK_PROCESSED_SQL, placeholders(ids.size())), args);
+    }
+
+    /**
+     * 标记信号已转入死信，未处理信号扫描不再投递它们
+     */
+    public int markDeadLettered(Collection<Long> ids) {
+        return updateDeadLettered(ids, true);
+    }
+
+    /**
+     * 清除死信标记（死信重放后）
+     */
+    public int clearDeadLettered(Collection<Long> ids) {
+        return updateDeadLettered(ids, false);
+    }
+
+    private int updateDeadLettered(Collection<Long> ids, boolean deadLettered) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Object[] args = new Object[ids.size() + 2];
+        args[0] = deadLettered;
+        args[1] = Timestamp.valueOf(LocalDateTime.now());
+        int i = 2;
+        for (Long id : ids) {
+            args[i++] = id;
+        }
+        return jdbcTemplate.update(String.format(MARK_DEAD_LETTERED_SQL, placeholders(ids.size())), args);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,225 @@
+package com.mi.bms.signal.infrastructure.scan;
+
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import com.mi.bms.signal.infrastructure.mq.SignalProducer;
+import com.mi.bms.warning.infrastructure.deadletter.SignalDeadLetterQueue;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 未处理信号扫描：定时把超过宽限期仍未处理的信号批量投递到 MQ，用于 MQ 故障或停机后的补偿。
+ * <p>
+ * 按 id 游标分页（keyset），每页在短事务内用 SELECT ... FOR UPDATE SKIP LOCKED 认领并写入 dispatched_at 租约，
+ * 多个节点同时扫描时跳过彼此正在认领的行，租约期内已投递的行不会被再次投递。
+ * 投递失败时释放租约，下次扫描重试；租约到期后仍未处理的信号会被重新投递，消费端按 processed 幂等。
+ * 已转入死信（dead_lettered）的信号不再投递，由死信重放处理；信号数据无法解析的行（如历史遗留数据）
+ * 在认领事务内写入 {@link SignalDeadLetterQueue} 并跳过，可在死信接口中查看、修复后重放，不会让整页认领失败、游标停在原地。
+ * <p>
+ * 每页的条数受在途信号数（租约期内已投递但尚未处理）限制，消费端积压时扫描自动放缓直至暂停。
+ * SKIP LOCKED 需要 MySQL 8.0 及以上。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UnprocessedSignalScanner {
+
+    private static final String CLAIM_SQL = "SELECT id, car_id, battery_type_id, signal_data, created_at FROM `signal` "
+            + "WHERE processed = 0 AND is_delete = 0 AND dead_lettered = 0 AND id > ? AND created_at < ? "
+            + "AND (dispatched_at IS NULL OR dispatched_at < ?) "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String LEASE_SQL = "UPDATE `signal` SET dispatched_at = ? WHERE id IN (%s)";
+    private static final String RELEASE_SQL = "UPDATE `signal` SET dispatched_at = NULL WHERE id IN (%s)";
+    private static final String IN_FLIGHT_SQL = "SELECT COUNT(*) FROM (SELECT 1 FROM `signal` "
+            + "WHERE processed = 0 AND is_delete = 0 AND dead_lettered = 0 AND dispatched_at >= ? LIMIT ?) t";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final SignalProducer signalProducer;
+    private final SignalDeadLetterQueue deadLetterQueue;
+
+    @Value("${signal.scan.enabled:false}")
+    private boolean enabled;
+
+    @Value("${mq.signal.enabled:false}")
+    private boolean mqEnabled;
+
+    @Value("${signal.scan.batch-size:500}")
+    private int batchSize;
+
+    @Value("${signal.scan.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${signal.scan.grace-ms:60000}")
+    private long graceMs;
+
+    @Value("${signal.scan.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${signal.scan.max-in-flight:20000}")
+    private int maxInFlight;
+
+    private long cursor;
+
+    @Scheduled(fixedDelayString = "${signal.scan.interval-ms:1000}")
+    public void scan() {
+        if (!enabled || !mqEnabled) {
+            return;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            LocalDateTime now = LocalDateTime.now();
+            int inFlight = countInFlight(now.minusNanos(leaseMs * 1_000_000));
+            int limit = Math.min(batchSize, maxInFlight - inFlight);
+            if (limit <= 0) {
+                log.info("Signal scan paused, {} dispatched signals are still waiting for consumers", inFlight);
+                return;
+            }
+
+            Page page = transactionTemplate.execute(status -> claim(now, limit));
+            if (page == null || page.rows == 0) {
+                cursor = 0;
+                return;
+            }
+            cursor = page.lastId;
+            List<Signal> claimed = page.signals;
+            if (!claimed.isEmpty()) {
+                try {
+                    signalProducer.sendBatch(claimed);
+                } catch (Exception e) {
+                    // 释放租约，下次扫描从同一位置重试
+                    release(claimed);
+                    cursor = claimed.get(0).getId() - 1;
+                    log.warn("Failed to dispatch {} scanned signals, will retry: {}", claimed.size(), e.getMessage());
+                    return;
+                }
+                log.info("Dispatched {} unprocessed signals up to id {}", claimed.size(), cursor);
+            }
+
+            if (page.rows < limit) {
+                // 已扫到末尾，下一轮从头开始，补上被其他节点锁住而跳过的行
+                cursor = 0;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 认领一页：可解析的行写入租约，无法解析的行写入死信队列；返回的 lastId 覆盖整页，包括被跳过的行
+     */
+    Page claim(LocalDateTime now, int limit) {
+        List<Unparsable> unparsable = new ArrayList<>();
+        List<Signal> rows = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> toSignal(rs, unparsable),
+                cursor,
+                Timestamp.valueOf(now.minusNanos(graceMs * 1_000_000)),
+                Timestamp.valueOf(now.minusNanos(leaseMs * 1_000_000)),
+                limit);
+        List<Signal> signals = new ArrayList<>(rows.size());
+        long lastId = cursor;
+        for (Signal signal : rows) {
+            if (signal != null) {
+                signals.add(signal);
+                lastId = Math.max(lastId, signal.getId());
+            }
+        }
+        for (Unparsable row : unparsable) {
+            lastId = Math.max(lastId, row.id);
+        }
+        if (!signals.isEmpty()) {
+            jdbcTemplate.update(String.format(LEASE_SQL, placeholders(signals.size())),
+                    withIds(Timestamp.valueOf(now), signals));
+        }
+        for (Unparsable row : unparsable) {
+            deadLetterQueue.addUnparsable(row.id, row.carId, row.signalData, row.error);
+        }
+        return new Page(signals, rows.size(), lastId);
+    }
+
+    private void release(List<Signal> signals) {
+        try {
+            jdbcTemplate.update(String.format(RELEASE_SQL, placeholders(signals.size())),
+                    signals.stream().map(Signal::getId).toArray());
+        } catch (Exception e) {
+            // 租约到期后同样会被重新投递
+            log.warn("Failed to release lease of {} signals: {}", signals.size(), e.getMessage());
+        }
+    }
+
+    private int countInFlight(LocalDateTime dispatchedAfter) {
+        Integer count = jdbcTemplate.queryForObject(IN_FLIGHT_SQL, Integer.class,
+                Timestamp.valueOf(dispatchedAfter), maxInFlight);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 信号数据无法解析时记下该行并返回 null
+     */
+    private static Signal toSignal(ResultSet rs, List<Unparsable> unparsable) throws SQLException {
+        long id = rs.getLong("id");
+        String signalData = rs.getString("signal_data");
+        Signal.SignalValues values;
+        try {
+            values = SignalDataCodec.parse(signalData);
+        } catch (IllegalArgumentException e) {
+            unparsable.add(new Unparsable(id, rs.getInt("car_id"), signalData, e));
+            return null;
+        }
+        Signal signal = Signal.create(rs.getInt("car_id"), rs.getInt("battery_type_id"), values);
+        signal.markAsPersisted(id, rs.getTimestamp("created_at").toLocalDateTime());
+        return signal;
+    }
+
+    private static Object[] withIds(Object first, List<Signal> signals) {
+        Object[] args = new Object[signals.size() + 1];
+        args[0] = first;
+        for (int i = 0; i < signals.size(); i++) {
+            args[i + 1] = signals.get(i).getId();
+        }
+        return args;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static final class Unparsable {
+        final long id;
+        final int carId;
+        final String signalData;
+        final Exception error;
+
+        Unparsable(long id, int carId, String signalData, Exception error) {
+            this.id = id;
+            this.carId = carId;
+            this.signalData = signalData;
+            this.error = error;
+        }
+    }
+
+    static final class Page {
+        final List<Signal> signals; // 已写入租约、待投递的信号
+        final int rows; // 本页读到的行数，含无法解析的行
+        final long lastId;
+
+        Page(List<Signal> signals, int rows, long lastId) {
+            this.signals = signals;
+            this.rows = rows;
+            this.lastId = lastId;
+        }
+    }
+}
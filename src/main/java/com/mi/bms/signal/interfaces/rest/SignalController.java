@@ -1,7 +1,11 @@
 package com.mi.bms.signal.interfaces.rest;
 
 import com.mi.bms.shared.web.ApiResponse;
+import com.mi.bms.signal.application.SignalBulkService;
+import com.mi.bms.signal.application.SignalIngestService;
 import com.mi.bms.signal.application.SignalService;
+import com.mi.bms.signal.interfaces.rest.dto.BulkUploadResponse;
+import com.mi.bms.signal.interfaces.rest.dto.IngestTicketResponse;
 import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
 import com.mi.bms.signal.interfaces.rest.dto.SignalResponse;
 import io.swagger.v3.oas.annotations.Operation;
@@ -9,11 +13,20 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @Tag(name = "信号管理")
 @RestController
@@ -22,12 +35,44 @@ import java.util.List;
 public class SignalController {
 
     private final SignalService signalService;
+    private final SignalIngestService signalIngestService;
+    private final SignalBulkService signalBulkService;
 
-    @Operation(summary = "上报信号数据")
+    @Operation(summary = "上报信号数据", description = "evaluate=true 时同步评估规则（指定 warnId 时只评估该规则），响应中直接返回预警名称与级别")
     @PostMapping
     public ApiResponse<List<SignalResponse>> reportSignals(
+            @Parameter(description = "是否同步评估并返回预警结果") @RequestParam(defaultValue = "false") boolean evaluate,
             @Parameter(description = "信号数据列表") @Valid @RequestBody List<SignalRequest> requests) {
-        return ApiResponse.success(signalService.reportSignals(requests));
+        return ApiResponse.success(signalService.reportSignals(requests, evaluate));
+    }
+
+    @Operation(summary = "异步上报信号数据", description = "入队后立即返回202与凭据；队列已满时返回429并携带Retry-After")
+    @PostMapping("/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ApiResponse<IngestTicketResponse> submitSignals(
+            @Parameter(description = "信号数据列表") @Valid @RequestBody List<SignalRequest> requests) {
+        return ApiResponse.success(signalIngestService.submit(requests));
+    }
+
+    @Operation(summary = "查询异步上报状态")
+    @GetMapping("/async/{ticketId}")
+    public ApiResponse<IngestTicketResponse> getIngestTicket(
+            @Parameter(description = "上报凭据ID") @PathVariable String ticketId) {
+        return ApiResponse.success(signalIngestService.getTicket(ticketId));
+    }
+
+    @Operation(summary = "流式批量上报信号数据", description = "请求体为 NDJSON（每行一个信号），支持 Content-Encoding: gzip；返回成功/失败条数及失败行号")
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public ApiResponse<BulkUploadResponse> bulkUpload(
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            HttpServletRequest request) throws IOException {
+        InputStream body = request.getInputStream();
+        if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            body = new GZIPInputStream(body);
+        }
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            return ApiResponse.success(signalBulkService.upload(reader));
+        }
     }
 
     @Operation(summary = "查询信号数据")
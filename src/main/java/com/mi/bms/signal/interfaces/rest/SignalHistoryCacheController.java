@@ -0,0 +1,25 @@
+package com.mi.bms.signal.interfaces.rest;
+
+import com.mi.bms.shared.web.ApiResponse;
+import com.mi.bms.signal.infrastructure.cache.SignalHistoryCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "信号历史缓存管理")
+@RestController
+@RequestMapping("/api/admin/signal-cache")
+@RequiredArgsConstructor
+public class SignalHistoryCacheController {
+
+    private final SignalHistoryCache signalHistoryCache;
+
+    @Operation(summary = "信号历史缓存统计", description = "本节点按小时桶计的命中次数、命中率，以及范围过大直接查库的次数")
+    @GetMapping
+    public ApiResponse<SignalHistoryCache.Stats> getStats() {
+        return ApiResponse.success(signalHistoryCache.stats());
+    }
+}
@@ -0,0 +1,25 @@
+package com.mi.bms.signal.interfaces.rest;
+
+import com.mi.bms.shared.web.ApiResponse;
+import com.mi.bms.signal.infrastructure.journal.SignalJournal;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "信号预写日志管理")
+@RestController
+@RequestMapping("/api/admin/journal")
+@RequiredArgsConstructor
+public class SignalJournalController {
+
+    private final SignalJournal signalJournal;
+
+    @Operation(summary = "查询预写日志状态", description = "追加/刷盘/落库序号、落库延迟（条数）及日志段占用")
+    @GetMapping
+    public ApiResponse<SignalJournal.Stats> getJournalStats() {
+        return ApiResponse.success(signalJournal.stats());
+    }
+}
@@ -0,0 +1,25 @@
+package com.mi.bms.signal.interfaces.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BulkUploadResponse {
+    private long total; // 非空行数
+    private long accepted;
+    private long rejected;
+    private List<Failure> failures; // 失败行（最多保留 signal.bulk.max-reported-failures 条）
+    private boolean failuresTruncated;
+    private String error; // 上传流中途中断时的原因，此前已处理的行已落库
+
+    @Data
+    @AllArgsConstructor
+    public static class Failure {
+        private long line; // 行号，从1开始
+        private String errorMsg;
+    }
+}
@@ -0,0 +1,20 @@
+package com.mi.bms.signal.interfaces.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@Builder
+public class IngestTicketResponse {
+    private String ticketId;
+    private String status; // QUEUED / PROCESSING / COMPLETED
+    private int total;
+    private int succeeded;
+    private int failed;
+    private Map<Integer, String> errors; // 请求下标 -> 失败原因（最多保留100条）
+    private LocalDateTime acceptedAt;
+    private LocalDateTime completedAt;
+}
@@ -3,7 +3,6 @@ package com.mi.bms.signal.interfaces.rest.dto;
 import lombok.Data;
 
 import javax.validation.constraints.NotNull;
-import javax.validation.constraints.Pattern;
 
 @Data
 public class SignalRequest {
@@ -14,6 +13,9 @@ public class SignalRequest {
     private Integer warnId; // 规则编号，可选
 
     @NotNull(message = "信号数据不能为空")
-    @Pattern(regexp = "^\\{\"Mx\":[0-9.]+,\"Mi\":[0-9.]+(,\"Ix\":[0-9.]+,\"Ii\":[0-9.]+)?\\}$", message = "信号数据格式不正确")
-    private String signal; // JSON 格式的信号数据
+    private String signal; // JSON 格式的信号数据，格式由 SignalDataCodec 校验
+
+    private Long seq; // 车辆级递增序号，可选，用于重试去重
+
+    private String msgId; // 消息ID，可选，未提供 seq 时用于重试去重
 }
\ No newline at end of file
@@ -4,11 +4,17 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @Builder
 public class SignalResponse {
+    private Integer index; // 在请求批次中的位置
+    private boolean success;
+    private String errorMsg;
+    private boolean duplicate; // 重复提交，已确认但未重复落库
     private Long signalId;
+    private Long journalSeq; // 预写日志序号（journal 模式下尚未落库，signalId 为空）
     private Integer carId;
     private Integer batteryTypeId;
     private String batteryTypeCode;
@@ -16,4 +22,5 @@ public class SignalResponse {
     private String signalData;
     private boolean processed;
     private LocalDateTime createdAt;
+    private List<WarnResult> warnings; // 同步评估模式下命中的规则及预警级别，未开启时为空
 }
\ No newline at end of file
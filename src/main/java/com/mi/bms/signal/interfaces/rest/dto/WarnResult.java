@@ -0,0 +1,12 @@
+package com.mi.bms.signal.interfaces.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class WarnResult {
+    private Integer warnId; // 规则编号
+    private String warnName;
+    private Integer warnLevel;
+}
@@ -6,6 +6,7 @@ import com.mi.bms.vehicle.domain.model.BatteryType;
 import com.mi.bms.vehicle.domain.model.Vehicle;
 import com.mi.bms.vehicle.domain.repository.VehicleRepository;
 import com.mi.bms.vehicle.domain.service.VehicleDomainService;
+import com.mi.bms.vehicle.infrastructure.cache.VehicleRegistry;
 import com.mi.bms.vehicle.interfaces.rest.dto.VehicleRequest;
 import com.mi.bms.vehicle.interfaces.rest.dto.VehicleResponse;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,7 @@ public class VehicleServiceImpl implements VehicleService {
 
     private final VehicleRepository vehicleRepository;
     private final VehicleDomainService vehicleDomainService;
+    private final VehicleRegistry vehicleRegistry;
 
     @Override
     @Transactional
@@ -40,6 +42,7 @@ public class VehicleServiceImpl implements VehicleService {
 
         // Save to database
         Vehicle savedVehicle = vehicleRepository.save(vehicle);
+        vehicleRegistry.register(savedVehicle);
         log.info("Vehicle created: {}", savedVehicle.getVid());
 
         return buildVehicleResponse(savedVehicle);
@@ -86,6 +89,7 @@ public class VehicleServiceImpl implements VehicleService {
 
         // Save changes
         Vehicle updatedVehicle = vehicleRepository.save(vehicle);
+        vehicleRegistry.register(updatedVehicle);
         log.info("Vehicle updated: {}", updatedVehicle.getVid());
 
         return buildVehicleResponse(updatedVehicle);
@@ -99,6 +103,7 @@ public class VehicleServiceImpl implements VehicleService {
 
         vehicle.markAsDeleted();
         vehicleRepository.save(vehicle);
+        vehicleRegistry.evict(vehicle.getCarId());
         log.info("Vehicle deleted: {}", vid);
     }
 
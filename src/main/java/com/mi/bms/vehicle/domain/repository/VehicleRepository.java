@@ -4,6 +4,8 @@ import com.mi.bms.vehicle.domain.model.Vehicle;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +14,6 @@ public interface VehicleRepository extends JpaRepository<Vehicle, String> {
     Optional<Vehicle> findByCarId(Integer carId);
 
     boolean existsByCarId(Integer carId);
+
+    List<Vehicle> findByCarIdIn(Collection<Integer> carIds);
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+package com.mi.bms.vehicle.infrastructure.cache;
+
+import com.mi.bms.vehicle.domain.model.BatteryType;
+import com.mi.bms.vehicle.domain.model.Vehicle;
+import com.mi.bms.vehicle.domain.repository.BatteryTypeRepository;
+import com.mi.bms.vehicle.domain.repository.VehicleRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内车辆注册表：carId -> (vid, batteryTypeId)，以及电池类型缓存。
+ * <p>
+ * 启动时全量加载，由 VehicleServiceImpl 在增删改提交后同步维护，并定期全量刷新以感知其他节点的变更。
+ * 未知 carId 会进入带 TTL 的负缓存，在 TTL 内重复出现时既不查库也不抛异常。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VehicleRegistry {
+
+    private final VehicleRepository vehicleRepository;
+    private final BatteryTypeRepository batteryTypeRepository;
+
+    private final Map<Integer, Entry> vehicles = new ConcurrentHashMap<>();
+    private final Map<Integer, BatteryType> batteryTypes = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> unknownCarIds = new ConcurrentHashMap<>(); // carId -> expiresAt
+
+    @Value("${vehicle.registry.negative-ttl-ms:60000}")
+    private long negativeTtlMs;
+
+    @Value("${vehicle.registry.negative-max-size:100000}")
+    private int negativeMaxSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${vehicle.registry.refresh-interval-ms:300000}",
+            fixedDelayString = "${vehicle.registry.refresh-interval-ms:300000}")
+    public void reload() {
+        Map<Integer, Entry> loaded = new HashMap<>();
+        for (Vehicle vehicle : vehicleRepository.findAll()) {
+            loaded.put(vehicle.getCarId(), Entry.of(vehicle));
+        }
+        vehicles.putAll(loaded);
+        vehicles.keySet().retainAll(loaded.keySet());
+        unknownCarIds.keySet().removeAll(loaded.keySet());
+
+        for (BatteryType batteryType : batteryTypeRepository.findAll()) {
+            batteryTypes.put(batteryType.getId(), batteryType);
+        }
+        log.info("Vehicle registry loaded: {} vehicles, {} battery types", vehicles.size(), batteryTypes.size());
+    }
+
+    /**
+     * 按 carId 查找车辆，不存在时返回 null
+     */
+    public Entry find(Integer carId) {
+        return findAll(List.of(carId)).get(carId);
+    }
+
+    /**
+     * 批量查找车辆；注册表未命中且不在负缓存中的 carId 合并为一次查询回源
+     */
+    public Map<Integer, Entry> findAll(Collection<Integer> carIds) {
+        Map<Integer, Entry> result = new HashMap<>();
+        List<Integer> misses = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (Integer carId : carIds) {
+            Entry entry = vehicles.get(carId);
+            if (entry != null) {
+                result.put(carId, entry);
+            } else if (!isKnownUnknown(carId, now)) {
+                misses.add(carId);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            // 可能是其他节点刚创建的车辆
+            for (Vehicle vehicle : vehicleRepository.findByCarIdIn(misses)) {
+                Entry entry = Entry.of(vehicle);
+                vehicles.put(vehicle.getCarId(), entry);
+                result.put(vehicle.getCarId(), entry);
+            }
+            for (Integer carId : misses) {
+                if (!result.containsKey(carId)) {
+                    rememberUnknown(carId, now);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按 ID 获取电池类型，不存在时返回 null
+     */
+    public BatteryType getBatteryType(Integer batteryTypeId) {
+        BatteryType batteryType = batteryTypes.get(batteryTypeId);
+        if (batteryType == null) {
+            batteryType = batteryTypeRepository.findById(batteryTypeId).orElse(null);
+            if (batteryType != null) {
+                batteryTypes.put(batteryTypeId, batteryType);
+            }
+        }
+        return batteryType;
+    }
+
+    /**
+     * 车辆创建或更新后调用，在事务提交后生效
+     */
+    public void register(Vehicle vehicle) {
+        Entry entry = Entry.of(vehicle);
+        afterCommit(() -> {
+            vehicles.put(entry.getCarId(), entry);
+            unknownCarIds.remove(entry.getCarId());
+        });
+    }
+
+    /**
+     * 车辆删除后调用，在事务提交后生效
+     */
+    public void evict(Integer carId) {
+        afterCommit(() -> vehicles.remove(carId));
+    }
+
+    private boolean isKnownUnknown(Integer carId, long now) {
+        Long expiresAt = unknownCarIds.get(carId);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= now) {
+            unknownCarIds.remove(carId, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    private void rememberUnknown(Integer carId, long now) {
+        if (unknownCarIds.size() >= negativeMaxSize) {
+            unknownCarIds.values().removeIf(expiresAt -> expiresAt <= now);
+            if (unknownCarIds.size() >= negativeMaxSize) {
+                log.warn("Negative vehicle cache is full ({} entries), clearing", unknownCarIds.size());
+                unknownCarIds.clear();
+            }
+        }
+        unknownCarIds.put(carId, now + negativeTtlMs);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Entry {
+        private final String vid;
+        private final Integer carId;
+        private final Integer batteryTypeId;
+
+        static Entry of(Vehicle vehicle) {
+            return new Entry(vehicle.getVid(), vehicle.getCarId(), vehicle.getBatteryTypeId());
+        }
+    }
+}
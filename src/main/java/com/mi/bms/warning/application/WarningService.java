@@ -1,9 +1,13 @@
 package com.mi.bms.warning.application;
 
+import com.mi.bms.rule.domain.service.RuleMatch;
+import com.mi.bms.signal.domain.model.Signal;
 import com.mi.bms.warning.interfaces.rest.dto.WarningResponse;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface WarningService {
 
@@ -12,6 +16,22 @@ public interface WarningService {
      */
     void generateWarning(Long signalId);
 
+    /**
+     * 批量生成预警：一次查询加载并锁定未处理的信号，在单个事务内完成评估、写入与标记，返回新写入的预警数（被抑制合并的重复不计）
+     */
+    int generateWarnings(Collection<Long> signalIds);
+
+    /**
+     * 批量生成预警，直接使用调用方持有的已落库信号（含信号值，如消息体解码所得），不再回读信号数据；
+     * 只写入预警与已处理标记，已处理的信号被跳过
+     */
+    int generateWarningsForSignals(List<Signal> signals);
+
+    /**
+     * 内部方法，按已评估的结果为一批信号写入预警（在调用方事务内执行）：一次抑制判定、一次批量写入，缓存按车辆合并失效
+     */
+    void recordWarnings(Map<Signal, List<RuleMatch>> matchesBySignal);
+
     /**
      * 查询指定车辆的预警
      */
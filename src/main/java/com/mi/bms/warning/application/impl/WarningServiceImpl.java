@@ -1,15 +1,19 @@
 package com.mi.bms.warning.application.impl;
 
-import com.mi.bms.rule.domain.model.WarnRule;
 import com.mi.bms.rule.domain.service.RuleEngine;
+import com.mi.bms.rule.domain.service.RuleMatch;
 import com.mi.bms.signal.domain.model.Signal;
 import com.mi.bms.signal.domain.repository.SignalRepository;
+import com.mi.bms.signal.infrastructure.cache.SignalHistoryCache;
+import com.mi.bms.signal.infrastructure.persistence.SignalBatchWriter;
 import com.mi.bms.vehicle.domain.model.BatteryType;
 import com.mi.bms.vehicle.domain.repository.BatteryTypeRepository;
 import com.mi.bms.warning.application.WarningService;
 import com.mi.bms.warning.domain.model.Warning;
 import com.mi.bms.warning.domain.repository.WarningRepository;
 import com.mi.bms.warning.infrastructure.cache.WarningCache;
+import com.mi.bms.warning.infrastructure.persistence.WarningBatchWriter;
+import com.mi.bms.warning.infrastructure.suppression.WarningSuppressor;
 import com.mi.bms.warning.interfaces.rest.dto.WarningResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,9 +21,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -32,78 +39,123 @@ public class WarningServiceImpl implements WarningService {
     private final BatteryTypeRepository batteryTypeRepository;
     private final RuleEngine ruleEngine;
     private final WarningCache warningCache;
+    private final SignalBatchWriter signalBatchWriter;
+    private final SignalHistoryCache signalHistoryCache;
+    private final WarningBatchWriter warningBatchWriter;
+    private final WarningSuppressor warningSuppressor;
 
     @Override
     @Transactional
     public void generateWarning(Long signalId) {
-        log.info("==== WARNING GENERATION START ==== Processing signal ID: {}", signalId);
-
-        // 获取信号
-        Signal signal = signalRepository.findById(signalId)
-                .orElseThrow(() -> new IllegalArgumentException("Signal not found: " + signalId));
-        log.info("Retrieved signal with ID: {}, carId: {}, batteryTypeId: {}, processed: {}",
-                signal.getId(), signal.getCarId(), signal.getBatteryTypeId(), signal.isProcessed());
+        generateWarnings(List.of(signalId));
+    }
 
-        if (signal.isProcessed()) {
-            log.info("Signal already processed, skipping: {}", signalId);
-            return;
+    @Override
+    @Transactional
+    public int generateWarnings(Collection<Long> signalIds) {
+        if (signalIds.isEmpty()) {
+            return 0;
+        }
+        // 已处理或不存在的信号不会被加载，并发处理同一批信号时由行锁串行化
+        List<Signal> signals = signalRepository.lockUnprocessedByIdIn(signalIds);
+        log.info("Loaded {} unprocessed signals out of {} requested", signals.size(), signalIds.size());
+        if (signals.isEmpty()) {
+            return 0;
         }
+        signalBatchWriter.markProcessed(signals.stream().map(Signal::getId).collect(Collectors.toList()));
+        signalHistoryCache.markProcessed(signals);
+        return process(signals);
+    }
 
-        // 获取电池类型
-        BatteryType batteryType = batteryTypeRepository.findById(signal.getBatteryTypeId())
-                .orElseThrow(() -> new IllegalArgumentException("Battery type not found"));
-        log.info("Retrieved battery type: {}, name: {}", batteryType.getCode(), batteryType.getName());
-
-        // 获取规则列表
-        List<WarnRule> rules = ruleEngine.getRulesForBatteryType(batteryType.getId());
-        log.info("Found {} rules for battery type ID: {}", rules.size(), batteryType.getId());
-
-        int warningsGenerated = 0;
-
-        // 评估每个规则
-        for (WarnRule rule : rules) {
-            log.info("Evaluating rule: {}, ruleNo: {}, expr: {}",
-                    rule.getId(), rule.getRuleNo(), rule.getExpr());
-
-            Optional<WarnRule.RuleCondition> condition = ruleEngine.evaluateSignal(
-                    rule.getRuleNo(),
-                    batteryType.getId(),
-                    signal.getValues().getVoltageDiff());
-
-            if (condition.isPresent()) {
-                log.info("Rule condition matched: warnLevel={}", condition.get().getWarnLevel());
-
-                // 创建预警
-                Warning warning = Warning.create(
-                        signal.getCarId(),
-                        batteryType.getId(),
-                        rule.getRuleNo(),
-                        rule.getName(),
-                        condition.get().getWarnLevel(),
-                        signal.getSignalData());
-                log.info("Created warning entity: {}", warning);
-
-                // 保存预警
-                warning = warningRepository.save(warning);
-                log.info("Warning saved to database with ID: {}", warning.getId());
-                warningsGenerated++;
-
-                // 更新缓存
-                warningCache.invalidate(signal.getCarId(), batteryType.getId());
-                log.info("Cache invalidated for carId: {}, batteryTypeId: {}",
-                        signal.getCarId(), batteryType.getId());
-            } else {
-                log.info("No rule condition matched for rule: {}", rule.getId());
+    @Override
+    @Transactional
+    public int generateWarningsForSignals(List<Signal> signals) {
+        if (signals.isEmpty()) {
+            return 0;
+        }
+        // 锁定尚未处理的信号并标记；未认领到的信号已由其他路径处理
+        Map<Long, LocalDateTime> unprocessed = signalBatchWriter.claimUnprocessed(
+                signals.stream().map(Signal::getId).collect(Collectors.toList()));
+        if (unprocessed.size() < signals.size()) {
+            log.info("Skipping {} signals that are already processed", signals.size() - unprocessed.size());
+        }
+        List<Signal> claimed = new ArrayList<>(unprocessed.size());
+        for (Signal signal : signals) {
+            LocalDateTime createdAt = unprocessed.get(signal.getId());
+            if (createdAt == null) {
+                continue;
+            }
+            if (signal.getCreatedAt() == null) {
+                // 消息体不带 createdAt，回填后历史缓存才能定位信号所在的小时桶
+                signal.markAsPersisted(signal.getId(), createdAt);
             }
+            claimed.add(signal);
+        }
+        signalHistoryCache.markProcessed(claimed);
+        return process(claimed);
+    }
+
+    /**
+     * 在内存中评估整批已标记为处理中的信号，预警经抑制后一次批量写入，缓存按车辆合并失效
+     */
+    private int process(List<Signal> signals) {
+        if (signals.isEmpty()) {
+            return 0;
+        }
+        List<Warning> warnings = new ArrayList<>();
+        Set<Integer> affectedCars = new LinkedHashSet<>();
+
+        for (Signal signal : signals) {
+            collect(signal, ruleEngine.evaluate(signal.getBatteryTypeId(), signal.getValues()), warnings, affectedCars);
+        }
+
+        int inserted = persist(warnings);
+        warningCache.invalidate(affectedCars);
+
+        log.info("==== WARNING GENERATION COMPLETE ==== Processed {} signals, {} warnings triggered, {} written",
+                signals.size(), warnings.size(), inserted);
+        return inserted;
+    }
+
+    private void collect(Signal signal, List<RuleMatch> matches, List<Warning> warnings, Set<Integer> affectedCars) {
+        for (RuleMatch match : matches) {
+            warnings.add(Warning.create(
+                    signal.getCarId(),
+                    signal.getBatteryTypeId(),
+                    match.getRuleNo(),
+                    match.getRuleName(),
+                    match.getWarnLevel(),
+                    signal.getSignalData()));
         }
+        if (!matches.isEmpty()) {
+            affectedCars.add(signal.getCarId());
+        }
+    }
 
-        // 标记信号为已处理
-        signal.markAsProcessed();
-        signalRepository.save(signal);
-        log.info("Signal marked as processed: {}", signal.getId());
+    /**
+     * 经抑制窗口过滤后写入预警：新预警批量插入，重复出现累加到已打开的预警上，返回新写入的条数
+     */
+    private int persist(List<Warning> warnings) {
+        WarningSuppressor.Plan plan = warningSuppressor.plan(warnings, LocalDateTime.now());
+        warningBatchWriter.insertAll(plan.getInserts());
+        warningBatchWriter.addOccurrences(plan.getFolds(), plan.getSeenAt());
+        warningSuppressor.record(plan);
+        return plan.getInserts().size();
+    }
 
-        log.info("==== WARNING GENERATION COMPLETE ==== Generated {} warnings for signal ID: {}",
-                warningsGenerated, signalId);
+    @Override
+    @Transactional
+    public void recordWarnings(Map<Signal, List<RuleMatch>> matchesBySignal) {
+        List<Warning> warnings = new ArrayList<>();
+        Set<Integer> affectedCars = new LinkedHashSet<>();
+        matchesBySignal.forEach((signal, matches) -> collect(signal, matches, warnings, affectedCars));
+        if (warnings.isEmpty()) {
+            return;
+        }
+        int inserted = persist(warnings);
+        warningCache.invalidate(affectedCars);
+        log.debug("Recorded {} evaluated warnings for {} signals, {} written",
+                warnings.size(), matchesBySignal.size(), inserted);
     }
 
     @Override
@@ -111,21 +163,12 @@ public class WarningServiceImpl implements WarningService {
     public List<WarningResponse> getWarningsByCarId(Integer carId, LocalDateTime from, LocalDateTime to) {
         log.info("Querying warnings for carId: {}, from: {}, to: {}", carId, from, to);
 
-        // 尝试从缓存获取
-        List<Warning> warnings = warningCache.getByCarId(carId, from, to);
-        if (warnings != null) {
-            log.info("Cache hit! Found {} warnings in cache for carId: {}", warnings.size(), carId);
-            return buildWarningResponses(warnings);
-        }
-
-        // 从数据库获取
-        log.info("Cache miss. Querying database for carId: {}", carId);
-        warnings = warningRepository.findByCarIdAndTimeRange(carId, from, to);
-        log.info("Found {} warnings in database for carId: {}", warnings.size(), carId);
-
-        // 更新缓存
-        warningCache.putByCarId(carId, from, to, warnings);
-        log.info("Updated cache for carId: {}", carId);
+        // 按小时桶从缓存拼接，缺失的桶从数据库加载后回填
+        List<Warning> warnings = warningCache.getByCarId(carId, from, to, (start, end) -> {
+            log.info("Cache miss. Querying database for carId: {}, from: {}, to: {}", carId, start, end);
+            return warningRepository.findByCarIdAndTimeRange(carId, start, end);
+        });
+        log.info("Found {} warnings for carId: {}", warnings.size(), carId);
 
         return buildWarningResponses(warnings);
     }
@@ -186,6 +229,8 @@ public class WarningServiceImpl implements WarningService {
                 .ruleName(warning.getRuleName())
                 .warnLevel(warning.getWarnLevel())
                 .signalData(warning.getSignalData())
+                .occurrences(warning.getOccurrences())
+                .lastSeenAt(warning.getLastSeenAt())
                 .createdAt(warning.getCreatedAt())
                 .build();
     }
@@ -37,6 +37,12 @@ public class Warning {
     @Column(nullable = false)
     private String signalData;
 
+    // 抑制窗口内被合并的重复次数（含首次）及最后一次出现的时间
+    @Column(nullable = false)
+    private int occurrences;
+
+    private LocalDateTime lastSeenAt;
+
     @Column(nullable = false)
     private boolean isDelete;
 
@@ -50,6 +56,9 @@ public class Warning {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = createdAt;
+        if (lastSeenAt == null) {
+            lastSeenAt = createdAt;
+        }
         isDelete = false;
     }
 
@@ -67,9 +76,30 @@ public class Warning {
         warning.ruleName = ruleName;
         warning.warnLevel = warnLevel;
         warning.signalData = signalData;
+        warning.occurrences = 1;
         return warning;
     }
 
+    /**
+     * 尚未写入的预警合并一次重复出现
+     */
+    public void addOccurrence(LocalDateTime seenAt) {
+        this.occurrences++;
+        this.lastSeenAt = seenAt;
+    }
+
+    /**
+     * 批量写入后回填数据库生成的 ID 和时间
+     */
+    public void markAsPersisted(Long id, LocalDateTime createdAt) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+        if (this.lastSeenAt == null) {
+            this.lastSeenAt = createdAt;
+        }
+    }
+
     public void markAsDeleted() {
         this.isDelete = true;
         this.updatedAt = LocalDateTime.now();
@@ -3,16 +3,57 @@ package com.mi.bms.warning.infrastructure.cache;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mi.bms.warning.domain.model.Warning;
+import lombok.Builder;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
+/**
+ * 车辆预警查询缓存，按 (车辆, 小时桶) 缓存桶内全部预警。
+ * <p>
+ * 任意时间范围的查询拆成覆盖它的若干小时桶，命中的桶直接取用，缺失的桶用一次数据库查询补齐后回填，
+ * 首尾两个桶再按 createdAt 裁剪到请求的范围。滑动的"最近 N 小时"查询因此只需加载新出现的桶。
+ * <p>
+ * 预警的 createdAt 为写入时间，新预警总是落在当前小时；抑制合并会更新最近 renotify-interval 内写入的预警。
+ * 因此结束时间早于 seal-delay 之前的桶视为已封闭，内容不再变化：key 不带版本号、TTL 较长，写入预警时不失效。
+ * 这要求 seal-delay 不小于 renotify-interval（抑制关闭时为 0）加上预警写入事务的时长，启动时按 {@link #SEAL_MARGIN_MS} 的余量校验。
+ * 其余（未封闭的）桶的 key 带车辆版本号 warning:ver:{carId}，失效只需对计数器 INCR 一次，
+ * 旧版本的条目不再被读到，由 TTL 自然过期。计数器本身不设过期：计数器一旦过期重新从 0 计数，
+ * 可能与仍在 TTL 内的旧条目版本号重合。
+ * <p>
+ * 事务内的失效先按车辆合并，提交后用一次流水线 INCR 发出；回滚时不发出。
+ * <p>
+ * Redis 之前还有一层进程内近端缓存（L1，见 {@link WarningNearCache}），命中时省去 Redis 往返和反序列化。
+ * 失效时先清除本节点 L1 中未封闭的桶，再在同一流水线中向 {@value #INVALIDATION_CHANNEL} 频道发布车辆 id，
+ * 其他节点收到后清除各自的 L1（{@link WarningCacheInvalidationListener}）。pub/sub 不保证送达，
+ * 丢失的失效消息最多让其他节点的 L1 旧条目存活到 ttl-ms，因此未封闭桶在 L1 中的 TTL 取秒级。
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -21,42 +62,342 @@ public class WarningCache {
     private final RedisTemplate<String, String> redisTemplate;
     private final ObjectMapper objectMapper;
     private static final String KEY_PREFIX = "warning:";
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
-    private static final long CACHE_TTL = 1; // 1 hour
+    private static final String BUCKET_PREFIX = KEY_PREFIX + "b:";
+    private static final String VERSION_PREFIX = KEY_PREFIX + "ver:";
+    private static final DateTimeFormatter BUCKET_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHH");
+    private static final long OPEN_BUCKET_TTL_SECONDS = TimeUnit.HOURS.toSeconds(1);
+    private static final TypeReference<List<Warning>> WARNING_LIST = new TypeReference<List<Warning>>() {
+    };
+    public static final String INVALIDATION_CHANNEL = "warning:invalidate";
+    // 预警写入事务时长的上限估计：seal-delay 至少为重复通知间隔加上这段余量
+    static final long SEAL_MARGIN_MS = TimeUnit.MINUTES.toMillis(1);
 
-    public List<Warning> getByCarId(Integer carId, LocalDateTime from, LocalDateTime to) {
-        String key = buildKey(carId, from, to);
-        String value = redisTemplate.opsForValue().get(key);
-        if (value == null) {
-            return null;
+    @Value("${warning.cache.bucket.seal-delay-ms:900000}")
+    private long sealDelayMs;
+
+    @Value("${warning.suppression.enabled:true}")
+    private boolean suppressionEnabled;
+
+    @Value("${warning.suppression.renotify-interval-ms:600000}")
+    private long renotifyIntervalMs;
+
+    @Value("${warning.cache.bucket.sealed-ttl-hours:168}")
+    private long sealedTtlHours;
+
+    @Value("${warning.cache.bucket.max-buckets:744}")
+    private int maxBuckets;
+
+    @Value("${warning.cache.local.max-entries:50000}")
+    private int localMaxEntries;
+
+    @Value("${warning.cache.local.max-weight:500000}")
+    private long localMaxWeight;
+
+    @Value("${warning.cache.local.ttl-ms:5000}")
+    private long localTtlMs;
+
+    @Value("${warning.cache.local.sealed-ttl-ms:300000}")
+    private long localSealedTtlMs;
+
+    private WarningNearCache nearCache;
+    private final AtomicLong l1Hits = new AtomicLong();
+    private final AtomicLong l1Misses = new AtomicLong();
+    private final AtomicLong l2Hits = new AtomicLong();
+    private final AtomicLong l2Misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        long minSealDelayMs = (suppressionEnabled ? renotifyIntervalMs : 0) + SEAL_MARGIN_MS;
+        if (sealDelayMs < minSealDelayMs) {
+            // 封闭过早的桶仍会被抑制合并更新，而已封闭的桶不再失效，查询会一直读到旧的重复次数
+            throw new IllegalStateException("warning.cache.bucket.seal-delay-ms (" + sealDelayMs
+                    + ") must be at least warning.suppression.renotify-interval-ms plus " + SEAL_MARGIN_MS
+                    + " ms, i.e. " + minSealDelayMs);
+        }
+        nearCache = new WarningNearCache(localMaxEntries, localMaxWeight);
+    }
+
+    /**
+     * 查询车辆在 [from, to] 内的预警：依次从 L1、Redis 取各小时桶，缺失的桶交给 loader 一次加载
+     * （参数为连续缺失区间的起止时间，含两端）并回填两级缓存。覆盖的桶数超过 max-buckets 时直接调用 loader
+     */
+    public List<Warning> getByCarId(Integer carId, LocalDateTime from, LocalDateTime to,
+                                    BiFunction<LocalDateTime, LocalDateTime, List<Warning>> loader) {
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+        LocalDateTime first = bucketOf(from);
+        int count = (int) Math.min(Integer.MAX_VALUE, ChronoUnit.HOURS.between(first, bucketOf(to)) + 1);
+        if (count > maxBuckets) {
+            bypassed.incrementAndGet();
+            return loader.apply(from, to);
+        }
+
+        LocalDateTime openFrom = openFrom();
+        long stamp = nearCache.stamp(carId);
+        List<List<Warning>> buckets = new ArrayList<>(Collections.nCopies(count, null));
+
+        List<Integer> missing = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            List<Warning> cached = nearCache.get(carId, first.plusHours(i), now);
+            if (cached != null) {
+                buckets.set(i, cached);
+            } else {
+                missing.add(i);
+            }
+        }
+        l1Hits.addAndGet(count - missing.size());
+        l1Misses.addAndGet(missing.size());
+        if (missing.isEmpty()) {
+            return trim(buckets, from, to);
+        }
+
+        // 版本号在查询数据库之前读取，查询期间发生的失效会使本次写入的条目直接作废
+        boolean anyOpen = !first.plusHours(missing.get(missing.size() - 1)).isBefore(openFrom);
+        long version = anyOpen ? currentVersion(carId) : 0L;
+        List<String> keys = new ArrayList<>(missing.size());
+        for (Integer i : missing) {
+            keys.add(bucketKey(carId, first.plusHours(i), openFrom, version));
+        }
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        List<Integer> unresolved = new ArrayList<>();
+        for (int m = 0; m < missing.size(); m++) {
+            int i = missing.get(m);
+            List<Warning> cached = values == null ? null : deserialize(keys.get(m), values.get(m));
+            if (cached != null) {
+                buckets.set(i, cached);
+                putLocal(carId, first.plusHours(i), cached, openFrom, stamp);
+            } else {
+                unresolved.add(i);
+            }
+        }
+        l2Hits.addAndGet(missing.size() - unresolved.size());
+        l2Misses.addAndGet(unresolved.size());
+        if (unresolved.isEmpty()) {
+            return trim(buckets, from, to);
+        }
+
+        // 连续缺失区间用一次查询加载，按 createdAt 拆回各桶；区间内已命中的桶保留缓存值
+        int lo = unresolved.get(0);
+        int hi = unresolved.get(unresolved.size() - 1);
+        List<Warning> loaded = loader.apply(first.plusHours(lo), first.plusHours(hi + 1).minusNanos(1));
+        Map<LocalDateTime, List<Warning>> byBucket = new HashMap<>();
+        for (Warning warning : loaded) {
+            byBucket.computeIfAbsent(bucketOf(warning.getCreatedAt()), b -> new ArrayList<>()).add(warning);
+        }
+        Map<String, String> openWrites = new LinkedHashMap<>();
+        Map<String, String> sealedWrites = new LinkedHashMap<>();
+        for (Integer i : unresolved) {
+            LocalDateTime bucket = first.plusHours(i);
+            List<Warning> warnings = byBucket.getOrDefault(bucket, List.of());
+            buckets.set(i, warnings);
+            putLocal(carId, bucket, warnings, openFrom, stamp);
+            String key = bucketKey(carId, bucket, openFrom, version);
+            try {
+                (bucket.isBefore(openFrom) ? sealedWrites : openWrites)
+                        .put(key, objectMapper.writeValueAsString(warnings));
+            } catch (Exception e) {
+                log.error("Failed to serialize warnings to cache: {}", key, e);
+            }
+        }
+        writeBuckets(openWrites, sealedWrites);
+        return trim(buckets, from, to);
+    }
+
+    /**
+     * 车辆当前的缓存版本号，计数器不存在时为 0
+     */
+    public long currentVersion(Integer carId) {
+        String version = redisTemplate.opsForValue().get(VERSION_PREFIX + carId);
+        return version == null ? 0L : Long.parseLong(version);
+    }
+
+    public void invalidate(Integer carId, Integer batteryTypeId) {
+        invalidate(List.of(carId));
+    }
+
+    /**
+     * 使若干车辆的缓存失效；处于事务中时合并到提交之后统一执行
+     */
+    public void invalidate(Collection<Integer> carIds) {
+        if (carIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingInvalidations().addAll(carIds);
+        } else {
+            bumpVersions(new LinkedHashSet<>(carIds));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Integer> pendingInvalidations() {
+        Set<Integer> pending = (Set<Integer>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
         }
+        Set<Integer> created = new LinkedHashSet<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(WarningCache.this);
+                if (status == STATUS_COMMITTED) {
+                    bumpVersions(created);
+                }
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 只清除本节点 L1 中这些车辆未封闭的桶，收到其他节点的失效广播时调用
+     */
+    public void evictLocal(Collection<Integer> carIds) {
+        LocalDateTime openFrom = openFrom();
+        for (Integer carId : carIds) {
+            nearCache.invalidate(carId, openFrom);
+        }
+    }
 
+    public Stats stats() {
+        long l1HitCount = l1Hits.get();
+        long l1MissCount = l1Misses.get();
+        long l2HitCount = l2Hits.get();
+        long l2MissCount = l2Misses.get();
+        return Stats.builder()
+                .l1Hits(l1HitCount)
+                .l1Misses(l1MissCount)
+                .l1HitRatio(ratio(l1HitCount, l1MissCount))
+                .l2Hits(l2HitCount)
+                .l2Misses(l2MissCount)
+                .l2HitRatio(ratio(l2HitCount, l2MissCount))
+                .bypassed(bypassed.get())
+                .l1Size(nearCache.size())
+                .l1Weight(nearCache.weight())
+                .build();
+    }
+
+    private void bumpVersions(Set<Integer> carIds) {
+        evictLocal(carIds);
+        byte[] message = carIds.stream().map(String::valueOf).collect(Collectors.joining(","))
+                .getBytes(StandardCharsets.UTF_8);
         try {
-            return objectMapper.readValue(value, new TypeReference<List<Warning>>() {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Integer carId : carIds) {
+                    incr(connection, carId);
+                }
+                connection.publish(INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8), message);
+                return null;
             });
+            log.info("Invalidated warning cache for {} cars: {}", carIds.size(), carIds);
         } catch (Exception e) {
-            log.error("Failed to deserialize warnings from cache: {}", key, e);
-            return null;
+            // 失效失败只会让旧条目多存活至 TTL，不影响已提交的预警
+            log.error("Failed to invalidate warning cache for cars {}: {}", carIds, e.getMessage());
         }
     }
 
-    public void putByCarId(Integer carId, LocalDateTime from, LocalDateTime to, List<Warning> warnings) {
-        String key = buildKey(carId, from, to);
+    private static void incr(RedisConnection connection, Integer carId) {
+        connection.stringCommands().incr((VERSION_PREFIX + carId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    private void putLocal(Integer carId, LocalDateTime bucket, List<Warning> warnings, LocalDateTime openFrom, long stamp) {
+        long now = System.currentTimeMillis();
+        if (bucket.isBefore(openFrom)) {
+            // 已封闭的桶不会再被失效，不受加载期间的失效影响
+            nearCache.put(carId, bucket, warnings, nearCache.stamp(carId), now + localSealedTtlMs);
+        } else {
+            nearCache.put(carId, bucket, warnings, stamp, now + localTtlMs);
+        }
+    }
+
+    private void writeBuckets(Map<String, String> openWrites, Map<String, String> sealedWrites) {
+        if (openWrites.isEmpty() && sealedWrites.isEmpty()) {
+            return;
+        }
+        long sealedTtlSeconds = TimeUnit.HOURS.toSeconds(sealedTtlHours);
         try {
-            String value = objectMapper.writeValueAsString(warnings);
-            redisTemplate.opsForValue().set(key, value, CACHE_TTL, TimeUnit.HOURS);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                openWrites.forEach((key, value) -> setEx(connection, key, OPEN_BUCKET_TTL_SECONDS, value));
+                sealedWrites.forEach((key, value) -> setEx(connection, key, sealedTtlSeconds, value));
+                return null;
+            });
         } catch (Exception e) {
-            log.error("Failed to serialize warnings to cache: {}", key, e);
+            log.error("Failed to write {} warning buckets to cache: {}",
+                    openWrites.size() + sealedWrites.size(), e.getMessage());
         }
     }
 
-    public void invalidate(Integer carId, Integer batteryTypeId) {
-        String pattern = KEY_PREFIX + carId + ":*";
-        redisTemplate.delete(redisTemplate.keys(pattern));
-        log.info("Invalidated warning cache for carId: {}", carId);
+    private static void setEx(RedisConnection connection, String key, long ttlSeconds, String value) {
+        connection.stringCommands().setEx(key.getBytes(StandardCharsets.UTF_8), ttlSeconds,
+                value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Warning> deserialize(String key, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(value, WARNING_LIST);
+        } catch (Exception e) {
+            log.error("Failed to deserialize warnings from cache: {}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 拼接各桶的预警，首尾两个桶只保留 [from, to] 内的
+     */
+    private static List<Warning> trim(List<List<Warning>> buckets, LocalDateTime from, LocalDateTime to) {
+        List<Warning> result = new ArrayList<>();
+        int last = buckets.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            for (Warning warning : buckets.get(i)) {
+                if ((i == 0 || i == last)
+                        && (warning.getCreatedAt().isBefore(from) || warning.getCreatedAt().isAfter(to))) {
+                    continue;
+                }
+                result.add(warning);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 第一个未封闭的桶：结束时间不早于 now - seal-delay 的桶仍可能被写入或合并
+     */
+    private LocalDateTime openFrom() {
+        return bucketOf(LocalDateTime.now().minus(sealDelayMs, ChronoUnit.MILLIS));
+    }
+
+    private static LocalDateTime bucketOf(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static String bucketKey(Integer carId, LocalDateTime bucket, LocalDateTime openFrom, long version) {
+        String key = BUCKET_PREFIX + carId + ":" + bucket.format(BUCKET_FORMATTER);
+        return bucket.isBefore(openFrom) ? key : key + ":v" + version;
     }
 
-    private String buildKey(Integer carId, LocalDateTime from, LocalDateTime to) {
-        return KEY_PREFIX + carId + ":" + from.format(FORMATTER) + ":" + to.format(FORMATTER);
+    @Getter
+    @Builder
+    public static class Stats {
+        // 命中与未命中均按小时桶计数
+        private final long l1Hits;
+        private final long l1Misses;
+        private final double l1HitRatio;
+        private final long l2Hits; // L1 未命中后在 Redis 命中的次数
+        private final long l2Misses;
+        private final double l2HitRatio;
+        private final long bypassed; // 覆盖的桶数超过上限、直接查询数据库的次数
+        private final int l1Size;
+        private final long l1Weight; // L1 中缓存的预警总条数（每个条目另计 1）
     }
-}
\ No newline at end of file
+}
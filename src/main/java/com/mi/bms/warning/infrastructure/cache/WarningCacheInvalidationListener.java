@@ -0,0 +1,49 @@
+package com.mi.bms.warning.infrastructure.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订阅预警缓存失效频道，清除本节点近端缓存中对应车辆的条目。
+ * <p>
+ * 消息体为逗号分隔的车辆 id；本节点发出的失效也会收到一次，重复清除没有副作用。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WarningCacheInvalidationListener implements MessageListener {
+
+    private final WarningCache warningCache;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(WarningCache.INVALIDATION_CHANNEL));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<Integer> carIds = new ArrayList<>();
+        for (String part : body.split(",")) {
+            try {
+                carIds.add(Integer.valueOf(part.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed warning cache invalidation: {}", body);
+                return;
+            }
+        }
+        warningCache.evictLocal(carIds);
+        log.debug("Evicted near cache entries for {} cars on invalidation broadcast", carIds.size());
+    }
+}
@@ -0,0 +1,184 @@
+package com.mi.bms.warning.infrastructure.cache;
+
+import com.mi.bms.warning.domain.model.Warning;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 预警查询的进程内近端缓存（L1）：按 (carId, 小时桶) 缓存桶内的预警，命中时不访问 Redis、也不做反序列化。
+ * <p>
+ * 按条目数和总权重（预警条数）做 LRU 淘汰，过期时间由写入方按桶是否已封闭给出；失效只删除该车未封闭的桶。
+ * 每辆车映射到一个失效计数槽，加载前读取槽值、写入时比对，加载期间收到的失效会使本次写入作废，
+ * 不会把失效前读到的结果放进缓存（不同车辆落在同一槽时只会少缓存一次）。
+ */
+final class WarningNearCache {
+
+    private static final int STAMP_SLOTS = 1024;
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMP_SLOTS);
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Set<Key>> keysByCar = new HashMap<>();
+    private long weight;
+
+    WarningNearCache(int maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * 车辆当前的失效计数，须在加载数据之前读取并在 {@link #put} 时传回
+     */
+    long stamp(Integer carId) {
+        return stamps.get(slot(carId));
+    }
+
+    synchronized List<Warning> get(Integer carId, LocalDateTime bucket, long now) {
+        Key key = new Key(carId, bucket);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (now >= entry.expiresAt) {
+            remove(key, entry);
+            return null;
+        }
+        return entry.warnings;
+    }
+
+    /**
+     * 写入查询结果；自 stamp 读取以来该车辆发生过失效、或单条权重超过上限时不写入
+     */
+    void put(Integer carId, LocalDateTime bucket, List<Warning> warnings, long stamp, long expiresAt) {
+        int entryWeight = warnings.size() + 1;
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        Key key = new Key(carId, bucket);
+        Entry entry = new Entry(List.copyOf(warnings), entryWeight, expiresAt);
+        synchronized (this) {
+            // 在锁内比对，与 invalidate 的删除互斥，避免删除之后再写入旧结果
+            if (stamps.get(slot(carId)) != stamp) {
+                return;
+            }
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += entryWeight;
+            keysByCar.computeIfAbsent(carId, k -> new HashSet<>()).add(key);
+            evict();
+        }
+    }
+
+    /**
+     * 删除该车从 openFrom 开始（未封闭）的桶，已封闭的桶不受写入影响、保留
+     */
+    void invalidate(Integer carId, LocalDateTime openFrom) {
+        stamps.incrementAndGet(slot(carId));
+        synchronized (this) {
+            Set<Key> keys = keysByCar.get(carId);
+            if (keys == null) {
+                return;
+            }
+            Iterator<Key> iterator = keys.iterator();
+            while (iterator.hasNext()) {
+                Key key = iterator.next();
+                if (!key.bucket.isBefore(openFrom)) {
+                    iterator.remove();
+                    Entry entry = entries.remove(key);
+                    if (entry != null) {
+                        weight -= entry.weight;
+                    }
+                }
+            }
+            if (keys.isEmpty()) {
+                keysByCar.remove(carId);
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long weight() {
+        return weight;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            Map.Entry<Key, Entry> next = eldest.next();
+            eldest.remove();
+            weight -= next.getValue().weight;
+            unindex(next.getKey());
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        weight -= entry.weight;
+        unindex(key);
+    }
+
+    private void unindex(Key key) {
+        Set<Key> keys = keysByCar.get(key.carId);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByCar.remove(key.carId);
+        }
+    }
+
+    private static int slot(Integer carId) {
+        return Math.floorMod(Integer.hashCode(carId), STAMP_SLOTS);
+    }
+
+    private static final class Key {
+        final Integer carId;
+        final LocalDateTime bucket;
+
+        Key(Integer carId, LocalDateTime bucket) {
+            this.carId = carId;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return carId.equals(other.carId) && bucket.equals(other.bucket);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(carId, bucket);
+        }
+    }
+
+    private static final class Entry {
+        final List<Warning> warnings;
+        final int weight;
+        final long expiresAt;
+
+        Entry(List<Warning> warnings, int weight, long expiresAt) {
+            this.warnings = warnings;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.mi.bms.warning.infrastructure.deadletter;
+
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.infrastructure.mq.SignalMessage;
+import com.mi.bms.signal.infrastructure.mq.SignalPartition;
+import com.mi.bms.signal.infrastructure.persistence.SignalBatchWriter;
+import com.mi.bms.warning.application.WarningService;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 信号消息死信队列，保存在 signal_dead_letter 表中。
+ * <p>
+ * 消费重试耗尽的消息和无法解码的消息写入此处后即确认消费，不再阻塞所在队列；
+ * 未处理信号扫描读到信号数据无法解析的行时也写入此处（queue 为 {@link #SCAN_QUEUE}，payload 为原始信号数据）。
+ * 信号同时被标记为 dead_lettered，未处理信号扫描不再重新投递，避免同一信号反复走完重试并重复写入死信。
+ * 重放按死信记录的信号 id 直接走批量预警生成并清除标记，已处理的信号会被跳过；无法解码的消息没有信号 id，只能查看不能重放。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SignalDeadLetterQueue {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO signal_dead_letter (msg_id, queue, signal_id, car_id, payload, attempts, error, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_SQL =
+            "SELECT id, msg_id, queue, signal_id, car_id, payload, attempts, error, created_at, replayed_at "
+                    + "FROM signal_dead_letter WHERE id > ?%s ORDER BY id LIMIT ?";
+    private static final String SELECT_PENDING_BY_ID_SQL =
+            "SELECT id, msg_id, queue, signal_id, car_id, payload, attempts, error, created_at, replayed_at "
+                    + "FROM signal_dead_letter WHERE replayed_at IS NULL AND id IN (%s) ORDER BY id";
+    private static final String MARK_REPLAYED_SQL = "UPDATE signal_dead_letter SET replayed_at = ? WHERE id IN (%s)";
+    private static final int MAX_ERROR_LENGTH = 1024;
+    static final String SCAN_QUEUE = "scan";
+
+    private static final RowMapper<DeadLetter> ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp replayedAt = rs.getTimestamp("replayed_at");
+        Long signalId = rs.getObject("signal_id", Long.class);
+        Integer carId = rs.getObject("car_id", Integer.class);
+        return DeadLetter.builder()
+                .id(rs.getLong("id"))
+                .msgId(rs.getString("msg_id"))
+                .queue(rs.getString("queue"))
+                .signalId(signalId)
+                .carId(carId)
+                .payload(rs.getBytes("payload"))
+                .attempts(rs.getInt("attempts"))
+                .error(rs.getString("error"))
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .replayedAt(replayedAt == null ? null : replayedAt.toLocalDateTime())
+                .build();
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WarningService warningService;
+    private final SignalBatchWriter signalBatchWriter;
+
+    /**
+     * 写入一条死信并标记对应信号；signal 为空表示消息体无法解码
+     */
+    @Transactional
+    public void add(SignalMessage message, SignalPartition partition, Signal signal, Throwable error) {
+        String reason = truncate(error.getClass().getSimpleName() + ": " + error.getMessage());
+        jdbcTemplate.update(INSERT_SQL,
+                message.getMsgId() == null ? "" : message.getMsgId(),
+                partition == null ? "" : partition.toString(),
+                signal == null ? null : signal.getId(),
+                signal == null ? null : signal.getCarId(),
+                message.getBody() == null ? new byte[0] : message.getBody(),
+                message.getReconsumeTimes() + 1,
+                reason,
+                Timestamp.valueOf(LocalDateTime.now()));
+        if (signal != null) {
+            signalBatchWriter.markDeadLettered(List.of(signal.getId()));
+        }
+        log.warn("Signal message {} moved to dead-letter queue after {} attempts: {}",
+                message.getMsgId(), message.getReconsumeTimes() + 1, reason);
+    }
+
+    /**
+     * 未处理信号扫描读到无法解析的信号时调用：写入一条死信并标记信号，扫描不再读取它，修复数据后可按死信重放
+     */
+    @Transactional
+    public void addUnparsable(long signalId, int carId, String signalData, Throwable error) {
+        String reason = truncate(error.getClass().getSimpleName() + ": " + error.getMessage());
+        jdbcTemplate.update(INSERT_SQL, "", SCAN_QUEUE, signalId, carId,
+                signalData == null ? new byte[0] : signalData.getBytes(StandardCharsets.UTF_8),
+                0, reason, Timestamp.valueOf(LocalDateTime.now()));
+        signalBatchWriter.markDeadLettered(List.of(signalId));
+        log.warn("Scanned signal {} moved to dead-letter queue, its data cannot be parsed: {}", signalId, reason);
+    }
+
+    /**
+     * 按 id 分页列出死信，includeReplayed 为 false 时只列出尚未重放的
+     */
+    public List<DeadLetter> list(long afterId, int limit, boolean includeReplayed) {
+        return jdbcTemplate.query(String.format(SELECT_SQL, includeReplayed ? "" : " AND replayed_at IS NULL"),
+                ROW_MAPPER, afterId, limit);
+    }
+
+    /**
+     * 重放指定的死信（为空时重放最早的 limit 条未重放死信）：对其中的信号执行批量预警生成，成功后标记为已重放。
+     * 预警生成失败时抛出异常，死信保持未重放
+     */
+    @Transactional
+    public ReplayResult replay(Collection<Long> ids, int limit) {
+        List<DeadLetter> pending = ids == null || ids.isEmpty()
+                ? list(0, limit, false)
+                : jdbcTemplate.query(String.format(SELECT_PENDING_BY_ID_SQL, placeholders(ids.size())),
+                        ROW_MAPPER, ids.toArray());
+
+        List<Long> replayable = new ArrayList<>();
+        Set<Long> signalIds = new LinkedHashSet<>();
+        for (DeadLetter deadLetter : pending) {
+            if (deadLetter.getSignalId() != null) {
+                replayable.add(deadLetter.getId());
+                signalIds.add(deadLetter.getSignalId());
+            }
+        }
+        if (replayable.isEmpty()) {
+            return new ReplayResult(pending.size(), 0, 0);
+        }
+
+        int warnings = warningService.generateWarnings(signalIds);
+        signalBatchWriter.clearDeadLettered(signalIds);
+        List<Object> args = new ArrayList<>(replayable.size() + 1);
+        args.add(Timestamp.valueOf(LocalDateTime.now()));
+        args.addAll(replayable);
+        jdbcTemplate.update(String.format(MARK_REPLAYED_SQL, placeholders(replayable.size())), args.toArray());
+        log.info("Replayed {} dead letters ({} signals), {} warnings generated",
+                replayable.size(), signalIds.size(), warnings);
+        return new ReplayResult(pending.size(), replayable.size(), warnings);
+    }
+
+    private static String truncate(String reason) {
+        return reason.length() > MAX_ERROR_LENGTH ? reason.substring(0, MAX_ERROR_LENGTH) : reason;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    @Getter
+    @Builder
+    public static class DeadLetter {
+        private final long id;
+        private final String msgId;
+        private final String queue;
+        private final Long signalId; // 消息体无法解码时为空
+        private final Integer carId;
+        private final byte[] payload;
+        private final int attempts;
+        private final String error;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime replayedAt;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class ReplayResult {
+        private final int matched; // 找到的未重放死信数
+        private final int replayed; // 有信号 id、已重放的死信数
+        private final int warnings; // 重放生成的预警数
+    }
+}
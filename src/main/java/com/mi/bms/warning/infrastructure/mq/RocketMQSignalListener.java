@@ -0,0 +1,75 @@
+package com.mi.bms.warning.infrastructure.mq;
+
+import com.mi.bms.signal.infrastructure.mq.SignalMessage;
+import com.mi.bms.signal.infrastructure.mq.SignalMessageHandler;
+import com.mi.bms.signal.infrastructure.mq.SignalPartition;
+import lombok.RequiredArgsConstructor;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeOrderlyStatus;
+import org.apache.rocketmq.client.consumer.listener.MessageListenerOrderly;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.spring.annotation.ConsumeMode;
+import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.apache.rocketmq.spring.core.RocketMQPushConsumerLifecycleListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RocketMQ 信号监听器，只在 signal.transport 为 rocketmq（默认）时注册，顺序批量消费 signal-topic。
+ * <p>
+ * 每个消息队列由一个线程串行消费，拉取到的消息转换为 {@link SignalMessage} 后整批交给 {@link SignalMessageHandler}；
+ * 处理逻辑要求重试时暂停该队列，到期后整批重新投递，RocketMQ 累加消息的重试次数。
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "signal.transport", havingValue = "rocketmq", matchIfMissing = true)
+@RocketMQMessageListener(topic = "signal-topic", consumerGroup = "warning-consumer-group", consumeMode = ConsumeMode.ORDERLY)
+public class RocketMQSignalListener implements RocketMQListener<MessageExt>, RocketMQPushConsumerLifecycleListener {
+
+    private final SignalMessageHandler handler;
+
+    @Value("${signal.consumer.batch-size:32}")
+    private int batchSize;
+
+    /**
+     * 以自己的顺序监听器替换容器默认的监听器，以便批量消费并拿到消息所属的队列
+     */
+    @Override
+    public void prepareStart(DefaultMQPushConsumer consumer) {
+        consumer.setConsumeMessageBatchMaxSize(batchSize);
+        consumer.registerMessageListener((MessageListenerOrderly) (messages, context) -> {
+            long retryDelay = handler.consume(toMessages(messages), toPartition(context.getMessageQueue()));
+            if (retryDelay > 0) {
+                context.setSuspendCurrentQueueTimeMillis(retryDelay);
+                return ConsumeOrderlyStatus.SUSPEND_CURRENT_QUEUE_A_MOMENT;
+            }
+            return ConsumeOrderlyStatus.SUCCESS;
+        });
+    }
+
+    @Override
+    public void onMessage(MessageExt message) {
+        SignalPartition partition = new SignalPartition(message.getBrokerName(), message.getQueueId());
+        if (handler.consume(toMessages(List.of(message)), partition) > 0) {
+            throw new IllegalStateException("Signal message " + message.getMsgId() + " failed and will be retried");
+        }
+    }
+
+    static List<SignalMessage> toMessages(List<MessageExt> messages) {
+        List<SignalMessage> converted = new ArrayList<>(messages.size());
+        for (MessageExt message : messages) {
+            converted.add(new SignalMessage(message.getMsgId(), message.getBody(), message.getReconsumeTimes()));
+        }
+        return converted;
+    }
+
+    static SignalPartition toPartition(MessageQueue queue) {
+        return new SignalPartition(queue.getBrokerName(), queue.getQueueId());
+    }
+}
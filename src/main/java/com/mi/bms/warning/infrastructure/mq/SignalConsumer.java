@@ -2,39 +2,145 @@ package com.mi.bms.warning.infrastructure.mq;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
+import com.mi.bms.signal.infrastructure.mq.SignalMessage;
+import com.mi.bms.signal.infrastructure.mq.SignalMessageHandler;
+import com.mi.bms.signal.infrastructure.mq.SignalPartition;
 import com.mi.bms.warning.application.WarningService;
+import com.mi.bms.warning.infrastructure.deadletter.SignalDeadLetterQueue;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
-import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 信号消息消费逻辑，按分区顺序批量消费 signal-topic，与传输实现无关。
+ * <p>
+ * 生产端按 carId 选择分区，每个分区由一个线程串行消费，同一车辆的信号按投递顺序评估。
+ * 每个分区对应一个 {@link SignalShard}，车辆状态由分片独占、无需加锁；吞吐通过增加分区数和消费者扩展。
+ * <p>
+ * 每次最多 batch-size 条消息，整批交给批量预警生成；整批失败时逐条重试以隔离出错的信号。
+ * 消息体携带了信号的全部取值，直接按消息内容和内存中的规则索引评估，只写入预警与已处理标记，不回查信号表。
+ * 单条信号失败时返回退避时间，由传输暂停该分区后整批重新投递（顺序消费不能跳过），达到最大重试次数后写入死信队列并继续，
+ * 无法解码的消息直接写入死信队列。死信写入失败时同样退避重试，消息不会被静默丢弃。
+ * <p>
+ * signal.transport 为 rocketmq 时由 {@link RocketMQSignalListener} 调用 {@link #consume}，为 local 或 redis 时由对应传输的分区线程调用。
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-@RocketMQMessageListener(topic = "signal-topic", consumerGroup = "warning-consumer-group")
-public class SignalConsumer implements RocketMQListener<String> {
+public class SignalConsumer implements SignalMessageHandler {
 
     private final ObjectMapper objectMapper;
     private final WarningService warningService;
+    private final SignalDeadLetterQueue deadLetterQueue;
+    private final Map<SignalPartition, SignalShard> shards = new ConcurrentHashMap<>();
+
+    @Value("${signal.consumer.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${signal.consumer.retry-initial-ms:1000}")
+    private long retryInitialMs;
 
+    @Value("${signal.consumer.retry-max-ms:60000}")
+    private long retryMaxMs;
+
+    /**
+     * 消费一批消息，全部完成（或已转入死信）时返回 0，否则返回整批重新投递前的等待毫秒数
+     */
     @Override
-    public void onMessage(String message) {
-        log.info("==== SIGNAL CONSUMPTION START ==== Received message: {}", message);
+    public long consume(List<SignalMessage> messages, SignalPartition partition) {
+        SignalShard shard = shards.computeIfAbsent(partition, p -> new SignalShard());
+        log.info("==== SIGNAL CONSUMPTION START ==== Received {} messages from {}", messages.size(), partition);
+
+        List<SignalMessage> accepted = new ArrayList<>(messages.size());
+        List<Signal> signals = new ArrayList<>(messages.size());
+        for (SignalMessage message : messages) {
+            if (shard.isDeadLettered(message.getMsgId())) {
+                continue;
+            }
+            Signal signal;
+            try {
+                signal = decode(message.getBody());
+            } catch (Exception e) {
+                log.error("Undecodable signal message {}", message.getMsgId(), e);
+                if (!deadLetter(message, partition, shard, null, e)) {
+                    return retryDelay(message);
+                }
+                continue;
+            }
+            if (shard.isDuplicate(signal.getCarId(), signal.getId())) {
+                log.info("Signal {} of car {} was already processed on this partition, skipping", signal.getId(), signal.getCarId());
+                continue;
+            }
+            accepted.add(message);
+            signals.add(signal);
+        }
+        if (signals.isEmpty()) {
+            return 0;
+        }
+
         try {
-            Signal signal = objectMapper.readValue(message, Signal.class);
-            log.info("Deserialized signal message with ID: {}, carId: {}, batteryTypeId: {}",
-                    signal.getId(), signal.getCarId(), signal.getBatteryTypeId());
+            int warnings = warningService.generateWarningsForSignals(signals);
+            for (Signal signal : signals) {
+                shard.markProcessed(signal.getCarId(), signal.getId());
+            }
+            log.info("==== SIGNAL CONSUMPTION COMPLETE ==== {} signals processed, {} warnings generated", signals.size(), warnings);
+            return 0;
+        } catch (Exception e) {
+            log.warn("Bulk warning generation failed for {} signals, retrying one by one: {}", signals.size(), e.getMessage());
+        }
 
-            log.info("Forwarding signal to warning service for processing...");
-            // 生成预警
-            warningService.generateWarning(signal.getId());
-            log.info("Warning generation completed for signal ID: {}", signal.getId());
+        for (int i = 0; i < signals.size(); i++) {
+            Signal signal = signals.get(i);
+            SignalMessage message = accepted.get(i);
+            try {
+                warningService.generateWarningsForSignals(List.of(signal));
+                shard.markProcessed(signal.getCarId(), signal.getId());
+            } catch (Exception e) {
+                if (message.getReconsumeTimes() < maxRetries) {
+                    long delay = retryDelay(message);
+                    log.warn("==== SIGNAL CONSUMPTION FAILED ==== Signal {} (attempt {}), retrying in {} ms: {}",
+                            signal.getId(), message.getReconsumeTimes() + 1, delay, e.getMessage());
+                    return delay;
+                }
+                log.error("==== SIGNAL CONSUMPTION FAILED ==== Signal {} exhausted {} retries", signal.getId(), maxRetries, e);
+                if (!deadLetter(message, partition, shard, signal, e)) {
+                    return retryDelay(message);
+                }
+            }
+        }
+        return 0;
+    }
 
-            log.info("==== SIGNAL CONSUMPTION COMPLETE ==== Successfully processed signal ID: {}", signal.getId());
+    private boolean deadLetter(SignalMessage message, SignalPartition partition, SignalShard shard, Signal signal, Exception cause) {
+        try {
+            deadLetterQueue.add(message, partition, signal, cause);
+            shard.markDeadLettered(message.getMsgId());
+            return true;
         } catch (Exception e) {
-            log.error("==== SIGNAL CONSUMPTION FAILED ==== Error processing message: {}", message, e);
-            // TODO: 考虑重试或死信队列
+            log.error("Failed to dead-letter signal message {}, it will be retried", message.getMsgId(), e);
+            return false;
+        }
+    }
+
+    private long retryDelay(SignalMessage message) {
+        return Math.min(retryMaxMs, retryInitialMs << Math.min(message.getReconsumeTimes(), 20));
+    }
+
+    /**
+     * 紧凑二进制消息体；兼容升级前写入的 JSON 消息体
+     */
+    private Signal decode(byte[] body) throws IOException {
+        if (SignalMessageCodec.isBinary(body)) {
+            return SignalMessageCodec.decode(body);
         }
+        return objectMapper.readValue(body, Signal.class);
     }
-}
\ No newline at end of file
+}
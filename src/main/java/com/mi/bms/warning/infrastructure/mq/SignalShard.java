@@ -0,0 +1,77 @@
+package com.mi.bms.warning.infrastructure.mq;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个消息队列的消费分片，保存该队列下各车辆的消费状态。
+ * <p>
+ * 生产端按 carId 选择队列，顺序消费模式下同一队列同一时刻只由一个线程处理，且批次之间由队列锁建立 happens-before，
+ * 因此分片内用普通 HashMap 保存车辆状态，不需要同步。队列重新分配到其他节点后本地状态随之失效，只影响重复判断的命中率。
+ */
+final class SignalShard {
+
+    // 每辆车记住最近处理过的信号 id 个数，覆盖发送重试造成的整批重复
+    static final int RECENT_IDS = 32;
+    // 最近转入死信的消息 id 个数，整批重新投递时不重复写入死信
+    static final int RECENT_DEAD_LETTERS = 256;
+
+    private final Map<Integer, RecentIds> vehicles = new HashMap<>();
+    private final Map<String, Boolean> recentDeadLetters = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > RECENT_DEAD_LETTERS;
+        }
+    };
+
+    /**
+     * 该车辆最近是否已处理过此信号（发送重试产生的重复消息）
+     */
+    boolean isDuplicate(int carId, long signalId) {
+        RecentIds recent = vehicles.get(carId);
+        return recent != null && recent.contains(signalId);
+    }
+
+    void markProcessed(int carId, long signalId) {
+        vehicles.computeIfAbsent(carId, k -> new RecentIds()).add(signalId);
+    }
+
+    boolean isDeadLettered(String msgId) {
+        return msgId != null && recentDeadLetters.containsKey(msgId);
+    }
+
+    void markDeadLettered(String msgId) {
+        if (msgId != null) {
+            recentDeadLetters.put(msgId, Boolean.TRUE);
+        }
+    }
+
+    int size() {
+        return vehicles.size();
+    }
+
+    private static final class RecentIds {
+        private final long[] ids = new long[RECENT_IDS];
+        private int next;
+
+        RecentIds() {
+            Arrays.fill(ids, -1L);
+        }
+
+        boolean contains(long id) {
+            for (long recent : ids) {
+                if (recent == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(long id) {
+            ids[next] = id;
+            next = (next + 1) % ids.length;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.mi.bms.warning.infrastructure.persistence;
+
+import com.mi.bms.warning.domain.model.Warning;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预警批量写入，使用 JDBC batch 一次往返插入整批预警，并通过 generated keys 回填 ID。
+ * <p>
+ * Warning 使用 IDENTITY 主键，逐条 save 每次都要单独执行 INSERT。
+ * 被抑制的重复预警只累加已有记录的 occurrences，同样按批一次往返完成。事务边界由调用方负责。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WarningBatchWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO warning "
+            + "(car_id, battery_type_id, rule_no, rule_name, warn_level, signal_data, occurrences, last_seen_at, "
+            + "is_delete, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String ADD_OCCURRENCES_SQL =
+            "UPDATE warning SET occurrences = occurrences + ?, last_seen_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<Warning> warnings) {
+        if (warnings.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Warning warning : warnings) {
+                    ps.setInt(1, warning.getCarId());
+                    ps.setInt(2, warning.getBatteryTypeId());
+                    ps.setInt(3, warning.getRuleNo());
+                    ps.setString(4, warning.getRuleName());
+                    ps.setInt(5, warning.getWarnLevel());
+                    ps.setString(6, warning.getSignalData());
+                    ps.setInt(7, warning.getOccurrences());
+                    ps.setTimestamp(8, warning.getLastSeenAt() == null
+                            ? timestamp : Timestamp.valueOf(warning.getLastSeenAt()));
+                    ps.setBoolean(9, false);
+                    ps.setTimestamp(10, timestamp);
+                    ps.setTimestamp(11, timestamp);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                // Generated keys come back in insertion order
+                int index = 0;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next() && index < warnings.size()) {
+                        warnings.get(index++).markAsPersisted(keys.getLong(1), now);
+                    }
+                }
+                if (index != warnings.size()) {
+                    throw new IllegalStateException("Expected " + warnings.size()
+                            + " generated keys but got " + index);
+                }
+            }
+            return null;
+        });
+        log.debug("Batch inserted {} warnings", warnings.size());
+    }
+
+    /**
+     * 按预警 ID 累加重复次数并刷新最后出现时间
+     */
+    public void addOccurrences(Map<Long, Integer> occurrences, LocalDateTime seenAt) {
+        if (occurrences.isEmpty()) {
+            return;
+        }
+
+        Timestamp timestamp = Timestamp.valueOf(seenAt);
+        List<Object[]> rows = new ArrayList<>(occurrences.size());
+        occurrences.forEach((warningId, count) -> rows.add(new Object[] { count, timestamp, warningId }));
+        jdbcTemplate.batchUpdate(ADD_OCCURRENCES_SQL, rows);
+        log.debug("Folded repeated occurrences into {} open warnings", occurrences.size());
+    }
+}
@@ -0,0 +1,51 @@
+package com.mi.bms.warning.infrastructure.suppression;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单节点抑制状态：内存 Map，定时淘汰超过重复通知间隔的状态
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "warning.suppression.store", havingValue = "local", matchIfMissing = true)
+public class LocalWarningSuppressionStore implements WarningSuppressionStore {
+
+    private final Map<Long, SuppressionState> states = new ConcurrentHashMap<>();
+
+    @Value("${warning.suppression.renotify-interval-ms:600000}")
+    private long renotifyIntervalMs;
+
+    @Override
+    public Map<Long, SuppressionState> getAll(Collection<Long> keys) {
+        Map<Long, SuppressionState> result = new HashMap<>();
+        for (Long key : keys) {
+            SuppressionState state = states.get(key);
+            if (state != null) {
+                result.put(key, state);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<Long, SuppressionState> updates) {
+        states.putAll(updates);
+    }
+
+    @Scheduled(fixedDelayString = "${warning.suppression.renotify-interval-ms:600000}")
+    public void evictExpired() {
+        long expiredBefore = System.currentTimeMillis() - renotifyIntervalMs;
+        int before = states.size();
+        states.values().removeIf(state -> state.getNotifiedAt() < expiredBefore);
+        log.debug("Evicted {} expired warning suppression states", before - states.size());
+    }
+}
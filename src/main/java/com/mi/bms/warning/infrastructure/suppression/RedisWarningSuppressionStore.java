@@ -0,0 +1,101 @@
+package com.mi.bms.warning.infrastructure.suppression;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多节点共享的抑制状态：每个 (车辆, 规则) 一个字符串键，值为 "级别:预警ID:通知时间"，TTL 为重复通知间隔。
+ * 读取为一次 MGET，写入为一次 pipeline。
+ * <p>
+ * Redis 不可用时读取按无状态处理（宁可多写一条预警，也不漏报），写入失败只记录日志。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "warning.suppression.store", havingValue = "redis")
+@RequiredArgsConstructor
+public class RedisWarningSuppressionStore implements WarningSuppressionStore {
+
+    private static final String KEY_PREFIX = "warning:suppress:";
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Value("${warning.suppression.renotify-interval-ms:600000}")
+    private long renotifyIntervalMs;
+
+    @Override
+    public Map<Long, SuppressionState> getAll(Collection<Long> keys) {
+        Map<Long, SuppressionState> result = new HashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        List<Long> ordered = new ArrayList<>(keys);
+        List<String> redisKeys = new ArrayList<>(ordered.size());
+        for (Long key : ordered) {
+            redisKeys.add(redisKey(key));
+        }
+
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(redisKeys);
+            if (values == null) {
+                return result;
+            }
+            for (int i = 0; i < ordered.size(); i++) {
+                String value = values.get(i);
+                if (value != null) {
+                    result.put(ordered.get(i), decode(value));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Warning suppression state unavailable, emitting {} keys unsuppressed: {}",
+                    keys.size(), e.getMessage());
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<Long, SuppressionState> states) {
+        if (states.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                states.forEach((key, state) -> connection.stringCommands().set(
+                        redisKey(key).getBytes(StandardCharsets.UTF_8),
+                        encode(state).getBytes(StandardCharsets.UTF_8),
+                        Expiration.from(renotifyIntervalMs, TimeUnit.MILLISECONDS),
+                        RedisStringCommands.SetOption.UPSERT));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to store {} warning suppression states: {}", states.size(), e.getMessage());
+        }
+    }
+
+    private static String redisKey(long key) {
+        return KEY_PREFIX + SuppressionState.carId(key) + ":" + SuppressionState.ruleNo(key);
+    }
+
+    private static String encode(SuppressionState state) {
+        return state.getLevel() + ":" + state.getWarningId() + ":" + state.getNotifiedAt();
+    }
+
+    private static SuppressionState decode(String value) {
+        String[] parts = value.split(":");
+        return new SuppressionState(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+    }
+}
@@ -0,0 +1,30 @@
+package com.mi.bms.warning.infrastructure.suppression;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 某车辆某规则当前打开的预警：级别、预警 ID 与最近一次写入新预警的时间（epoch 毫秒）
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public final class SuppressionState {
+
+    private final int level;
+    private final long warningId;
+    private final long notifiedAt;
+
+    public static long key(int carId, int ruleNo) {
+        return ((long) carId << 32) | (ruleNo & 0xFFFFFFFFL);
+    }
+
+    public static int carId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int ruleNo(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,21 @@
+package com.mi.bms.warning.infrastructure.suppression;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 预警抑制状态存储，键为 {@link SuppressionState#key(int, int)}。
+ * 状态超过重复通知间隔即无意义，实现可以据此淘汰。
+ */
+public interface WarningSuppressionStore {
+
+    /**
+     * 批量读取，不存在的键不出现在结果中
+     */
+    Map<Long, SuppressionState> getAll(Collection<Long> keys);
+
+    /**
+     * 批量写入（覆盖）
+     */
+    void putAll(Map<Long, SuppressionState> states);
+}
@@ -0,0 +1,163 @@
+package com.mi.bms.warning.infrastructure.suppression;
+
+import com.mi.bms.warning.domain.model.Warning;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 预警抑制：同一 (车辆, 规则) 持续告警时，只有级别变化或距上次写入超过重复通知间隔才写入新预警，
+ * 其余重复出现合并为已打开预警的 occurrences 与 last_seen_at。
+ * <p>
+ * 用法为 {@link #plan} → 写入 {@link Plan#getInserts()} 并累加 {@link Plan#getFolds()} → {@link #record}。
+ * 新状态在事务提交后才写入存储，回滚的预警不会成为后续重复的合并目标；同一事务内的后续批次可以看到这些状态。
+ * 并发处理同一车辆的两个批次可能各自写入一条新预警，不会丢失告警。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WarningSuppressor {
+
+    private final WarningSuppressionStore store;
+
+    @Value("${warning.suppression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${warning.suppression.renotify-interval-ms:600000}")
+    private long renotifyIntervalMs;
+
+    /**
+     * 把一批候选预警（按出现顺序）拆分为需要写入的新预警和需要合并到已有预警的重复次数
+     */
+    public Plan plan(List<Warning> candidates, LocalDateTime seenAt) {
+        if (!enabled || candidates.isEmpty()) {
+            return new Plan(candidates, Map.of(), Map.of(), seenAt);
+        }
+
+        Set<Long> keys = new HashSet<>();
+        for (Warning candidate : candidates) {
+            keys.add(key(candidate));
+        }
+        Map<Long, SuppressionState> states = new HashMap<>(store.getAll(keys));
+        // 本事务内先前批次打开、尚未提交的预警
+        Map<Long, SuppressionState> uncommitted = uncommittedStates(false);
+        if (uncommitted != null) {
+            for (Long key : keys) {
+                SuppressionState state = uncommitted.get(key);
+                if (state != null) {
+                    states.put(key, state);
+                }
+            }
+        }
+
+        long now = toMillis(seenAt);
+        List<Warning> inserts = new ArrayList<>();
+        Map<Long, Integer> folds = new HashMap<>();
+        Map<Long, Warning> opened = new HashMap<>();
+        for (Warning candidate : candidates) {
+            long key = key(candidate);
+            Warning pending = opened.get(key);
+            if (pending != null && pending.getWarnLevel().equals(candidate.getWarnLevel())) {
+                // 同一批内的重复直接计入待写入的预警
+                pending.addOccurrence(seenAt);
+                continue;
+            }
+            SuppressionState state = states.get(key);
+            if (pending == null && state != null && state.getLevel() == candidate.getWarnLevel()
+                    && now - state.getNotifiedAt() < renotifyIntervalMs) {
+                folds.merge(state.getWarningId(), 1, Integer::sum);
+                continue;
+            }
+            inserts.add(candidate);
+            opened.put(key, candidate);
+        }
+
+        if (inserts.size() < candidates.size()) {
+            log.debug("Suppressed {} of {} warnings", candidates.size() - inserts.size(), candidates.size());
+        }
+        return new Plan(inserts, folds, opened, seenAt);
+    }
+
+    /**
+     * 新预警写入（已回填 ID）后登记为各自 (车辆, 规则) 的打开预警；处于事务中时在提交后登记
+     */
+    public void record(Plan plan) {
+        if (!enabled || plan.opened.isEmpty()) {
+            return;
+        }
+        long now = toMillis(plan.seenAt);
+        Map<Long, SuppressionState> states = new HashMap<>();
+        plan.opened.forEach((key, warning) ->
+                states.put(key, new SuppressionState(warning.getWarnLevel(), warning.getId(), now)));
+
+        Map<Long, SuppressionState> uncommitted = uncommittedStates(true);
+        if (uncommitted != null) {
+            uncommitted.putAll(states);
+        } else {
+            store.putAll(states);
+        }
+    }
+
+    /**
+     * 当前事务中已打开、待提交后写入存储的状态；不在事务中时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, SuppressionState> uncommittedStates(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<Long, SuppressionState> pending =
+                (Map<Long, SuppressionState>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null || !create) {
+            return pending;
+        }
+        Map<Long, SuppressionState> created = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(WarningSuppressor.this);
+                if (status == STATUS_COMMITTED) {
+                    store.putAll(created);
+                }
+            }
+        });
+        return created;
+    }
+
+    private static long key(Warning warning) {
+        return SuppressionState.key(warning.getCarId(), warning.getRuleNo());
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Getter
+    public static final class Plan {
+        private final List<Warning> inserts;
+        private final Map<Long, Integer> folds; // 预警 ID -> 本批合并的重复次数
+        private final Map<Long, Warning> opened;
+        private final LocalDateTime seenAt;
+
+        Plan(List<Warning> inserts, Map<Long, Integer> folds, Map<Long, Warning> opened, LocalDateTime seenAt) {
+            this.inserts = inserts;
+            this.folds = folds;
+            this.opened = opened;
+            this.seenAt = seenAt;
+        }
+    }
+}
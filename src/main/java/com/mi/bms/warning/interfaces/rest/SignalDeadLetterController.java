@@ -0,0 +1,44 @@
+package com.mi.bms.warning.interfaces.rest;
+
+import com.mi.bms.shared.web.ApiResponse;
+import com.mi.bms.warning.infrastructure.deadletter.SignalDeadLetterQueue;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Tag(name = "信号死信管理")
+@RestController
+@RequestMapping("/api/admin/dead-letters")
+@RequiredArgsConstructor
+public class SignalDeadLetterController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final SignalDeadLetterQueue deadLetterQueue;
+
+    @Operation(summary = "查询死信", description = "按 id 分页，默认只返回尚未重放的死信；payload 为 Base64 编码的原始消息体")
+    @GetMapping
+    public ApiResponse<List<SignalDeadLetterQueue.DeadLetter>> getDeadLetters(
+            @Parameter(description = "从此 id 之后开始") @RequestParam(defaultValue = "0") long afterId,
+            @Parameter(description = "返回条数") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(description = "是否包含已重放的死信") @RequestParam(defaultValue = "false") boolean includeReplayed) {
+        return ApiResponse.success(deadLetterQueue.list(afterId, Math.min(Math.max(limit, 1), MAX_LIMIT), includeReplayed));
+    }
+
+    @Operation(summary = "重放死信", description = "对死信中的信号重新生成预警；未指定 id 时重放最早的 limit 条未重放死信")
+    @PostMapping("/replay")
+    public ApiResponse<SignalDeadLetterQueue.ReplayResult> replay(
+            @RequestBody(required = false) List<Long> ids,
+            @Parameter(description = "未指定 id 时重放的条数") @RequestParam(defaultValue = "100") int limit) {
+        return ApiResponse.success(deadLetterQueue.replay(ids, Math.min(Math.max(limit, 1), MAX_LIMIT)));
+    }
+}
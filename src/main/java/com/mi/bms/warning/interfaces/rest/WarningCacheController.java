@@ -0,0 +1,25 @@
+package com.mi.bms.warning.interfaces.rest;
+
+import com.mi.bms.shared.web.ApiResponse;
+import com.mi.bms.warning.infrastructure.cache.WarningCache;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "预警缓存管理")
+@RestController
+@RequestMapping("/api/admin/warning-cache")
+@RequiredArgsConstructor
+public class WarningCacheController {
+
+    private final WarningCache warningCache;
+
+    @Operation(summary = "预警缓存统计", description = "本节点近端缓存（L1）与 Redis（L2）各自的命中次数和命中率，以及 L1 当前条目数与权重")
+    @GetMapping
+    public ApiResponse<WarningCache.Stats> getStats() {
+        return ApiResponse.success(warningCache.stats());
+    }
+}
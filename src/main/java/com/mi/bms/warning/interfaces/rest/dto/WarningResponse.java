@@ -17,5 +17,7 @@ public class WarningResponse {
     private String ruleName;
     private Integer warnLevel;
     private String signalData;
+    private Integer occurrences;
+    private LocalDateTime lastSeenAt;
     private LocalDateTime createdAt;
 }
\ No newline at end of file
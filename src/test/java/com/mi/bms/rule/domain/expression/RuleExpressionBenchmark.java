@@ -0,0 +1,71 @@
+package com.mi.bms.rule.domain.expression;
+
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规则表达式求值基准：原 BigDecimal 差值路径 vs 语法树解释执行 vs 编译后的 lambda。
+ * <p>
+ * 运行：先执行 mvn test-compile，然后直接运行 main 方法（附带 GC 分配统计，关注 gc.alloc.rate.norm）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleExpressionBenchmark {
+
+    @Param({ "MX_MI", "max(abs(Mx - Mi), Ix - Ii) * 2 > 1 AND Ii > 0" })
+    private String source;
+
+    private SignalValues values;
+    private RuleExpression expression;
+
+    @Setup
+    public void setUp() {
+        values = SignalDataCodec.parse("{\"Mx\":12.0,\"Mi\":0.6,\"Ix\":12.0,\"Ii\":11.7}");
+        expression = RuleExpression.compile(source);
+    }
+
+    @Benchmark
+    public BigDecimal legacyVoltageDiff() {
+        return values.getVoltageDiff();
+    }
+
+    @Benchmark
+    public double interpreted() {
+        return expression.interpret(values);
+    }
+
+    @Benchmark
+    public double compiled() {
+        return expression.evaluate(values);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(RuleExpressionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
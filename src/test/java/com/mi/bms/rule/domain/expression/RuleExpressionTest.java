@@ -0,0 +1,78 @@
+package com.mi.bms.rule.domain.expression;
+
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleExpressionTest {
+
+    private static final SignalValues VALUES = SignalDataCodec.parse("{\"Mx\":3.8,\"Mi\":3.2,\"Ix\":12,\"Ii\":11.7}");
+
+    @Test
+    void compile_LegacyAliases_ShouldUseExactDifference() {
+        // When
+        RuleExpression voltage = RuleExpression.compile("MX_MI");
+        RuleExpression current = RuleExpression.compile("IX_II");
+
+        // Then - 3.8 - 3.2 在二进制浮点下为 0.5999999999999996
+        assertEquals(0.6, voltage.evaluate(VALUES));
+        assertEquals(0.3, current.evaluate(VALUES));
+        assertEquals(1 << SignalValues.MX | 1 << SignalValues.MI, voltage.getInputMask());
+        assertEquals(1 << SignalValues.IX | 1 << SignalValues.II, current.getInputMask());
+    }
+
+    @Test
+    void compile_ArithmeticAndFunctions() {
+        assertEquals(0.6, RuleExpression.compile("Mx - Mi").evaluate(VALUES));
+        assertEquals(7.0, RuleExpression.compile("1 + 2 * 3").evaluate(VALUES));
+        assertEquals(9.0, RuleExpression.compile("(1 + 2) * 3").evaluate(VALUES));
+        assertEquals(-4.0, RuleExpression.compile("-(2 + 2)").evaluate(VALUES));
+        assertEquals(0.6, RuleExpression.compile("abs(Mi - Mx)").evaluate(VALUES));
+        assertEquals(12.0, RuleExpression.compile("max(Mx, Ix, Ii)").evaluate(VALUES));
+        assertEquals(3.2, RuleExpression.compile("MIN(mx, mi)").evaluate(VALUES));
+        assertEquals(2.0, RuleExpression.compile("Ix / 6").evaluate(VALUES));
+    }
+
+    @Test
+    void compile_ComparisonsAndLogic_ShouldYieldOneOrZero() {
+        assertEquals(1.0, RuleExpression.compile("Mx > 3.5 AND Ix >= 12").evaluate(VALUES));
+        assertEquals(0.0, RuleExpression.compile("Mx > 3.5 && Ix < 12").evaluate(VALUES));
+        assertEquals(1.0, RuleExpression.compile("Mx > 5 or Ii != 0").evaluate(VALUES));
+        assertEquals(0.0, RuleExpression.compile("Mx <= 3 || Mi == 0").evaluate(VALUES));
+    }
+
+    @Test
+    void appliesTo_ShouldRequireAllReferencedChannels() {
+        // Given
+        SignalValues voltageOnly = SignalDataCodec.parse("{\"Mx\":3.8,\"Mi\":3.2}");
+
+        // Then
+        assertTrue(RuleExpression.compile("MX_MI").appliesTo(voltageOnly));
+        assertFalse(RuleExpression.compile("IX_II").appliesTo(voltageOnly));
+        assertFalse(RuleExpression.compile("Mx - Ii").appliesTo(voltageOnly));
+        assertTrue(RuleExpression.compile("1 + 1").appliesTo(voltageOnly));
+        assertTrue(Double.isNaN(RuleExpression.compile("IX_II").evaluate(voltageOnly)));
+    }
+
+    @Test
+    void evaluate_ShouldMatchInterpreter() {
+        String[] sources = { "MX_MI", "abs(Ix - Ii) * 2 + 1", "max(Mx - Mi, Ix - Ii) > 0.5", "-Mx / (Mi - 3)" };
+        for (String source : sources) {
+            RuleExpression expression = RuleExpression.compile(source);
+            assertEquals(expression.interpret(VALUES), expression.evaluate(VALUES), source);
+        }
+    }
+
+    @Test
+    void compile_InvalidExpression_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile(""));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("MX_XX"));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("Mx +"));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("(Mx - Mi"));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("max(Mx)"));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("sqrt(Mx)"));
+        assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile("Mx Mi"));
+    }
+}
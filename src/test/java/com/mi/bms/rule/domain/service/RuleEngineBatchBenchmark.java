@@ -0,0 +1,130 @@
+package com.mi.bms.rule.domain.service;
+
+import com.mi.bms.rule.domain.model.WarnRule;
+import com.mi.bms.rule.domain.model.WarnRule.RuleCondition;
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规则评估吞吐基准（单线程，结果即每核每秒评估的信号数）：
+ * 逐条 BigDecimal + Optional 路径、逐条编译表达式路径、列式批量路径，每条信号评估电压差与电流差两条规则。
+ * <p>
+ * 运行：先执行 mvn test-compile，然后直接运行 main 方法。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(1)
+@Fork(1)
+public class RuleEngineBatchBenchmark {
+
+    private static final int BATCH = 4096;
+    private static final int BATTERY_TYPE_ID = 1;
+
+    private WarnRule voltage;
+    private WarnRule current;
+    private RuleIndex.CompiledRule voltageRule;
+    private RuleIndex.CompiledRule currentRule;
+    private List<SignalValues> values;
+    private SignalColumns columns;
+    private final int[] levels = new int[BATCH];
+
+    @Setup
+    public void setUp() {
+        voltage = WarnRule.create(1, "电压差报警", "MX_MI", BATTERY_TYPE_ID);
+        addCondition(voltage, "5", null, 0);
+        addCondition(voltage, "3", "5", 1);
+        addCondition(voltage, "1", "3", 2);
+        addCondition(voltage, "0.6", "1", 3);
+        addCondition(voltage, "0.2", "0.6", 4);
+        current = WarnRule.create(2, "电流差报警", "IX_II", BATTERY_TYPE_ID);
+        addCondition(current, "3", null, 0);
+        addCondition(current, "1", "3", 1);
+        addCondition(current, "0.2", "1", 2);
+        RuleIndex index = RuleIndex.compile(List.of(voltage, current));
+        voltageRule = index.find(BATTERY_TYPE_ID, 1);
+        currentRule = index.find(BATTERY_TYPE_ID, 2);
+
+        Random random = new Random(42);
+        values = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            values.add(SignalDataCodec.parse(String.format(Locale.ROOT, "{\"Mx\":%.3f,\"Mi\":%.3f,\"Ix\":%.3f,\"Ii\":%.3f}",
+                    3 + random.nextDouble() * 3, 2 + random.nextDouble(),
+                    10 + random.nextDouble() * 4, 9 + random.nextDouble() * 2)));
+        }
+        columns = SignalColumns.of(BATTERY_TYPE_ID, values);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void legacyPerSignal(Blackhole blackhole) {
+        for (SignalValues signalValues : values) {
+            blackhole.consume(legacyMatch(voltage, signalValues.getVoltageDiff()));
+            blackhole.consume(legacyMatch(current, signalValues.getCurrentDiff()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void compiledPerSignal(Blackhole blackhole) {
+        for (SignalValues signalValues : values) {
+            blackhole.consume(voltageRule.evaluate(signalValues));
+            blackhole.consume(currentRule.evaluate(signalValues));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] columnar() {
+        voltageRule.evaluate(columns, levels);
+        currentRule.evaluate(columns, levels);
+        return levels;
+    }
+
+    private static Optional<RuleCondition> legacyMatch(WarnRule rule, BigDecimal value) {
+        // 原 RuleEngine 的逐区间 BigDecimal 比较（不含查库）
+        for (RuleCondition condition : rule.getConditions()) {
+            if (condition.isInRange(value)) {
+                return Optional.of(condition);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static void addCondition(WarnRule rule, String min, String max, int level) {
+        rule.addCondition(RuleCondition.create(new BigDecimal(min), max == null ? null : new BigDecimal(max), level));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(RuleEngineBatchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -3,6 +3,7 @@ package com.mi.bms.rule.domain.service;
 import com.mi.bms.rule.domain.model.WarnRule;
 import com.mi.bms.rule.domain.model.WarnRule.RuleCondition;
 import com.mi.bms.rule.domain.repository.WarnRuleRepository;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -52,9 +53,7 @@ class RuleEngineTest {
         addRuleCondition(currentDiffRule, new BigDecimal("0.2"), new BigDecimal("1"), 2); // 0.2 <= 差值 < 1，预警级别 2
 
         // Mock repository behavior for all test cases
-        when(ruleRepository.findByRuleNoAndBatteryTypeId(1, 1)).thenReturn(List.of(voltageDiffRule));
-        when(ruleRepository.findByRuleNoAndBatteryTypeId(2, 1)).thenReturn(List.of(currentDiffRule));
-        when(ruleRepository.findByRuleNoAndBatteryTypeId(3, 1)).thenReturn(List.of());
+        when(ruleRepository.findAllWithItems()).thenReturn(List.of(voltageDiffRule, currentDiffRule));
     }
 
     private void addRuleCondition(WarnRule rule, BigDecimal minVal, BigDecimal maxVal, Integer warnLevel) {
@@ -137,4 +136,145 @@ class RuleEngineTest {
         // Then
         assertFalse(result.isPresent());
     }
-}
\ No newline at end of file
+
+    @Test
+    void evaluateSignal_BoundaryBelongsToUpperInterval() {
+        // When - 区间为左闭右开
+        Optional<RuleCondition> atThree = ruleEngine.evaluateSignal(1, 1, new BigDecimal("3"));
+        Optional<RuleCondition> atLowest = ruleEngine.evaluateSignal(1, 1, new BigDecimal("0.2"));
+
+        // Then
+        assertEquals(1, atThree.get().getWarnLevel());
+        assertEquals(4, atLowest.get().getWarnLevel());
+    }
+
+    @Test
+    void evaluateSignal_ShouldNotQueryRepositoryPerSignal() {
+        // When
+        for (int i = 0; i < 10; i++) {
+            ruleEngine.evaluateSignal(1, 1, new BigDecimal("2"));
+            ruleEngine.evaluateSignal(2, 1, new BigDecimal("2"));
+        }
+        List<WarnRule> rules = ruleEngine.getRulesForBatteryType(1);
+
+        // Then
+        assertEquals(2, rules.size());
+        verify(ruleRepository, times(1)).findAllWithItems();
+        verify(ruleRepository, never()).findByRuleNoAndBatteryTypeId(any(), any());
+        verify(ruleRepository, never()).findByBatteryTypeId(any());
+    }
+
+    @Test
+    void reload_ShouldSwapInNewSnapshot() {
+        // Given
+        assertTrue(ruleEngine.evaluateSignal(1, 1, new BigDecimal("4")).isPresent());
+        WarnRule updated = WarnRule.create(1, "电压差报警", "MX_MI", 1);
+        addRuleCondition(updated, new BigDecimal("10"), null, 0);
+        when(ruleRepository.findAllWithItems()).thenReturn(List.of(updated));
+
+        // When
+        ruleEngine.reload();
+
+        // Then
+        assertFalse(ruleEngine.evaluateSignal(1, 1, new BigDecimal("4")).isPresent());
+        assertEquals(0, ruleEngine.evaluateSignal(1, 1, new BigDecimal("12")).get().getWarnLevel());
+        assertFalse(ruleEngine.evaluateSignal(2, 1, new BigDecimal("4")).isPresent());
+    }
+
+    @Test
+    void evaluateSignal_OverlappingUnboundedConditions_FirstMatchWins() {
+        // Given - 无界区间不参与重叠校验，可能与其他区间重叠
+        WarnRule rule = WarnRule.create(5, "重叠规则", "MX_MI", 2);
+        addRuleCondition(rule, new BigDecimal("1"), null, 1);
+        addRuleCondition(rule, new BigDecimal("2"), new BigDecimal("3"), 2);
+        when(ruleRepository.findAllWithItems()).thenReturn(List.of(rule));
+        ruleEngine.reload();
+
+        // When
+        Optional<RuleCondition> result = ruleEngine.evaluateSignal(5, 2, new BigDecimal("2.5"));
+
+        // Then
+        assertEquals(1, result.get().getWarnLevel());
+    }
+
+    @Test
+    void evaluate_ShouldApplyEachRuleToItsOwnExpression() {
+        // Given - 电压差 0.6 (级别 3)，电流差 2.0 (级别 1)
+        var values = SignalDataCodec.parse("{\"Mx\":3.8,\"Mi\":3.2,\"Ix\":12,\"Ii\":10}");
+
+        // When
+        List<RuleMatch> matches = ruleEngine.evaluate(1, values);
+
+        // Then
+        assertEquals(2, matches.size());
+        assertEquals(3, matches.stream().filter(m -> m.getRuleNo() == 1).findFirst().get().getWarnLevel());
+        assertEquals(1, matches.stream().filter(m -> m.getRuleNo() == 2).findFirst().get().getWarnLevel());
+        assertEquals("电流差报警", matches.stream().filter(m -> m.getRuleNo() == 2).findFirst().get().getRuleName());
+    }
+
+    @Test
+    void evaluate_ShouldSkipRulesWithMissingInputs() {
+        // Given - 只有电压数据
+        var values = SignalDataCodec.parse("{\"Mx\":12,\"Mi\":0.6}");
+
+        // When
+        List<RuleMatch> matches = ruleEngine.evaluate(1, values);
+
+        // Then
+        assertEquals(1, matches.size());
+        assertEquals(1, matches.get(0).getRuleNo());
+        assertEquals(0, matches.get(0).getWarnLevel());
+    }
+
+    @Test
+    void evaluate_InvalidStoredExpression_ShouldSkipRule() {
+        // Given
+        WarnRule broken = WarnRule.create(7, "无效规则", "MX_??", 1);
+        addRuleCondition(broken, null, null, 0);
+        when(ruleRepository.findAllWithItems()).thenReturn(List.of(broken, voltageDiffRule));
+        ruleEngine.reload();
+
+        // When
+        List<RuleMatch> matches = ruleEngine.evaluate(1, SignalDataCodec.parse("{\"Mx\":4,\"Mi\":3}"));
+
+        // Then
+        assertEquals(1, matches.size());
+        assertEquals(1, matches.get(0).getRuleNo());
+        assertEquals(2, matches.get(0).getWarnLevel());
+    }
+
+    @Test
+    void evaluateBatch_ShouldFillLevelsPerSignal() {
+        // Given - 电压差依次为 6, 0.6, 0.1, 缺失; 电流差依次为 0.3, 2, 缺失, 5
+        double nan = Double.NaN;
+        SignalColumns columns = new SignalColumns(1, 4,
+                new double[] { 10, 3.8, 3.6, nan },
+                new double[] { 4, 3.2, 3.5, 3.5 },
+                new double[] { 12, 12, nan, 15 },
+                new double[] { 11.7, 10, 11, 10 });
+        int[] voltageLevels = new int[4];
+        int[] currentLevels = new int[4];
+
+        // When
+        ruleEngine.evaluateBatch(columns, 1, voltageLevels);
+        ruleEngine.evaluateBatch(columns, 2, currentLevels);
+
+        // Then - 与逐条评估结果一致
+        assertArrayEquals(new int[] { 0, 3, -1, -1 }, voltageLevels);
+        assertArrayEquals(new int[] { 2, 1, -1, 0 }, currentLevels);
+    }
+
+    @Test
+    void evaluateBatch_UnknownRule_ShouldFillMinusOne() {
+        // Given
+        SignalColumns columns = new SignalColumns(1, 2,
+                new double[] { 10, 4 }, new double[] { 4, 3 }, new double[2], new double[2]);
+        int[] levels = { 9, 9, 9 };
+
+        // When
+        ruleEngine.evaluateBatch(columns, 3, levels);
+
+        // Then - 只写入批次范围
+        assertArrayEquals(new int[] { -1, -1, 9 }, levels);
+    }
+}
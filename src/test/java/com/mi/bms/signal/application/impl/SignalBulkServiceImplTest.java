@@ -0,0 +1,144 @@
+package com.mi.bms.signal.application.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mi.bms.signal.application.SignalService;
+import com.mi.bms.signal.interfaces.rest.dto.BulkUploadResponse;
+import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
+import com.mi.bms.signal.interfaces.rest.dto.SignalResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SignalBulkServiceImplTest {
+
+    @Mock
+    private SignalService signalService;
+
+    private SignalBulkServiceImpl bulkService;
+
+    @BeforeEach
+    void setUp() {
+        bulkService = new SignalBulkServiceImpl(signalService, new ObjectMapper());
+        ReflectionTestUtils.setField(bulkService, "batchSize", 2);
+        ReflectionTestUtils.setField(bulkService, "maxLineLength", 64);
+        ReflectionTestUtils.setField(bulkService, "maxReportedFailures", 100);
+
+        // carId 99 is unknown to the service, everything else is accepted
+        when(signalService.reportSignals(any())).thenAnswer(invocation -> {
+            List<SignalRequest> requests = invocation.getArgument(0);
+            List<SignalResponse> responses = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                boolean known = requests.get(i).getCarId() != 99;
+                responses.add(SignalResponse.builder()
+                        .index(i)
+                        .success(known)
+                        .errorMsg(known ? null : "Vehicle not found with carId: 99")
+                        .build());
+            }
+            return responses;
+        });
+    }
+
+    @Test
+    void upload_ShouldPersistInChunksAndReportFailedLines() {
+        // Given
+        String ndjson = line(1) + "\n"
+                + "\n"
+                + "not json\n"
+                + "{\"signal\":\"{\\\"Mx\\\":3.8,\\\"Mi\\\":3.5}\"}\n"
+                + line(99) + "\r\n"
+                + line(2) + "\n"
+                + "{\"carId\":3,\"signal\":\"" + "x".repeat(64) + "\"}\n"
+                + line(3); // no trailing newline
+
+        // When
+        BulkUploadResponse response = bulkService.upload(new StringReader(ndjson));
+
+        // Then
+        assertEquals(7, response.getTotal());
+        assertEquals(3, response.getAccepted());
+        assertEquals(4, response.getRejected());
+        assertFalse(response.isFailuresTruncated());
+        assertNull(response.getError());
+
+        List<BulkUploadResponse.Failure> failures = response.getFailures();
+        assertEquals(List.of(3L, 4L, 5L, 7L),
+                failures.stream().map(BulkUploadResponse.Failure::getLine).collect(Collectors.toList()));
+        assertEquals("Invalid JSON", failures.get(0).getErrorMsg());
+        assertEquals("carId must not be null", failures.get(1).getErrorMsg());
+        assertEquals("Vehicle not found with carId: 99", failures.get(2).getErrorMsg());
+        assertEquals("Line exceeds 64 characters", failures.get(3).getErrorMsg());
+
+        // 4 parseable signals with chunk size 2 -> 2 chunk calls
+        verify(signalService, times(2)).reportSignals(any());
+    }
+
+    @Test
+    void upload_ShouldKeepProcessedChunksWhenStreamBreaks() {
+        // Given
+        String head = line(1) + "\n" + line(2) + "\n" + line(3) + "\n";
+        Reader broken = new Reader() {
+            private final StringReader delegate = new StringReader(head);
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                int n = delegate.read(cbuf, off, len);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of ZLIB input stream");
+                }
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        // When
+        BulkUploadResponse response = bulkService.upload(broken);
+
+        // Then
+        assertEquals(3, response.getTotal());
+        assertEquals(3, response.getAccepted());
+        assertNotNull(response.getError());
+        assertTrue(response.getError().contains("after line 3"));
+    }
+
+    @Test
+    void upload_ShouldCapReportedFailures() {
+        // Given
+        ReflectionTestUtils.setField(bulkService, "maxReportedFailures", 2);
+        String ndjson = "a\nb\nc\n";
+
+        // When
+        BulkUploadResponse response = bulkService.upload(new StringReader(ndjson));
+
+        // Then
+        assertEquals(3, response.getRejected());
+        assertEquals(2, response.getFailures().size());
+        assertTrue(response.isFailuresTruncated());
+        verify(signalService, never()).reportSignals(any());
+    }
+
+    private String line(int carId) {
+        return "{\"carId\":" + carId + ",\"signal\":\"{\\\"Mx\\\":3.8,\\\"Mi\\\":3.5}\"}";
+    }
+}
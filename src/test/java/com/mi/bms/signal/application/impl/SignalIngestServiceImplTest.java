@@ -0,0 +1,163 @@
+package com.mi.bms.signal.application.impl;
+
+import com.mi.bms.shared.exceptions.BackpressureException;
+import com.mi.bms.shared.exceptions.ResourceNotFoundException;
+import com.mi.bms.signal.application.SignalService;
+import com.mi.bms.signal.interfaces.rest.dto.IngestTicketResponse;
+import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
+import com.mi.bms.signal.interfaces.rest.dto.SignalResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SignalIngestServiceImplTest {
+
+    @Mock
+    private SignalService signalService;
+
+    private SignalIngestServiceImpl ingestService;
+
+    @BeforeEach
+    void setUp() {
+        ingestService = new SignalIngestServiceImpl(signalService);
+        ReflectionTestUtils.setField(ingestService, "capacity", 2);
+        ReflectionTestUtils.setField(ingestService, "workers", 1);
+        ReflectionTestUtils.setField(ingestService, "drainBatchSize", 500);
+        ReflectionTestUtils.setField(ingestService, "retryAfterSeconds", 3L);
+        ReflectionTestUtils.setField(ingestService, "shutdownTimeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestService.shutdown();
+    }
+
+    @Test
+    void submit_ShouldProcessAsynchronouslyAndCompleteTicket() {
+        // Given
+        when(signalService.reportSignals(any())).thenAnswer(invocation -> {
+            List<SignalRequest> requests = invocation.getArgument(0);
+            List<SignalResponse> responses = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                boolean known = requests.get(i).getCarId() == 1;
+                responses.add(SignalResponse.builder()
+                        .index(i)
+                        .success(known)
+                        .errorMsg(known ? null : "Vehicle not found with carId: 99")
+                        .build());
+            }
+            return responses;
+        });
+        ingestService.start();
+
+        // When
+        IngestTicketResponse accepted = ingestService.submit(List.of(request(1), request(99)));
+        ingestService.shutdown(); // drains the buffer before returning
+
+        // Then
+        assertNotNull(accepted.getTicketId());
+        assertEquals(2, accepted.getTotal());
+
+        IngestTicketResponse ticket = ingestService.getTicket(accepted.getTicketId());
+        assertEquals("COMPLETED", ticket.getStatus());
+        assertEquals(1, ticket.getSucceeded());
+        assertEquals(1, ticket.getFailed());
+        assertEquals("Vehicle not found with carId: 99", ticket.getErrors().get(1));
+        assertNotNull(ticket.getCompletedAt());
+    }
+
+    @Test
+    void submit_ShouldRejectWithRetryAfterWhenBufferFull() throws Exception {
+        // Given
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(signalService.reportSignals(any())).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(SignalResponse.builder().success(true).build(),
+                    SignalResponse.builder().success(true).build());
+        });
+        ingestService.start();
+
+        // The single writer takes the first batch and blocks, then the buffer fills up
+        ingestService.submit(List.of(request(1), request(1)));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        ingestService.submit(List.of(request(1), request(1)));
+
+        // When & Then
+        BackpressureException e = assertThrows(BackpressureException.class,
+                () -> ingestService.submit(List.of(request(1))));
+        assertEquals(3L, e.getRetryAfterSeconds());
+
+        release.countDown();
+    }
+
+    @Test
+    void submit_ShouldRejectAfterShutdown() {
+        // Given
+        ingestService.start();
+        ingestService.shutdown();
+
+        // When & Then
+        assertThrows(BackpressureException.class, () -> ingestService.submit(List.of(request(1))));
+        verify(signalService, never()).reportSignals(any());
+    }
+
+    @Test
+    void shutdown_ShouldFailTicketsLeftInBufferWhenDrainTimesOut() throws Exception {
+        // Given: the single writer is stuck on the first batch while a second one waits in the buffer
+        ReflectionTestUtils.setField(ingestService, "shutdownTimeoutMs", 100L);
+        CountDownLatch entered = new CountDownLatch(1);
+        when(signalService.reportSignals(any())).thenAnswer(invocation -> {
+            entered.countDown();
+            new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        ingestService.start();
+        ingestService.submit(List.of(request(1)));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        IngestTicketResponse queued = ingestService.submit(List.of(request(1), request(1)));
+
+        // When
+        ingestService.shutdown();
+
+        // Then: the ticket does not stay QUEUED forever
+        IngestTicketResponse ticket = ingestService.getTicket(queued.getTicketId());
+        assertEquals("COMPLETED", ticket.getStatus());
+        assertEquals(2, ticket.getFailed());
+        assertEquals("Signal ingest stopped before processing", ticket.getErrors().get(0));
+    }
+
+    @Test
+    void getTicket_ShouldThrowWhenUnknown() {
+        // Given
+        ingestService.start();
+
+        // When & Then
+        assertThrows(ResourceNotFoundException.class, () -> ingestService.getTicket("missing"));
+    }
+
+    private SignalRequest request(int carId) {
+        SignalRequest request = new SignalRequest();
+        request.setCarId(carId);
+        request.setSignal("{\"Mx\":3.8,\"Mi\":3.5}");
+        return request;
+    }
+}
@@ -1,15 +1,19 @@
 package com.mi.bms.signal.application.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mi.bms.rule.domain.service.RuleEngine;
+import com.mi.bms.rule.domain.service.RuleMatch;
 import com.mi.bms.signal.domain.model.Signal;
 import com.mi.bms.signal.domain.repository.SignalRepository;
-import com.mi.bms.signal.infrastructure.mq.SignalProducer;
+import com.mi.bms.signal.infrastructure.cache.SignalHistoryCache;
+import com.mi.bms.signal.infrastructure.dedup.SignalDeduplicator;
+import com.mi.bms.signal.infrastructure.journal.SignalJournal;
+import com.mi.bms.signal.infrastructure.outbox.SignalOutbox;
+import com.mi.bms.signal.infrastructure.persistence.SignalBatchWriter;
 import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
 import com.mi.bms.signal.interfaces.rest.dto.SignalResponse;
 import com.mi.bms.vehicle.domain.model.BatteryType;
-import com.mi.bms.vehicle.domain.model.Vehicle;
-import com.mi.bms.vehicle.domain.repository.BatteryTypeRepository;
-import com.mi.bms.vehicle.domain.service.VehicleDomainService;
+import com.mi.bms.vehicle.infrastructure.cache.VehicleRegistry;
 import com.mi.bms.warning.application.WarningService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,6 +24,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
@@ -29,10 +34,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,20 +47,26 @@ class SignalServiceImplTest {
     @Mock
     private SignalRepository signalRepository;
     @Mock
-    private VehicleDomainService vehicleDomainService;
+    private SignalOutbox signalOutbox;
     @Mock
-    private BatteryTypeRepository batteryTypeRepository;
+    private PlatformTransactionManager transactionManager;
     @Mock
-    private SignalProducer signalProducer;
+    private SignalBatchWriter signalBatchWriter;
     @Mock
-    private ObjectMapper objectMapper;
+    private VehicleRegistry vehicleRegistry;
     @Mock
-    private PlatformTransactionManager transactionManager;
+    private SignalDeduplicator signalDeduplicator;
+    @Mock
+    private SignalJournal signalJournal;
+    @Mock
+    private RuleEngine ruleEngine;
+    @Mock
+    private SignalHistoryCache signalHistoryCache;
     @Mock
     private WarningService warningService;
 
     @Captor
-    private ArgumentCaptor<Signal> signalCaptor;
+    private ArgumentCaptor<List<Signal>> signalsCaptor;
 
     private SignalServiceImpl signalService;
     private ObjectMapper realObjectMapper = new ObjectMapper();
@@ -64,12 +75,21 @@ class SignalServiceImplTest {
     void setUp() {
         signalService = new SignalServiceImpl(
                 signalRepository,
-                vehicleDomainService,
-                batteryTypeRepository,
-                signalProducer,
-                objectMapper,
+                signalOutbox,
                 transactionManager,
+                signalBatchWriter,
+                vehicleRegistry,
+                signalDeduplicator,
+                signalJournal,
+                ruleEngine,
+                signalHistoryCache,
                 warningService);
+        ReflectionTestUtils.setField(signalService, "batchSize", 500);
+        when(signalDeduplicator.acquire(any())).thenAnswer(invocation -> {
+            boolean[] fresh = new boolean[invocation.<List<?>>getArgument(0).size()];
+            Arrays.fill(fresh, true);
+            return fresh;
+        });
     }
 
     @Test
@@ -79,8 +99,7 @@ class SignalServiceImplTest {
         Integer batteryTypeId = 2;
         String signalData = "{\"Mx\":3.8,\"Mi\":3.5,\"Ix\":100,\"Ii\":80}";
 
-        Vehicle vehicle = mock(Vehicle.class);
-        when(vehicle.getBatteryTypeId()).thenReturn(batteryTypeId);
+        VehicleRegistry.Entry vehicle = new VehicleRegistry.Entry("test123456789012", carId, batteryTypeId);
 
         BatteryType batteryType = mock(BatteryType.class);
         when(batteryType.getId()).thenReturn(batteryTypeId);
@@ -91,20 +110,15 @@ class SignalServiceImplTest {
         request.setCarId(carId);
         request.setSignal(signalData);
 
-        Map<String, BigDecimal> signalValues = new HashMap<>();
-        signalValues.put("Mx", new BigDecimal("3.8"));
-        signalValues.put("Mi", new BigDecimal("3.5"));
-        signalValues.put("Ix", new BigDecimal("100"));
-        signalValues.put("Ii", new BigDecimal("80"));
-
-        when(vehicleDomainService.getVehicleByCarId(carId)).thenReturn(vehicle);
-        when(batteryTypeRepository.findById(batteryTypeId)).thenReturn(Optional.of(batteryType));
-        when(objectMapper.readValue(eq(signalData), any(Class.class))).thenReturn(signalValues);
-
-        Signal savedSignal = Signal.create(carId, batteryTypeId, signalValues);
-        // Initialize createdAt and updatedAt fields for testing
-        setTimestamps(savedSignal);
-        when(signalRepository.save(any(Signal.class))).thenReturn(savedSignal);
+        when(vehicleRegistry.findAll(any())).thenReturn(Map.of(carId, vehicle));
+        when(vehicleRegistry.getBatteryType(batteryTypeId)).thenReturn(batteryType);
+        doAnswer(invocation -> {
+            List<Signal> signals = invocation.getArgument(0);
+            for (int i = 0; i < signals.size(); i++) {
+                signals.get(i).markAsPersisted(100L + i, LocalDateTime.now());
+            }
+            return null;
+        }).when(signalBatchWriter).insertAll(any());
 
         // When
         List<SignalResponse> responses = signalService.reportSignals(List.of(request));
@@ -114,6 +128,9 @@ class SignalServiceImplTest {
         assertEquals(1, responses.size());
 
         SignalResponse response = responses.get(0);
+        assertTrue(response.isSuccess());
+        assertEquals(0, response.getIndex());
+        assertEquals(100L, response.getSignalId());
         assertEquals(carId, response.getCarId());
         assertEquals(batteryTypeId, response.getBatteryTypeId());
         assertEquals("BT001", response.getBatteryTypeCode());
@@ -128,12 +145,56 @@ class SignalServiceImplTest {
 
         assertFalse(response.isProcessed());
 
-        verify(signalRepository).save(signalCaptor.capture());
-        verify(signalProducer).sendSignal(savedSignal);
+        verify(signalBatchWriter).insertAll(signalsCaptor.capture());
+        verify(signalHistoryCache).append(signalsCaptor.getValue());
+        verify(signalRepository, never()).save(any());
+        verify(signalRepository, never()).findById(any());
 
-        Signal capturedSignal = signalCaptor.getValue();
+        Signal capturedSignal = signalsCaptor.getValue().get(0);
         assertEquals(carId, capturedSignal.getCarId());
+        assertEquals(new BigDecimal("0.3"), capturedSignal.getValues().getVoltageDiff());
         assertEquals(batteryTypeId, capturedSignal.getBatteryTypeId());
+        // The MQ event is written to the outbox inside the same transaction
+        verify(signalOutbox).appendAll(List.of(capturedSignal));
+    }
+
+    @Test
+    void reportSignals_ShouldInsertInChunksAndReportPerItemResults() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(signalService, "batchSize", 2);
+        Integer batteryTypeId = 2;
+
+        BatteryType batteryType = mock(BatteryType.class);
+        when(batteryType.getId()).thenReturn(batteryTypeId);
+
+        when(vehicleRegistry.findAll(any()))
+                .thenReturn(Map.of(1, new VehicleRegistry.Entry("test123456789012", 1, batteryTypeId)));
+        when(vehicleRegistry.getBatteryType(batteryTypeId)).thenReturn(batteryType);
+
+        SignalRequest known1 = new SignalRequest();
+        known1.setCarId(1);
+        known1.setSignal("{\"Mx\":3.8,\"Mi\":3.5}");
+        SignalRequest unknown = new SignalRequest();
+        unknown.setCarId(99);
+        unknown.setSignal("{\"Mx\":3.8,\"Mi\":3.5}");
+
+        // When
+        List<SignalResponse> responses = signalService.reportSignals(
+                List.of(known1, unknown, known1, known1));
+
+        // Then
+        assertEquals(4, responses.size());
+        assertTrue(responses.get(0).isSuccess());
+        assertFalse(responses.get(1).isSuccess());
+        assertEquals(1, responses.get(1).getIndex());
+        assertEquals(99, responses.get(1).getCarId());
+        assertEquals("Vehicle not found with carId: 99", responses.get(1).getErrorMsg());
+        assertTrue(responses.get(2).isSuccess());
+        assertTrue(responses.get(3).isSuccess());
+
+        // 3 valid signals with chunk size 2 -> 2 batch inserts, each with its outbox events
+        verify(signalBatchWriter, times(2)).insertAll(any());
+        verify(signalOutbox, times(2)).appendAll(any());
     }
 
     @Test
@@ -146,17 +207,138 @@ class SignalServiceImplTest {
         request.setCarId(carId);
         request.setSignal(invalidSignalData);
 
-        Vehicle vehicle = mock(Vehicle.class);
-        when(vehicle.getBatteryTypeId()).thenReturn(2);
+        BatteryType batteryType = mock(BatteryType.class);
+        when(batteryType.getId()).thenReturn(2);
 
-        when(vehicleDomainService.getVehicleByCarId(carId)).thenReturn(vehicle);
-        when(objectMapper.readValue(eq(invalidSignalData), any(Class.class)))
-                .thenThrow(new RuntimeException("Invalid JSON"));
+        when(vehicleRegistry.findAll(any()))
+                .thenReturn(Map.of(carId, new VehicleRegistry.Entry("test123456789012", carId, 2)));
+        when(vehicleRegistry.getBatteryType(2)).thenReturn(batteryType);
 
-        // When & Then
-        assertThrows(IllegalArgumentException.class, () -> signalService.reportSignals(List.of(request)));
-        verify(signalRepository, never()).save(any());
-        verify(signalProducer, never()).sendSignal(any());
+        // When
+        List<SignalResponse> responses = signalService.reportSignals(List.of(request));
+
+        // Then
+        assertEquals(1, responses.size());
+        assertFalse(responses.get(0).isSuccess());
+        assertEquals("Invalid signal data format", responses.get(0).getErrorMsg());
+        verify(signalBatchWriter, never()).insertAll(any());
+        verify(signalOutbox, never()).appendAll(any());
+    }
+
+    @Test
+    void reportSignals_ShouldAcknowledgeDuplicatesAndReleaseFailures() {
+        // Given
+        BatteryType batteryType = mock(BatteryType.class);
+        when(batteryType.getId()).thenReturn(2);
+        when(vehicleRegistry.findAll(any()))
+                .thenReturn(Map.of(1, new VehicleRegistry.Entry("test123456789012", 1, 2)));
+        when(vehicleRegistry.getBatteryType(2)).thenReturn(batteryType);
+        when(signalDeduplicator.acquire(any())).thenReturn(new boolean[] { true, false, true });
+
+        SignalRequest fresh = new SignalRequest();
+        fresh.setCarId(1);
+        fresh.setSeq(7L);
+        fresh.setSignal("{\"Mx\":3.8,\"Mi\":3.5}");
+        SignalRequest retried = new SignalRequest();
+        retried.setCarId(1);
+        retried.setSeq(6L);
+        retried.setSignal("{\"Mx\":3.8,\"Mi\":3.5}");
+        SignalRequest invalid = new SignalRequest();
+        invalid.setCarId(1);
+        invalid.setSeq(8L);
+        invalid.setSignal("invalid json");
+
+        // When
+        List<SignalResponse> responses = signalService.reportSignals(List.of(fresh, retried, invalid));
+
+        // Then
+        assertTrue(responses.get(0).isSuccess());
+        assertFalse(responses.get(0).isDuplicate());
+        assertTrue(responses.get(1).isSuccess());
+        assertTrue(responses.get(1).isDuplicate());
+        assertNull(responses.get(1).getSignalId());
+        assertFalse(responses.get(2).isSuccess());
+
+        verify(signalBatchWriter).insertAll(signalsCaptor.capture());
+        assertEquals(1, signalsCaptor.getValue().size());
+        verify(signalOutbox).appendAll(signalsCaptor.getValue());
+        verify(signalDeduplicator).release(List.of(invalid));
+    }
+
+    @Test
+    void reportSignals_ShouldAcknowledgeAfterJournalFlushWhenJournalEnabled() throws Exception {
+        // Given
+        BatteryType batteryType = mock(BatteryType.class);
+        when(batteryType.getId()).thenReturn(2);
+        when(vehicleRegistry.findAll(any()))
+                .thenReturn(Map.of(1, new VehicleRegistry.Entry("test123456789012", 1, 2)));
+        when(vehicleRegistry.getBatteryType(2)).thenReturn(batteryType);
+        when(signalJournal.isEnabled()).thenReturn(true);
+        when(signalJournal.appendAndAwait(any())).thenReturn(41L);
+
+        SignalRequest request = new SignalRequest();
+        request.setCarId(1);
+        request.setSignal("{\"Mx\":3.8,\"Mi\":3.5}");
+
+        // When
+        List<SignalResponse> responses = signalService.reportSignals(List.of(request, request));
+
+        // Then
+        assertTrue(responses.get(0).isSuccess());
+        assertEquals(41L, responses.get(0).getJournalSeq());
+        assertEquals(42L, responses.get(1).getJournalSeq());
+        assertNull(responses.get(0).getSignalId());
+
+        // Loading and dispatch are left to the journal loader
+        verify(signalBatchWriter, never()).insertAll(any());
+        verify(signalOutbox, never()).appendAll(any());
+        verify(warningService, never()).generateWarning(any());
+    }
+
+    @Test
+    void reportSignals_EvaluateMode_ShouldReturnLevelsInlineAndSkipDispatch() throws Exception {
+        // Given
+        BatteryType batteryType = mock(BatteryType.class);
+        when(batteryType.getId()).thenReturn(2);
+        when(vehicleRegistry.findAll(any()))
+                .thenReturn(Map.of(1, new VehicleRegistry.Entry("test123456789012", 1, 2)));
+        when(vehicleRegistry.getBatteryType(2)).thenReturn(batteryType);
+        when(signalJournal.isEnabled()).thenReturn(true);
+        when(ruleEngine.evaluate(eq(2), eq(2), any()))
+                .thenReturn(Optional.of(new RuleMatch(2, "电流差报警", 1)));
+        when(ruleEngine.evaluate(eq(2), any(Signal.SignalValues.class)))
+                .thenReturn(List.of(new RuleMatch(1, "电压差报警", 4), new RuleMatch(2, "电流差报警", 1)));
+
+        SignalRequest targeted = new SignalRequest();
+        targeted.setCarId(1);
+        targeted.setWarnId(2);
+        targeted.setSignal("{\"Ix\":12,\"Ii\":10}");
+        SignalRequest all = new SignalRequest();
+        all.setCarId(1);
+        all.setSignal("{\"Mx\":3.8,\"Mi\":3.5,\"Ix\":12,\"Ii\":10}");
+
+        // When
+        List<SignalResponse> responses = signalService.reportSignals(List.of(targeted, all), true);
+
+        // Then
+        assertEquals(1, responses.get(0).getWarnings().size());
+        assertEquals(2, responses.get(0).getWarnings().get(0).getWarnId());
+        assertEquals("电流差报警", responses.get(0).getWarnings().get(0).getWarnName());
+        assertEquals(1, responses.get(0).getWarnings().get(0).getWarnLevel());
+        assertEquals(2, responses.get(1).getWarnings().size());
+        assertTrue(responses.get(1).isProcessed());
+
+        // Only the targeted rule runs for a request carrying warnId
+        verify(ruleEngine).evaluate(eq(2), eq(2), any());
+        verify(ruleEngine, times(1)).evaluate(eq(2), any(Signal.SignalValues.class));
+
+        // Signals and warnings are written together, bypassing the journal and downstream dispatch
+        verify(signalBatchWriter).insertAll(signalsCaptor.capture());
+        assertTrue(signalsCaptor.getValue().stream().allMatch(Signal::isProcessed));
+        verify(warningService, times(1)).recordWarnings(argThat(matches -> matches.size() == 2));
+        verify(signalJournal, never()).appendAndAwait(any());
+        verify(signalOutbox, never()).appendAll(any());
+        verify(warningService, never()).generateWarning(any());
     }
 
     @Test
@@ -179,10 +361,12 @@ class SignalServiceImplTest {
         // Initialize createdAt and updatedAt fields for testing
         setTimestamps(signal);
 
+        // the cache misses every bucket and loads the whole range
+        when(signalHistoryCache.getByCarId(eq(carId), eq(from), eq(to), any())).thenAnswer(invocation ->
+                invocation.<BiFunction<LocalDateTime, LocalDateTime, List<Signal>>>getArgument(3).apply(from, to));
         when(signalRepository.findByCarIdAndTimeRange(carId, from, to))
                 .thenReturn(List.of(signal));
-        when(batteryTypeRepository.findAllById(List.of(2)))
-                .thenReturn(List.of(batteryType));
+        when(vehicleRegistry.getBatteryType(2)).thenReturn(batteryType);
 
         // When
         List<SignalResponse> responses = signalService.getSignalsByCarId(carId, from, to);
@@ -223,8 +407,7 @@ class SignalServiceImplTest {
 
         when(signalRepository.findByTimeRange(from, to))
                 .thenReturn(Arrays.asList(signal1, signal2));
-        when(batteryTypeRepository.findAllById(List.of(2)))
-                .thenReturn(List.of(batteryType));
+        when(vehicleRegistry.getBatteryType(2)).thenReturn(batteryType);
 
         // When
         List<SignalResponse> responses = signalService.getAllSignals(from, to);
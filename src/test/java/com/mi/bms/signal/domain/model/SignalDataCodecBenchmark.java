@@ -0,0 +1,73 @@
+package com.mi.bms.signal.domain.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 信号解析/序列化基准：原 ObjectMapper → Map → BigDecimal → 新建 ObjectMapper 序列化路径 vs SignalDataCodec。
+ * <p>
+ * 运行：先执行 mvn test-compile，然后直接运行 main 方法（附带 GC 分配统计，关注 gc.alloc.rate.norm）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignalDataCodecBenchmark {
+
+    private static final String PAYLOAD = "{\"Mx\":12.0,\"Mi\":0.6,\"Ix\":12.0,\"Ii\":11.7}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public String legacy() throws Exception {
+        Map<String, Object> rawValues = objectMapper.readValue(PAYLOAD, Map.class);
+        Map<String, BigDecimal> signalValues = new HashMap<>();
+        for (Map.Entry<String, Object> entry : rawValues.entrySet()) {
+            if (entry.getValue() instanceof Number) {
+                signalValues.put(entry.getKey(), new BigDecimal(entry.getValue().toString()));
+            }
+        }
+        // 原 SignalValues.toJson() 每次新建 ObjectMapper
+        return new ObjectMapper().writeValueAsString(signalValues);
+    }
+
+    @Benchmark
+    public String codec() {
+        SignalValues values = SignalDataCodec.parse(PAYLOAD);
+        return SignalDataCodec.toJson(values);
+    }
+
+    @Benchmark
+    public SignalValues codecParseOnly() {
+        return SignalDataCodec.parse(PAYLOAD);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(SignalDataCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
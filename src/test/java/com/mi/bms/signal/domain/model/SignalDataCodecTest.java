@@ -0,0 +1,96 @@
+package com.mi.bms.signal.domain.model;
+
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignalDataCodecTest {
+
+    @Test
+    void parse_ShouldFillAllChannels() {
+        // When
+        SignalValues values = SignalDataCodec.parse("{\"Mx\":3.8,\"Mi\":3.5,\"Ix\":100,\"Ii\":80}");
+
+        // Then
+        assertEquals(new BigDecimal("3.8"), values.getMaxVoltage());
+        assertEquals(new BigDecimal("3.5"), values.getMinVoltage());
+        assertEquals(new BigDecimal("100"), values.getMaxCurrent());
+        assertEquals(new BigDecimal("80"), values.getMinCurrent());
+        assertEquals(new BigDecimal("0.3"), values.getVoltageDiff());
+        assertEquals(0.3, values.difference(SignalValues.MX, SignalValues.MI));
+        assertEquals(20.0, values.difference(SignalValues.IX, SignalValues.II));
+    }
+
+    @Test
+    void parse_ShouldAcceptWhitespaceAndAnyKeyOrder() {
+        // When
+        SignalValues values = SignalDataCodec.parse(" { \"Ii\" : 0.5 ,\n\"Ix\":12.25 } ");
+
+        // Then
+        assertFalse(values.has(SignalValues.MX));
+        assertNull(values.getVoltageDiff());
+        assertEquals(new BigDecimal("12.25"), values.getMaxCurrent());
+        assertEquals(new BigDecimal("11.75"), values.getCurrentDiff());
+    }
+
+    @Test
+    void parse_ShouldRejectMalformedPayloads() {
+        String[] invalid = {
+                null,
+                "",
+                "{}",
+                "invalid json",
+                "{\"Mx\":3.8}",
+                "{\"Mx\":3.8,\"Mi\":3.5,\"Ix\":1}",
+                "{\"Mx\":3.8,\"Mx\":3.5}",
+                "{\"Mx\":3.8,\"Mi\":3.5,\"Xx\":1}",
+                "{\"Mx\":-3.8,\"Mi\":3.5}",
+                "{\"Mx\":3.,\"Mi\":3.5}",
+                "{\"Mx\":.8,\"Mi\":3.5}",
+                "{\"Mx\":1e3,\"Mi\":3.5}",
+                "{\"Mx\":\"3.8\",\"Mi\":3.5}",
+                "{\"Mx\":3.8,\"Mi\":3.5,}",
+                "{\"Mx\":3.8,\"Mi\":3.5}x",
+                "{\"Mx\":1234567890123456789,\"Mi\":3.5}"
+        };
+
+        for (String json : invalid) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> SignalDataCodec.parse(json), String.valueOf(json));
+            assertEquals(SignalDataCodec.INVALID_FORMAT, e.getMessage());
+        }
+    }
+
+    @Test
+    void toJson_ShouldRoundTripWithOriginalScale() {
+        // Given
+        String json = "{\"Mx\":12.050,\"Mi\":0.005,\"Ix\":100,\"Ii\":0}";
+
+        // When
+        String written = SignalDataCodec.toJson(SignalDataCodec.parse(json));
+
+        // Then
+        assertEquals(json, written);
+        assertEquals(written, SignalDataCodec.toJson(SignalDataCodec.parse(written)));
+    }
+
+    @Test
+    void toJson_ShouldMatchValuesCreatedFromMap() {
+        // Given
+        SignalValues fromMap = SignalValues.create(Map.of(
+                "Mx", new BigDecimal("3.8"),
+                "Mi", new BigDecimal("3.5")));
+
+        // When
+        SignalValues parsed = SignalDataCodec.parse(fromMap.toJson());
+
+        // Then
+        assertEquals("{\"Mx\":3.8,\"Mi\":3.5}", fromMap.toJson());
+        assertEquals(fromMap.getMaxVoltage(), parsed.getMaxVoltage());
+        assertEquals(fromMap.getMinVoltage(), parsed.getMinVoltage());
+    }
+}
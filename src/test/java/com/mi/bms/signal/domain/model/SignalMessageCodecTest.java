@@ -0,0 +1,78 @@
+package com.mi.bms.signal.domain.model;
+
+import com.mi.bms.signal.domain.model.Signal.SignalValues;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignalMessageCodecTest {
+
+    @Test
+    void decode_ShouldRoundTripIdsAndExactValues() {
+        // Given
+        Signal signal = signal(123456789012L, "{\"Mx\":12.0,\"Mi\":0.6,\"Ix\":12345678.123456789,\"Ii\":0}");
+
+        // When
+        byte[] payload = SignalMessageCodec.encode(signal);
+        Signal decoded = SignalMessageCodec.decode(payload);
+
+        // Then
+        assertTrue(payload.length < 40);
+        assertEquals(123456789012L, decoded.getId());
+        assertEquals(7, decoded.getCarId());
+        assertEquals(2, decoded.getBatteryTypeId());
+        SignalValues values = decoded.getValues();
+        assertEquals(new BigDecimal("12.0"), values.getMaxVoltage());
+        assertEquals(new BigDecimal("0.6"), values.getMinVoltage());
+        assertEquals(new BigDecimal("12345678.123456789"), values.getMaxCurrent());
+        assertEquals(new BigDecimal("0"), values.getMinCurrent());
+        assertEquals(signal.getSignalData(), decoded.getSignalData());
+    }
+
+    @Test
+    void decode_ShouldKeepMissingChannelsMissing() {
+        // Given
+        Signal signal = signal(1L, "{\"Ix\":12.25,\"Ii\":11.7}");
+
+        // When
+        SignalValues values = SignalMessageCodec.decode(SignalMessageCodec.encode(signal)).getValues();
+
+        // Then
+        assertFalse(values.has(SignalValues.MX));
+        assertFalse(values.has(SignalValues.MI));
+        assertEquals(new BigDecimal("0.55"), values.getCurrentDiff());
+    }
+
+    @Test
+    void decode_ShouldRejectMalformedPayloads() {
+        byte[] valid = SignalMessageCodec.encode(signal(1L, "{\"Mx\":3.8,\"Mi\":3.5}"));
+        byte[] trailing = Arrays.copyOf(valid, valid.length + 1);
+        byte[] unknownChannel = valid.clone();
+        unknownChannel[SignalMessageCodec.HEADER_BYTES - 1] = (byte) 0x13;
+
+        assertThrows(IllegalArgumentException.class, () -> SignalMessageCodec.decode(new byte[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> SignalMessageCodec.decode("{\"id\":1}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class,
+                () -> SignalMessageCodec.decode(Arrays.copyOf(valid, valid.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> SignalMessageCodec.decode(trailing));
+        assertThrows(IllegalArgumentException.class, () -> SignalMessageCodec.decode(unknownChannel));
+    }
+
+    @Test
+    void encode_ShouldRejectUnpersistedSignal() {
+        Signal signal = Signal.create(7, 2, SignalDataCodec.parse("{\"Mx\":3.8,\"Mi\":3.5}"));
+
+        assertThrows(IllegalArgumentException.class, () -> SignalMessageCodec.encode(signal));
+    }
+
+    private Signal signal(long id, String data) {
+        Signal signal = Signal.create(7, 2, SignalDataCodec.parse(data));
+        signal.markAsPersisted(id, null);
+        return signal;
+    }
+}
@@ -0,0 +1,332 @@
+package com.mi.bms.signal.infrastructure.cache;
+
+import com.mi.bms.signal.domain.model.Signal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * Redis 由内存中的 hash / set 模拟，按流水线的调用顺序返回结果
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SignalHistoryCacheTest {
+
+    private static final LocalDateTime HOUR_0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private RedisConnection connection;
+    @Mock
+    private RedisHashCommands hashCommands;
+    @Mock
+    private RedisKeyCommands keyCommands;
+    @Mock
+    private RedisSetCommands setCommands;
+
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Set<String>> sets = new HashMap<>();
+    private List<Object> pipelineResults;
+    private SignalHistoryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SignalHistoryCache(redisTemplate);
+        ReflectionTestUtils.setField(cache, "ttlHours", 26L);
+        ReflectionTestUtils.setField(cache, "maxBuckets", 48);
+
+        when(connection.hashCommands()).thenReturn(hashCommands);
+        when(connection.keyCommands()).thenReturn(keyCommands);
+        when(connection.setCommands()).thenReturn(setCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            pipelineResults = new ArrayList<>();
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return pipelineResults;
+        });
+        when(hashCommands.hGetAll(any())).thenAnswer(invocation -> {
+            pipelineResults.add(new HashMap<>(hashes.getOrDefault(string(invocation.getArgument(0)), Map.of())));
+            return null;
+        });
+        doAnswer(invocation -> {
+            Map<byte[], byte[]> fields = invocation.getArgument(1);
+            Map<String, String> hash = hashes.computeIfAbsent(string(invocation.getArgument(0)), k -> new HashMap<>());
+            fields.forEach((field, value) -> hash.put(string(field), string(value)));
+            return null;
+        }).when(hashCommands).hMSet(any(), anyMap());
+        when(setCommands.sAdd(any(), any())).thenAnswer(invocation -> {
+            Object[] raw = invocation.getRawArguments();
+            Set<String> set = sets.computeIfAbsent(string((byte[]) raw[0]), k -> new HashSet<>());
+            for (byte[] member : (byte[][]) raw[1]) {
+                set.add(string(member));
+            }
+            return null;
+        });
+        when(setCommands.sMIsMember(any(), any())).thenAnswer(invocation -> {
+            Object[] raw = invocation.getRawArguments();
+            Set<String> set = sets.getOrDefault(string((byte[]) raw[0]), Set.of());
+            List<Boolean> result = new ArrayList<>();
+            for (byte[] member : (byte[][]) raw[1]) {
+                result.add(set.contains(string(member)));
+            }
+            pipelineResults.add(result);
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    @Test
+    void getByCarId_ShouldLoadMissingBucketsOnceAndTrimEdges() {
+        // Given: a range spanning three hour buckets
+        LocalDateTime from = HOUR_0.plusMinutes(30);
+        LocalDateTime to = HOUR_0.plusHours(2).plusMinutes(30);
+        RecordingLoader loader = new RecordingLoader(List.of(
+                signal(1L, HOUR_0.plusMinutes(10)),
+                signal(2L, HOUR_0.plusHours(1)),
+                signal(3L, HOUR_0.plusHours(2).plusMinutes(40))));
+
+        // When
+        List<Signal> first = cache.getByCarId(7, from, to, loader);
+        List<Signal> second = cache.getByCarId(7, from, to, loader);
+
+        // Then: one load for the whole span, the repeat is served from Redis
+        assertEquals(List.of(2L), ids(first));
+        assertEquals(List.of(2L), ids(second));
+        assertEquals(List.of(HOUR_0), loader.starts);
+        assertEquals(HOUR_0.plusHours(3).minusNanos(1), loader.ends.get(0));
+        assertTrue(hashes.get("signal:hist:7:2024010100").containsKey(SignalHistoryCache.COMPLETE_FIELD));
+        assertEquals(3, cache.stats().getHits());
+        assertEquals(3, cache.stats().getMisses());
+    }
+
+    @Test
+    void append_ShouldAddToLoadedBucketWithoutInvalidatingIt() {
+        // Given
+        RecordingLoader loader = new RecordingLoader(List.of(signal(1L, HOUR_0.plusMinutes(5))));
+        cache.getByCarId(7, HOUR_0, HOUR_0.plusMinutes(59), loader);
+
+        // When
+        cache.append(List.of(signal(2L, HOUR_0.plusMinutes(10))));
+        List<Signal> signals = cache.getByCarId(7, HOUR_0, HOUR_0.plusMinutes(59), loader);
+
+        // Then
+        assertEquals(List.of(1L, 2L), ids(signals));
+        assertEquals(1, loader.starts.size());
+    }
+
+    @Test
+    void append_ShouldNotMakePartialBucketLookComplete() {
+        // Given: a signal is appended to a bucket that was never loaded
+        cache.append(List.of(signal(2L, HOUR_0.plusMinutes(10))));
+        RecordingLoader loader = new RecordingLoader(List.of(
+                signal(1L, HOUR_0.plusMinutes(5)), signal(2L, HOUR_0.plusMinutes(10))));
+
+        // When
+        List<Signal> signals = cache.getByCarId(7, HOUR_0, HOUR_0.plusMinutes(59), loader);
+
+        // Then: the earlier signal missing from the partial bucket is loaded
+        assertEquals(List.of(1L, 2L), ids(signals));
+        assertEquals(1, loader.starts.size());
+    }
+
+    @Test
+    void append_ShouldKeepSignalCommittedDuringLoad() {
+        // Given: signal 2 commits after the load's snapshot but is appended before the load writes back
+        RecordingLoader loader = new RecordingLoader(List.of(signal(1L, HOUR_0.plusMinutes(5)))) {
+            @Override
+            public List<Signal> apply(LocalDateTime start, LocalDateTime end) {
+                List<Signal> snapshot = super.apply(start, end);
+                cache.append(List.of(signal(2L, HOUR_0.plusMinutes(10))));
+                return snapshot;
+            }
+        };
+        cache.getByCarId(7, HOUR_0, HOUR_0.plusMinutes(59), loader);
+
+        // When
+        List<Signal> signals = cache.getByCarId(7, HOUR_0, HOUR_0.plusMinutes(59), loader);
+
+        // Then
+        assertEquals(List.of(1L, 2L), ids(signals));
+        assertEquals(1, loader.starts.size());
+    }
+
+    @Test
+    void append_ShouldWaitForCommitAndBeDroppedOnRollback() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        cache.append(List.of(signal(1L, HOUR_0.plusMinutes(5))));
+        cache.markProcessed(List.of(signal(1L, HOUR_0.plusMinutes(5))));
+
+        // Then: nothing is written before commit
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Then
+        assertTrue(hashes.isEmpty());
+        assertTrue(sets.isEmpty());
+        assertNull(TransactionSynchronizationManager.getResource(cache));
+    }
+
+    @Test
+    void append_ShouldBeWrittenAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        cache.append(List.of(signal(1L, HOUR_0.plusMinutes(5))));
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Then
+        assertTrue(hashes.get("signal:hist:7:2024010100").containsKey("1"));
+    }
+
+    @Test
+    void markProcessed_ShouldWinOverStaleLoad() {
+        // Given: the signal is marked processed while a load with an older snapshot is running
+        RecordingLoader loader = new RecordingLoader(List.of(signal(1L, HOUR_0.plusMinutes(5)))) {
+            @Override
+            public List<Signal> apply(LocalDateTime start, LocalDateTime end) {
+                List<Signal> snapshot = super.apply(start, end);
+                cache.markProcessed(List.of(signal(1L, HOUR_0.plusMinutes(5))));
+                return snapshot;
+            }
+        };
+        cache.getByCarId(7, HOUR_0, HOUR_0.plusMinutes(59), loader);
+
+        // When
+        List<Signal> signals = cache.getByCarId(7, HOUR_0, HOUR_0.plusMinutes(59), loader);
+
+        // Then
+        assertTrue(signals.get(0).isProcessed());
+    }
+
+    @Test
+    void markProcessed_ShouldKeepMarkersPerBucketWithTheBucketTtl() {
+        // When
+        cache.markProcessed(List.of(signal(1L, HOUR_0.plusMinutes(5)), signal(2L, HOUR_0.plusHours(1))));
+
+        // Then: no per-car set that outlives its buckets
+        assertEquals(Set.of("signal:hist:7:2024010100:processed", "signal:hist:7:2024010101:processed"), sets.keySet());
+        verify(keyCommands).expire("signal:hist:7:2024010100:processed".getBytes(StandardCharsets.UTF_8), 26 * 3600L);
+        verify(keyCommands).expire("signal:hist:7:2024010101:processed".getBytes(StandardCharsets.UTF_8), 26 * 3600L);
+    }
+
+    @Test
+    void markProcessed_ShouldOnlyAffectTheSignalsOwnBucket() {
+        // Given: two buckets loaded with unprocessed signals
+        RecordingLoader loader = new RecordingLoader(List.of(
+                signal(1L, HOUR_0.plusMinutes(5)), signal(2L, HOUR_0.plusHours(1))));
+        cache.getByCarId(7, HOUR_0, HOUR_0.plusHours(1).plusMinutes(59), loader);
+
+        // When
+        cache.markProcessed(List.of(signal(2L, HOUR_0.plusHours(1))));
+        List<Signal> signals = cache.getByCarId(7, HOUR_0, HOUR_0.plusHours(1).plusMinutes(59), loader);
+
+        // Then
+        assertEquals(List.of(false, true), signals.stream().map(Signal::isProcessed).collect(Collectors.toList()));
+        assertEquals(1, loader.starts.size());
+    }
+
+    @Test
+    void getByCarId_ShouldRestoreCachedSignalFields() {
+        // Given
+        Signal original = signal(1L, HOUR_0.plusMinutes(5));
+        cache.getByCarId(7, HOUR_0, HOUR_0.plusMinutes(59), new RecordingLoader(List.of(original)));
+
+        // When
+        Signal cached = cache.getByCarId(7, HOUR_0, HOUR_0.plusMinutes(59), new RecordingLoader(List.of())).get(0);
+
+        // Then
+        assertEquals(original.getId(), cached.getId());
+        assertEquals(original.getCarId(), cached.getCarId());
+        assertEquals(original.getBatteryTypeId(), cached.getBatteryTypeId());
+        assertEquals(original.getSignalData(), cached.getSignalData());
+        assertEquals(original.getCreatedAt(), cached.getCreatedAt());
+        assertFalse(cached.isProcessed());
+    }
+
+    @Test
+    void getByCarId_ShouldBypassCacheForTooWideRange() {
+        // Given
+        LocalDateTime to = HOUR_0.plusDays(3);
+        RecordingLoader loader = new RecordingLoader(List.of());
+
+        // When
+        cache.getByCarId(7, HOUR_0, to, loader);
+
+        // Then
+        assertEquals(List.of(HOUR_0), loader.starts);
+        assertEquals(List.of(to), loader.ends);
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+        assertEquals(1, cache.stats().getBypassed());
+    }
+
+    private static Signal signal(long id, LocalDateTime createdAt) {
+        return Signal.restore(id, 7, 2, "{\"Mx\":3.8,\"Mi\":3.5}", false, createdAt);
+    }
+
+    private static List<Long> ids(List<Signal> signals) {
+        return signals.stream().map(Signal::getId).collect(Collectors.toList());
+    }
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class RecordingLoader implements BiFunction<LocalDateTime, LocalDateTime, List<Signal>> {
+        final List<LocalDateTime> starts = new ArrayList<>();
+        final List<LocalDateTime> ends = new ArrayList<>();
+        private final List<Signal> signals;
+
+        RecordingLoader(List<Signal> signals) {
+            this.signals = signals;
+        }
+
+        @Override
+        public List<Signal> apply(LocalDateTime start, LocalDateTime end) {
+            starts.add(start);
+            ends.add(end);
+            return signals;
+        }
+    }
+}
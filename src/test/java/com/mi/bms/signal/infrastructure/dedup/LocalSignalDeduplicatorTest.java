@@ -0,0 +1,86 @@
+package com.mi.bms.signal.infrastructure.dedup;
+
+import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalSignalDeduplicatorTest {
+
+    private LocalSignalDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = new LocalSignalDeduplicator(2);
+    }
+
+    @Test
+    void acquire_ShouldDetectRepeatedSeqWithinWindow() {
+        // When
+        boolean[] first = deduplicator.acquire(List.of(seq(1, 10), seq(1, 12), seq(2, 10)));
+        boolean[] second = deduplicator.acquire(List.of(seq(1, 10), seq(1, 11), seq(1, 12), seq(1, 11)));
+
+        // Then
+        assertArrayEquals(new boolean[] { true, true, true }, first);
+        // 11 arrives late but inside the window; repeated within the same batch is a duplicate
+        assertArrayEquals(new boolean[] { false, true, false, false }, second);
+    }
+
+    @Test
+    void acquire_ShouldTreatSeqOlderThanWindowAsDuplicate() {
+        // Given
+        deduplicator.acquire(List.of(seq(1, 100)));
+
+        // When
+        boolean[] result = deduplicator.acquire(List.of(
+                seq(1, 100 - LocalSignalDeduplicator.WINDOW_SIZE + 1),
+                seq(1, 100 - LocalSignalDeduplicator.WINDOW_SIZE)));
+
+        // Then
+        assertArrayEquals(new boolean[] { true, false }, result);
+    }
+
+    @Test
+    void release_ShouldAllowRetryOfUnpersistedSignal() {
+        // Given
+        deduplicator.acquire(List.of(seq(1, 5), msg("m-1")));
+
+        // When
+        deduplicator.release(List.of(seq(1, 5), msg("m-1")));
+        boolean[] retried = deduplicator.acquire(List.of(seq(1, 5), msg("m-1")));
+
+        // Then
+        assertArrayEquals(new boolean[] { true, true }, retried);
+    }
+
+    @Test
+    void acquire_ShouldBoundMsgIdsAndPassUnkeyedRequests() {
+        // Given
+        deduplicator.acquire(List.of(msg("a"), msg("b"), msg("c"))); // capacity 2 evicts "a"
+        SignalRequest unkeyed = new SignalRequest();
+        unkeyed.setCarId(1);
+
+        // When
+        boolean[] result = deduplicator.acquire(List.of(msg("a"), msg("c"), unkeyed, unkeyed));
+
+        // Then
+        assertArrayEquals(new boolean[] { true, false, true, true }, result);
+    }
+
+    private SignalRequest seq(int carId, long seq) {
+        SignalRequest request = new SignalRequest();
+        request.setCarId(carId);
+        request.setSeq(seq);
+        return request;
+    }
+
+    private SignalRequest msg(String msgId) {
+        SignalRequest request = new SignalRequest();
+        request.setCarId(1);
+        request.setMsgId(msgId);
+        return request;
+    }
+}
@@ -0,0 +1,104 @@
+package com.mi.bms.signal.infrastructure.dedup;
+
+import com.mi.bms.signal.interfaces.rest.dto.SignalRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RedisSignalDeduplicatorTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    private RedisSignalDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = new RedisSignalDeduplicator(redisTemplate);
+        ReflectionTestUtils.setField(deduplicator, "ttlSeconds", 600L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void acquire_ShouldCheckSeqsAgainstOneHashPerCarInOneScript() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), (Object[]) any()))
+                .thenReturn(List.of(1L, 0L, 1L));
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(Boolean.FALSE));
+        SignalRequest unkeyed = new SignalRequest();
+        unkeyed.setCarId(1);
+
+        // When
+        boolean[] fresh = deduplicator.acquire(List.of(seq(1, 10), msg("m-1"), seq(1, 10), unkeyed, seq(2, 3)));
+
+        // Then: the script sees the per-car keys in request order, the TTL first and then the seqs
+        assertArrayEquals(new boolean[] { true, false, false, true, true }, fresh);
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class), keys.capture(), args.capture());
+        assertEquals(List.of("signal:dedup:seq:1", "signal:dedup:seq:1", "signal:dedup:seq:2"), keys.getValue());
+        assertArrayEquals(new Object[] { "600", "10", "10", "3" }, args.getAllValues().toArray());
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void acquire_ShouldAcceptEverythingWhenRedisIsDown() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), (Object[]) any()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        // When
+        boolean[] fresh = deduplicator.acquire(List.of(seq(1, 10), msg("m-1")));
+
+        // Then
+        assertArrayEquals(new boolean[] { true, true }, fresh);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void release_ShouldClearSeqSlotsAndDeleteMsgKeys() {
+        // When
+        deduplicator.release(List.of(seq(1, 10), msg("m-1")));
+
+        // Then
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("signal:dedup:seq:1")), eq("10"));
+        verify(redisTemplate).delete(List.of("signal:dedup:msg:m-1"));
+    }
+
+    private SignalRequest seq(int carId, long seq) {
+        SignalRequest request = new SignalRequest();
+        request.setCarId(carId);
+        request.setSeq(seq);
+        return request;
+    }
+
+    private SignalRequest msg(String msgId) {
+        SignalRequest request = new SignalRequest();
+        request.setCarId(1);
+        request.setMsgId(msgId);
+        return request;
+    }
+}
@@ -0,0 +1,224 @@
+package com.mi.bms.signal.infrastructure.journal;
+
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignalJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private SignalJournal journal;
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void appendAndAwait_ShouldMakeRecordsReadableInOrder() throws Exception {
+        // Given
+        journal = open(1 << 20);
+
+        // When
+        long first = journal.appendAndAwait(List.of(signal(1, "{\"Mx\":3.8,\"Mi\":3.5}"), signal(2, "{\"Ix\":12,\"Ii\":11.7}")));
+        long third = journal.appendAndAwait(List.of(signal(3, "{\"Mx\":4,\"Mi\":1}")));
+
+        // Then
+        assertEquals(1L, first);
+        assertEquals(3L, third);
+        List<SignalJournal.JournalRecord> records = journal.read(0, 10);
+        assertEquals(List.of(1L, 2L, 3L), seqs(records));
+        assertEquals(2, records.get(1).getCarId());
+        assertEquals("{\"Ix\":12,\"Ii\":11.7}", records.get(1).getSignalData());
+        assertEquals(List.of(3L), seqs(journal.read(2, 10)));
+        assertTrue(journal.read(3, 10).isEmpty());
+
+        SignalJournal.Stats stats = journal.stats();
+        assertEquals(3L, stats.getDurableSeq());
+        assertEquals(3L, stats.getLag());
+    }
+
+    @Test
+    void open_ShouldRecoverAndTruncateTornTail() throws Exception {
+        // Given
+        journal = open(1 << 20);
+        journal.appendAndAwait(List.of(signal(1, "{\"Mx\":3.8,\"Mi\":3.5}"), signal(2, "{\"Mx\":3.8,\"Mi\":3.5}")));
+        int secondRecordCrc = SignalJournal.HEADER_BYTES + 8 + "{\"Mx\":3.8,\"Mi\":3.5}".length() + 12;
+        journal.close();
+
+        // Simulate a crash in the middle of writing the second record
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(secondRecordCrc);
+            file.writeInt(0xDEADBEEF);
+        }
+
+        // When
+        journal = open(1 << 20);
+        long next = journal.appendAndAwait(List.of(signal(3, "{\"Mx\":1,\"Mi\":0.5}")));
+
+        // Then
+        List<SignalJournal.JournalRecord> records = journal.read(0, 10);
+        assertEquals(List.of(1L, 2L), seqs(records));
+        assertEquals(2L, next);
+        assertEquals(3, records.get(1).getCarId());
+    }
+
+    @Test
+    void markLoaded_ShouldDeleteFullyLoadedSegments() throws Exception {
+        // Given: tiny segments hold two records each
+        int recordBytes = SignalJournal.HEADER_BYTES + 8 + "{\"Mx\":3.8,\"Mi\":3.5}".length();
+        journal = open(recordBytes * 2);
+        for (int i = 0; i < 5; i++) {
+            journal.appendAndAwait(List.of(signal(i, "{\"Mx\":3.8,\"Mi\":3.5}")));
+        }
+        assertEquals(3, segments().size());
+
+        // When
+        journal.markLoaded(3);
+
+        // Then: the segment holding 1..2 is gone, 3..4 still holds unloaded seq 4
+        assertEquals(2, segments().size());
+        assertEquals(List.of(4L, 5L), seqs(journal.read(3, 10)));
+        assertEquals(2L, journal.stats().getLag());
+    }
+
+    @Test
+    void fence_ShouldSurviveRecoveryAndBeSkippableByLoader() throws Exception {
+        // Given: a segment whose second record was fenced after its flush failed
+        byte[] data = "{\"Mx\":3.8,\"Mi\":3.5}".getBytes(StandardCharsets.UTF_8);
+        SignalJournal.Segment segment = SignalJournal.Segment.open(dir.resolve(String.format("%020d.log", 1)), 1 << 20);
+        segment.append(1, 7, 2, data);
+        segment.append(2, 8, 2, data);
+        segment.append(3, 9, 2, data);
+        segment.fence(2, 2);
+        segment.close();
+
+        // When
+        journal = open(1 << 20);
+        List<SignalJournal.JournalRecord> records = journal.read(0, 10);
+
+        // Then: the CRC still matches, so recovery keeps all three records
+        assertEquals(List.of(1L, 2L, 3L), seqs(records));
+        assertFalse(records.get(0).isFenced());
+        assertTrue(records.get(1).isFenced());
+        assertFalse(records.get(2).isFenced());
+        assertEquals(4L, journal.appendAndAwait(List.of(signal(1, "{\"Mx\":1,\"Mi\":0.5}"))));
+    }
+
+    @Test
+    void appendAndAwait_ShouldFenceRecordsWrittenBeforeAFailure() throws Exception {
+        // Given: the second signal of the batch does not fit in any segment
+        int recordBytes = SignalJournal.HEADER_BYTES + 8 + "{\"Mx\":3.8,\"Mi\":3.5}".length();
+        journal = open(recordBytes * 2);
+        Signal tooLarge = Signal.restore(null, 2, 2, "x".repeat(recordBytes * 2), false, null);
+
+        // When
+        assertThrows(IllegalArgumentException.class,
+                () -> journal.appendAndAwait(List.of(signal(1, "{\"Mx\":3.8,\"Mi\":3.5}"), tooLarge)));
+        long next = journal.appendAndAwait(List.of(signal(3, "{\"Mx\":3.8,\"Mi\":3.5}")));
+
+        // Then: the record already written for the failed batch is never loaded
+        List<SignalJournal.JournalRecord> records = journal.read(0, 10);
+        assertEquals(List.of(1L, 2L), seqs(records));
+        assertTrue(records.get(0).isFenced());
+        assertEquals(2L, next);
+    }
+
+    @Test
+    void open_ShouldContinueAfterBaseSeqOfEmptySegment() throws Exception {
+        // Given: older segments were deleted after loading and the new active segment never got a durable record
+        SignalJournal.Segment.open(dir.resolve(String.format("%020d.log", 6)), 1 << 20).close();
+
+        // When
+        journal = open(1 << 20);
+
+        // Then
+        assertEquals(6L, journal.appendAndAwait(List.of(signal(1, "{\"Mx\":3.8,\"Mi\":3.5}"))));
+    }
+
+    @Test
+    void resumeAfter_ShouldContinueAfterCheckpointWhenJournalIsEmpty() throws Exception {
+        // Given: the journal directory was lost while the checkpoint row survived
+        journal = open(1 << 20);
+
+        // When
+        journal.resumeAfter(10);
+        long first = journal.appendAndAwait(List.of(signal(1, "{\"Mx\":3.8,\"Mi\":3.5}")));
+
+        // Then
+        assertEquals(11L, first);
+        assertEquals(List.of(11L), seqs(journal.read(10, 10)));
+        assertEquals(List.of(11L), segments().stream()
+                .map(path -> Long.parseLong(path.getFileName().toString().replace(".log", "")))
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void resumeAfter_ShouldFailWhenCheckpointIsAheadOfJournalTail() throws Exception {
+        // Given
+        journal = open(1 << 20);
+        journal.appendAndAwait(List.of(signal(1, "{\"Mx\":3.8,\"Mi\":3.5}")));
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> journal.resumeAfter(5));
+    }
+
+    @Test
+    void toSignal_ShouldRebuildSignalValues() throws Exception {
+        // Given
+        journal = open(1 << 20);
+        journal.appendAndAwait(List.of(signal(7, "{\"Mx\":3.8,\"Mi\":3.5}")));
+
+        // When
+        Signal signal = journal.read(0, 1).get(0).toSignal();
+
+        // Then
+        assertEquals(7, signal.getCarId());
+        assertEquals(2, signal.getBatteryTypeId());
+        assertEquals("0.3", signal.getValues().getVoltageDiff().toPlainString());
+    }
+
+    private SignalJournal open(int segmentBytes) {
+        SignalJournal journal = new SignalJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "dir", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(journal, "groupCommitMs", 1L);
+        ReflectionTestUtils.setField(journal, "ackTimeoutMs", 5000L);
+        journal.open();
+        return journal;
+    }
+
+    private Signal signal(int carId, String data) {
+        return Signal.create(carId, 2, SignalDataCodec.parse(data));
+    }
+
+    private List<Long> seqs(List<SignalJournal.JournalRecord> records) {
+        return records.stream().map(SignalJournal.JournalRecord::getSeq).collect(Collectors.toList());
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return new ArrayList<>(files.sorted().collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalSignalTransportTest {
+
+    private LocalSignalTransport transport;
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) {
+            transport.stop();
+        }
+    }
+
+    @Test
+    void sendAsync_ShouldCompleteOnlyAfterHandlerProcessedEveryMessage() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> handled = new CopyOnWriteArrayList<>();
+        start((messages, partition) -> {
+            await(release);
+            messages.forEach(message -> handled.add(SignalMessageCodec.decode(message.getBody()).getId()));
+            return 0;
+        }, 4, 1024);
+
+        // When
+        CompletableFuture<Void> future = transport.sendAsync(payloads(1, 1, 2, 3));
+
+        // Then
+        assertFalse(future.isDone());
+        release.countDown();
+        future.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(1L, 2L, 3L), handled.stream().sorted().toList());
+    }
+
+    @Test
+    void sendAsync_ShouldKeepPerVehicleOrderAcrossConcurrentProducers() throws Exception {
+        // Given
+        Map<Integer, List<Long>> byCar = new ConcurrentHashMap<>();
+        start((messages, partition) -> {
+            for (SignalMessage message : messages) {
+                Signal signal = SignalMessageCodec.decode(message.getBody());
+                byCar.computeIfAbsent(signal.getCarId(), k -> new ArrayList<>()).add(signal.getId());
+            }
+            return 0;
+        }, 3, 64);
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+
+        // When: each producer owns one car and sends 2000 increasing ids in chunks without waiting,
+        // the small rings fill up and wrap many times
+        List<Future<List<CompletableFuture<Void>>>> sends = new ArrayList<>();
+        for (int car = 0; car < 4; car++) {
+            int carId = car;
+            sends.add(producers.submit(() -> {
+                List<CompletableFuture<Void>> chunks = new ArrayList<>();
+                for (int chunk = 0; chunk < 100; chunk++) {
+                    chunks.add(transport.sendAsync(payloads(carId, ids(chunk * 20L + 1, 20))));
+                }
+                return chunks;
+            }));
+        }
+        for (Future<List<CompletableFuture<Void>>> send : sends) {
+            for (CompletableFuture<Void> chunk : send.get(30, TimeUnit.SECONDS)) {
+                chunk.get(30, TimeUnit.SECONDS);
+            }
+        }
+        producers.shutdown();
+
+        // Then
+        List<Long> expected = LongStream.rangeClosed(1, 2000).boxed().toList();
+        for (int car = 0; car < 4; car++) {
+            assertEquals(expected, byCar.get(car));
+        }
+    }
+
+    @Test
+    void consume_ShouldRedeliverBatchWithIncrementedReconsumeTimesUntilHandled() throws Exception {
+        // Given
+        List<Integer> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        start((messages, partition) -> {
+            attempts.add(messages.get(0).getReconsumeTimes());
+            return calls.incrementAndGet() < 3 ? 5 : 0;
+        }, 1, 16);
+
+        // When
+        transport.sendAsync(payloads(1, 1)).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(List.of(0, 1, 2), attempts);
+    }
+
+    @Test
+    void consume_ShouldRedeliverWhenHandlerThrows() throws Exception {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        start((messages, partition) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("boom");
+            }
+            return 0;
+        }, 1, 16);
+
+        // When
+        transport.sendAsync(payloads(1, 1)).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void sendAsync_ShouldFailWhenPartitionStaysFull() {
+        // Given: the consumer is stuck on the first batch and the ring holds two messages
+        CountDownLatch release = new CountDownLatch(1);
+        start((messages, partition) -> {
+            await(release);
+            return 0;
+        }, 1, 2);
+        ReflectionTestUtils.setField(transport, "offerTimeoutMs", 50L);
+
+        // When
+        CompletableFuture<Void> future = transport.sendAsync(payloads(1, ids(1, 10)));
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getMessage().contains("is full"));
+        release.countDown();
+    }
+
+    @Test
+    void stop_ShouldFailMessagesThatWereNotProcessed() {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        start((messages, partition) -> {
+            await(release);
+            return 0;
+        }, 1, 16);
+        ReflectionTestUtils.setField(transport, "batchSize", 1);
+        CompletableFuture<Void> future = transport.sendAsync(payloads(1, 1, 2));
+
+        // When
+        release.countDown();
+        transport.stop();
+        transport = null;
+
+        // Then: the future either completed before the stop or failed, never left hanging
+        assertTrue(future.isDone());
+    }
+
+    private void start(SignalMessageHandler handler, int partitions, int capacity) {
+        transport = new LocalSignalTransport(handler);
+        ReflectionTestUtils.setField(transport, "partitionCount", partitions);
+        ReflectionTestUtils.setField(transport, "capacity", capacity);
+        ReflectionTestUtils.setField(transport, "batchSize", 32);
+        ReflectionTestUtils.setField(transport, "offerTimeoutMs", 3000L);
+        transport.start();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<byte[]> payloads(int carId, long... ids) {
+        List<byte[]> payloads = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Signal signal = Signal.create(carId, 1, SignalDataCodec.parse("{\"Mx\":3.8,\"Mi\":3.5}"));
+            signal.markAsPersisted(id, null);
+            payloads.add(SignalMessageCodec.encode(signal));
+        }
+        return payloads;
+    }
+
+    private static long[] ids(long first, int count) {
+        return LongStream.range(first, first + count).toArray();
+    }
+}
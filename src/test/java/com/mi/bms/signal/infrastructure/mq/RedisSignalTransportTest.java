@@ -0,0 +1,252 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RedisSignalTransportTest {
+
+    private static final String ME = "node-b";
+    private static final String OTHER = "node-a";
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private RedisConnection connection;
+    @Mock
+    private RedisStreamCommands streamCommands;
+
+    private RedisSignalTransport transport;
+    // 分区线程与 Redis 的交互顺序，租约续期单独记录
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final Deque<Long> leaseResults = new ConcurrentLinkedDeque<>();
+    private final Deque<PendingMessages> pendingPages = new ConcurrentLinkedDeque<>();
+    private final Deque<List<ByteRecord>> backlogReads = new ConcurrentLinkedDeque<>();
+    private final Deque<List<ByteRecord>> newReads = new ConcurrentLinkedDeque<>();
+    private final List<List<String>> claims = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean failNextAck = new AtomicBoolean();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(connection.streamCommands()).thenReturn(streamCommands);
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), (Object[]) any())).thenAnswer(invocation -> {
+            Long result = leaseResults.size() > 1 ? leaseResults.poll() : leaseResults.peek();
+            events.add("lease:" + result);
+            return result;
+        });
+        leaseResults.add(1L);
+
+        when(streamCommands.xPending(any(byte[].class), anyString(), any(Range.class), anyLong())).thenAnswer(invocation -> {
+            Range<?> range = invocation.getArgument(2);
+            events.add("pending:" + range.getLowerBound().getValue().map(Object::toString).orElse("-"));
+            PendingMessages page = pendingPages.poll();
+            return page == null ? new PendingMessages(RedisSignalTransport.GROUP, Range.unbounded(), List.of()) : page;
+        });
+        when(streamCommands.xClaim(any(byte[].class), anyString(), anyString(), any(XClaimOptions.class)))
+                .thenAnswer(invocation -> {
+                    XClaimOptions options = invocation.getArgument(3);
+                    claims.add(options.getIds().stream().map(RecordId::getValue).toList());
+                    events.add("claim");
+                    return List.of();
+                });
+        when(streamCommands.xReadGroup(any(Consumer.class), any(StreamReadOptions.class), any(StreamOffset.class)))
+                .thenAnswer(invocation -> {
+                    StreamReadOptions options = invocation.getArgument(1);
+                    StreamOffset<byte[]> offset = invocation.getArgument(2);
+                    String from = offset.getOffset().getOffset();
+                    events.add("read:" + from);
+                    List<ByteRecord> records = ("0".equals(from) ? backlogReads : newReads).poll();
+                    if (records == null) {
+                        if (options.getBlock() != null) {
+                            Thread.sleep(5);
+                        }
+                        return List.of();
+                    }
+                    return records;
+                });
+        when(streamCommands.xAck(any(byte[].class), anyString(), any(RecordId.class))).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            List<String> ids = new ArrayList<>();
+            for (int i = 2; i < arguments.length; i++) {
+                ids.add(((RecordId) arguments[i]).getValue());
+            }
+            if (failNextAck.getAndSet(false)) {
+                events.add("ack-failed");
+                throw new RedisConnectionFailureException("down");
+            }
+            events.add("ack:" + ids);
+            return (long) ids.size();
+        });
+        when(connection.execute(anyString(), any(byte[].class))).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            List<String> parts = new ArrayList<>();
+            parts.add((String) arguments[0]);
+            for (int i = 2; i < arguments.length; i++) {
+                parts.add(new String((byte[]) arguments[i], StandardCharsets.UTF_8));
+            }
+            events.add(String.join(" ", parts));
+            return null;
+        });
+
+        transport = new RedisSignalTransport(redisTemplate, (messages, partition) -> {
+            events.add("handle:" + messages.stream().map(SignalMessage::getMsgId).toList());
+            return 0;
+        });
+        ReflectionTestUtils.setField(transport, "partitionCount", 1);
+        ReflectionTestUtils.setField(transport, "batchSize", 32);
+        ReflectionTestUtils.setField(transport, "blockMs", 5L);
+        ReflectionTestUtils.setField(transport, "leaseMs", 30L);
+        ReflectionTestUtils.setField(transport, "trimIntervalMs", 0L);
+        ReflectionTestUtils.setField(transport, "consumerName", ME);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.stop();
+    }
+
+    @Test
+    void consume_ShouldWaitForLeaseThenClaimForeignPendingAndReadBacklogFirst() {
+        // Given: another node holds the lease at first and left two messages unacknowledged, one of them ours
+        leaseResults.clear();
+        leaseResults.addAll(List.of(0L, 0L, 1L));
+        pendingPages.add(pending(List.of(record("1-0"), record("2-0")), List.of(OTHER, ME)));
+        backlogReads.add(List.of(record("1-0"), record("2-0")));
+
+        // When
+        transport.start();
+
+        // Then: nothing is read before the lease, the foreign entry is claimed and the PEL is drained before new reads
+        List<String> expected = List.of("pending:-", "claim", "read:0", "handle:[0-1-0, 0-2-0]", "ack:[1-0, 2-0]",
+                "read:0", "read:>");
+        assertEquals(expected, awaitStreamEvents(expected.size()));
+        assertEquals(List.of("lease:0", "lease:0", "lease:1"), events.subList(0, 3));
+        assertEquals(List.of(List.of("1-0")), claims);
+        verify(streamCommands).xClaim(any(byte[].class), eq(RedisSignalTransport.GROUP), eq(ME), any(XClaimOptions.class));
+    }
+
+    @Test
+    void reclaim_ShouldPageThroughPendingFromTheIdAfterTheLastEntry() {
+        // Given: a full page followed by a partial one
+        List<ByteRecord> fullPage = IntStream.range(0, 1000).mapToObj(i -> record("5-" + i)).toList();
+        pendingPages.add(pending(fullPage, fullPage.stream().map(record -> OTHER).toList()));
+        pendingPages.add(pending(List.of(record("6-0")), List.of(OTHER)));
+
+        // When
+        transport.start();
+
+        // Then: the second page starts right after 5-999 instead of repeating it
+        List<String> expected = List.of("pending:-", "claim", "pending:5-1000", "claim", "read:0");
+        assertEquals(expected, awaitStreamEvents(expected.size()));
+        assertEquals(1000, claims.get(0).size());
+        assertEquals(List.of("6-0"), claims.get(1));
+    }
+
+    @Test
+    void consume_ShouldReturnToBacklogAfterRedisFailure() {
+        // Given
+        newReads.add(List.of(record("3-0")));
+        backlogReads.add(List.of());
+        backlogReads.add(List.of(record("3-0")));
+        failNextAck.set(true);
+
+        // When
+        transport.start();
+
+        // Then: the unacknowledged message is read again from the PEL before any new message
+        List<String> expected = List.of("pending:-", "read:0", "read:>", "handle:[0-3-0]", "ack-failed",
+                "read:0", "handle:[0-3-0]", "ack:[3-0]", "read:0", "read:>");
+        assertEquals(expected, awaitStreamEvents(expected.size()));
+    }
+
+    @Test
+    void acknowledge_ShouldTrimUpToTheLastAckedIdOnlyOutsideBacklog() {
+        // Given
+        backlogReads.add(List.of(record("1-0")));
+        newReads.add(List.of(record("4-0"), record("5-0")));
+
+        // When
+        transport.start();
+
+        // Then: acking the backlog does not trim, acking new messages trims to the last acked id
+        List<String> expected = List.of("pending:-", "read:0", "handle:[0-1-0]", "ack:[1-0]", "read:0", "read:>",
+                "handle:[0-4-0, 0-5-0]", "ack:[4-0, 5-0]", "XTRIM MINID ~ 5-0", "read:>");
+        assertEquals(expected, awaitStreamEvents(expected.size()));
+    }
+
+    private List<String> awaitStreamEvents(int count) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<String> streamEvents;
+        do {
+            streamEvents = events.stream().filter(event -> !event.startsWith("lease:")).toList();
+            if (streamEvents.size() >= count) {
+                return streamEvents.subList(0, count);
+            }
+            Thread.onSpinWait();
+        } while (System.nanoTime() < deadline);
+        fail("Timed out waiting for stream events, got " + streamEvents);
+        return streamEvents;
+    }
+
+    private static ByteRecord record(String id) {
+        return StreamRecords.newRecord()
+                .in(RedisSignalTransport.streamKey(0))
+                .withId(RecordId.of(id))
+                .ofBytes(Map.of(new byte[] { 'p' }, new byte[] { 1 }));
+    }
+
+    private static PendingMessages pending(List<ByteRecord> records, List<String> consumers) {
+        List<PendingMessage> messages = IntStream.range(0, records.size())
+                .mapToObj(i -> new PendingMessage(records.get(i).getId(),
+                        Consumer.from(RedisSignalTransport.GROUP, consumers.get(i)), Duration.ofSeconds(1), 1))
+                .toList();
+        return new PendingMessages(RedisSignalTransport.GROUP, Range.unbounded(), messages);
+    }
+}
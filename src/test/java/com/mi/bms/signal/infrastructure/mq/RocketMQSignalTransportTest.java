@@ -0,0 +1,287 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RocketMQSignalTransportTest {
+
+    @Mock
+    private RocketMQTemplate rocketMQTemplate;
+    @Mock
+    private DefaultMQProducer mqProducer;
+
+    private RocketMQSignalTransport producer;
+    private final List<MessageQueue> queues = List.of(
+            new MessageQueue(SignalTransport.TOPIC, "broker-b", 0), new MessageQueue(SignalTransport.TOPIC, "broker-a", 1),
+            new MessageQueue(SignalTransport.TOPIC, "broker-a", 0));
+    private final List<Collection<Message>> batches = new CopyOnWriteArrayList<>();
+    private final List<MessageQueue> targets = new CopyOnWriteArrayList<>();
+    private final List<SendCallback> callbacks = new CopyOnWriteArrayList<>();
+    private final List<String> senders = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        producer = new RocketMQSignalTransport(rocketMQTemplate);
+        ReflectionTestUtils.setField(producer, "batchMaxMessages", 2);
+        ReflectionTestUtils.setField(producer, "batchMaxBytes", 1 << 20);
+        ReflectionTestUtils.setField(producer, "lingerMs", 60000L);
+        ReflectionTestUtils.setField(producer, "maxInFlightBatches", 4);
+        ReflectionTestUtils.setField(producer, "sendTimeoutMs", 50L);
+        ReflectionTestUtils.setField(producer, "queueRefreshMs", 60000L);
+        producer.start();
+
+        when(rocketMQTemplate.getProducer()).thenReturn(mqProducer);
+        when(mqProducer.fetchPublishMessageQueues(SignalTransport.TOPIC)).thenReturn(queues);
+        doAnswer(invocation -> {
+            batches.add(invocation.getArgument(0));
+            targets.add(invocation.getArgument(1));
+            callbacks.add(invocation.getArgument(2));
+            senders.add(Thread.currentThread().getName());
+            return null;
+        }).when(mqProducer).send(anyCollection(), any(MessageQueue.class), any(SendCallback.class), anyLong());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(producer, "sendTimeoutMs", 0L);
+        producer.stop();
+    }
+
+    @Test
+    void sendAsync_ShouldSealBatchesAtMessageLimitAndSendOneAtATimePerQueue() {
+        // When
+        CompletableFuture<Void> future = producer.sendAsync(payloads(3));
+
+        // Then: the first two are sent at once, the third waits for linger or flush
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+
+        producer.flush();
+        assertEquals(1, batches.size()); // same queue, waits for the batch in flight
+
+        callbacks.get(0).onSuccess(new SendResult());
+        awaitBatches(2);
+        assertEquals(1, batches.get(1).size());
+        assertFalse(future.isDone());
+        callbacks.get(1).onSuccess(new SendResult());
+        assertTrue(future.isDone());
+        assertFalse(future.isCompletedExceptionally());
+    }
+
+    @Test
+    void sendAsync_ShouldSealBatchesAtByteLimit() {
+        // Given: room for exactly two messages
+        ReflectionTestUtils.setField(producer, "batchMaxMessages", 100);
+        int size = payloads(1).get(0).length + RocketMQSignalTransport.MESSAGE_OVERHEAD_BYTES;
+        ReflectionTestUtils.setField(producer, "batchMaxBytes", 2 * size);
+
+        // When
+        producer.sendAsync(payloads(5));
+        producer.flush();
+        for (int i = 0; i < 3; i++) {
+            awaitBatches(i + 1);
+            callbacks.get(i).onSuccess(new SendResult());
+        }
+
+        // Then
+        assertEquals(List.of(2, 2, 1), batches.stream().map(Collection::size).toList());
+    }
+
+    @Test
+    void sendAsync_ShouldRouteEachVehicleToOneQueueByCarIdHash() {
+        // Given
+        List<byte[]> payloads = new ArrayList<>();
+        for (int carId = 0; carId < 4; carId++) {
+            payloads.addAll(payloads(carId, 1));
+        }
+
+        // When
+        producer.sendAsync(payloads);
+        producer.flush();
+
+        // Then: queues are ordered by broker and queue id, car 3 wraps around to car 0's queue
+        assertEquals(3, batches.size());
+        Map<MessageQueue, List<Integer>> carsByQueue = new HashMap<>();
+        for (int i = 0; i < batches.size(); i++) {
+            carsByQueue.put(targets.get(i), batches.get(i).stream()
+                    .map(message -> SignalMessageCodec.carIdOf(message.getBody())).toList());
+        }
+        assertEquals(List.of(0, 3), carsByQueue.get(queues.get(2)));
+        assertEquals(List.of(1), carsByQueue.get(queues.get(1)));
+        assertEquals(List.of(2), carsByQueue.get(queues.get(0)));
+    }
+
+    @Test
+    void sendAsync_ShouldFlushPartialBatchAfterLinger() {
+        // Given
+        ReflectionTestUtils.setField(producer, "lingerMs", 10L);
+
+        // When
+        producer.sendAsync(payloads(1));
+
+        // Then
+        verify(mqProducer, timeout(1000)).send(anyCollection(), any(MessageQueue.class), any(SendCallback.class), anyLong());
+    }
+
+    @Test
+    void sendAsync_ShouldMergeCallersIntoOneBatch() {
+        // When
+        CompletableFuture<Void> first = producer.sendAsync(payloads(1));
+        CompletableFuture<Void> second = producer.sendAsync(payloads(1));
+
+        // Then
+        assertEquals(1, batches.size());
+        callbacks.get(0).onSuccess(new SendResult());
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+    }
+
+    @Test
+    void sendAsync_ShouldFailFutureAndReleasePermitWhenSendFails() {
+        // When
+        CompletableFuture<Void> future = producer.sendAsync(payloads(2));
+        callbacks.get(0).onException(new IllegalStateException("broker down"));
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertEquals("broker down", e.getCause().getMessage());
+        assertEquals(4, inFlight().availablePermits());
+    }
+
+    @Test
+    void sendAsync_ShouldFailQueuedBatchesOfTheSameQueueWhenSendFails() {
+        // Given: two sealed batches for one vehicle, the second waits behind the first
+        CompletableFuture<Void> future = producer.sendAsync(payloads(4));
+        assertEquals(1, batches.size());
+
+        // When
+        callbacks.get(0).onException(new IllegalStateException("broker down"));
+
+        // Then: the second batch is never sent ahead of the failed one
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(1, batches.size());
+
+        producer.sendAsync(payloads(1));
+        producer.flush();
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    void sendAsync_ShouldFailBatchWhenInFlightPermitsAreExhausted() {
+        // Given
+        ReflectionTestUtils.setField(producer, "maxInFlightBatches", 1);
+        ReflectionTestUtils.setField(producer, "inFlight", new Semaphore(1));
+
+        // When: the first batch is never acknowledged, the second goes to another queue
+        CompletableFuture<Void> first = producer.sendAsync(payloads(0, 2));
+        CompletableFuture<Void> second = producer.sendAsync(payloads(1, 2));
+
+        // Then
+        assertEquals(1, batches.size());
+        assertFalse(first.isDone());
+        assertTrue(second.isCompletedExceptionally());
+        callbacks.get(0).onSuccess(new SendResult());
+    }
+
+    @Test
+    void sendAsync_ShouldFailFutureAndReleasePermitWhenSendThrows() {
+        // Given
+        doThrow(new IllegalStateException("broker down"))
+                .when(mqProducer).send(anyCollection(), any(MessageQueue.class), any(SendCallback.class), anyLong());
+
+        // When
+        CompletableFuture<Void> future = producer.sendAsync(payloads(2));
+
+        // Then
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(4, inFlight().availablePermits());
+    }
+
+    @Test
+    void sendAsync_ShouldFailOpenBatchOfTheSameQueueWhenSendFails() {
+        // Given: a sealed batch in flight and one message still accumulating behind it
+        CompletableFuture<Void> future = producer.sendAsync(payloads(2));
+        CompletableFuture<Void> later = producer.sendAsync(payloads(1));
+        assertEquals(1, batches.size());
+
+        // When
+        callbacks.get(0).onException(new IllegalStateException("broker down"));
+        producer.flush();
+
+        // Then: the accumulating batch fails too instead of overtaking the failed one
+        assertTrue(future.isCompletedExceptionally());
+        assertTrue(later.isCompletedExceptionally());
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void onSuccess_ShouldSendNextBatchOnTheSenderThread() {
+        // Given: two sealed batches for one vehicle
+        producer.sendAsync(payloads(4));
+
+        // When
+        callbacks.get(0).onSuccess(new SendResult());
+
+        // Then: the callback thread never waits for an in-flight permit
+        awaitBatches(2);
+        assertEquals(Thread.currentThread().getName(), senders.get(0));
+        assertEquals("signal-producer-sender", senders.get(1));
+    }
+
+    private void awaitBatches(int count) {
+        verify(mqProducer, timeout(1000).atLeast(count))
+                .send(anyCollection(), any(MessageQueue.class), any(SendCallback.class), anyLong());
+        assertEquals(count, batches.size());
+    }
+
+    private List<byte[]> payloads(int count) {
+        return payloads(0, count);
+    }
+
+    private List<byte[]> payloads(int carId, int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            Signal signal = Signal.create(carId, 1, SignalDataCodec.parse("{\"Mx\":3.8,\"Mi\":3.5}"));
+            signal.markAsPersisted((long) i + 1, null);
+            return SignalMessageCodec.encode(signal);
+        }).toList();
+    }
+
+    private Semaphore inFlight() {
+        return (Semaphore) ReflectionTestUtils.getField(producer, "inFlight");
+    }
+}
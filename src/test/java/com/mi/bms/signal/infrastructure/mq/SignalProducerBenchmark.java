@@ -0,0 +1,205 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 信号消息发送基准：原逐条 JSON 同步发送 vs 紧凑二进制编码 + 按队列攒批异步发送 vs 进程内传输。
+ * <p>
+ * Broker 由进程内的 {@link InProcessBroker} 代替：每次请求固定往返时延（rttMicros），
+ * 另按消息体字节数计入传输时间，异步请求在独立的 I/O 线程上完成回调；主题有 queues 个队列。
+ * 进程内传输（{@link LocalSignalTransport}）的处理逻辑只解码消息，future 在全部消息被消费后完成，衡量环形队列与分区线程本身的开销。
+ * 每次操作发送 batchSize 条信号，同时统计吞吐（ops/s × batchSize 即每秒条数）和采样时延分位数（关注 p0.99）。
+ * <p>
+ * 运行：先执行 mvn test-compile，然后直接运行 main 方法。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignalProducerBenchmark {
+
+    @Param({ "1000" })
+    private int batchSize;
+
+    @Param({ "200" })
+    private int rttMicros;
+
+    @Param({ "8" })
+    private int queues;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private InProcessBroker broker;
+    private RocketMQSignalTransport rocketMQTransport;
+    private SignalProducer producer;
+    private LocalSignalTransport localTransport;
+    private SignalProducer localProducer;
+    private List<Signal> signals;
+
+    @Setup
+    public void setUp() {
+        broker = new InProcessBroker(rttMicros, queues);
+        RocketMQTemplate template = new RocketMQTemplate();
+        template.setProducer(broker);
+        rocketMQTransport = new RocketMQSignalTransport(template);
+        ReflectionTestUtils.setField(rocketMQTransport, "batchMaxMessages", 1000);
+        ReflectionTestUtils.setField(rocketMQTransport, "batchMaxBytes", 262144);
+        ReflectionTestUtils.setField(rocketMQTransport, "lingerMs", 5L);
+        ReflectionTestUtils.setField(rocketMQTransport, "maxInFlightBatches", 8);
+        ReflectionTestUtils.setField(rocketMQTransport, "sendTimeoutMs", 3000L);
+        ReflectionTestUtils.setField(rocketMQTransport, "queueRefreshMs", 60000L);
+        rocketMQTransport.start();
+        producer = producer(rocketMQTransport);
+
+        localTransport = new LocalSignalTransport((messages, partition) -> {
+            for (SignalMessage message : messages) {
+                SignalMessageCodec.decode(message.getBody());
+            }
+            return 0;
+        });
+        ReflectionTestUtils.setField(localTransport, "partitionCount", queues);
+        ReflectionTestUtils.setField(localTransport, "capacity", 65536);
+        ReflectionTestUtils.setField(localTransport, "batchSize", 32);
+        ReflectionTestUtils.setField(localTransport, "offerTimeoutMs", 3000L);
+        localTransport.start();
+        localProducer = producer(localTransport);
+
+        signals = new ArrayList<>(batchSize);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < batchSize; i++) {
+            Signal signal = Signal.create(i % 500, 1 + i % 2,
+                    SignalDataCodec.parse("{\"Mx\":12.0,\"Mi\":0.6,\"Ix\":12.0,\"Ii\":11.7}"));
+            signal.markAsPersisted(1_000_000L + i, now);
+            signals.add(signal);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        rocketMQTransport.stop();
+        localTransport.stop();
+        broker.io.shutdown();
+    }
+
+    /**
+     * 原实现：每条信号的完整实体序列化为 JSON，逐条同步发送
+     */
+    @Benchmark
+    public long legacyJsonSync() throws Exception {
+        for (Signal signal : signals) {
+            broker.send(new Message(SignalTransport.TOPIC, objectMapper.writeValueAsString(signal).getBytes(StandardCharsets.UTF_8)));
+        }
+        return broker.bytes.get();
+    }
+
+    @Benchmark
+    public long batchedBinaryAsync() {
+        producer.sendBatch(signals);
+        return broker.bytes.get();
+    }
+
+    @Benchmark
+    public int localRingAsync() {
+        localProducer.sendBatch(signals);
+        return signals.size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(SignalProducerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    private static SignalProducer producer(SignalTransport transport) {
+        SignalProducer producer = new SignalProducer(transport);
+        ReflectionTestUtils.setField(producer, "mqEnabled", true);
+        ReflectionTestUtils.setField(producer, "awaitTimeoutMs", 30000L);
+        return producer;
+    }
+
+    /**
+     * 进程内 Broker 替身：往返时延 + 每字节传输时间（约 1 GB/s），不做持久化
+     */
+    static class InProcessBroker extends DefaultMQProducer {
+
+        private static final double NANOS_PER_BYTE = 1.0;
+
+        final ExecutorService io = Executors.newFixedThreadPool(8);
+        final AtomicLong bytes = new AtomicLong();
+        private final long rttNanos;
+        private final List<MessageQueue> messageQueues = new ArrayList<>();
+
+        InProcessBroker(int rttMicros, int queues) {
+            this.rttNanos = TimeUnit.MICROSECONDS.toNanos(rttMicros);
+            for (int i = 0; i < queues; i++) {
+                messageQueues.add(new MessageQueue(SignalTransport.TOPIC, "broker-a", i));
+            }
+        }
+
+        @Override
+        public List<MessageQueue> fetchPublishMessageQueues(String topic) {
+            return messageQueues;
+        }
+
+        @Override
+        public SendResult send(Message message) {
+            transfer(List.of(message));
+            return new SendResult();
+        }
+
+        @Override
+        public void send(Collection<Message> messages, MessageQueue queue, SendCallback sendCallback, long timeout) {
+            io.execute(() -> {
+                transfer(messages);
+                sendCallback.onSuccess(new SendResult());
+            });
+        }
+
+        private void transfer(Collection<Message> messages) {
+            long size = 0;
+            for (Message message : messages) {
+                size += message.getBody().length;
+            }
+            bytes.addAndGet(size);
+            LockSupport.parkNanos(rttNanos + (long) (size * NANOS_PER_BYTE));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.mi.bms.signal.infrastructure.mq;
+
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SignalProducerTest {
+
+    @Mock
+    private SignalTransport transport;
+
+    private SignalProducer producer;
+
+    @BeforeEach
+    void setUp() {
+        producer = new SignalProducer(transport);
+        ReflectionTestUtils.setField(producer, "mqEnabled", true);
+        ReflectionTestUtils.setField(producer, "awaitTimeoutMs", 100L);
+    }
+
+    @Test
+    void sendBatch_ShouldEncodeSignalsAndWaitForTransport() {
+        // Given
+        when(transport.sendAsync(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        producer.sendBatch(List.of(signal(1L), signal(2L)));
+
+        // Then
+        verify(transport).sendAsync(argThat(payloads -> payloads.size() == 2
+                && SignalMessageCodec.decode(payloads.get(1)).getId() == 2L));
+    }
+
+    @Test
+    void sendPayloads_ShouldThrowWhenTransportFails() {
+        // Given
+        when(transport.sendAsync(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        // When / Then
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> producer.sendPayloads(List.of(producer.toPayload(signal(1L)))));
+        assertEquals("broker down", e.getCause().getMessage());
+    }
+
+    @Test
+    void sendPayloads_ShouldThrowWhenTransportDoesNotConfirmInTime() {
+        // Given
+        when(transport.sendAsync(anyList())).thenReturn(new CompletableFuture<>());
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> producer.sendPayloads(List.of(producer.toPayload(signal(1L)))));
+    }
+
+    @Test
+    void sendPayloads_ShouldSkipWhenMqDisabled() {
+        // Given
+        ReflectionTestUtils.setField(producer, "mqEnabled", false);
+
+        // When
+        producer.sendPayloads(List.of(producer.toPayload(signal(1L))));
+
+        // Then
+        verifyNoInteractions(transport);
+    }
+
+    private Signal signal(long id) {
+        Signal signal = Signal.create(7, 1, SignalDataCodec.parse("{\"Mx\":3.8,\"Mi\":3.5}"));
+        signal.markAsPersisted(id, null);
+        return signal;
+    }
+}
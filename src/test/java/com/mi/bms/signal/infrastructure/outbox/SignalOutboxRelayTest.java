@@ -0,0 +1,139 @@
+package com.mi.bms.signal.infrastructure.outbox;
+
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
+import com.mi.bms.signal.infrastructure.mq.SignalProducer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SignalOutboxRelayTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private SignalProducer signalProducer;
+
+    private SignalOutboxRelay relay;
+    private final Deque<long[]> pages = new ArrayDeque<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        relay = new SignalOutboxRelay(jdbcTemplate, transactionManager, signalProducer);
+        ReflectionTestUtils.setField(relay, "mqEnabled", true);
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "maxBatchesPerRun", 10);
+        ReflectionTestUtils.setField(relay, "retryInitialMs", 60000L);
+        ReflectionTestUtils.setField(relay, "retryMaxMs", 60000L);
+
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            long[] ids = pages.isEmpty() ? new long[0] : pages.poll();
+            for (long id : ids) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn(id);
+                when(rs.getBytes("payload")).thenReturn(payload(id));
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), (Object[]) any());
+    }
+
+    @Test
+    void relay_ShouldSendInOrderAndDeleteRelayedEvents() {
+        // Given
+        pages.add(new long[] { 1, 2 });
+        pages.add(new long[] { 3 });
+
+        // When
+        relay.relay();
+
+        // Then
+        InOrder inOrder = inOrder(signalProducer, jdbcTemplate);
+        inOrder.verify(signalProducer).sendPayloads(argThat(payloads -> ids(payloads).equals(List.of(1L, 2L))));
+        inOrder.verify(jdbcTemplate).update(startsWith("DELETE FROM signal_outbox"), eq(1L), eq(2L));
+        inOrder.verify(signalProducer).sendPayloads(argThat(payloads -> ids(payloads).equals(List.of(3L))));
+        inOrder.verify(jdbcTemplate).update(startsWith("DELETE FROM signal_outbox"), eq(3L));
+    }
+
+    @Test
+    void relay_ShouldKeepEventsAndBackOffWhenSendFails() {
+        // Given
+        pages.add(new long[] { 1 });
+        doThrow(new IllegalStateException("broker down")).when(signalProducer).sendPayloads(any());
+
+        // When
+        relay.relay();
+        relay.relay();
+
+        // Then: nothing deleted, and the second run waits for the backoff instead of reading again
+        verify(jdbcTemplate, never()).update(startsWith("DELETE"), (Object[]) any());
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class), (Object[]) any());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void relay_ShouldSkipWhenAnotherNodeIsRelaying() {
+        // Given
+        doThrow(new CannotAcquireLockException("lock held"))
+                .when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), (Object[]) any());
+
+        // When
+        relay.relay();
+        relay.relay();
+
+        // Then: no send and no backoff, the next run tries again
+        verify(signalProducer, never()).sendPayloads(any());
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class), (Object[]) any());
+    }
+
+    @Test
+    void relay_ShouldDoNothingWhenMqDisabled() {
+        // Given
+        ReflectionTestUtils.setField(relay, "mqEnabled", false);
+
+        // When
+        relay.relay();
+
+        // Then
+        verifyNoInteractions(jdbcTemplate, signalProducer);
+    }
+
+    private byte[] payload(long id) {
+        Signal signal = Signal.create(1, 1, Map.of("Mx", new BigDecimal("3.8"), "Mi", new BigDecimal("3.5")));
+        signal.markAsPersisted(id, null);
+        return SignalMessageCodec.encode(signal);
+    }
+
+    private List<Long> ids(List<byte[]> payloads) {
+        return payloads.stream().map(p -> SignalMessageCodec.decode(p).getId()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,185 @@
+package com.mi.bms.signal.infrastructure.scan;
+
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import com.mi.bms.signal.infrastructure.mq.SignalProducer;
+import com.mi.bms.warning.infrastructure.deadletter.SignalDeadLetterQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class UnprocessedSignalScannerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private SignalProducer signalProducer;
+    @Mock
+    private SignalDeadLetterQueue deadLetterQueue;
+
+    private UnprocessedSignalScanner scanner;
+    private final List<Object> arguments = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        scanner = new UnprocessedSignalScanner(jdbcTemplate, transactionManager, signalProducer, deadLetterQueue);
+        ReflectionTestUtils.setField(scanner, "enabled", true);
+        ReflectionTestUtils.setField(scanner, "mqEnabled", true);
+        ReflectionTestUtils.setField(scanner, "batchSize", 2);
+        ReflectionTestUtils.setField(scanner, "maxBatchesPerRun", 10);
+        ReflectionTestUtils.setField(scanner, "graceMs", 60000L);
+        ReflectionTestUtils.setField(scanner, "leaseMs", 300000L);
+        ReflectionTestUtils.setField(scanner, "maxInFlight", 100);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any())).thenReturn(0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scan_ShouldClaimByKeysetPagesAndDispatchInBatches() {
+        // Given: a backlog of three signals, pages of two
+        when(jdbcTemplate.query(startsWith("SELECT id"), any(RowMapper.class), any()))
+                .thenAnswer(invocation -> {
+                    arguments.add(invocation.getArguments()[2]);
+                    return arguments.size() == 1 ? List.of(signal(1L), signal(2L)) : List.of(signal(3L));
+                });
+
+        // When
+        scanner.scan();
+
+        // Then
+        assertEquals(List.of(0L, 2L), arguments);
+        verify(signalProducer, times(2)).sendBatch(any());
+        verify(jdbcTemplate, times(2)).update(startsWith("UPDATE `signal` SET dispatched_at = ?"), (Object[]) any());
+        assertEquals(0L, ReflectionTestUtils.getField(scanner, "cursor"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scan_ShouldPauseWhenConsumersAreBehind() {
+        // Given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any())).thenReturn(100);
+
+        // When
+        scanner.scan();
+
+        // Then
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), any());
+        verify(signalProducer, never()).sendBatch(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scan_ShouldShrinkPageToRemainingInFlightBudget() {
+        // Given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any())).thenReturn(99);
+        when(jdbcTemplate.query(startsWith("SELECT id"), any(RowMapper.class), any()))
+                .thenAnswer(invocation -> {
+                    arguments.add(invocation.getArguments()[5]);
+                    return List.of();
+                });
+
+        // When
+        scanner.scan();
+
+        // Then: only one more signal may be in flight
+        assertEquals(List.of(1), arguments);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scan_ShouldReleaseLeaseAndRewindWhenDispatchFails() {
+        // Given
+        ReflectionTestUtils.setField(scanner, "cursor", 10L);
+        when(jdbcTemplate.query(startsWith("SELECT id"), any(RowMapper.class), any()))
+                .thenReturn(List.of(signal(11L), signal(12L)));
+        doThrow(new IllegalStateException("broker down")).when(signalProducer).sendBatch(any());
+
+        // When
+        scanner.scan();
+
+        // Then
+        verify(jdbcTemplate).update(startsWith("UPDATE `signal` SET dispatched_at = NULL"), (Object[]) any());
+        assertEquals(10L, ReflectionTestUtils.getField(scanner, "cursor"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scan_ShouldDeadLetterUnparsableRowsAndAdvancePastThem() {
+        // Given: the second row of the page holds legacy data the codec rejects
+        when(jdbcTemplate.query(startsWith("SELECT id"), any(RowMapper.class), any()))
+                .thenAnswer(invocation -> {
+                    arguments.add(invocation.getArguments()[2]);
+                    if (arguments.size() > 1) {
+                        return List.of();
+                    }
+                    RowMapper<Signal> mapper = invocation.getArgument(1);
+                    List<Signal> rows = new ArrayList<>();
+                    rows.add(mapper.mapRow(row(1L, "{\"Mx\":3.8,\"Mi\":3.5}"), 0));
+                    rows.add(mapper.mapRow(row(2L, "Mx=3.8"), 1));
+                    return rows;
+                });
+
+        // When
+        scanner.scan();
+
+        // Then: the good row is dispatched, the bad one is flagged and the cursor moves on
+        verify(signalProducer).sendBatch(argThat(signals -> signals.size() == 1 && signals.get(0).getId() == 1L));
+        verify(deadLetterQueue).addUnparsable(eq(2L), eq(1), eq("Mx=3.8"), any(IllegalArgumentException.class));
+        assertEquals(List.of(0L, 2L), arguments);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scan_ShouldDoNothingWhenMqDisabled() {
+        // Given
+        ReflectionTestUtils.setField(scanner, "mqEnabled", false);
+
+        // When
+        scanner.scan();
+
+        // Then
+        verifyNoInteractions(jdbcTemplate, signalProducer);
+    }
+
+    private ResultSet row(long id, String signalData) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getInt("car_id")).thenReturn(1);
+        when(rs.getInt("battery_type_id")).thenReturn(1);
+        when(rs.getString("signal_data")).thenReturn(signalData);
+        when(rs.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.now().minusMinutes(5)));
+        return rs;
+    }
+
+    private Signal signal(Long id) {
+        Signal signal = Signal.create(1, 1, SignalDataCodec.parse("{\"Mx\":3.8,\"Mi\":3.5}"));
+        signal.markAsPersisted(id, LocalDateTime.now().minusMinutes(5));
+        return signal;
+    }
+}
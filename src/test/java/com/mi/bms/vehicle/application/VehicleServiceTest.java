@@ -7,6 +7,7 @@ import com.mi.bms.vehicle.domain.model.BatteryType;
 import com.mi.bms.vehicle.domain.model.Vehicle;
 import com.mi.bms.vehicle.domain.repository.VehicleRepository;
 import com.mi.bms.vehicle.domain.service.VehicleDomainService;
+import com.mi.bms.vehicle.infrastructure.cache.VehicleRegistry;
 import com.mi.bms.vehicle.interfaces.rest.dto.VehicleRequest;
 import com.mi.bms.vehicle.interfaces.rest.dto.VehicleResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +35,9 @@ public class VehicleServiceTest {
     @Mock
     private VehicleDomainService vehicleDomainService;
 
+    @Mock
+    private VehicleRegistry vehicleRegistry;
+
     @InjectMocks
     private VehicleServiceImpl vehicleService;
 
@@ -99,6 +103,7 @@ public class VehicleServiceTest {
                 vehicleRequest.getBatteryTypeCode(),
                 status);
         verify(vehicleRepository).save(any(Vehicle.class));
+        verify(vehicleRegistry).register(vehicle);
     }
 
     @Test
@@ -125,6 +130,7 @@ public class VehicleServiceTest {
                 vehicleRequest.getBatteryTypeCode(),
                 status);
         verify(vehicleRepository, never()).save(any(Vehicle.class));
+        verify(vehicleRegistry, never()).register(any());
     }
 
     @Test
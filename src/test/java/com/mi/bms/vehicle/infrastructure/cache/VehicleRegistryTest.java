@@ -0,0 +1,138 @@
+package com.mi.bms.vehicle.infrastructure.cache;
+
+import com.mi.bms.vehicle.domain.model.BatteryType;
+import com.mi.bms.vehicle.domain.model.Vehicle;
+import com.mi.bms.vehicle.domain.repository.BatteryTypeRepository;
+import com.mi.bms.vehicle.domain.repository.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class VehicleRegistryTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+    @Mock
+    private BatteryTypeRepository batteryTypeRepository;
+
+    private VehicleRegistry registry;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void setUp() {
+        registry = new VehicleRegistry(vehicleRepository, batteryTypeRepository);
+        ReflectionTestUtils.setField(registry, "negativeTtlMs", 60_000L);
+        ReflectionTestUtils.setField(registry, "negativeMaxSize", 100);
+
+        vehicle = Vehicle.create("test123456789012", 1, 2, Vehicle.VehicleStatus.create(100L, 100));
+        BatteryType batteryType = BatteryType.builder().id(2).code("LFP").name("铁锂电池").build();
+
+        when(vehicleRepository.findAll()).thenReturn(List.of(vehicle));
+        when(batteryTypeRepository.findAll()).thenReturn(List.of(batteryType));
+        registry.reload();
+    }
+
+    @Test
+    void find_LoadedVehicle_ShouldNotQueryDatabase() {
+        // When
+        VehicleRegistry.Entry entry = registry.find(1);
+
+        // Then
+        assertNotNull(entry);
+        assertEquals("test123456789012", entry.getVid());
+        assertEquals(2, entry.getBatteryTypeId());
+        assertEquals("LFP", registry.getBatteryType(2).getCode());
+        verify(vehicleRepository, never()).findByCarIdIn(anyCollection());
+        verify(batteryTypeRepository, never()).findById(any());
+    }
+
+    @Test
+    void find_UnknownCarId_ShouldBeNegativelyCached() {
+        // Given
+        when(vehicleRepository.findByCarIdIn(anyCollection())).thenReturn(List.of());
+
+        // When
+        assertNull(registry.find(99));
+        assertNull(registry.find(99));
+        assertNull(registry.find(99));
+
+        // Then - only the first lookup reaches the database
+        verify(vehicleRepository, times(1)).findByCarIdIn(anyCollection());
+    }
+
+    @Test
+    void findAll_ShouldBatchMissesIntoOneQuery() {
+        // Given
+        Vehicle other = Vehicle.create("test987654321098", 5, 2, Vehicle.VehicleStatus.create(1L, 90));
+        when(vehicleRepository.findByCarIdIn(anyCollection())).thenReturn(List.of(other));
+
+        // When
+        Map<Integer, VehicleRegistry.Entry> result = registry.findAll(List.of(1, 5, 99));
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals("test987654321098", result.get(5).getVid());
+        verify(vehicleRepository, times(1)).findByCarIdIn(List.of(5, 99));
+
+        // The newly discovered vehicle is now served from memory
+        assertNotNull(registry.find(5));
+        verify(vehicleRepository, times(1)).findByCarIdIn(anyCollection());
+    }
+
+    @Test
+    void register_ShouldClearNegativeEntry() {
+        // Given
+        when(vehicleRepository.findByCarIdIn(anyCollection())).thenReturn(List.of());
+        assertNull(registry.find(7));
+
+        // When
+        Vehicle created = Vehicle.create("test000000000007", 7, 2, Vehicle.VehicleStatus.create(0L, 100));
+        registry.register(created);
+
+        // Then
+        assertNotNull(registry.find(7));
+        verify(vehicleRepository, times(1)).findByCarIdIn(anyCollection());
+    }
+
+    @Test
+    void evict_ShouldRemoveVehicle() {
+        // Given
+        when(vehicleRepository.findByCarIdIn(anyCollection())).thenReturn(List.of());
+
+        // When
+        registry.evict(1);
+
+        // Then
+        assertNull(registry.find(1));
+    }
+
+    @Test
+    void getBatteryType_Miss_ShouldLoadOnce() {
+        // Given
+        BatteryType ternary = BatteryType.builder().id(1).code("TERNARY").name("三元电池").build();
+        when(batteryTypeRepository.findById(1)).thenReturn(Optional.of(ternary));
+
+        // When
+        registry.getBatteryType(1);
+        registry.getBatteryType(1);
+
+        // Then
+        verify(batteryTypeRepository, times(1)).findById(1);
+    }
+}
@@ -1,14 +1,19 @@
 package com.mi.bms.warning.application.impl;
 
-import com.mi.bms.rule.domain.model.WarnRule;
 import com.mi.bms.rule.domain.service.RuleEngine;
+import com.mi.bms.rule.domain.service.RuleMatch;
 import com.mi.bms.signal.domain.model.Signal;
 import com.mi.bms.signal.domain.repository.SignalRepository;
+import com.mi.bms.signal.infrastructure.cache.SignalHistoryCache;
+import com.mi.bms.signal.infrastructure.persistence.SignalBatchWriter;
 import com.mi.bms.vehicle.domain.model.BatteryType;
 import com.mi.bms.vehicle.domain.repository.BatteryTypeRepository;
 import com.mi.bms.warning.domain.model.Warning;
 import com.mi.bms.warning.domain.repository.WarningRepository;
 import com.mi.bms.warning.infrastructure.cache.WarningCache;
+import com.mi.bms.warning.infrastructure.persistence.WarningBatchWriter;
+import com.mi.bms.warning.infrastructure.suppression.LocalWarningSuppressionStore;
+import com.mi.bms.warning.infrastructure.suppression.WarningSuppressor;
 import com.mi.bms.warning.interfaces.rest.dto.WarningResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,14 +24,18 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -46,11 +55,18 @@ class WarningServiceImplTest {
     private RuleEngine ruleEngine;
     @Mock
     private WarningCache warningCache;
+    @Mock
+    private SignalBatchWriter signalBatchWriter;
+    @Mock
+    private SignalHistoryCache signalHistoryCache;
+    @Mock
+    private WarningBatchWriter warningBatchWriter;
 
     @Captor
-    private ArgumentCaptor<Warning> warningCaptor;
+    private ArgumentCaptor<List<Warning>> warningsCaptor;
 
     private WarningServiceImpl warningService;
+    private long nextWarningId = 1;
 
     @BeforeEach
     void setUp() {
@@ -59,7 +75,17 @@ class WarningServiceImplTest {
                 warningRepository,
                 batteryTypeRepository,
                 ruleEngine,
-                warningCache);
+                warningCache,
+                signalBatchWriter,
+                signalHistoryCache,
+                warningBatchWriter,
+                suppressor());
+        doAnswer(invocation -> {
+            for (Warning warning : invocation.<List<Warning>>getArgument(0)) {
+                warning.markAsPersisted(nextWarningId++, LocalDateTime.now());
+            }
+            return null;
+        }).when(warningBatchWriter).insertAll(any());
     }
 
     @Test
@@ -71,91 +97,156 @@ class WarningServiceImplTest {
         String ruleName = "Test Rule";
         Integer warnLevel = 2;
 
-        Map<String, BigDecimal> signalValues = new HashMap<>();
-        signalValues.put("Mx", new BigDecimal("3.8"));
-        signalValues.put("Mi", new BigDecimal("3.5"));
-        Signal signal = Signal.create(carId, batteryTypeId, signalValues);
-        Signal savedSignal = Signal.create(carId, batteryTypeId, signalValues);
-        Signal processedSignal = Signal.create(carId, batteryTypeId, signalValues);
-        processedSignal.markAsProcessed();
-
-        // Mock the save behavior to return different signals for each save
-        when(signalRepository.save(any(Signal.class))).thenReturn(savedSignal, processedSignal);
-
-        BatteryType batteryType = mock(BatteryType.class);
-        when(batteryType.getId()).thenReturn(batteryTypeId);
-
-        WarnRule rule = mock(WarnRule.class);
-        when(rule.getRuleNo()).thenReturn(ruleNo);
-        when(rule.getName()).thenReturn(ruleName);
-
-        WarnRule.RuleCondition condition = mock(WarnRule.RuleCondition.class);
-        when(condition.getWarnLevel()).thenReturn(warnLevel);
-
-        when(signalRepository.findById(any())).thenReturn(Optional.of(savedSignal));
-        when(batteryTypeRepository.findById(batteryTypeId)).thenReturn(Optional.of(batteryType));
-        when(ruleEngine.getRulesForBatteryType(batteryTypeId)).thenReturn(List.of(rule));
-        when(ruleEngine.evaluateSignal(ruleNo, batteryTypeId, savedSignal.getValues().getVoltageDiff()))
-                .thenReturn(Optional.of(condition));
-
-        Warning savedWarning = Warning.create(carId, batteryTypeId, ruleNo, ruleName, warnLevel,
-                savedSignal.getSignalData());
-        when(warningRepository.save(any(Warning.class))).thenReturn(savedWarning);
+        Signal signal = persistedSignal(1L, carId, batteryTypeId);
+        when(signalRepository.lockUnprocessedByIdIn(List.of(1L))).thenReturn(List.of(signal));
+        when(ruleEngine.evaluate(batteryTypeId, signal.getValues()))
+                .thenReturn(List.of(new RuleMatch(ruleNo, ruleName, warnLevel)));
 
         // When
         warningService.generateWarning(1L);
 
         // Then
-        verify(warningRepository).save(warningCaptor.capture());
-        verify(warningCache).invalidate(carId, batteryTypeId);
-        verify(signalRepository).save(any(Signal.class));
+        verify(warningBatchWriter).insertAll(warningsCaptor.capture());
+        verify(signalBatchWriter).markProcessed(List.of(1L));
+        verify(warningCache).invalidate(Set.of(carId));
+        verify(warningRepository, never()).save(any());
+        verify(signalRepository, never()).save(any());
 
-        Warning capturedWarning = warningCaptor.getValue();
+        List<Warning> captured = warningsCaptor.getValue();
+        assertEquals(1, captured.size());
+        Warning capturedWarning = captured.get(0);
         assertEquals(carId, capturedWarning.getCarId());
         assertEquals(batteryTypeId, capturedWarning.getBatteryTypeId());
         assertEquals(ruleNo, capturedWarning.getRuleNo());
         assertEquals(ruleName, capturedWarning.getRuleName());
         assertEquals(warnLevel, capturedWarning.getWarnLevel());
-        assertEquals(savedSignal.getSignalData(), capturedWarning.getSignalData());
-        assertTrue(processedSignal.isProcessed());
+        assertEquals(signal.getSignalData(), capturedWarning.getSignalData());
     }
 
     @Test
     void generateWarning_ShouldNotCreateWarningWhenNoRuleTriggered() {
         // Given
-        Integer carId = 1;
-        Integer batteryTypeId = 2;
+        Signal signal = persistedSignal(1L, 1, 2);
+        when(signalRepository.lockUnprocessedByIdIn(List.of(1L))).thenReturn(List.of(signal));
+        when(ruleEngine.evaluate(any(), any())).thenReturn(List.of());
 
-        Map<String, BigDecimal> signalValues = new HashMap<>();
-        signalValues.put("Mx", new BigDecimal("3.8"));
-        signalValues.put("Mi", new BigDecimal("3.5"));
-        Signal signal = Signal.create(carId, batteryTypeId, signalValues);
-        Signal savedSignal = Signal.create(carId, batteryTypeId, signalValues);
-        Signal processedSignal = Signal.create(carId, batteryTypeId, signalValues);
-        processedSignal.markAsProcessed();
+        // When
+        warningService.generateWarning(1L);
 
-        // Mock the save behavior to return different signals for each save
-        when(signalRepository.save(any(Signal.class))).thenReturn(savedSignal, processedSignal);
+        // Then
+        verify(warningBatchWriter).insertAll(List.of());
+        verify(signalBatchWriter).markProcessed(List.of(1L));
+        verify(warningCache).invalidate(Set.of());
+    }
 
-        BatteryType batteryType = mock(BatteryType.class);
-        when(batteryType.getId()).thenReturn(batteryTypeId);
+    @Test
+    void generateWarnings_ShouldProcessBatchWithSingleInsertAndUpdate() {
+        // Given: signals 1 and 2 belong to the same car, signal 3 is already processed
+        Signal first = persistedSignal(1L, 1, 2);
+        Signal second = persistedSignal(2L, 1, 2);
+        Signal third = persistedSignal(4L, 5, 2);
+        when(signalRepository.lockUnprocessedByIdIn(List.of(1L, 2L, 3L, 4L)))
+                .thenReturn(List.of(first, second, third));
+        when(ruleEngine.evaluate(any(), any()))
+                .thenReturn(List.of(new RuleMatch(1, "Voltage", 1), new RuleMatch(2, "Current", 2)));
 
-        WarnRule rule = mock(WarnRule.class);
-        when(rule.getRuleNo()).thenReturn(3);
+        // When
+        int generated = warningService.generateWarnings(List.of(1L, 2L, 3L, 4L));
+
+        // Then: car 1 reported twice, its repeats are folded into the warnings written for this batch
+        assertEquals(4, generated);
+        verify(signalRepository, times(1)).lockUnprocessedByIdIn(any());
+        verify(warningBatchWriter, times(1)).insertAll(warningsCaptor.capture());
+        assertEquals(4, warningsCaptor.getValue().size());
+        assertEquals(List.of(2, 2, 1, 1), warningsCaptor.getValue().stream()
+                .map(Warning::getOccurrences).collect(Collectors.toList()));
+        verify(signalBatchWriter, times(1)).markProcessed(List.of(1L, 2L, 4L));
+        verify(warningCache, times(1)).invalidate(Set.of(1, 5));
+    }
 
-        when(signalRepository.findById(any())).thenReturn(Optional.of(savedSignal));
-        when(batteryTypeRepository.findById(batteryTypeId)).thenReturn(Optional.of(batteryType));
-        when(ruleEngine.getRulesForBatteryType(batteryTypeId)).thenReturn(List.of(rule));
-        when(ruleEngine.evaluateSignal(any(), any(), any())).thenReturn(Optional.empty());
+    @Test
+    void generateWarningsForSignals_ShouldClaimSignalsAndSkipAlreadyProcessedWithoutReloading() {
+        // Given
+        Signal first = persistedSignal(1L, 1, 2);
+        Signal second = persistedSignal(2L, 3, 2);
+        when(signalBatchWriter.claimUnprocessed(List.of(1L, 2L))).thenReturn(Map.of(2L, second.getCreatedAt()));
+        when(ruleEngine.evaluate(2, second.getValues())).thenReturn(List.of(new RuleMatch(1, "Voltage", 0)));
 
         // When
-        warningService.generateWarning(1L);
+        int generated = warningService.generateWarningsForSignals(List.of(first, second));
 
         // Then
-        verify(warningRepository, never()).save(any());
-        verify(warningCache, never()).invalidate(any(), any());
-        verify(signalRepository).save(any(Signal.class));
-        assertTrue(processedSignal.isProcessed());
+        assertEquals(1, generated);
+        verify(signalRepository, never()).lockUnprocessedByIdIn(any());
+        verify(ruleEngine, never()).evaluate(2, first.getValues());
+        verify(signalBatchWriter, never()).markProcessed(any());
+        verify(signalHistoryCache).markProcessed(List.of(second));
+        verify(warningCache).invalidate(Set.of(3));
+    }
+
+    @Test
+    void generateWarningsForSignals_ShouldBackfillCreatedAtOfDecodedSignals() {
+        // Given: signals decoded from messages carry no createdAt
+        Signal decoded = persistedSignal(1L, 1, 2);
+        decoded.markAsPersisted(1L, null);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 8, 30);
+        when(signalBatchWriter.claimUnprocessed(List.of(1L))).thenReturn(Map.of(1L, createdAt));
+
+        // When
+        warningService.generateWarningsForSignals(List.of(decoded));
+
+        // Then: the history cache can place the processed marker in the right hour bucket
+        assertEquals(createdAt, decoded.getCreatedAt());
+        verify(signalHistoryCache).markProcessed(List.of(decoded));
+    }
+
+    @Test
+    void recordWarnings_ShouldWriteWholeChunkInOneBatch() {
+        // Given
+        Map<Signal, List<RuleMatch>> matchesBySignal = new LinkedHashMap<>();
+        matchesBySignal.put(persistedSignal(1L, 1, 2), List.of(new RuleMatch(1, "Voltage", 1)));
+        matchesBySignal.put(persistedSignal(2L, 3, 2), List.of());
+        matchesBySignal.put(persistedSignal(3L, 5, 2), List.of(new RuleMatch(2, "Current", 2)));
+
+        // When
+        warningService.recordWarnings(matchesBySignal);
+
+        // Then
+        verify(warningBatchWriter, times(1)).insertAll(warningsCaptor.capture());
+        assertEquals(List.of(1, 5), warningsCaptor.getValue().stream().map(Warning::getCarId).collect(Collectors.toList()));
+        verify(warningCache, times(1)).invalidate(Set.of(1, 5));
+        verifyNoInteractions(ruleEngine);
+    }
+
+    @Test
+    void generateWarnings_ShouldFoldRepeatsIntoOpenWarningUntilLevelChanges() {
+        // Given
+        Signal first = persistedSignal(1L, 1, 2);
+        Signal repeat = persistedSignal(2L, 1, 2);
+        Signal escalated = persistedSignal(3L, 1, 2);
+        when(signalRepository.lockUnprocessedByIdIn(List.of(1L))).thenReturn(List.of(first));
+        when(signalRepository.lockUnprocessedByIdIn(List.of(2L))).thenReturn(List.of(repeat));
+        when(signalRepository.lockUnprocessedByIdIn(List.of(3L))).thenReturn(List.of(escalated));
+        when(ruleEngine.evaluate(any(), any()))
+                .thenReturn(List.of(new RuleMatch(1, "Voltage", 2)))
+                .thenReturn(List.of(new RuleMatch(1, "Voltage", 2)))
+                .thenReturn(List.of(new RuleMatch(1, "Voltage", 1)));
+
+        // When
+        int opened = warningService.generateWarnings(List.of(1L));
+        int folded = warningService.generateWarnings(List.of(2L));
+        int changed = warningService.generateWarnings(List.of(3L));
+
+        // Then
+        assertEquals(1, opened);
+        assertEquals(0, folded);
+        assertEquals(1, changed);
+        verify(warningBatchWriter).addOccurrences(eq(Map.of(1L, 1)), any());
+        verify(warningBatchWriter, times(3)).insertAll(warningsCaptor.capture());
+        assertTrue(warningsCaptor.getAllValues().get(1).isEmpty());
+        assertEquals(1, warningsCaptor.getAllValues().get(2).get(0).getWarnLevel());
+        // Folded repeats still change what the car's warning query returns
+        verify(warningCache, times(3)).invalidate(Set.of(1));
     }
 
     @Test
@@ -173,7 +264,7 @@ class WarningServiceImplTest {
         Warning warning = Warning.create(carId, 2, 3, "Test Rule", 2, "{}");
         List<Warning> warnings = List.of(warning);
 
-        when(warningCache.getByCarId(carId, from, to)).thenReturn(warnings);
+        when(warningCache.getByCarId(eq(carId), eq(from), eq(to), any())).thenReturn(warnings);
         when(batteryTypeRepository.findAllById(List.of(2))).thenReturn(List.of(batteryType));
 
         // When
@@ -210,7 +301,9 @@ class WarningServiceImplTest {
         Warning warning = Warning.create(carId, 2, 3, "Test Rule", 2, "{}");
         List<Warning> warnings = List.of(warning);
 
-        when(warningCache.getByCarId(carId, from, to)).thenReturn(null);
+        // the cache misses every bucket and loads the whole range
+        when(warningCache.getByCarId(eq(carId), eq(from), eq(to), any())).thenAnswer(invocation ->
+                invocation.<BiFunction<LocalDateTime, LocalDateTime, List<Warning>>>getArgument(3).apply(from, to));
         when(warningRepository.findByCarIdAndTimeRange(carId, from, to)).thenReturn(warnings);
         when(batteryTypeRepository.findAllById(List.of(2))).thenReturn(List.of(batteryType));
 
@@ -227,7 +320,7 @@ class WarningServiceImplTest {
         assertEquals("BT001", response.getBatteryTypeCode());
         assertEquals("Test Battery", response.getBatteryTypeName());
 
-        verify(warningCache).putByCarId(carId, from, to, warnings);
+        verify(warningRepository).findByCarIdAndTimeRange(carId, from, to);
     }
 
     @Test
@@ -320,4 +413,20 @@ class WarningServiceImplTest {
         assertEquals("Test Rule 2", response2.getRuleName());
         assertEquals(3, response2.getWarnLevel());
     }
-}
\ No newline at end of file
+
+    private Signal persistedSignal(Long id, Integer carId, Integer batteryTypeId) {
+        Map<String, BigDecimal> signalValues = new HashMap<>();
+        signalValues.put("Mx", new BigDecimal("3.8"));
+        signalValues.put("Mi", new BigDecimal("3.5"));
+        Signal signal = Signal.create(carId, batteryTypeId, signalValues);
+        signal.markAsPersisted(id, LocalDateTime.now());
+        return signal;
+    }
+
+    private WarningSuppressor suppressor() {
+        WarningSuppressor suppressor = new WarningSuppressor(new LocalWarningSuppressionStore());
+        ReflectionTestUtils.setField(suppressor, "enabled", true);
+        ReflectionTestUtils.setField(suppressor, "renotifyIntervalMs", 600000L);
+        return suppressor;
+    }
+}
@@ -0,0 +1,312 @@
+package com.mi.bms.warning.infrastructure.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mi.bms.warning.domain.model.Warning;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class WarningCacheTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+    @Mock
+    private RedisConnection connection;
+    @Mock
+    private RedisStringCommands stringCommands;
+
+    private WarningCache warningCache;
+
+    @BeforeEach
+    void setUp() {
+        warningCache = new WarningCache(redisTemplate, new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(warningCache, "sealDelayMs", 900000L);
+        ReflectionTestUtils.setField(warningCache, "suppressionEnabled", true);
+        ReflectionTestUtils.setField(warningCache, "renotifyIntervalMs", 600000L);
+        ReflectionTestUtils.setField(warningCache, "sealedTtlHours", 168L);
+        ReflectionTestUtils.setField(warningCache, "maxBuckets", 48);
+        ReflectionTestUtils.setField(warningCache, "localMaxEntries", 100);
+        ReflectionTestUtils.setField(warningCache, "localMaxWeight", 1000L);
+        ReflectionTestUtils.setField(warningCache, "localTtlMs", 60000L);
+        ReflectionTestUtils.setField(warningCache, "localSealedTtlMs", 60000L);
+        warningCache.start();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyCollection())).thenAnswer(invocation ->
+                Collections.nCopies(invocation.<Collection<?>>getArgument(0).size(), null));
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return List.of();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    @Test
+    void getByCarId_ShouldLoadMissingBucketsOnceAndTrimEdges() {
+        // Given: a historical range spanning three hour buckets
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 30);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 1, 2, 30);
+        RecordingLoader loader = new RecordingLoader(List.of(
+                warning(1L, LocalDateTime.of(2024, 1, 1, 0, 10)),
+                warning(2L, LocalDateTime.of(2024, 1, 1, 1, 0)),
+                warning(3L, LocalDateTime.of(2024, 1, 1, 2, 40))));
+
+        // When
+        List<Warning> first = warningCache.getByCarId(7, from, to, loader);
+        List<Warning> second = warningCache.getByCarId(7, from, to, loader);
+
+        // Then: one load for the whole span, the repeat is served from the local cache
+        assertEquals(List.of(2L), ids(first));
+        assertEquals(List.of(2L), ids(second));
+        assertEquals(List.of(LocalDateTime.of(2024, 1, 1, 0, 0)), loader.starts);
+        assertEquals(LocalDateTime.of(2024, 1, 1, 3, 0).minusNanos(1), loader.ends.get(0));
+        verify(stringCommands).setEx(bytes("warning:b:7:2024010100"), eq(604800L), any(byte[].class));
+        verify(stringCommands).setEx(bytes("warning:b:7:2024010102"), eq(604800L), any(byte[].class));
+        verify(valueOperations, never()).get("warning:ver:7");
+        assertEquals(3, warningCache.stats().getL1Hits());
+    }
+
+    @Test
+    void getByCarId_ShouldOnlyLoadNewBucketsOfSlidingRange() {
+        // Given
+        RecordingLoader loader = new RecordingLoader(List.of());
+        warningCache.getByCarId(7, LocalDateTime.of(2024, 1, 1, 0, 5), LocalDateTime.of(2024, 1, 1, 1, 5), loader);
+
+        // When: the dashboard range moves forward by one hour
+        warningCache.getByCarId(7, LocalDateTime.of(2024, 1, 1, 1, 5), LocalDateTime.of(2024, 1, 1, 2, 5), loader);
+
+        // Then
+        assertEquals(List.of(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 1, 2, 0)), loader.starts);
+    }
+
+    @Test
+    void getByCarId_ShouldUseRedisBucketsAndFillLocalCache() {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 1, 0, 59);
+        when(valueOperations.multiGet(List.of("warning:b:7:2024010100"))).thenReturn(Collections.singletonList("[]"));
+        RecordingLoader loader = new RecordingLoader(List.of());
+
+        // When
+        warningCache.getByCarId(7, from, to, loader);
+        warningCache.getByCarId(7, from, to, loader);
+
+        // Then
+        assertTrue(loader.starts.isEmpty());
+        WarningCache.Stats stats = warningCache.stats();
+        assertEquals(1, stats.getL2Hits());
+        assertEquals(1, stats.getL1Hits());
+        assertEquals(0.5, stats.getL1HitRatio());
+    }
+
+    @Test
+    void getByCarId_ShouldVersionOpenBuckets() {
+        // Given
+        LocalDateTime to = LocalDateTime.now();
+        when(valueOperations.get("warning:ver:7")).thenReturn("3");
+
+        // When
+        warningCache.getByCarId(7, to.minusMinutes(1), to, new RecordingLoader(List.of()));
+
+        // Then
+        String bucket = to.truncatedTo(ChronoUnit.HOURS).format(DateTimeFormatter.ofPattern("yyyyMMddHH"));
+        verify(stringCommands).setEx(bytes("warning:b:7:" + bucket + ":v3"), eq(3600L), any(byte[].class));
+    }
+
+    @Test
+    void getByCarId_ShouldBypassCacheForTooWideRange() {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(3);
+        RecordingLoader loader = new RecordingLoader(List.of());
+
+        // When
+        warningCache.getByCarId(7, from, to, loader);
+
+        // Then
+        assertEquals(List.of(from), loader.starts);
+        assertEquals(List.of(to), loader.ends);
+        verify(valueOperations, never()).multiGet(anyCollection());
+        assertEquals(1, warningCache.stats().getBypassed());
+    }
+
+    @Test
+    void currentVersion_ShouldDefaultToZero() {
+        // Given
+        when(valueOperations.get("warning:ver:7")).thenReturn(null);
+
+        // When / Then
+        assertEquals(0L, warningCache.currentVersion(7));
+    }
+
+    @Test
+    void start_ShouldRejectSealDelayShorterThanRenotifyInterval() {
+        // Given: buckets would seal while suppression can still fold repeats into them
+        ReflectionTestUtils.setField(warningCache, "sealDelayMs", 600000L);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> warningCache.start());
+
+        // Without suppression only the write transaction has to fit
+        ReflectionTestUtils.setField(warningCache, "suppressionEnabled", false);
+        assertDoesNotThrow(() -> warningCache.start());
+    }
+
+    @Test
+    void invalidate_ShouldIncrementVersionWithoutScanningKeys() {
+        // When
+        warningCache.invalidate(7, 2);
+
+        // Then
+        verify(stringCommands).incr(bytes("warning:ver:7"));
+        verify(redisTemplate, never()).keys(anyString());
+        verify(redisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    void invalidate_ShouldCoalesceUntilCommitInsideTransaction() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When: one signal triggered two warnings for car 7, another one for car 8
+        warningCache.invalidate(7, 2);
+        warningCache.invalidate(7, 2);
+        warningCache.invalidate(List.of(8, 7));
+
+        // Then: nothing is sent before commit
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+        verify(stringCommands, times(1)).incr(bytes("warning:ver:7"));
+        verify(stringCommands, times(1)).incr(bytes("warning:ver:8"));
+    }
+
+    @Test
+    void invalidate_ShouldBeDroppedOnRollback() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        warningCache.invalidate(7, 2);
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Then
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+        assertNull(TransactionSynchronizationManager.getResource(warningCache));
+    }
+
+    @Test
+    void invalidate_ShouldKeepSealedBucketsAndBroadcast() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        RecordingLoader loader = new RecordingLoader(List.of());
+        warningCache.getByCarId(7, LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 1, 0, 59), loader);
+        warningCache.getByCarId(7, now.minusMinutes(1), now, loader);
+        int loads = loader.starts.size();
+
+        // When
+        warningCache.invalidate(List.of(7, 8));
+        warningCache.getByCarId(7, LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 1, 0, 59), loader);
+        warningCache.getByCarId(7, now.minusMinutes(1), now, loader);
+
+        // Then: only the open bucket is reloaded
+        assertEquals(loads + 1, loader.starts.size());
+        verify(connection).publish(bytes(WarningCache.INVALIDATION_CHANNEL), bytes("7,8"));
+    }
+
+    @Test
+    void getByCarId_ShouldNotCacheOpenBucketInvalidatedDuringLoad() {
+        // Given: another node invalidates car 7 while the database query is running
+        LocalDateTime now = LocalDateTime.now();
+        RecordingLoader loader = new RecordingLoader(List.of()) {
+            @Override
+            public List<Warning> apply(LocalDateTime start, LocalDateTime end) {
+                warningCache.evictLocal(List.of(7));
+                return super.apply(start, end);
+            }
+        };
+
+        // When
+        warningCache.getByCarId(7, now.minusMinutes(1), now, loader);
+
+        // Then
+        assertEquals(0, warningCache.stats().getL1Size());
+    }
+
+    private static Warning warning(long id, LocalDateTime createdAt) {
+        Warning warning = Warning.create(7, 2, 3, "Test Rule", 2, "{}");
+        warning.markAsPersisted(id, createdAt);
+        return warning;
+    }
+
+    private static List<Long> ids(List<Warning> warnings) {
+        return warnings.stream().map(Warning::getId).collect(Collectors.toList());
+    }
+
+    private static class RecordingLoader implements BiFunction<LocalDateTime, LocalDateTime, List<Warning>> {
+        final List<LocalDateTime> starts = new ArrayList<>();
+        final List<LocalDateTime> ends = new ArrayList<>();
+        private final List<Warning> warnings;
+
+        RecordingLoader(List<Warning> warnings) {
+            this.warnings = warnings;
+        }
+
+        @Override
+        public List<Warning> apply(LocalDateTime start, LocalDateTime end) {
+            starts.add(start);
+            ends.add(end);
+            return warnings;
+        }
+    }
+
+    private byte[] bytes(String key) {
+        return aryEq(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
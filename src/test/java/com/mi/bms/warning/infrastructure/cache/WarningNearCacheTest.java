@@ -0,0 +1,108 @@
+package com.mi.bms.warning.infrastructure.cache;
+
+import com.mi.bms.warning.domain.model.Warning;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarningNearCacheTest {
+
+    private static final LocalDateTime BUCKET = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Test
+    void get_ShouldExpireEntry() {
+        // Given
+        WarningNearCache cache = new WarningNearCache(10, 100);
+        cache.put(7, BUCKET, warnings(1), cache.stamp(7), 1000);
+
+        // When / Then
+        assertNotNull(cache.get(7, BUCKET, 999));
+        assertNull(cache.get(7, BUCKET, 1000));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsedBeyondMaxEntries() {
+        // Given
+        WarningNearCache cache = new WarningNearCache(2, 100);
+        cache.put(1, BUCKET, warnings(0), cache.stamp(1), Long.MAX_VALUE);
+        cache.put(2, BUCKET, warnings(0), cache.stamp(2), Long.MAX_VALUE);
+        cache.get(1, BUCKET, 0);
+
+        // When
+        cache.put(3, BUCKET, warnings(0), cache.stamp(3), Long.MAX_VALUE);
+
+        // Then: car 2 was the least recently read
+        assertNotNull(cache.get(1, BUCKET, 0));
+        assertNull(cache.get(2, BUCKET, 0));
+        assertNotNull(cache.get(3, BUCKET, 0));
+    }
+
+    @Test
+    void put_ShouldEvictByTotalWeight() {
+        // Given: each entry weighs its warning count plus one
+        WarningNearCache cache = new WarningNearCache(100, 10);
+        cache.put(1, BUCKET, warnings(4), cache.stamp(1), Long.MAX_VALUE);
+
+        // When
+        cache.put(2, BUCKET, warnings(5), cache.stamp(2), Long.MAX_VALUE);
+
+        // Then
+        assertNull(cache.get(1, BUCKET, 0));
+        assertNotNull(cache.get(2, BUCKET, 0));
+        assertEquals(6, cache.weight());
+    }
+
+    @Test
+    void put_ShouldSkipEntryHeavierThanMaxWeight() {
+        // Given
+        WarningNearCache cache = new WarningNearCache(100, 10);
+
+        // When
+        cache.put(1, BUCKET, warnings(10), cache.stamp(1), Long.MAX_VALUE);
+
+        // Then
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidate_ShouldRemoveOnlyOpenBucketsOfTheCar() {
+        // Given
+        WarningNearCache cache = new WarningNearCache(10, 100);
+        cache.put(7, BUCKET, warnings(1), cache.stamp(7), Long.MAX_VALUE);
+        cache.put(7, BUCKET.plusHours(1), warnings(1), cache.stamp(7), Long.MAX_VALUE);
+        cache.put(8, BUCKET.plusHours(1), warnings(1), cache.stamp(8), Long.MAX_VALUE);
+
+        // When: buckets from 01:00 on are still open
+        cache.invalidate(7, BUCKET.plusHours(1));
+
+        // Then
+        assertNotNull(cache.get(7, BUCKET, 0));
+        assertNull(cache.get(7, BUCKET.plusHours(1), 0));
+        assertNotNull(cache.get(8, BUCKET.plusHours(1), 0));
+        assertEquals(4, cache.weight());
+    }
+
+    @Test
+    void put_ShouldBeRejectedWhenInvalidatedSinceStamp() {
+        // Given
+        WarningNearCache cache = new WarningNearCache(10, 100);
+        long stamp = cache.stamp(7);
+
+        // When: the invalidation arrives while the bucket is being loaded
+        cache.invalidate(7, BUCKET);
+        cache.put(7, BUCKET, warnings(1), stamp, Long.MAX_VALUE);
+
+        // Then
+        assertNull(cache.get(7, BUCKET, 0));
+    }
+
+    private static List<Warning> warnings(int count) {
+        return Collections.nCopies(count, Warning.create(7, 2, 3, "Test Rule", 2, "{}"));
+    }
+}
@@ -0,0 +1,219 @@
+package com.mi.bms.warning.infrastructure.mq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mi.bms.signal.domain.model.Signal;
+import com.mi.bms.signal.domain.model.SignalDataCodec;
+import com.mi.bms.signal.domain.model.SignalMessageCodec;
+import com.mi.bms.signal.infrastructure.mq.SignalMessage;
+import com.mi.bms.signal.infrastructure.mq.SignalPartition;
+import com.mi.bms.warning.application.WarningService;
+import com.mi.bms.warning.infrastructure.deadletter.SignalDeadLetterQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SignalConsumerTest {
+
+    private static final SignalPartition QUEUE_0 = new SignalPartition("broker-a", 0);
+    private static final SignalPartition QUEUE_1 = new SignalPartition("broker-a", 1);
+
+    @Mock
+    private WarningService warningService;
+
+    @Mock
+    private SignalDeadLetterQueue deadLetterQueue;
+
+    private SignalConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new SignalConsumer(new ObjectMapper(), warningService, deadLetterQueue);
+        ReflectionTestUtils.setField(consumer, "maxRetries", 3);
+        ReflectionTestUtils.setField(consumer, "retryInitialMs", 100L);
+        ReflectionTestUtils.setField(consumer, "retryMaxMs", 1000L);
+    }
+
+    @Test
+    void consume_ShouldGenerateWarningsForWholeBatchInOneCall() {
+        // When
+        long delay = consumer.consume(List.of(message(7, 1L), message(8, 2L), message(7, 3L)), QUEUE_0);
+
+        // Then
+        assertEquals(0, delay);
+        verify(warningService).generateWarningsForSignals(argThat(ids(1L, 2L, 3L)));
+        verify(warningService, times(1)).generateWarningsForSignals(anyList());
+    }
+
+    @Test
+    void consume_ShouldSkipSignalAlreadyProcessedOnTheSameQueue() {
+        // When: a retried batch redelivers signals 1 and 2
+        consumer.consume(List.of(message(7, 1L), message(7, 2L)), QUEUE_0);
+        consumer.consume(List.of(message(7, 1L), message(7, 2L), message(7, 3L)), QUEUE_0);
+
+        // Then
+        verify(warningService).generateWarningsForSignals(argThat(ids(1L, 2L)));
+        verify(warningService).generateWarningsForSignals(argThat(ids(3L)));
+    }
+
+    @Test
+    void consume_ShouldProcessOlderSignalThatWasNotSeenBefore() {
+        // When: signal 5 is delivered after 6, e.g. re-dispatched by the scanner
+        consumer.consume(List.of(message(7, 6L)), QUEUE_0);
+        consumer.consume(List.of(message(7, 5L)), QUEUE_0);
+
+        // Then
+        verify(warningService).generateWarningsForSignals(argThat(ids(5L)));
+        verify(warningService).generateWarningsForSignals(argThat(ids(6L)));
+    }
+
+    @Test
+    void consume_ShouldKeepShardStatePerQueue() {
+        // When: after a rebalance the same vehicle shows up on another queue
+        consumer.consume(List.of(message(7, 1L)), QUEUE_0);
+        consumer.consume(List.of(message(7, 1L)), QUEUE_1);
+
+        // Then: the new shard has no state, the warning service stays idempotent on processed
+        verify(warningService, times(2)).generateWarningsForSignals(argThat(ids(1L)));
+    }
+
+    @Test
+    void consume_ShouldAcceptLegacyJsonBody() {
+        // Given
+        SignalMessage message = new SignalMessage("msg-9",
+                "{\"id\":9,\"carId\":7,\"batteryTypeId\":1,\"signalData\":\"{\\\"Mx\\\":3.8,\\\"Mi\\\":3.5}\"}"
+                        .getBytes(StandardCharsets.UTF_8), 0);
+
+        // When
+        consumer.consume(List.of(message), QUEUE_0);
+
+        // Then
+        verify(warningService).generateWarningsForSignals(argThat(ids(9L)));
+    }
+
+    @Test
+    void consume_ShouldFallBackToSingleSignalsAndBackOffWhenOneFails() {
+        // Given
+        when(warningService.generateWarningsForSignals(argThat(ids(1L, 2L, 3L)))).thenThrow(new IllegalStateException("deadlock"));
+        when(warningService.generateWarningsForSignals(argThat(ids(2L)))).thenThrow(new IllegalStateException("bad rule"));
+        SignalMessage failing = message(7, 2L, 2);
+
+        // When
+        long delay = consumer.consume(List.of(message(7, 1L), failing, message(7, 3L)), QUEUE_0);
+
+        // Then: 100 << 2, signal 3 waits behind 2 to keep the order
+        assertEquals(400, delay);
+        verify(warningService).generateWarningsForSignals(argThat(ids(1L)));
+        verify(warningService, never()).generateWarningsForSignals(argThat(ids(3L)));
+        verifyNoInteractions(deadLetterQueue);
+    }
+
+    @Test
+    void consume_ShouldNotReprocessSignalsThatSucceededBeforeRetry() {
+        // Given
+        when(warningService.generateWarningsForSignals(argThat(ids(1L, 2L)))).thenThrow(new IllegalStateException("deadlock"));
+        when(warningService.generateWarningsForSignals(argThat(ids(2L))))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(0);
+
+        // When
+        consumer.consume(List.of(message(7, 1L), message(7, 2L)), QUEUE_0);
+        long delay = consumer.consume(List.of(message(7, 1L), message(7, 2L)), QUEUE_0);
+
+        // Then
+        assertEquals(0, delay);
+        verify(warningService, times(1)).generateWarningsForSignals(argThat(ids(1L)));
+        verify(warningService, times(2)).generateWarningsForSignals(argThat(ids(2L)));
+    }
+
+    @Test
+    void consume_ShouldDeadLetterSignalAfterRetriesAreExhausted() {
+        // Given
+        when(warningService.generateWarningsForSignals(argThat(ids(2L, 3L)))).thenThrow(new IllegalStateException("bad rule"));
+        when(warningService.generateWarningsForSignals(argThat(ids(2L)))).thenThrow(new IllegalStateException("bad rule"));
+        SignalMessage failing = message(7, 2L, 3);
+
+        // When
+        long delay = consumer.consume(List.of(failing, message(7, 3L)), QUEUE_0);
+
+        // Then: the poison message is parked and the rest of the batch goes on
+        assertEquals(0, delay);
+        verify(deadLetterQueue).add(eq(failing), eq(QUEUE_0), any(Signal.class), any(IllegalStateException.class));
+        verify(warningService).generateWarningsForSignals(argThat(ids(3L)));
+    }
+
+    @Test
+    void consume_ShouldDeadLetterUndecodableMessageOnlyOnce() {
+        // Given
+        SignalMessage garbage = new SignalMessage("msg-1", "not a signal".getBytes(StandardCharsets.UTF_8), 0);
+
+        // When: the batch is redelivered
+        consumer.consume(List.of(garbage, message(7, 1L)), QUEUE_0);
+        consumer.consume(List.of(garbage, message(7, 1L)), QUEUE_0);
+
+        // Then
+        verify(deadLetterQueue, times(1)).add(eq(garbage), eq(QUEUE_0), isNull(), any(Exception.class));
+        verify(warningService, times(1)).generateWarningsForSignals(argThat(ids(1L)));
+    }
+
+    @Test
+    void consume_ShouldBackOffWhenDeadLetterWriteFails() {
+        // Given
+        SignalMessage garbage = new SignalMessage("msg-1", "not a signal".getBytes(StandardCharsets.UTF_8), 0);
+        doThrow(new IllegalStateException("db down")).when(deadLetterQueue).add(any(), any(), any(), any());
+
+        // When
+        long delay = consumer.consume(List.of(garbage, message(7, 1L)), QUEUE_0);
+
+        // Then
+        assertEquals(100, delay);
+        verifyNoInteractions(warningService);
+    }
+
+    @Test
+    void consume_ShouldCapRetryDelay() {
+        // Given
+        when(warningService.generateWarningsForSignals(anyList())).thenThrow(new IllegalStateException("db down"));
+        ReflectionTestUtils.setField(consumer, "maxRetries", 100);
+        SignalMessage failing = message(7, 1L, 50);
+
+        // When
+        long delay = consumer.consume(List.of(failing), QUEUE_0);
+
+        // Then
+        assertEquals(1000, delay);
+    }
+
+    private static ArgumentMatcher<List<Signal>> ids(Long... signalIds) {
+        return signals -> signals != null && signals.stream().map(Signal::getId).collect(Collectors.toList())
+                .equals(List.of(signalIds));
+    }
+
+    private SignalMessage message(int carId, long signalId) {
+        return message(carId, signalId, 0);
+    }
+
+    private SignalMessage message(int carId, long signalId, int reconsumeTimes) {
+        Signal signal = Signal.create(carId, 1, SignalDataCodec.parse("{\"Mx\":3.8,\"Mi\":3.5}"));
+        signal.markAsPersisted(signalId, null);
+        return new SignalMessage("msg-" + carId + "-" + signalId, SignalMessageCodec.encode(signal), reconsumeTimes);
+    }
+}
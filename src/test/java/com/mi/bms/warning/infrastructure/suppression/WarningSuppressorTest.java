@@ -0,0 +1,127 @@
+package com.mi.bms.warning.infrastructure.suppression;
+
+import com.mi.bms.warning.domain.model.Warning;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarningSuppressorTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private LocalWarningSuppressionStore store;
+    private WarningSuppressor suppressor;
+    private long nextId = 100;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalWarningSuppressionStore();
+        suppressor = new WarningSuppressor(store);
+        ReflectionTestUtils.setField(suppressor, "enabled", true);
+        ReflectionTestUtils.setField(suppressor, "renotifyIntervalMs", 60000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    @Test
+    void plan_ShouldFoldRepeatsWithinIntervalAndRenotifyAfterIt() {
+        // Given
+        Long openId = persist(suppressor.plan(List.of(warning(1, 2)), T0)).get(0).getId();
+
+        // When
+        WarningSuppressor.Plan repeat = suppressor.plan(List.of(warning(1, 2), warning(1, 2)), T0.plusSeconds(59));
+        WarningSuppressor.Plan renotify = suppressor.plan(List.of(warning(1, 2)), T0.plusSeconds(60));
+
+        // Then
+        assertTrue(repeat.getInserts().isEmpty());
+        assertEquals(Map.of(openId, 2), repeat.getFolds());
+        assertEquals(1, renotify.getInserts().size());
+        assertTrue(renotify.getFolds().isEmpty());
+    }
+
+    @Test
+    void plan_ShouldOpenNewWarningOnLevelChangeWithinBatch() {
+        // When
+        WarningSuppressor.Plan plan = suppressor.plan(
+                List.of(warning(1, 2), warning(1, 2), warning(1, 0), warning(2, 2)), T0);
+
+        // Then: rule 1 escalates inside the batch, rule 2 is independent
+        assertEquals(3, plan.getInserts().size());
+        assertEquals(2, plan.getInserts().get(0).getOccurrences());
+        assertEquals(0, plan.getInserts().get(1).getWarnLevel());
+        assertEquals(2, plan.getInserts().get(2).getRuleNo());
+    }
+
+    @Test
+    void record_ShouldPublishStatesOnlyAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When: a later batch in the same transaction sees the uncommitted warning
+        persist(suppressor.plan(List.of(warning(1, 2)), T0));
+        WarningSuppressor.Plan sameTransaction = suppressor.plan(List.of(warning(1, 2)), T0.plusSeconds(1));
+
+        // Then
+        assertTrue(sameTransaction.getInserts().isEmpty());
+        assertTrue(store.getAll(List.of(SuppressionState.key(7, 1))).isEmpty());
+
+        TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(2, store.getAll(List.of(SuppressionState.key(7, 1))).get(SuppressionState.key(7, 1)).getLevel());
+    }
+
+    @Test
+    void record_ShouldDiscardStatesOnRollback() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        persist(suppressor.plan(List.of(warning(1, 2)), T0));
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations().get(0)
+                .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        TransactionSynchronizationManager.clear();
+
+        // Then: the rolled back warning is not a fold target
+        assertEquals(1, suppressor.plan(List.of(warning(1, 2)), T0.plusSeconds(1)).getInserts().size());
+    }
+
+    @Test
+    void plan_ShouldPassEverythingThroughWhenDisabled() {
+        // Given
+        ReflectionTestUtils.setField(suppressor, "enabled", false);
+        persist(suppressor.plan(List.of(warning(1, 2)), T0));
+
+        // When
+        WarningSuppressor.Plan plan = suppressor.plan(List.of(warning(1, 2), warning(1, 2)), T0.plusSeconds(1));
+
+        // Then
+        assertEquals(2, plan.getInserts().size());
+        assertTrue(plan.getFolds().isEmpty());
+    }
+
+    private List<Warning> persist(WarningSuppressor.Plan plan) {
+        for (Warning warning : plan.getInserts()) {
+            warning.markAsPersisted(nextId++, plan.getSeenAt());
+        }
+        suppressor.record(plan);
+        return plan.getInserts();
+    }
+
+    private Warning warning(int ruleNo, int level) {
+        return Warning.create(7, 1, ruleNo, "Rule " + ruleNo, level, "{}");
+    }
+}